@@ -0,0 +1,93 @@
+package searchengine;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.AuxCounters;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how fast PageLoader indexes a dataset file. Besides the number of loads per second,
+ * the megabytes counter reports the load throughput in MB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class IndexingBenchmark {
+    @Param({"16"})
+    public int megabytes;
+
+    @Param({"1", "4"})
+    public int threads;
+
+    private Path file;
+    private long size;
+
+    /**
+     * Counts the megabytes loaded, which JMH reports per second.
+     */
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Throughput {
+        public double megabytes;
+
+        /**
+         * Resets the counter before every iteration.
+         */
+        @Setup(Level.Iteration)
+        public void reset() {
+            megabytes = 0;
+        }
+    }
+
+    /**
+     * Writes the synthetic dataset.
+     *
+     * @throws IOException  if the dataset cannot be written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        file = Files.createTempFile("benchmark-corpus", ".txt");
+        size = new CorpusGenerator(42).write(file, megabytes * 1_000_000L);
+    }
+
+    /**
+     * Deletes the synthetic dataset.
+     *
+     * @throws IOException  if the dataset cannot be deleted
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    /**
+     * Loads the dataset into a new index.
+     *
+     * @param  throughput  the counter of loaded megabytes
+     * @return             the loaded index
+     */
+    @Benchmark
+    public Index load(Throughput throughput) {
+        Index index = new PageLoader(file.toString(), threads).getIndex();
+        throughput.megabytes += size / 1e6;
+        return index;
+    }
+}
@@ -0,0 +1,85 @@
+package searchengine;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the latency of SearchHandler.search for a single term, an AND query of two terms and an OR query.
+ * The searches use an empty query cache, so every search is evaluated and ranked.
+ * The terms are a common, a medium and a rare word of the synthetic corpus, picked by their rank.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class QueryBenchmark {
+    @Param({"10000", "100000"})
+    public int documents;
+
+    @Param({"10", "2147483647"})
+    public int k;
+
+    private SearchHandler handler;
+    private String common;
+    private String medium;
+    private String rare;
+
+    /**
+     * Indexes the synthetic corpus.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        CorpusGenerator generator = new CorpusGenerator(42);
+        PageLoader pageLoader = new PageLoader();
+        pageLoader.processContent(generator.lines(documents));
+        common = generator.word(0);
+        medium = generator.word(29);
+        rare = generator.word(1999);
+        handler = new SearchHandler(pageLoader.getIndex(), new TermFrequencyInverseDocumentScore(), new QueryCache(0));
+    }
+
+    /**
+     * Searches for a single common word.
+     *
+     * @return  the results
+     */
+    @Benchmark
+    public List<Page> singleTerm() {
+        return handler.search(common, k);
+    }
+
+    /**
+     * Searches for pages holding both a common and a medium word.
+     *
+     * @return  the results
+     */
+    @Benchmark
+    public List<Page> andQuery() {
+        return handler.search(common + " " + medium, k);
+    }
+
+    /**
+     * Searches for pages holding either a medium word or a rare word together with a common word.
+     *
+     * @return  the results
+     */
+    @Benchmark
+    public List<Page> orQuery() {
+        return handler.search(medium + " OR " + common + " " + rare, k);
+    }
+}
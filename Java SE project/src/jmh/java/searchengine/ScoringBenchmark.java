@@ -0,0 +1,114 @@
+package searchengine;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures the cost of scoring a single candidate page with each scoring method, one page at a time
+ * and in batches with a prepared query scorer.
+ * Every invocation scores the first {@value #CANDIDATES} pages matching the query, and the time is reported per page.
+ * The query is a single word, two words or an OR of words, made from common words of the synthetic corpus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoringBenchmark {
+    static final int CANDIDATES = 1024;
+
+    @Param({"tf", "tfidf", "bm25", "bm25f"})
+    public String scorer;
+
+    @Param({"single", "and", "or"})
+    public String shape;
+
+    private Index index;
+    private Query query;
+    private ScoringMethod scoringMethod;
+    private Page[] candidates;
+    private int[] candidateIds;
+    private double[] scores;
+
+    /**
+     * Indexes the synthetic corpus and picks the candidate pages.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        CorpusGenerator generator = new CorpusGenerator(42);
+        PageLoader pageLoader = new PageLoader();
+        pageLoader.processContent(generator.lines(50_000));
+        index = pageLoader.getIndex();
+        String searchTerm = switch (shape) {
+            case "single" -> generator.word(0);
+            case "and" -> generator.word(2) + " " + generator.word(9);
+            default -> generator.word(2) + " OR " + generator.word(9) + " " + generator.word(19);
+        };
+        query = new Query(searchTerm);
+        scoringMethod = WebServer.createScoringMethod(scorer);
+        int[] docIds = QueryEvaluator.evaluate(query, index);
+        if (docIds.length == 0) {
+            throw new IllegalStateException("The query " + searchTerm + " has no matches");
+        }
+        if (docIds.length < CANDIDATES) {
+            throw new IllegalStateException("The query " + searchTerm + " has fewer than " + CANDIDATES + " matches");
+        }
+        candidateIds = Arrays.copyOf(docIds, CANDIDATES);
+        candidates = new Page[CANDIDATES];
+        for (int i = 0; i < CANDIDATES; i++) {
+            candidates[i] = index.getPage(candidateIds[i]);
+        }
+        scores = new double[QueryScorer.BATCH_SIZE];
+    }
+
+    /**
+     * Scores every candidate page.
+     *
+     * @return  the sum of the scores
+     */
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public double score() {
+        double sum = 0;
+        for (Page page : candidates) {
+            sum += scoringMethod.score(index, page, query);
+        }
+        return sum;
+    }
+
+    /**
+     * Prepares a query scorer and scores the candidate pages in batches, as a search does.
+     *
+     * @return  the sum of the scores
+     */
+    @Benchmark
+    @OperationsPerInvocation(CANDIDATES)
+    public double scoreBatches() {
+        QueryScorer scorer = scoringMethod.prepare(index, query);
+        int[] batch = new int[QueryScorer.BATCH_SIZE];
+        double sum = 0;
+        for (int start = 0; start < CANDIDATES; start += batch.length) {
+            System.arraycopy(candidateIds, start, batch, 0, batch.length);
+            scorer.score(batch, batch.length, scores);
+            for (double score : scores) {
+                sum += score;
+            }
+        }
+        return sum;
+    }
+}
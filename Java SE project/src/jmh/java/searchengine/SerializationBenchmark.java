@@ -0,0 +1,60 @@
+package searchengine;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Measures how long it takes to write search results as the JSON of a /search response.
+ * The JSON is written to a stream that discards it, so only the serialization is measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SerializationBenchmark {
+    @Param({"10", "1000", "50000"})
+    public int results;
+
+    private List<Page> pages;
+
+    /**
+     * Makes the pages of the results.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        pages = new ArrayList<>();
+        for (int i = 0; i < results; i++) {
+            pages.add(new Page("https://en.wikipedia.org/wiki/Page_" + i, "Page " + i, List.of("w1")));
+        }
+    }
+
+    /**
+     * Writes the results as JSON.
+     *
+     * @throws IOException  if the results cannot be written
+     */
+    @Benchmark
+    public void writeResults() throws IOException {
+        try (JsonWriter json = new JsonWriter(OutputStream.nullOutputStream())) {
+            SearchHandler.writeResults(json, pages);
+        }
+    }
+}
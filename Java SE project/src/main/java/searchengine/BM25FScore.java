@@ -0,0 +1,235 @@
+package searchengine;
+
+import java.util.Set;
+
+/**
+ * Implements the {@link ScoringMethod} interface with BM25F, the variant of BM25 for documents with several fields,
+ * here the title and the content of a page. The frequency of a term in each field is first normalized by the length
+ * of that field, the title frequency is multiplied by the title weight, and the sum of the two is then saturated
+ * as in BM25: idf * tf * (k1 + 1) / (k1 + tf). A word in the title therefore counts as several words in the content.
+ *
+ * Pages are only found through the words of their content, so a term that is only in the title of a page adds nothing,
+ * just as with the other scoring methods. The lengths of both fields are read from the one byte norms of the index,
+ * and the normalization of each field is precomputed for the 256 norms the first time an index is scored.
+ * The frequency of a term in the title of a page of the index is read from the title posting list of the term,
+ * and the upper bound of a block uses the largest title frequency of the block stored in the posting list of the content.
+ */
+public class BM25FScore implements ScoringMethod {
+    /**
+     * The default weight of the title.
+     */
+    public static final double DEFAULT_TITLE_WEIGHT = 2.0;
+
+    private final double k1;
+    private final double titleWeight;
+    private final double titleB;
+    private final double contentB;
+    private volatile FieldFactors factors;
+
+    /**
+     * The length normalization of both fields for every norm of an index.
+     */
+    private static final class FieldFactors {
+        final Index index;
+        final double[] content;
+        final double[] title;
+
+        /**
+         * Computes the length normalization of the fields of an index.
+         *
+         * @param index     the index
+         * @param titleB    the length normalization of the title
+         * @param contentB  the length normalization of the content
+         */
+        FieldFactors(Index index, double titleB, double contentB) {
+            this.index = index;
+            this.content = new double[256];
+            this.title = new double[256];
+            for (int norm = 0; norm < 256; norm++) {
+                content[norm] = BM25Score.lengthFactor(LengthNorms.decode(norm),
+                        index.getLengthNorms().getAverageLength(), 1, contentB);
+                title[norm] = BM25Score.lengthFactor(LengthNorms.decode(norm),
+                        index.getTitleNorms().getAverageLength(), 1, titleB);
+            }
+        }
+    }
+
+    /**
+     * Constructs a BM25FScore with the default settings of BM25 for both fields and a title weight of {@value #DEFAULT_TITLE_WEIGHT}.
+     */
+    public BM25FScore() {
+        this(BM25Score.DEFAULT_K1, DEFAULT_TITLE_WEIGHT, BM25Score.DEFAULT_B, BM25Score.DEFAULT_B);
+    }
+
+    /**
+     * Constructs a BM25FScore.
+     *
+     * @param k1           the term frequency saturation, at least 0
+     * @param titleWeight  how many words of the content a word of the title counts as, at least 0
+     * @param titleB       the length normalization of the title, between 0 and 1
+     * @param contentB     the length normalization of the content, between 0 and 1
+     */
+    public BM25FScore(double k1, double titleWeight, double titleB, double contentB) {
+        if (k1 < 0 || titleWeight < 0 || titleB < 0 || titleB > 1 || contentB < 0 || contentB > 1) {
+            throw new IllegalArgumentException("BM25F needs k1 >= 0, a title weight >= 0 and every b between 0 and 1");
+        }
+        this.k1 = k1;
+        this.titleWeight = titleWeight;
+        this.titleB = titleB;
+        this.contentB = contentB;
+    }
+
+    /**
+     * Gets the length normalization of the fields of an index, computing it again only when another index is scored.
+     *
+     * @param  index  the index being scored
+     * @return        the length normalization of both fields
+     */
+    private FieldFactors getFactors(Index index) {
+        FieldFactors current = factors;
+        if (current == null || current.index != index) {
+            current = new FieldFactors(index, titleB, contentB);
+            factors = current;
+        }
+        return current;
+    }
+
+    /**
+     * Calculates the BM25F score of a page for a query, which is the highest sum of term contributions over the query parts.
+     * Pages that are not part of the index are scored from their content and the exact lengths of their fields.
+     *
+     * @param index The {@code Index} the page belongs to, which provides the posting lists and the length norms.
+     * @param page  The {@code Page} object representing the web page to be scored.
+     * @param query The {@code Query} object representing the search query.
+     * @return      The BM25F score. A term that does not appear in the content of the page adds nothing.
+     */
+    @Override
+    public double score(Index index, Page page, Query query) {
+        int docId = index.getDocId(page);
+        double contentNorm;
+        double titleNorm;
+        if (docId >= 0) {
+            FieldFactors current = getFactors(index);
+            contentNorm = current.content[index.getLengthNorms().get(docId)];
+            titleNorm = current.title[index.getTitleNorms().get(docId)];
+        } else {
+            contentNorm = BM25Score.lengthFactor(page.getTotalTerms(), index.getLengthNorms().getAverageLength(), 1, contentB);
+            titleNorm = BM25Score.lengthFactor(page.getTitleLength(), index.getTitleNorms().getAverageLength(), 1, titleB);
+        }
+        double score = 0;
+        for (Set<String> queryPart : query.getQueryParts()) {
+            double partScore = 0;
+            for (String term : queryPart) {
+                PostingList postings = index.getPostings(term);
+                int tf = docId >= 0 ? postings.frequencyOf(docId) : page.getTermFrequency(term);
+                if (tf > 0 && postings.size() > 0) {
+                    double weightedTf = tf / contentNorm;
+                    int titleTf = docId >= 0 ? index.getTitlePostings(term).frequencyOf(docId) : page.getTitleFrequency(term);
+                    if (titleTf > 0) {
+                        weightedTf += titleWeight * titleTf / titleNorm;
+                    }
+                    partScore += postings.getIdf() * weightedTf * (k1 + 1) / (k1 + weightedTf);
+                }
+            }
+            score = Math.max(score, partScore);
+        }
+        return score;
+    }
+
+    /**
+     * Prepares a query scorer that reads the normalization of both fields of every document once per block.
+     * The frequency of a term in the title is read from the title posting list of the term, whose position
+     * only moves forward, since the blocks come in ascending id order.
+     *
+     * @param index  The index the documents belong to.
+     * @param query  The query to score the documents for.
+     * @return       A query scorer that scores a block of documents at a time.
+     */
+    @Override
+    public QueryScorer prepare(Index index, Query query) {
+        FieldFactors fields = getFactors(index);
+        LengthNorms contentNorms = index.getLengthNorms();
+        LengthNorms titleNorms = index.getTitleNorms();
+        return new TermQueryScorer(index, query) {
+            private double[] contentFactors = new double[0];
+            private double[] titleFactors = new double[0];
+            private PostingList[] titles;
+            private int[] titlePositions;
+
+            @Override
+            protected void prepareBlock(int[] docIds, int count) {
+                if (titles == null) {
+                    titles = new PostingList[getTermCount()];
+                    titlePositions = new int[getTermCount()];
+                    for (int term = 0; term < titles.length; term++) {
+                        titles[term] = index.getTitlePostings(getTerm(term));
+                    }
+                }
+                if (contentFactors.length < count) {
+                    contentFactors = new double[count];
+                    titleFactors = new double[count];
+                }
+                for (int i = 0; i < count; i++) {
+                    contentFactors[i] = fields.content[contentNorms.get(docIds[i])];
+                    titleFactors[i] = fields.title[titleNorms.get(docIds[i])];
+                }
+            }
+
+            @Override
+            protected void contribute(int term, int[] docIds, int[] frequencies, int count, double[] contributions) {
+                double idf = getPostings(term).getIdf();
+                PostingList title = titles[term];
+                int position = titlePositions[term];
+                for (int i = 0; i < count; i++) {
+                    int tf = frequencies[i];
+                    if (tf > 0) {
+                        double weightedTf = tf / contentFactors[i];
+                        position = title.advance(position, docIds[i]);
+                        int titleTf = position < title.size() && title.getDocId(position) == docIds[i]
+                                ? title.getFrequency(position) : 0;
+                        if (titleTf > 0) {
+                            weightedTf += titleWeight * titleTf / titleFactors[i];
+                        }
+                        contributions[i] = idf * weightedTf * (k1 + 1) / (k1 + weightedTf);
+                    } else {
+                        contributions[i] = 0;
+                    }
+                }
+                titlePositions[term] = position;
+            }
+        };
+    }
+
+    /**
+     * The contribution of a term grows with its frequency in both fields and shrinks with the length of both fields,
+     * so it is bounded by the largest frequencies of the block in the content and in the title on a page
+     * whose fields are both a single word long, which is the shortest field that can hold the term.
+     * Without the title frequencies of the blocks, the bound is the limit of the saturation, idf times k1 + 1.
+     *
+     * @param index    The index the posting list belongs to.
+     * @param postings The posting list of the term.
+     * @param block    The block number in the posting list.
+     * @return         The largest BM25F contribution of the term in the block.
+     */
+    @Override
+    public double upperBound(Index index, PostingList postings, int block) {
+        if (!postings.hasTitleMaxima()) {
+            return postings.getIdf() * (k1 + 1);
+        }
+        FieldFactors fields = getFactors(index);
+        double weightedTf = postings.getBlockMaxFrequency(block) / fields.content[1]
+                + titleWeight * postings.getBlockMaxTitleFrequency(block) / fields.title[1];
+        return postings.getIdf() * weightedTf * (k1 + 1) / (k1 + weightedTf);
+    }
+
+    /**
+     * Gives the name of the class together with its settings, so results scored with other settings are cached apart.
+     *
+     * @return  the name of the scoring method
+     */
+    @Override
+    public String getName() {
+        return getClass().getName() + "(k1=" + k1 + ", titleWeight=" + titleWeight
+                + ", titleB=" + titleB + ", contentB=" + contentB + ")";
+    }
+}
@@ -0,0 +1,195 @@
+package searchengine;
+
+import java.util.Set;
+
+/**
+ * Implements the {@link ScoringMethod} interface with the Okapi BM25 ranking function.
+ * A term adds idf * tf * (k1 + 1) / (tf + k1 * (1 - b + b * length / averageLength)) to the score of a page,
+ * so repeating a term gives less and less extra score, and long pages are scored lower than short pages
+ * with the same term frequencies. The constant k1 sets how fast the term frequency saturates,
+ * and b sets how much the length of the page matters, from 0 for not at all to 1 for fully.
+ *
+ * The inverse document frequency of every term is computed once when its posting list is finished,
+ * and the length of a page is read from the one byte norms of the index. The length part of the formula
+ * is computed for each of the 256 norms the first time an index is scored and reused for every page afterwards,
+ * so scoring a page costs a lookup of each term and no logarithms or divisions by the page length.
+ */
+public class BM25Score implements ScoringMethod {
+    /**
+     * The default term frequency saturation.
+     */
+    public static final double DEFAULT_K1 = 1.2;
+
+    /**
+     * The default length normalization.
+     */
+    public static final double DEFAULT_B = 0.75;
+
+    private final double k1;
+    private final double b;
+    private volatile LengthFactors factors;
+
+    /**
+     * The length part of the formula for every norm of a LengthNorms.
+     */
+    private static final class LengthFactors {
+        final LengthNorms norms;
+        final double[] values;
+
+        /**
+         * Computes the length factors of the given norms.
+         *
+         * @param norms  the length norms of an index
+         * @param k1     the term frequency saturation
+         * @param b      the length normalization
+         */
+        LengthFactors(LengthNorms norms, double k1, double b) {
+            this.norms = norms;
+            this.values = new double[256];
+            for (int norm = 0; norm < values.length; norm++) {
+                values[norm] = lengthFactor(LengthNorms.decode(norm), norms.getAverageLength(), k1, b);
+            }
+        }
+    }
+
+    /**
+     * Constructs a BM25Score with the default k1 of {@value #DEFAULT_K1} and b of {@value #DEFAULT_B}.
+     */
+    public BM25Score() {
+        this(DEFAULT_K1, DEFAULT_B);
+    }
+
+    /**
+     * Constructs a BM25Score.
+     *
+     * @param k1  the term frequency saturation, at least 0
+     * @param b   the length normalization, between 0 and 1
+     */
+    public BM25Score(double k1, double b) {
+        if (k1 < 0 || b < 0 || b > 1) {
+            throw new IllegalArgumentException("BM25 needs k1 >= 0 and 0 <= b <= 1");
+        }
+        this.k1 = k1;
+        this.b = b;
+    }
+
+    /**
+     * Computes k1 * (1 - b + b * length / averageLength), the part of the formula that depends on the length of a page.
+     *
+     * @param  length         the length of the page
+     * @param  averageLength  the average length of the pages of the index
+     * @param  k1             the term frequency saturation
+     * @param  b              the length normalization
+     * @return                the length factor
+     */
+    static double lengthFactor(int length, double averageLength, double k1, double b) {
+        double relativeLength = averageLength > 0 ? length / averageLength : 1;
+        return k1 * (1 - b + b * relativeLength);
+    }
+
+    /**
+     * Gets the length factors of the norms, computing them again only when another index is scored.
+     *
+     * @param  norms  the length norms of the index being scored
+     * @return        the length factor of every norm
+     */
+    private double[] getFactors(LengthNorms norms) {
+        LengthFactors current = factors;
+        if (current == null || current.norms != norms) {
+            current = new LengthFactors(norms, k1, b);
+            factors = current;
+        }
+        return current.values;
+    }
+
+    /**
+     * Calculates the BM25 score of a page for a query, which is the highest sum of term contributions over the query parts.
+     * Pages that are not part of the index are scored from their content and their exact length.
+     *
+     * @param index The {@code Index} the page belongs to, which provides the posting lists and the length norms.
+     * @param page  The {@code Page} object representing the web page to be scored.
+     * @param query The {@code Query} object representing the search query.
+     * @return      The BM25 score. A term that does not appear on the page or in the index adds nothing.
+     */
+    @Override
+    public double score(Index index, Page page, Query query) {
+        int docId = index.getDocId(page);
+        double lengthFactor = docId >= 0
+                ? getFactors(index.getLengthNorms())[index.getLengthNorms().get(docId)]
+                : lengthFactor(page.getTotalTerms(), index.getLengthNorms().getAverageLength(), k1, b);
+        double score = 0;
+        for (Set<String> queryPart : query.getQueryParts()) {
+            double partScore = 0;
+            for (String term : queryPart) {
+                PostingList postings = index.getPostings(term);
+                int tf = docId >= 0 ? postings.frequencyOf(docId) : page.getTermFrequency(term);
+                if (tf > 0 && postings.size() > 0) {
+                    partScore += postings.getIdf() * tf * (k1 + 1) / (tf + lengthFactor);
+                }
+            }
+            score = Math.max(score, partScore);
+        }
+        return score;
+    }
+
+    /**
+     * Prepares a query scorer that reads the length factor of every document once per block,
+     * so computing the contribution of a term is a loop of arithmetic over the columns of the block.
+     *
+     * @param index  The index the documents belong to.
+     * @param query  The query to score the documents for.
+     * @return       A query scorer that scores a block of documents at a time.
+     */
+    @Override
+    public QueryScorer prepare(Index index, Query query) {
+        LengthNorms norms = index.getLengthNorms();
+        double[] lengthFactors = getFactors(norms);
+        return new TermQueryScorer(index, query) {
+            private double[] blockFactors = new double[0];
+
+            @Override
+            protected void prepareBlock(int[] docIds, int count) {
+                if (blockFactors.length < count) {
+                    blockFactors = new double[count];
+                }
+                for (int i = 0; i < count; i++) {
+                    blockFactors[i] = lengthFactors[norms.get(docIds[i])];
+                }
+            }
+
+            @Override
+            protected void contribute(int term, int[] docIds, int[] frequencies, int count, double[] contributions) {
+                double idf = getPostings(term).getIdf();
+                for (int i = 0; i < count; i++) {
+                    int tf = frequencies[i];
+                    contributions[i] = tf > 0 ? idf * tf * (k1 + 1) / (tf + blockFactors[i]) : 0;
+                }
+            }
+        };
+    }
+
+    /**
+     * The contribution of a term grows with its frequency and shrinks with the length of the page,
+     * so it is bounded by the largest frequency in the block on a page of length 0.
+     *
+     * @param index    The index the posting list belongs to.
+     * @param postings The posting list of the term.
+     * @param block    The block number in the posting list.
+     * @return         The largest BM25 contribution of the term in the block.
+     */
+    @Override
+    public double upperBound(Index index, PostingList postings, int block) {
+        int tf = postings.getBlockMaxFrequency(block);
+        return postings.getIdf() * tf * (k1 + 1) / (tf + k1 * (1 - b));
+    }
+
+    /**
+     * Gives the name of the class together with k1 and b, so results scored with other settings are cached apart.
+     *
+     * @return  the name of the scoring method
+     */
+    @Override
+    public String getName() {
+        return getClass().getName() + "(k1=" + k1 + ", b=" + b + ")";
+    }
+}
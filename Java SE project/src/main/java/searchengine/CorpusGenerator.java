@@ -0,0 +1,304 @@
+package searchengine;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.SplittableRandom;
+
+/**
+ * The CorpusGenerator class writes synthetic datasets in the "*PAGE:" format, from a few kilobytes up to tens of gigabytes,
+ * so the search engine can be tested at scale without downloading the real dataset.
+ *
+ * The words of the pages follow a Zipfian distribution: the word of rank r is drawn with a probability proportional
+ * to 1 / r^s, where s is the exponent. The words are made of syllables, and common words are shorter than rare ones.
+ * The number of words of a page follows a log-normal distribution with the given median and spread,
+ * so most pages are short and a few are very long. Every page gets a title of two or three capitalized words,
+ * the last of which is unique to the page, and a Wikipedia style url made from the title.
+ *
+ * The same seed and settings always give the same dataset. The dataset is written as it is generated,
+ * so only the vocabulary is held in memory, however large the dataset is.
+ */
+public class CorpusGenerator {
+    static final long DEFAULT_SEED = 42;
+    static final int DEFAULT_VOCABULARY = 100_000;
+    static final double DEFAULT_EXPONENT = 1.0;
+    static final int DEFAULT_MEDIAN_LENGTH = 150;
+    static final double DEFAULT_LENGTH_SIGMA = 1.0;
+    static final String URL_PREFIX = "https://en.wikipedia.org/wiki/";
+
+    private static final String[] SYLLABLES = {
+        "a", "e", "i", "o", "u", "ka", "ke", "ki", "ko", "ku", "la", "le", "li", "lo", "lu",
+        "ma", "me", "mi", "mo", "mu", "na", "ne", "ni", "no", "nu", "ra", "re", "ri", "ro", "ru",
+        "sa", "se", "si", "so", "su", "ta", "te", "ti", "to", "tu", "ba", "be", "bi", "bo", "bu",
+        "da", "de", "di", "do", "du", "ga", "ge", "gi", "go", "gu", "pa", "pe", "pi", "po", "pu"
+    };
+
+    private final long seed;
+    private final double medianLength;
+    private final double lengthSigma;
+    private final String[] words;
+    private final byte[][] wordBytes;
+    private final double[] probability;
+    private final int[] alias;
+
+    /**
+     * Constructs a CorpusGenerator with the default settings and the given seed.
+     *
+     * @param seed  the seed of the random numbers
+     */
+    public CorpusGenerator(long seed) {
+        this(seed, DEFAULT_VOCABULARY, DEFAULT_EXPONENT, DEFAULT_MEDIAN_LENGTH, DEFAULT_LENGTH_SIGMA);
+    }
+
+    /**
+     * Constructs a CorpusGenerator.
+     *
+     * @param seed          the seed of the random numbers
+     * @param vocabulary    the number of distinct words
+     * @param exponent      the exponent s of the Zipfian distribution of the words, where larger is more skewed
+     * @param medianLength  the median number of words of a page
+     * @param lengthSigma   the standard deviation of the logarithm of the number of words of a page, 0 for equal lengths
+     */
+    public CorpusGenerator(long seed, int vocabulary, double exponent, double medianLength, double lengthSigma) {
+        if (vocabulary < 1 || exponent < 0 || medianLength < 1 || lengthSigma < 0) {
+            throw new IllegalArgumentException("Invalid corpus settings");
+        }
+        this.seed = seed;
+        this.medianLength = medianLength;
+        this.lengthSigma = lengthSigma;
+        this.words = new String[vocabulary];
+        this.wordBytes = new byte[vocabulary][];
+        this.probability = new double[vocabulary];
+        this.alias = new int[vocabulary];
+        double total = 0;
+        for (int rank = 0; rank < vocabulary; rank++) {
+            words[rank] = syllables(rank);
+            wordBytes[rank] = (words[rank] + "\n").getBytes(StandardCharsets.UTF_8);
+            probability[rank] = 1 / Math.pow(rank + 1, exponent);
+            total += probability[rank];
+        }
+        buildAliasTable(total);
+    }
+
+    /**
+     * Builds the alias table of the Zipfian distribution, so a word is drawn in constant time.
+     * Every slot of the table holds a rank with the probability in the slot, and otherwise its alias,
+     * where each slot is filled up to the average probability by taking from a rank with more than the average.
+     *
+     * @param total  the sum of the weights in the probability array, which are scaled in place
+     */
+    private void buildAliasTable(double total) {
+        int n = probability.length;
+        int[] small = new int[n];
+        int[] large = new int[n];
+        int smallCount = 0;
+        int largeCount = 0;
+        for (int rank = 0; rank < n; rank++) {
+            probability[rank] = probability[rank] * n / total;
+            alias[rank] = rank;
+            if (probability[rank] < 1) {
+                small[smallCount++] = rank;
+            } else {
+                large[largeCount++] = rank;
+            }
+        }
+        while (smallCount > 0 && largeCount > 0) {
+            int less = small[--smallCount];
+            int more = large[largeCount - 1];
+            alias[less] = more;
+            probability[more] -= 1 - probability[less];
+            if (probability[more] < 1) {
+                largeCount--;
+                small[smallCount++] = more;
+            }
+        }
+        while (largeCount > 0) {
+            probability[large[--largeCount]] = 1;
+        }
+        while (smallCount > 0) {
+            probability[small[--smallCount]] = 1;
+        }
+    }
+
+    /**
+     * Makes the word of a number by writing the number in base {@code SYLLABLES.length} with syllables as digits.
+     * Different numbers give different words, and smaller numbers give shorter words.
+     *
+     * @param  number  the number, at least 0
+     * @return         the word of the number
+     */
+    static String syllables(long number) {
+        StringBuilder word = new StringBuilder();
+        long rest = number;
+        do {
+            word.append(SYLLABLES[(int) (rest % SYLLABLES.length)]);
+            rest = rest / SYLLABLES.length - 1;
+        } while (rest >= 0);
+        return word.toString();
+    }
+
+    /**
+     * Gets the word of the given rank, for example to search for a word with a known frequency.
+     *
+     * @param  rank  the rank of the word, where 0 is the most common word
+     * @return       the word
+     */
+    public String word(int rank) {
+        return words[rank];
+    }
+
+    /**
+     * Draws the rank of a word from the Zipfian distribution.
+     *
+     * @param  random  the random numbers
+     * @return         the rank of the word
+     */
+    private int nextRank(SplittableRandom random) {
+        int slot = random.nextInt(probability.length);
+        return random.nextDouble() < probability[slot] ? slot : alias[slot];
+    }
+
+    /**
+     * Draws the number of words of a page from the log-normal distribution.
+     *
+     * @param  random  the random numbers
+     * @return         the number of words, at least 1
+     */
+    private int nextLength(SplittableRandom random) {
+        double length = medianLength * Math.exp(lengthSigma * random.nextGaussian());
+        return (int) Math.max(1, Math.min(Integer.MAX_VALUE / 2, Math.round(length)));
+    }
+
+    /**
+     * Makes the title of a page from one or two common words and a word that is unique to the page.
+     *
+     * @param  random  the random numbers
+     * @param  page    the number of the page
+     * @return         the title
+     */
+    private String title(SplittableRandom random, long page) {
+        StringBuilder title = new StringBuilder();
+        int topicWords = 1 + random.nextInt(2);
+        for (int i = 0; i < topicWords; i++) {
+            title.append(capitalize(words[random.nextInt(Math.min(words.length, 1000))])).append(' ');
+        }
+        return title.append(capitalize(syllables(page))).toString();
+    }
+
+    private static String capitalize(String word) {
+        return word.substring(0, 1).toUpperCase(Locale.ROOT) + word.substring(1);
+    }
+
+    /**
+     * Writes pages to a stream until at least the given number of bytes has been written.
+     *
+     * @param  out          the stream to write to
+     * @param  bytes        the size of the dataset in bytes
+     * @return              the number of bytes written
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    public long write(OutputStream out, long bytes) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        long written = 0;
+        for (long page = 0; written < bytes; page++) {
+            String title = title(random, page);
+            byte[] header = ("*PAGE:" + URL_PREFIX + title.replace(' ', '_') + "\n" + title + "\n")
+                    .getBytes(StandardCharsets.UTF_8);
+            out.write(header);
+            written += header.length;
+            int length = nextLength(random);
+            for (int i = 0; i < length; i++) {
+                byte[] word = wordBytes[nextRank(random)];
+                out.write(word);
+                written += word.length;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Writes a dataset of at least the given size to a file.
+     *
+     * @param  file         the file to write
+     * @param  bytes        the size of the dataset in bytes
+     * @return              the number of bytes written
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    public long write(Path file, long bytes) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(file), 1 << 16)) {
+            return write(out, bytes);
+        }
+    }
+
+    /**
+     * Makes the lines of a dataset with the given number of pages, the same pages as the start of a written dataset.
+     *
+     * @param  pages  the number of pages
+     * @return        the lines of the dataset
+     */
+    public List<String> lines(int pages) {
+        SplittableRandom random = new SplittableRandom(seed);
+        List<String> lines = new ArrayList<>();
+        for (long page = 0; page < pages; page++) {
+            String title = title(random, page);
+            lines.add("*PAGE:" + URL_PREFIX + title.replace(' ', '_'));
+            lines.add(title);
+            int length = nextLength(random);
+            for (int i = 0; i < length; i++) {
+                lines.add(words[nextRank(random)]);
+            }
+        }
+        return lines;
+    }
+
+    /**
+     * Parses a size such as 512KB, 64MB or 10GB. A number without a unit is a number of bytes.
+     *
+     * @param  size  the size
+     * @return       the number of bytes
+     * @throws NumberFormatException  if the size cannot be parsed
+     */
+    static long parseSize(String size) {
+        String upper = size.trim().toUpperCase(Locale.ROOT);
+        long unit = 1;
+        if (upper.endsWith("KB")) {
+            unit = 1L << 10;
+        } else if (upper.endsWith("MB")) {
+            unit = 1L << 20;
+        } else if (upper.endsWith("GB")) {
+            unit = 1L << 30;
+        }
+        String number = unit == 1 ? upper : upper.substring(0, upper.length() - 2);
+        return Math.round(Double.parseDouble(number) * unit);
+    }
+
+    /**
+     * Writes a synthetic dataset. The arguments are the file and its size, such as 64MB or 10GB, optionally followed by
+     * the seed, the size of the vocabulary, the Zipf exponent, the median number of words of a page
+     * and the spread of the page lengths.
+     *
+     * @param  args         the file, the size and the optional settings
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: CorpusGenerator <file> <size> [<seed> [<vocabulary> [<exponent> [<median length> [<length sigma>]]]]]");
+            return;
+        }
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : DEFAULT_SEED;
+        int vocabulary = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_VOCABULARY;
+        double exponent = args.length > 4 ? Double.parseDouble(args[4]) : DEFAULT_EXPONENT;
+        double medianLength = args.length > 5 ? Double.parseDouble(args[5]) : DEFAULT_MEDIAN_LENGTH;
+        double lengthSigma = args.length > 6 ? Double.parseDouble(args[6]) : DEFAULT_LENGTH_SIGMA;
+        CorpusGenerator generator = new CorpusGenerator(seed, vocabulary, exponent, medianLength, lengthSigma);
+        long written = generator.write(Paths.get(args[0]), parseSize(args[1]));
+        System.out.println("Wrote " + written + " bytes to " + args[0]);
+    }
+}
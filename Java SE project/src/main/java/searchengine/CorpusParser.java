@@ -0,0 +1,257 @@
+package searchengine;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * The CorpusParser class indexes pages straight from the bytes of a memory mapped dataset.
+ * It scans the bytes for line breaks and "*PAGE" lines, and looks every word up by the bytes of its line,
+ * so only urls, titles and words the parser has not seen before are decoded into Strings.
+ * The words already seen are kept in a small hash table of their UTF-8 bytes and term ids.
+ *
+ * The pages found are the same as when the dataset is read with a BufferedReader line by line:
+ * lines end with "\n", "\r" or "\r\n", lines before the first "*PAGE" line are skipped,
+ * the line after a "*PAGE" line is the title, and every line after the title is a word.
+ * A page is only indexed if it has at least two lines that are not blank after its "*PAGE" line.
+ * The bytes are read as UTF-8.
+ *
+ * A parser is not thread safe, so every thread indexing a chunk of the dataset uses its own parser.
+ */
+public class CorpusParser {
+    private static final byte[] PAGE_MARKER = "*PAGE".getBytes(StandardCharsets.US_ASCII);
+    private static final int URL_OFFSET = "*PAGE:".length();
+    private static final int MIN_CAPACITY = 1024;
+
+    private final IndexBuilder target;
+    private final TermDictionary dictionary;
+
+    private int[] slotHashes = new int[MIN_CAPACITY];
+    private int[] slotIds = new int[MIN_CAPACITY];
+    private byte[][] slotBytes = new byte[MIN_CAPACITY][];
+    private int cached;
+
+    private boolean inPage;
+    private String url;
+    private String title;
+    private int lines;
+    private int nonBlankLines;
+    private int[] termIds = new int[256];
+    private int termCount;
+
+    /**
+     * Constructs a CorpusParser that indexes the pages it finds into a builder.
+     *
+     * @param target  the builder the pages are indexed into
+     */
+    public CorpusParser(IndexBuilder target) {
+        this.target = target;
+        this.dictionary = target.getDictionary();
+    }
+
+    /**
+     * Indexes every page between the position and the limit of a buffer.
+     * The buffer should start at the beginning of a line, and a page is finished at the end of the buffer,
+     * so a dataset can be parsed in chunks that each start at a "*PAGE" line.
+     *
+     * @param buffer  the bytes of the dataset, which are read but not changed
+     */
+    public void parse(ByteBuffer buffer) {
+        int end = buffer.limit();
+        int start = buffer.position();
+        int position = start;
+        while (position < end) {
+            byte b = buffer.get(position);
+            if (b == '\n' || b == '\r') {
+                processLine(buffer, start, position);
+                position++;
+                if (b == '\r' && position < end && buffer.get(position) == '\n') {
+                    position++;
+                }
+                start = position;
+            } else {
+                position++;
+            }
+        }
+        if (start < end) {
+            processLine(buffer, start, end);
+        }
+        finishPage();
+    }
+
+    /**
+     * Handles a single line, which either starts a new page, is the title of the current page, or is a word.
+     *
+     * @param buffer  the bytes of the dataset
+     * @param start   the position of the first byte of the line
+     * @param end     the position after the last byte of the line, not counting the line break
+     */
+    private void processLine(ByteBuffer buffer, int start, int end) {
+        if (startsWithMarker(buffer, start, end)) {
+            finishPage();
+            inPage = true;
+            url = end - start > URL_OFFSET ? decode(buffer, start + URL_OFFSET, end) : "";
+            title = null;
+            lines = 0;
+            nonBlankLines = 0;
+            termCount = 0;
+            return;
+        }
+        if (!inPage) {
+            return;
+        }
+        lines++;
+        if (!isBlank(buffer, start, end)) {
+            nonBlankLines++;
+        }
+        if (lines == 1) {
+            title = decode(buffer, start, end);
+        } else {
+            if (termCount == termIds.length) {
+                termIds = Arrays.copyOf(termIds, termCount * 2);
+            }
+            termIds[termCount++] = termIdOf(buffer, start, end);
+        }
+    }
+
+    /**
+     * Indexes the page that has been read so far, if it has a title and at least one word that are not blank.
+     */
+    private void finishPage() {
+        if (inPage && nonBlankLines >= 2) {
+            target.addPage(new Page(url, title, Arrays.copyOf(termIds, termCount), dictionary));
+        }
+        inPage = false;
+    }
+
+    /**
+     * Finds the term id of the word on a line. The word is looked up by its bytes first,
+     * and only decoded and added to the TermDictionary of the builder if this parser has not seen it before.
+     *
+     * @param  buffer  the bytes of the dataset
+     * @param  start   the position of the first byte of the word
+     * @param  end     the position after the last byte of the word
+     * @return         the term id of the word
+     */
+    private int termIdOf(ByteBuffer buffer, int start, int end) {
+        int hash = 0x811C9DC5;
+        for (int i = start; i < end; i++) {
+            hash = (hash ^ buffer.get(i)) * 0x01000193;
+        }
+        int mask = slotIds.length - 1;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (slotBytes[slot] != null) {
+            if (slotHashes[slot] == hash && sameBytes(slotBytes[slot], buffer, start, end)) {
+                return slotIds[slot];
+            }
+            slot = (slot + 1) & mask;
+        }
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        int termId = dictionary.getOrAdd(new String(bytes, StandardCharsets.UTF_8));
+        slotHashes[slot] = hash;
+        slotIds[slot] = termId;
+        slotBytes[slot] = bytes;
+        cached++;
+        if (cached * 3 > slotIds.length * 2) {
+            resize();
+        }
+        return termId;
+    }
+
+    /**
+     * Doubles the capacity of the hash table of words seen so far.
+     */
+    private void resize() {
+        int[] oldHashes = slotHashes;
+        int[] oldIds = slotIds;
+        byte[][] oldBytes = slotBytes;
+        slotHashes = new int[oldHashes.length * 2];
+        slotIds = new int[oldIds.length * 2];
+        slotBytes = new byte[oldBytes.length * 2][];
+        int mask = slotIds.length - 1;
+        for (int i = 0; i < oldBytes.length; i++) {
+            if (oldBytes[i] != null) {
+                int slot = (oldHashes[i] ^ oldHashes[i] >>> 16) & mask;
+                while (slotBytes[slot] != null) {
+                    slot = (slot + 1) & mask;
+                }
+                slotHashes[slot] = oldHashes[i];
+                slotIds[slot] = oldIds[i];
+                slotBytes[slot] = oldBytes[i];
+            }
+        }
+    }
+
+    /**
+     * Compares the bytes of a word seen before with a range of the buffer.
+     *
+     * @param  bytes   the bytes of the word seen before
+     * @param  buffer  the bytes of the dataset
+     * @param  start   the position of the first byte of the range
+     * @param  end     the position after the last byte of the range
+     * @return         true if the bytes are equal, false otherwise
+     */
+    private static boolean sameBytes(byte[] bytes, ByteBuffer buffer, int start, int end) {
+        if (bytes.length != end - start) {
+            return false;
+        }
+        for (int i = 0; i < bytes.length; i++) {
+            if (bytes[i] != buffer.get(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a line starts with "*PAGE".
+     *
+     * @param  buffer  the bytes of the dataset
+     * @param  start   the position of the first byte of the line
+     * @param  end     the position after the last byte of the line
+     * @return         true if the line starts a new page, false otherwise
+     */
+    private static boolean startsWithMarker(ByteBuffer buffer, int start, int end) {
+        if (end - start < PAGE_MARKER.length) {
+            return false;
+        }
+        for (int i = 0; i < PAGE_MARKER.length; i++) {
+            if (buffer.get(start + i) != PAGE_MARKER[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Checks whether a line only holds spaces and control characters, like a String that is empty after trim.
+     *
+     * @param  buffer  the bytes of the dataset
+     * @param  start   the position of the first byte of the line
+     * @param  end     the position after the last byte of the line
+     * @return         true if the line is blank, false otherwise
+     */
+    private static boolean isBlank(ByteBuffer buffer, int start, int end) {
+        for (int i = start; i < end; i++) {
+            if ((buffer.get(i) & 0xFF) > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Decodes a range of the buffer into a String.
+     *
+     * @param  buffer  the bytes of the dataset
+     * @param  start   the position of the first byte
+     * @param  end     the position after the last byte
+     * @return         the decoded String
+     */
+    private static String decode(ByteBuffer buffer, int start, int end) {
+        byte[] bytes = new byte[end - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
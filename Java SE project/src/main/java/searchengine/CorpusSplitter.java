@@ -0,0 +1,90 @@
+package searchengine;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CorpusSplitter provides utility methods for dividing a dataset file into chunks
+ * that can be indexed independently of each other.
+ * Every chunk starts at the beginning of a "*PAGE" line, so no page is ever split between two chunks.
+ * Lines end with "\n", "\r" or "\r\n", the same as for the CorpusParser, so the chunks start at the same pages it finds.
+ */
+public class CorpusSplitter {
+    private static final byte[] PAGE_MARKER = "*PAGE".getBytes(StandardCharsets.US_ASCII);
+
+    /**
+     * Finds the byte offsets at which the chunks of the dataset start.
+     * The file is divided into pieces of roughly the given size, and each piece is then
+     * extended to the start of the next page.
+     *
+     * @param  channel      the channel of the dataset file
+     * @param  chunkSize    the approximate size of each chunk in bytes
+     * @return              the start offsets of the chunks, followed by the size of the file
+     * @throws IOException  if an I/O error occurs while reading the file
+     */
+    public static List<Long> findChunkOffsets(FileChannel channel, long chunkSize) throws IOException {
+        List<Long> offsets = new ArrayList<>();
+        long size = channel.size();
+        long start = 0;
+        while (start < size) {
+            offsets.add(start);
+            start = nextPageStart(channel, Math.max(start + chunkSize, start + 1));
+        }
+        offsets.add(size);
+        return offsets;
+    }
+
+    /**
+     * Finds the offset of the first "*PAGE" line starting at or after the given offset.
+     *
+     * @param  channel      the channel of the dataset file
+     * @param  from         the offset from which to search
+     * @return              the offset of the next page, or the size of the file if there is none
+     * @throws IOException  if an I/O error occurs while reading the file
+     */
+    static long nextPageStart(FileChannel channel, long from) throws IOException {
+        if (from >= channel.size()) {
+            return channel.size();
+        }
+        // Start one byte early, so a line break right before the offset marks the offset as a line start.
+        long position = Math.max(from - 1, 0);
+        long candidate = from;
+        int matched = from == 0 ? 0 : -1;
+        InputStream in = new BufferedInputStream(Channels.newInputStream(channel.position(position)));
+        int b;
+        while ((b = in.read()) != -1) {
+            if (matched >= 0 && position >= from) {
+                matched = b == PAGE_MARKER[matched] ? matched + 1 : -1;
+                if (matched == PAGE_MARKER.length) {
+                    return candidate;
+                }
+            }
+            position++;
+            if (b == '\n' || b == '\r') {
+                matched = 0;
+                candidate = position;
+            }
+        }
+        return channel.size();
+    }
+
+    /**
+     * Memory maps a chunk of the dataset, so it can be parsed without copying its bytes.
+     *
+     * @param  channel      the channel of the dataset file
+     * @param  start        the offset of the first byte of the chunk (inclusive)
+     * @param  end          the offset of the last byte of the chunk (exclusive)
+     * @return              a read only buffer holding the chunk
+     * @throws IOException  if an I/O error occurs while mapping the file
+     */
+    public static ByteBuffer mapChunk(FileChannel channel, long start, long end) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+    }
+}
@@ -0,0 +1,478 @@
+package searchengine;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * The Index class is an immutable snapshot of a loaded inverted index.
+ * It holds the TermDictionary of its words, the posting list of every word keyed by the id of the word
+ * in that dictionary, the posting list of every word in the titles of the pages, and the pages by their id.
+ * The dictionary belongs to the index and the IndexWriter segments built from it, so the words of a replaced index
+ * are let go together with it. The document frequency of a word is the size of its posting list, and the number
+ * of words of every page and of its title is kept as a byte per page for scoring methods such as BM25.
+ * An Index is created once by an IndexBuilder, opened from an index file as a MappedIndex, or copied from another
+ * index together with the stored fields holding the content of its pages, and never changes afterwards,
+ * so any number of threads can search it at the same time without locking,
+ * and a new Index can be published in its place at any moment.
+ * Searches that want to be waited for when the index is replaced register themselves with acquire and release,
+ * so a replaced index can be drained before it is let go.
+ */
+public class Index {
+    private static final AtomicLong generations = new AtomicLong();
+
+    /**
+     * An index without any pages.
+     */
+    public static final Index EMPTY = new Index(new TermDictionary(), new IntMap<>(), new IntMap<>(), new ArrayList<>());
+
+    private final TermDictionary dictionary;
+    private final IntMap<PostingList> postings;
+    private final IntMap<PostingList> titlePostings;
+    private final List<Page> pages;
+    private final StoredFields storedFields;
+    private volatile SortedTerms sortedTerms;
+    private volatile QueryCache queryCache;
+    private final LruCache<QueryPlan> planCache = new LruCache<>(QueryPlan.CACHE_CAPACITY);
+    private final LengthNorms lengthNorms;
+    private final LengthNorms titleNorms;
+    private final long generation;
+    private final AtomicInteger activeQueries = new AtomicInteger();
+
+    /**
+     * Constructs an Index from the structures filled by an IndexBuilder.
+     * The structures must not be changed after they are handed to the Index.
+     *
+     * @param dictionary     the dictionary of the words of the index
+     * @param postings       the posting list of every word by its term id
+     * @param titlePostings  the posting list of every word in the titles by its term id
+     * @param pages          the pages, where the position of each page is its id
+     */
+    Index(TermDictionary dictionary, IntMap<PostingList> postings, IntMap<PostingList> titlePostings, List<Page> pages) {
+        this(dictionary, postings, titlePostings, pages, null);
+    }
+
+    /**
+     * Constructs an Index whose pages can be read from stored fields.
+     * The structures must not be changed after they are handed to the Index.
+     *
+     * @param dictionary     the dictionary of the words of the index
+     * @param postings       the posting list of every word by its term id
+     * @param titlePostings  the posting list of every word in the titles by its term id
+     * @param pages          the pages, where the position of each page is its id
+     * @param storedFields   the stored fields holding the content of the pages in the same order, or null if there are none
+     */
+    Index(TermDictionary dictionary, IntMap<PostingList> postings, IntMap<PostingList> titlePostings,
+          List<Page> pages, StoredFields storedFields) {
+        if (storedFields != null && storedFields.getDocumentCount() != pages.size()) {
+            throw new IllegalArgumentException("The stored fields hold " + storedFields.getDocumentCount()
+                    + " pages, but the index has " + pages.size());
+        }
+        this.dictionary = dictionary;
+        this.postings = postings;
+        this.titlePostings = titlePostings;
+        this.pages = Collections.unmodifiableList(pages);
+        this.storedFields = storedFields;
+        this.generation = generations.incrementAndGet();
+        int[] lengths = new int[pages.size()];
+        int[] titleLengths = new int[pages.size()];
+        for (int docId = 0; docId < lengths.length; docId++) {
+            lengths[docId] = pages.get(docId).getTotalTerms();
+            titleLengths[docId] = pages.get(docId).getTitleLength();
+        }
+        this.lengthNorms = lengths.length == 0 ? LengthNorms.EMPTY : new LengthNorms(lengths);
+        this.titleNorms = lengths.length == 0 ? LengthNorms.EMPTY : new LengthNorms(titleLengths);
+    }
+
+    /**
+     * Returns the inverted index as a Map of String to PostingList.
+     * The map is built from the term ids on every call and is not kept, so an index does not hold a map entry
+     * per word for its lifetime. Searches look up single words instead, and only tests and older helpers use the map.
+     *
+     * @return  the inverted index as a map where the keys are strings of words
+     * and the values are the posting lists of the documents that contain the given word.
+     */
+    public Map<String, PostingList> getInvertedIndex() {
+        Map<String, PostingList> all = new HashMap<>();
+        for (int termId : getTermIds()) {
+            PostingList list = getPostings(termId);
+            if (list.size() > 0) {
+                all.put(dictionary.getTerm(termId), list);
+            }
+        }
+        return Collections.unmodifiableMap(all);
+    }
+
+    /**
+     * Retrieves the posting list of a word.
+     *
+     * @param  word  the word to look up
+     * @return       the posting list of the word, which is empty if no page contains the word
+     */
+    public PostingList getPostings(String word) {
+        int termId = dictionary.lookup(word);
+        return termId < 0 ? PostingList.EMPTY : getPostings(termId);
+    }
+
+    /**
+     * Retrieves the posting list of a word by its id in the dictionary of the index.
+     *
+     * @param  termId  the id of the word
+     * @return         the posting list of the word, which is empty if no page contains the word
+     */
+    public PostingList getPostings(int termId) {
+        PostingList list = postings.get(termId);
+        return list == null ? PostingList.EMPTY : list;
+    }
+
+    /**
+     * Retrieves the posting list of a word in the titles of the pages by its id in the dictionary of the index.
+     * The list only holds the pages whose content holds the word as well, with the number of times it is in the title.
+     *
+     * @param  termId  the id of the word
+     * @return         the title posting list of the word, which is empty if no such page has the word in its title
+     */
+    public PostingList getTitlePostings(int termId) {
+        PostingList list = titlePostings.get(termId);
+        return list == null ? PostingList.EMPTY : list;
+    }
+
+    /**
+     * Retrieves the posting list of a word in the titles of the pages.
+     *
+     * @param  word  the word to look up
+     * @return       the title posting list of the word, which is empty if no page has the word in its title and content
+     */
+    public PostingList getTitlePostings(String word) {
+        int termId = dictionary.lookup(word);
+        return termId < 0 ? PostingList.EMPTY : getTitlePostings(termId);
+    }
+
+    /**
+     * Retrieves the dictionary the words of the index are looked up in.
+     *
+     * @return  the term dictionary of the index
+     */
+    public TermDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Retrieves the ids of the words that appear in the index.
+     *
+     * @return  the term ids of the words in no particular order
+     */
+    public int[] getTermIds() {
+        return postings.keys();
+    }
+
+    /**
+     * Retrieves the sorted dictionary of the words of the index, used to expand prefix, wildcard and fuzzy words of queries.
+     * The dictionary is built the first time it is asked for, which an IndexBuilder does as soon as it builds the index.
+     *
+     * @return  the sorted dictionary of the words
+     */
+    public SortedTerms getSortedTerms() {
+        SortedTerms result = sortedTerms;
+        if (result == null) {
+            result = buildSortedTerms();
+            sortedTerms = result;
+        }
+        return result;
+    }
+
+    /**
+     * Builds the sorted dictionary of the words of the index.
+     *
+     * @return  the sorted dictionary of the words
+     */
+    SortedTerms buildSortedTerms() {
+        return new SortedTerms(dictionary, getTermIds());
+    }
+
+    /**
+     * Retrieves the cache of the search results of this index, holding at most {@value SearchHandler#CACHE_CAPACITY}
+     * result pages. The cache is created the first time it is asked for, so the segments of a SegmentedIndex,
+     * which are never searched on their own, do not get one.
+     *
+     * @return  the query cache of the index
+     */
+    public QueryCache getQueryCache() {
+        QueryCache result = queryCache;
+        if (result == null) {
+            synchronized (this) {
+                result = queryCache;
+                if (result == null) {
+                    result = new QueryCache(SearchHandler.CACHE_CAPACITY);
+                    queryCache = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Retrieves the cache of the query plans compiled against this index, filled by QueryPlan.compile.
+     *
+     * @return  the compiled plans by their search term
+     */
+    LruCache<QueryPlan> getPlanCache() {
+        return planCache;
+    }
+
+    /**
+     * Retrieves the document frequencies map.
+     * The map is built from the posting lists on every call and is not kept, like the map of getInvertedIndex.
+     *
+     * @return  the map containing the document frequencies
+     */
+    public Map<String, Integer> getDocumentFrequencies() {
+        Map<String, Integer> all = new HashMap<>();
+        for (int termId : getTermIds()) {
+            int size = getPostings(termId).size();
+            if (size > 0) {
+                all.put(dictionary.getTerm(termId), size);
+            }
+        }
+        return Collections.unmodifiableMap(all);
+    }
+
+    /**
+     * Retrieves the number of pages containing a word.
+     *
+     * @param  word  the word to look up
+     * @return       the document frequency of the word, or 0 if no page contains it
+     */
+    public int getDocumentFrequency(String word) {
+        return getPostings(word).size();
+    }
+
+    /**
+     * Retrieves the total number of documents in the index.
+     *
+     * @return  the total number of documents of type int.
+     */
+    public int getTotalDocuments() {
+        return pages.size();
+    }
+
+    /**
+     * Retrieves the number of terms of every document, quantized to a byte per document when the index is created.
+     *
+     * @return  the length norms of the content, indexed by document id
+     */
+    public LengthNorms getLengthNorms() {
+        return lengthNorms;
+    }
+
+    /**
+     * Retrieves the number of words in the title of every document, quantized to a byte per document when the index is created.
+     *
+     * @return  the length norms of the titles, indexed by document id
+     */
+    public LengthNorms getTitleNorms() {
+        return titleNorms;
+    }
+
+    /**
+     * Retrieves the number of document ids used by the index, which is one more than the largest id.
+     * It is larger than the total number of documents when some documents have been deleted.
+     *
+     * @return  the number of document ids in use
+     */
+    public int getMaxDoc() {
+        return pages.size();
+    }
+
+    /**
+     * Checks whether a document has been deleted from the index.
+     *
+     * @param  docId  the id of the document
+     * @return        true if the document has been deleted, false otherwise
+     */
+    public boolean isDeleted(int docId) {
+        return false;
+    }
+
+    /**
+     * Retrieves a page by its id.
+     *
+     * @param  docId  the id of the page
+     * @return        the page with the given id
+     */
+    public Page getPage(int docId) {
+        return pages.get(docId);
+    }
+
+    /**
+     * Retrieves the content of a page by its id. If the page was created without its content,
+     * the content is read from the stored fields of the index instead. Used for the snippets of search results.
+     *
+     * @param  docId  the id of the page
+     * @return        the words of the page, or an empty list if the content is neither in memory nor stored
+     */
+    public List<String> getContent(int docId) {
+        Page page = getPage(docId);
+        if (page.hasContent()) {
+            return page.getContent();
+        }
+        return storedFields == null ? List.of() : storedFields.getContent(docId);
+    }
+
+    /**
+     * Creates a copy of this index that reads the content of its pages from stored fields.
+     * The copy shares the dictionary and the posting lists of this index and has copies of its pages,
+     * without their content if it is dropped, so this index and its pages are left unchanged.
+     * The term frequencies are kept in the posting lists and the number of terms of every page is kept,
+     * so searching and scoring the copy work as before.
+     *
+     * @param  storedFields  the stored fields, which must hold the pages in the same order as the index
+     * @param  dropContent   true to leave the content of the pages out of the copied pages
+     * @return               the new index with the stored fields
+     * @throws IllegalArgumentException  if the stored fields do not hold as many pages as the index
+     */
+    Index withStoredFields(StoredFields storedFields, boolean dropContent) {
+        Index index = new Index(dictionary, postings, titlePostings, copyPages(dropContent), storedFields);
+        index.sortedTerms = sortedTerms;
+        return index;
+    }
+
+    /**
+     * Copies the pages of this index for a copy of the index, numbered by their position as before.
+     *
+     * @param  dropContent  true to leave the content of the pages out of the copies
+     * @return              the copied pages in id order
+     */
+    List<Page> copyPages(boolean dropContent) {
+        List<Page> copies = new ArrayList<>(pages.size());
+        for (Page page : pages) {
+            Page copy = dropContent ? new Page(page.getUrl(), page.getTitle(), page.getTotalTerms()) : new Page(page);
+            copy.setId(copies.size());
+            copies.add(copy);
+        }
+        return copies;
+    }
+
+    /**
+     * Checks whether a page is part of this index.
+     *
+     * @param  page  the page to check
+     * @return       true if the page has been indexed in this index, false otherwise
+     */
+    public boolean contains(Page page) {
+        return getDocId(page) >= 0;
+    }
+
+    /**
+     * Finds the id of a page in this index.
+     *
+     * @param  page  the page to look up
+     * @return       the id of the page, or -1 if the page is not part of this index or has been deleted
+     */
+    public int getDocId(Page page) {
+        int docId = page.getId();
+        return docId >= 0 && docId < pages.size() && pages.get(docId) == page ? docId : -1;
+    }
+
+    /**
+     * Retrieves the number of times a term appears on a page.
+     * For a page of this index the frequency computed at index time is read
+     * from the posting list of the term, so the cost does not depend on the length of the page.
+     * Pages that are not part of the index are counted directly from their content.
+     *
+     * @param  page  the page to look the term up on
+     * @param  term  the term to count
+     * @return       the number of times the term appears on the page
+     */
+    public int getTermFrequency(Page page, String term) {
+        int docId = getDocId(page);
+        if (docId >= 0) {
+            return getPostings(term).frequencyOf(docId);
+        }
+        return page.getTermFrequency(term);
+    }
+
+    /**
+     * Retrieves the generation of the index. Every Index gets a higher generation than the ones created before it,
+     * so results computed from another generation are known to be out of date.
+     *
+     * @return  the generation of the index
+     */
+    public long getGeneration() {
+        return generation;
+    }
+
+    /**
+     * Registers a query that is about to search this index.
+     * Every call must be followed by a call to release once the query is done.
+     */
+    void acquire() {
+        activeQueries.incrementAndGet();
+    }
+
+    /**
+     * Unregisters a query that has finished searching this index.
+     */
+    public void release() {
+        activeQueries.decrementAndGet();
+    }
+
+    /**
+     * Retrieves the number of queries currently searching this index.
+     *
+     * @return  the number of queries that have acquired the index and not yet released it
+     */
+    public int getActiveQueries() {
+        return activeQueries.get();
+    }
+
+    /**
+     * Estimates the number of bytes of heap memory used by the index.
+     * The estimate counts the words in the TermDictionary, the arrays of the posting lists
+     * and the urls, titles and term ids of the pages, and is meant for reporting
+     * and for deciding whether a second index fits next to this one.
+     *
+     * @return  the estimated size of the index in bytes
+     */
+    public long getEstimatedBytes() {
+        return dictionary.getEstimatedBytes() + getEstimatedSnapshotBytes();
+    }
+
+    /**
+     * Estimates the number of bytes of heap memory used by the index without its dictionary,
+     * which is shared with the other segments built by the same IndexWriter.
+     *
+     * @return  the estimated size of the index without the dictionary in bytes
+     */
+    long getEstimatedSnapshotBytes() {
+        long[] bytes = {postings.getEstimatedBytes() + lengthNorms.getEstimatedBytes() + titleNorms.getEstimatedBytes()};
+        postings.forEach((termId, list) -> bytes[0] += list.getEstimatedBytes());
+        bytes[0] += titlePostings.getEstimatedBytes();
+        titlePostings.forEach((termId, list) -> bytes[0] += list.getEstimatedBytes());
+        if (storedFields != null) {
+            bytes[0] += storedFields.getEstimatedBytes();
+        }
+        SortedTerms sorted = sortedTerms;
+        if (sorted != null) {
+            bytes[0] += sorted.getEstimatedBytes();
+        }
+        for (Page page : pages) {
+            bytes[0] += 48 + estimateBytes(page.getUrl()) + estimateBytes(page.getTitle()) + 16 + 4L * page.getTermIds().length;
+        }
+        return bytes[0];
+    }
+
+    /**
+     * Estimates the size of a string, counting its object header and two bytes per character.
+     *
+     * @param  value  the string to estimate
+     * @return        the estimated size in bytes
+     */
+    private static long estimateBytes(String value) {
+        return value == null ? 0 : 40 + 2L * value.length();
+    }
+}
@@ -0,0 +1,315 @@
+package searchengine;
+
+import java.util.*;
+
+/**
+ * The IndexBuilder class accumulates the inverted index and the pages of the index while pages are being loaded.
+ * Every page is given a dense integer id, which is its position in the list of pages.
+ * The posting lists are kept by the id of their word in the TermDictionary of the builder,
+ * which becomes the dictionary of the index it builds, and the document frequency of a word is the size of its posting list.
+ * Several builders can be filled independently, for example one per chunk of a dataset,
+ * and then be merged in dataset order with the addAll method. Builders that share a dictionary are merged
+ * without looking any word up again.
+ *
+ * When the builder is finished, the words of the titles are indexed as well, into title posting lists by term id
+ * that only hold a page if its content also holds the word, since a word that is only in the title is never scored.
+ *
+ * By default the posting lists also record the positions of every word on each page, which phrase and proximity
+ * queries need. Setting the system property {@value #POSITIONS_PROPERTY} to false leaves them out to save memory,
+ * in which case such queries only check that a page contains all of their words.
+ */
+public class IndexBuilder {
+    /**
+     * The system property that turns the positions of the words off when it is false.
+     */
+    public static final String POSITIONS_PROPERTY = "searchengine.positions";
+
+    private final boolean positions;
+    private final TermDictionary dictionary;
+    private IntMap<PostingList> invertedIndex = new IntMap<>();
+    private IntMap<PostingList> titleIndex = new IntMap<>();
+    private List<Page> pages = new ArrayList<>();
+
+    /**
+     * Constructs an IndexBuilder with a new dictionary,
+     * that records positions unless the system property {@value #POSITIONS_PROPERTY} is false.
+     */
+    public IndexBuilder() {
+        this(new TermDictionary());
+    }
+
+    /**
+     * Constructs an IndexBuilder with a new dictionary.
+     *
+     * @param positions  true to record the positions of the words on every page, false to only count them
+     */
+    public IndexBuilder(boolean positions) {
+        this(new TermDictionary(), positions);
+    }
+
+    /**
+     * Constructs an IndexBuilder that looks its words up in the given dictionary,
+     * and records positions unless the system property {@value #POSITIONS_PROPERTY} is false.
+     *
+     * @param dictionary  the dictionary of the words, which may be shared with other builders
+     */
+    public IndexBuilder(TermDictionary dictionary) {
+        this(dictionary, Boolean.parseBoolean(System.getProperty(POSITIONS_PROPERTY, "true")));
+    }
+
+    /**
+     * Constructs an IndexBuilder that looks its words up in the given dictionary.
+     *
+     * @param dictionary  the dictionary of the words, which may be shared with other builders
+     * @param positions   true to record the positions of the words on every page, false to only count them
+     */
+    public IndexBuilder(TermDictionary dictionary, boolean positions) {
+        this.dictionary = dictionary;
+        this.positions = positions;
+    }
+
+    /**
+     * Retrieves the dictionary the words of the builder are looked up in.
+     *
+     * @return  the term dictionary of the builder
+     */
+    public TermDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Indexes the words in the content of a page if the page is valid.
+     * The page is moved to the dictionary of the builder if it uses another one.
+     * The page is given the next free id, and every distinct word of the page
+     * is added once to its posting list together with its term frequency.
+     * The term frequencies are counted by sorting a copy of the term ids of the page, so no map is needed.
+     * When positions are recorded, each term id is sorted together with its position, so the positions of every word
+     * come out of the same sort in ascending order.
+     *
+     * @param  page  the page of which the content will be indexed.
+     */
+    public void addPage(Page page) {
+        if (isPageValid(page)) {
+            page.moveTo(dictionary);
+            int docId = pages.size();
+            page.setId(docId);
+            pages.add(page);
+            if (positions) {
+                addPositions(docId, page.getTermIds());
+                return;
+            }
+            int[] termIds = page.getTermIds().clone();
+            Arrays.sort(termIds);
+            for (int start = 0, end; start < termIds.length; start = end) {
+                end = start + 1;
+                while (end < termIds.length && termIds[end] == termIds[start]) {
+                    end++;
+                }
+                invertedIndex.computeIfAbsent(termIds[start], k -> new PostingList()).add(docId, end - start);
+            }
+        }
+    }
+
+    /**
+     * Adds every distinct word of a page to its posting list together with the positions of the word on the page.
+     *
+     * @param  docId    the id of the page
+     * @param  termIds  the term ids of the content of the page, in the order the words appear
+     */
+    private void addPositions(int docId, int[] termIds) {
+        long[] occurrences = new long[termIds.length];
+        for (int i = 0; i < termIds.length; i++) {
+            occurrences[i] = (long) termIds[i] << 32 | i;
+        }
+        Arrays.sort(occurrences);
+        int[] sortedPositions = new int[occurrences.length];
+        for (int i = 0; i < occurrences.length; i++) {
+            sortedPositions[i] = (int) occurrences[i];
+        }
+        for (int start = 0, end; start < occurrences.length; start = end) {
+            int termId = (int) (occurrences[start] >>> 32);
+            end = start + 1;
+            while (end < occurrences.length && (int) (occurrences[end] >>> 32) == termId) {
+                end++;
+            }
+            invertedIndex.computeIfAbsent(termId, k -> new PostingList()).add(docId, sortedPositions, start, end - start);
+        }
+    }
+
+    /**
+     * Appends everything indexed by another builder to this builder.
+     * The pages of the other builder are placed after the pages of this builder and are renumbered accordingly,
+     * so merging the builders of consecutive chunks in order gives the same result as indexing the chunks sequentially.
+     * If the other builder has another dictionary, its pages and words are moved to the dictionary of this builder.
+     *
+     * @param  other  the builder to be merged into this builder.
+     */
+    public void addAll(IndexBuilder other) {
+        int offset = pages.size();
+        for (Page page : other.pages) {
+            page.moveTo(dictionary);
+            page.setId(page.getId() + offset);
+            pages.add(page);
+        }
+        other.invertedIndex.forEach((termId, postings) ->
+                invertedIndex.computeIfAbsent(termIdOf(other.dictionary, termId), k -> new PostingList())
+                        .addAll(postings, offset));
+    }
+
+    /**
+     * Finds the id in the dictionary of this builder of a word from another dictionary.
+     *
+     * @param  source  the dictionary the word comes from
+     * @param  termId  the id of the word in that dictionary
+     * @return         the id of the word in the dictionary of this builder
+     */
+    private int termIdOf(TermDictionary source, int termId) {
+        return source == dictionary ? termId : dictionary.getOrAdd(source.getTerm(termId));
+    }
+
+    /**
+     * Appends the documents of an index segment that have not been deleted, used when segments are merged.
+     * The pages are copied and renumbered after the pages of this builder, and the posting lists
+     * only count the documents that are kept, together with their positions if the segment has them.
+     *
+     * @param  segment  the segment to append
+     * @param  deleted  the ids of the deleted documents of the segment, or null if none are deleted
+     * @return          the new id of every document of the segment, or -1 for deleted documents
+     */
+    int[] addSegment(Index segment, BitSet deleted) {
+        int[] newIds = new int[segment.getMaxDoc()];
+        for (int docId = 0; docId < newIds.length; docId++) {
+            if (deleted != null && deleted.get(docId)) {
+                newIds[docId] = -1;
+            } else {
+                Page page = new Page(segment.getPage(docId));
+                page.moveTo(dictionary);
+                newIds[docId] = pages.size();
+                page.setId(pages.size());
+                pages.add(page);
+            }
+        }
+        for (int termId : segment.getTermIds()) {
+            PostingList source = segment.getPostings(termId);
+            PostingList target = null;
+            for (int i = 0; i < source.size(); i++) {
+                int docId = newIds[source.getDocId(i)];
+                if (docId >= 0) {
+                    if (target == null) {
+                        target = invertedIndex.computeIfAbsent(termIdOf(segment.getDictionary(), termId), k -> new PostingList());
+                    }
+                    target.addPosting(source, i, docId);
+                }
+            }
+        }
+        return newIds;
+    }
+
+    /**
+     * Finishes every posting list once loading is done,
+     * which shrinks it to its size and computes its block upper bounds.
+     * The titles of the pages are indexed, and the largest title frequency of every block is stored
+     * in the posting lists of the content.
+     */
+    public void finish() {
+        int[] documentLengths = new int[pages.size()];
+        int[] titleLengths = new int[pages.size()];
+        for (int i = 0; i < documentLengths.length; i++) {
+            documentLengths[i] = pages.get(i).getTotalTerms();
+            titleLengths[i] = pages.get(i).getTitleLength();
+        }
+        invertedIndex.forEach((termId, postings) -> postings.finish(documentLengths));
+        titleIndex = indexTitles();
+        titleIndex.forEach((termId, titles) -> titles.finish(titleLengths));
+        invertedIndex.forEach((termId, postings) -> {
+            PostingList titles = titleIndex.get(termId);
+            postings.finishTitles(titles == null ? PostingList.EMPTY : titles);
+        });
+        invertedIndex.trim();
+        titleIndex.trim();
+    }
+
+    /**
+     * Indexes the words of the title of every page. A word is only counted on a page whose content holds it as well,
+     * which is checked in the posting list of the word, so pages without their content, such as the pages
+     * of an index opened from an index file, are indexed the same way.
+     *
+     * @return  the posting list of every word in the titles by its term id
+     */
+    private IntMap<PostingList> indexTitles() {
+        IntMap<PostingList> titles = new IntMap<>();
+        for (int docId = 0; docId < pages.size(); docId++) {
+            String[] words = pages.get(docId).getTitleWords();
+            Arrays.sort(words);
+            for (int start = 0, end; start < words.length; start = end) {
+                end = start + 1;
+                while (end < words.length && words[end].equals(words[start])) {
+                    end++;
+                }
+                int termId = dictionary.lookup(words[start]);
+                PostingList postings = termId < 0 ? null : invertedIndex.get(termId);
+                if (postings != null && postings.contains(docId)) {
+                    titles.computeIfAbsent(termId, k -> new PostingList()).add(docId, end - start);
+                }
+            }
+        }
+        return titles;
+    }
+
+    /**
+     * Finishes the builder and hands everything indexed so far to a new immutable Index.
+     * The sorted dictionary of the words is built right away, so the first search expanding a word does not wait for it.
+     * The index uses the dictionary of the builder. The builder is empty afterwards and can be used to build
+     * another index with the same dictionary.
+     *
+     * @return  the index holding every page added to the builder
+     */
+    public Index build() {
+        finish();
+        Index index = new Index(dictionary, invertedIndex, titleIndex, pages);
+        index.getSortedTerms();
+        invertedIndex = new IntMap<>();
+        titleIndex = new IntMap<>();
+        pages = new ArrayList<>();
+        return index;
+    }
+
+    /**
+     * This boolean method checks whether an existing page is valid.
+     * It is valid if and only if it has a title and at least one word.
+     *
+     * @param  page       the page to examine.
+     * @return            true if page has title and content is not empty, false otherwise.
+     */
+    private boolean isPageValid(Page page) {
+        return page.getTitle() != null && page.getTermIds().length > 0;
+    }
+
+    /**
+     * Retrieves the total number of documents added to the builder.
+     *
+     * @return  the total number of documents of type int.
+     */
+    public int getTotalDocuments() {
+        return pages.size();
+    }
+
+    /**
+     * Retrieves the page with the given id.
+     *
+     * @param  docId  the id of the page
+     * @return        the page with the given id
+     */
+    public Page getPage(int docId) {
+        return pages.get(docId);
+    }
+
+    /**
+     * Removes everything that has been indexed so far.
+     */
+    public void clear() {
+        invertedIndex.clear();
+        titleIndex.clear();
+        pages.clear();
+    }
+}
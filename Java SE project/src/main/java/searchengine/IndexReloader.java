@@ -0,0 +1,398 @@
+package searchengine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * The IndexReloader class replaces the index served by a PageLoader without stopping the server.
+ * The new index is built on a background thread while the old index keeps answering queries.
+ * It is then published in a single atomic step, and the old index is drained by waiting until
+ * no query uses it anymore, after which it is let go.
+ *
+ * Only one reload runs at a time, so at most two indexes are ever held in memory. Before building,
+ * the size of the new index is estimated from the old one, scaled by the size of the new dataset over the size
+ * of the dataset the old index was built from, and the reload is refused if it would not fit in the heap.
+ * The outcome of the last reload, including its memory use, is kept as a Report.
+ * A reload can be requested through the admin endpoint, or by watching the dataset for changes.
+ */
+public class IndexReloader {
+    static final long DRAIN_TIMEOUT_MILLIS = 30_000;
+    static final long QUIET_PERIOD_MILLIS = 500;
+
+    private final PageLoader pageLoader;
+    private final Supplier<String> source;
+    private final int threads;
+    private final AtomicBoolean reloading = new AtomicBoolean();
+    private final ScheduledExecutorService executor;
+    private volatile Report lastReport = Report.idle();
+    private volatile long lastSourceSize;
+    private ScheduledFuture<?> pendingReload;
+    private WatchService watchService;
+
+    /**
+     * The outcome of a reload.
+     */
+    public static final class Report {
+        private final String state;
+        private final String file;
+        private final int documents;
+        private final int previousDocuments;
+        private final long estimatedBytes;
+        private final long previousEstimatedBytes;
+        private final long heapUsedBefore;
+        private final long heapUsedAfter;
+        private final long buildMillis;
+        private final long drainMillis;
+        private final String message;
+
+        private Report(String state, String file, int documents, int previousDocuments, long estimatedBytes,
+                long previousEstimatedBytes, long heapUsedBefore, long heapUsedAfter, long buildMillis,
+                long drainMillis, String message) {
+            this.state = state;
+            this.file = file;
+            this.documents = documents;
+            this.previousDocuments = previousDocuments;
+            this.estimatedBytes = estimatedBytes;
+            this.previousEstimatedBytes = previousEstimatedBytes;
+            this.heapUsedBefore = heapUsedBefore;
+            this.heapUsedAfter = heapUsedAfter;
+            this.buildMillis = buildMillis;
+            this.drainMillis = drainMillis;
+            this.message = message;
+        }
+
+        private static Report idle() {
+            return new Report("idle", "", 0, 0, 0, 0, 0, 0, 0, 0, "No reload has been requested.");
+        }
+
+        private static Report failed(String file, String message) {
+            return new Report("failed", file, 0, 0, 0, 0, 0, 0, 0, 0, message);
+        }
+
+        /**
+         * Gets the state of the reload, which is idle, reloading, done or failed.
+         * @return the state of the reload.
+         */
+        public String getState() {
+            return state;
+        }
+
+        /**
+         * Gets the number of pages in the new index.
+         * @return the number of pages, or 0 if the reload did not finish.
+         */
+        public int getDocuments() {
+            return documents;
+        }
+
+        /**
+         * Gets the estimated size of the new index, which is the memory the reload added while both indexes were held.
+         * @return the estimated size in bytes.
+         */
+        public long getEstimatedBytes() {
+            return estimatedBytes;
+        }
+
+        /**
+         * Gets a description of the outcome.
+         * @return the message of the reload.
+         */
+        public String getMessage() {
+            return message;
+        }
+
+        /**
+         * Writes the report as a JSON object.
+         * @param json the writer the report is written to.
+         * @throws IOException if an I/O error occurs while writing.
+         */
+        public void write(JsonWriter json) throws IOException {
+            json.raw("{\"state\": ").string(state);
+            json.raw(", \"file\": ").string(file);
+            json.raw(", \"documents\": " + documents);
+            json.raw(", \"previousDocuments\": " + previousDocuments);
+            json.raw(", \"estimatedBytes\": " + estimatedBytes);
+            json.raw(", \"previousEstimatedBytes\": " + previousEstimatedBytes);
+            json.raw(", \"heapUsedBefore\": " + heapUsedBefore);
+            json.raw(", \"heapUsedAfter\": " + heapUsedAfter);
+            json.raw(", \"buildMillis\": " + buildMillis);
+            json.raw(", \"drainMillis\": " + drainMillis);
+            json.raw(", \"message\": ").string(message).raw("}");
+        }
+
+        /**
+         * Formats the report as a JSON object.
+         * @return the report as JSON.
+         */
+        public String toJson() {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (JsonWriter json = new JsonWriter(bytes)) {
+                write(json);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return bytes.toString(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * Constructs an IndexReloader for a PageLoader, whose current index must have been built from the dataset
+     * the source gives now, so the first reload can be estimated from its size.
+     *
+     * @param pageLoader  the PageLoader whose index is replaced
+     * @param source      gives the name of the dataset to load each time a reload starts
+     * @param threads     the number of threads used to load the dataset
+     */
+    public IndexReloader(PageLoader pageLoader, Supplier<String> source, int threads) {
+        this.pageLoader = pageLoader;
+        this.source = source;
+        this.threads = threads;
+        this.lastSourceSize = sizeOf(source.get());
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-reloader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Finds the size of a dataset, used to scale the size of the current index to the size of the next dataset.
+     *
+     * @param  filename  the name of the dataset
+     * @return           the size of the dataset in bytes, or -1 if it cannot be read
+     */
+    private static long sizeOf(String filename) {
+        try {
+            return Files.size(Paths.get(filename));
+        } catch (IOException | RuntimeException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Starts a reload on the background thread.
+     *
+     * @return true if the reload was started, false if another reload is still running
+     */
+    public boolean requestReload() {
+        if (!reloading.compareAndSet(false, true)) {
+            return false;
+        }
+        lastReport = new Report("reloading", "", 0, 0, 0, 0, 0, 0, 0, 0, "The index is being rebuilt.");
+        executor.execute(this::runReload);
+        return true;
+    }
+
+    /**
+     * Reloads the index on the calling thread and waits until the old index is drained.
+     *
+     * @return the report of the reload
+     * @throws IllegalStateException if another reload is still running
+     */
+    public Report reload() {
+        if (!reloading.compareAndSet(false, true)) {
+            throw new IllegalStateException("A reload is already running");
+        }
+        return runReload();
+    }
+
+    /**
+     * Gets the report of the last reload, or of the running one.
+     *
+     * @return the last report
+     */
+    public Report getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Builds the new index, publishes it and drains the old one. The caller must have set the reloading flag,
+     * which is cleared when the reload is done. If anything goes wrong the old index stays in place.
+     *
+     * @return the report of the reload
+     */
+    private Report runReload() {
+        String filename = "";
+        try {
+            filename = source.get();
+            Path file = Paths.get(filename);
+            if (!Files.isRegularFile(file) || !Files.isReadable(file)) {
+                return lastReport = Report.failed(filename, "The dataset cannot be read.");
+            }
+            Runtime runtime = Runtime.getRuntime();
+            Index previous = pageLoader.getIndex();
+            long previousBytes = previous.getEstimatedBytes();
+            long sourceSize = Files.size(file);
+            long expectedBytes = lastSourceSize > 0 ? previousBytes * sourceSize / lastSourceSize : previousBytes;
+            long heapUsedBefore = runtime.totalMemory() - runtime.freeMemory();
+            if (expectedBytes > runtime.maxMemory() - heapUsedBefore) {
+                return lastReport = Report.failed(filename, "Not enough memory to hold a second index of about "
+                        + expectedBytes + " bytes.");
+            }
+
+            long start = System.nanoTime();
+            Index index = PageLoader.open(filename, threads).getIndex();
+            long buildMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (index.getTotalDocuments() == 0) {
+                return lastReport = Report.failed(filename, "The dataset contains no pages, the old index is kept.");
+            }
+
+            Index old = pageLoader.publish(index);
+            start = System.nanoTime();
+            boolean drained = drain(old);
+            long drainMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            lastSourceSize = sourceSize;
+            long heapUsedAfter = runtime.totalMemory() - runtime.freeMemory();
+            return lastReport = new Report("done", filename, index.getTotalDocuments(), old.getTotalDocuments(),
+                    index.getEstimatedBytes(), old.getEstimatedBytes(), heapUsedBefore, heapUsedAfter,
+                    buildMillis, drainMillis, drained ? "The old index was drained."
+                            : "Queries were still using the old index when the drain timed out.");
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+            return lastReport = Report.failed(filename, "The reload failed: " + e.getClass().getSimpleName());
+        } finally {
+            reloading.set(false);
+        }
+    }
+
+    /**
+     * Waits until no query uses a replaced index, or until {@value #DRAIN_TIMEOUT_MILLIS} milliseconds have passed.
+     *
+     * @param  old  the index that has been replaced
+     * @return      true if the index was drained, false if the wait timed out
+     */
+    private boolean drain(Index old) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MILLIS);
+        while (old.getActiveQueries() > 0) {
+            if (System.nanoTime() > deadline) {
+                return false;
+            }
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Handles a request to the admin endpoint. A POST request starts a reload and is answered with 202 Accepted,
+     * or with 409 Conflict if a reload is already running. A GET request returns the last report.
+     * Only requests from the local machine are accepted.
+     *
+     * @param io the HTTP exchange object representing the request and response
+     */
+    public void handle(HttpExchange io) {
+        if (!io.getRemoteAddress().getAddress().isLoopbackAddress()) {
+            WebServer.respond(io, 403, "text/plain", "Forbidden".getBytes(WebServer.CHARSET));
+            return;
+        }
+        switch (io.getRequestMethod()) {
+            case "POST":
+                int code = requestReload() ? 202 : 409;
+                WebServer.respondJson(io, code, lastReport::write);
+                break;
+            case "GET":
+                WebServer.respondJson(io, 200, lastReport::write);
+                break;
+            default:
+                io.getResponseHeaders().set("Allow", "GET, POST");
+                WebServer.respond(io, 405, "text/plain", "Method not allowed".getBytes(WebServer.CHARSET));
+        }
+    }
+
+    /**
+     * Starts watching the dataset and reloads the index when it changes.
+     * The reload starts once the file has not changed for {@value #QUIET_PERIOD_MILLIS} milliseconds,
+     * so a dataset that is being copied is not loaded halfway.
+     *
+     * @throws IOException if the directory of the dataset cannot be watched
+     */
+    public synchronized void watch() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        Path file = Paths.get(source.get()).toAbsolutePath();
+        Path directory = file.getParent();
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+        WatchService service = watchService;
+        Thread watcher = new Thread(() -> processEvents(service, file.getFileName()), "dataset-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Stops watching the dataset and the background thread.
+     */
+    public synchronized void stop() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            watchService = null;
+        }
+        executor.shutdownNow();
+    }
+
+    /**
+     * Waits for changes to the dataset and schedules a reload for each of them,
+     * replacing a reload that has been scheduled but not started yet.
+     *
+     * @param service  the watch service of the directory of the dataset
+     * @param name     the file name of the dataset
+     */
+    private void processEvents(WatchService service, Path name) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (name.equals(event.context())) {
+                        scheduleReload();
+                    }
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher was stopped.
+        }
+    }
+
+    /**
+     * Schedules a reload after the quiet period.
+     */
+    private synchronized void scheduleReload() {
+        if (pendingReload != null) {
+            pendingReload.cancel(false);
+        }
+        pendingReload = executor.schedule(() -> {
+            if (!requestReload()) {
+                scheduleReload();
+            }
+        }, QUIET_PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+    }
+}
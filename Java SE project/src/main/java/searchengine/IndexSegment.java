@@ -0,0 +1,684 @@
+package searchengine;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.zip.CRC32;
+
+/**
+ * The IndexSegment class writes a loaded index to a binary file and opens such a file again,
+ * so the server can start without parsing the dataset.
+ *
+ * The file starts with a header holding a magic number, the format version, the size and modification time
+ * of the dataset the index was built from, the number of documents and terms, and the position, length and
+ * CRC32 checksum of each section. The header ends with a checksum of itself. It is followed by four sections:
+ * - The document table, with the number of terms, url and title of every page in id order.
+ * - The postings, with the postings of every term in sorted order of the terms. The postings of a term are its posting list,
+ *   stored as varint encoded gaps between the ids followed by the term frequency and, for lists with positions,
+ *   the positions of the term in the document as varint encoded gaps, then the block upper bounds of the list,
+ *   and then its title posting list as varint encoded gaps and title frequencies.
+ * - The term table, with a fixed size entry for every term in sorted order holding the position and length
+ *   of its postings, its document frequency, the size of its title list, its flags and the checksum of its postings.
+ * - The term dictionary, with every term in sorted order.
+ *
+ * Opening a file only reads the document table, the term table and the dictionary, and checks their checksums.
+ * The postings section is memory mapped in chunks of at most {@link PageLoader#MAX_MAPPED_CHUNK} bytes that never
+ * split the postings of a term, as CorpusSplitter does for the dataset, and the postings of a term are only checked
+ * and decoded when the term is first searched for, so opening an index does not depend on the number of postings.
+ * A file whose checksums do not match, which was built from a different version of the dataset, or which has
+ * another format version is rejected, and the index is then built again from the dataset.
+ */
+public class IndexSegment {
+    /**
+     * The extension added to the name of a dataset to get the name of its index file.
+     */
+    public static final String EXTENSION = ".idx";
+
+    static final int MAGIC = 0x53454958;
+    static final int VERSION = 3;
+    static final int SECTIONS = 4;
+    static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + SECTIONS * 3 * 8 + 8;
+    static final int TERM_ENTRY_SIZE = 8 + 4 + 4 + 4 + 1 + 4;
+
+    private static final int DOCUMENTS = 0;
+    private static final int POSTINGS = 1;
+    private static final int TERMS = 2;
+    private static final int DICTIONARY = 3;
+
+    private static final int POSITIONS = 1;
+    private static final int TITLE_MAXIMA = 2;
+
+    /**
+     * Writes an index to a file. The file is first written next to the target and then moved into place,
+     * so a crash while writing never leaves a half written index behind.
+     * Deleted documents are left out, and the remaining documents are numbered without gaps.
+     *
+     * @param  index        the index to write
+     * @param  file         the path of the index file
+     * @param  source       the dataset the index was built from, or null if it has none
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    public static void write(Index index, Path file, Path source) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        List<String> terms = new ArrayList<>();
+        for (int termId : index.getTermIds()) {
+            if (index.getPostings(termId).size() > 0) {
+                terms.add(index.getDictionary().getTerm(termId));
+            }
+        }
+        terms.sort(null);
+        int[] termIds = new int[terms.size()];
+        for (int i = 0; i < termIds.length; i++) {
+            termIds[i] = index.getDictionary().lookup(terms.get(i));
+        }
+        long[] sectionOffsets = new long[SECTIONS];
+        long[] sectionLengths = new long[SECTIONS];
+        long[] sectionChecksums = new long[SECTIONS];
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_SIZE);
+
+            SectionWriter documents = new SectionWriter(channel);
+            int[] newIds = new int[index.getMaxDoc()];
+            int documentCount = 0;
+            for (int docId = 0; docId < newIds.length; docId++) {
+                if (index.isDeleted(docId)) {
+                    newIds[docId] = -1;
+                    continue;
+                }
+                newIds[docId] = documentCount++;
+                Page page = index.getPage(docId);
+                documents.out.writeInt(page.getTotalTerms());
+                documents.writeString(page.getUrl());
+                documents.writeString(page.getTitle());
+            }
+            documents.finish(DOCUMENTS, sectionOffsets, sectionLengths, sectionChecksums);
+
+            SectionWriter postings = new SectionWriter(channel);
+            long[] postingOffsets = new long[terms.size()];
+            int[] postingLengths = new int[terms.size()];
+            int[] titleCounts = new int[terms.size()];
+            int[] postingChecksums = new int[terms.size()];
+            int[] positions = new int[16];
+            for (int i = 0; i < terms.size(); i++) {
+                postingOffsets[i] = postings.written;
+                postings.entry.reset();
+                PostingList list = index.getPostings(termIds[i]);
+                int previous = 0;
+                for (int j = 0; j < list.size(); j++) {
+                    postings.writeVarInt(newIds[list.getDocId(j)] - previous);
+                    postings.writeVarInt(list.getFrequency(j));
+                    previous = newIds[list.getDocId(j)];
+                    if (list.hasPositions()) {
+                        if (positions.length < list.getFrequency(j)) {
+                            positions = new int[list.getFrequency(j)];
+                        }
+                        int count = list.readPositions(j, positions);
+                        int previousPosition = 0;
+                        for (int k = 0; k < count; k++) {
+                            postings.writeVarInt(positions[k] - previousPosition);
+                            previousPosition = positions[k];
+                        }
+                    }
+                }
+                for (int block = 0; block * PostingList.BLOCK_SIZE < list.size(); block++) {
+                    postings.writeVarInt(list.getBlockMaxFrequency(block));
+                    postings.out.writeDouble(list.getBlockMaxShare(block));
+                    if (list.hasTitleMaxima()) {
+                        postings.writeVarInt(list.getBlockMaxTitleFrequency(block));
+                    }
+                }
+                PostingList titles = index.getTitlePostings(termIds[i]);
+                previous = 0;
+                for (int j = 0; j < titles.size(); j++) {
+                    int docId = newIds[titles.getDocId(j)];
+                    if (docId >= 0) {
+                        postings.writeVarInt(docId - previous);
+                        postings.writeVarInt(titles.getFrequency(j));
+                        previous = docId;
+                        titleCounts[i]++;
+                    }
+                }
+                postingLengths[i] = Math.toIntExact(postings.written - postingOffsets[i]);
+                postingChecksums[i] = (int) postings.entry.getValue();
+            }
+            postings.finish(POSTINGS, sectionOffsets, sectionLengths, sectionChecksums);
+
+            SectionWriter table = new SectionWriter(channel);
+            for (int i = 0; i < terms.size(); i++) {
+                PostingList list = index.getPostings(termIds[i]);
+                table.out.writeLong(postingOffsets[i]);
+                table.out.writeInt(postingLengths[i]);
+                table.out.writeInt(list.size());
+                table.out.writeInt(titleCounts[i]);
+                table.out.writeByte((list.hasPositions() ? POSITIONS : 0) | (list.hasTitleMaxima() ? TITLE_MAXIMA : 0));
+                table.out.writeInt(postingChecksums[i]);
+            }
+            table.finish(TERMS, sectionOffsets, sectionLengths, sectionChecksums);
+
+            SectionWriter dictionary = new SectionWriter(channel);
+            for (String term : terms) {
+                dictionary.writeString(term);
+            }
+            dictionary.finish(DICTIONARY, sectionOffsets, sectionLengths, sectionChecksums);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION);
+            header.putLong(source == null ? -1 : Files.size(source));
+            header.putLong(source == null ? -1 : Files.getLastModifiedTime(source).toMillis());
+            header.putInt(documentCount).putInt(terms.size());
+            for (int i = 0; i < SECTIONS; i++) {
+                header.putLong(sectionOffsets[i]).putLong(sectionLengths[i]).putLong(sectionChecksums[i]);
+            }
+            header.putLong(checksum(header.array(), HEADER_SIZE - 8));
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Opens an index file. The pages and the terms are read into memory, and the postings are memory mapped
+     * and decoded by the returned index when they are first needed.
+     * The pages of the returned index have no content, only their url, title and number of terms.
+     *
+     * @param  file         the path of the index file
+     * @param  source       the dataset the index should have been built from, or null to skip this check
+     * @return              the index stored in the file
+     * @throws IOException  if the file cannot be read, is corrupted, has an unsupported version, or is older than the dataset
+     */
+    public static Index read(Path file, Path source) throws IOException {
+        return read(file, source, PageLoader.MAX_MAPPED_CHUNK);
+    }
+
+    /**
+     * Opens an index file, mapping its postings in chunks of at most the given size.
+     *
+     * @param  file         the path of the index file
+     * @param  source       the dataset the index should have been built from, or null to skip this check
+     * @param  maxChunk     the largest number of bytes mapped at once, unless the postings of a single term are larger
+     * @return              the index stored in the file
+     * @throws IOException  if the file cannot be read, is corrupted, has an unsupported version, or is older than the dataset
+     */
+    static Index read(Path file, Path source, long maxChunk) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Index file is too short: " + file);
+            }
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            byte[] headerBytes = new byte[HEADER_SIZE];
+            header.get(headerBytes);
+            header.rewind();
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not an index file: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported index version " + version + " in " + file);
+            }
+            if (header.getLong(HEADER_SIZE - 8) != checksum(headerBytes, HEADER_SIZE - 8)) {
+                throw new IOException("Index header checksum mismatch in " + file);
+            }
+            long sourceSize = header.getLong();
+            long sourceModified = header.getLong();
+            if (source != null && (sourceSize != Files.size(source)
+                    || sourceModified != Files.getLastModifiedTime(source).toMillis())) {
+                throw new IOException("Index file " + file + " is stale, the dataset has changed");
+            }
+            int documentCount = header.getInt();
+            int termCount = header.getInt();
+            long[] sectionOffsets = new long[SECTIONS];
+            long[] sectionLengths = new long[SECTIONS];
+            long[] sectionChecksums = new long[SECTIONS];
+            for (int i = 0; i < SECTIONS; i++) {
+                sectionOffsets[i] = header.getLong();
+                sectionLengths[i] = header.getLong();
+                sectionChecksums[i] = header.getLong();
+                if (sectionOffsets[i] + sectionLengths[i] > channel.size()) {
+                    throw new IOException("Index file is truncated: " + file);
+                }
+            }
+            if (sectionLengths[TERMS] != (long) TERM_ENTRY_SIZE * termCount) {
+                throw new IOException("Index term table has the wrong size in " + file);
+            }
+
+            SectionReader documents = new SectionReader(channel, sectionOffsets[DOCUMENTS], sectionLengths[DOCUMENTS]);
+            List<Page> pages = new ArrayList<>(documentCount);
+            for (int docId = 0; docId < documentCount; docId++) {
+                int totalTerms = documents.in.readInt();
+                String url = documents.readString();
+                String title = documents.readString();
+                Page page = new Page(url, title, totalTerms);
+                page.setId(docId);
+                pages.add(page);
+            }
+            documents.finish(sectionChecksums[DOCUMENTS], file);
+
+            SectionReader dictionary = new SectionReader(channel, sectionOffsets[DICTIONARY], sectionLengths[DICTIONARY]);
+            String[] terms = new String[termCount];
+            for (int i = 0; i < termCount; i++) {
+                terms[i] = dictionary.readString();
+            }
+            dictionary.finish(sectionChecksums[DICTIONARY], file);
+
+            SectionReader table = new SectionReader(channel, sectionOffsets[TERMS], sectionLengths[TERMS]);
+            MappedPostings postings = new MappedPostings(file, documentCount, table, termCount);
+            table.finish(sectionChecksums[TERMS], file);
+            postings.map(channel, sectionOffsets[POSTINGS], sectionLengths[POSTINGS], maxChunk);
+            return new MappedIndex(new TermDictionary(terms), terms, pages, null, postings);
+        }
+    }
+
+    /**
+     * Builds the index of a dataset and writes it to an index file.
+     * The first argument is the dataset, and the optional second argument is the index file,
+     * which defaults to the name of the dataset followed by {@value #EXTENSION}.
+     *
+     * @param  args         the dataset and optionally the index file
+     * @throws IOException  if an I/O error occurs while writing the index
+     */
+    public static void main(String... args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: IndexSegment <dataset> [<index file>]");
+            return;
+        }
+        Path source = Paths.get(args[0]);
+        Path file = Paths.get(args.length > 1 ? args[1] : args[0] + EXTENSION);
+        PageLoader pageLoader = new PageLoader(args[0], Runtime.getRuntime().availableProcessors());
+        pageLoader.writeIndex(file, source);
+        System.out.println("Wrote " + pageLoader.getIndex().getTotalDocuments() + " pages to " + file);
+    }
+
+    private static long checksum(byte[] bytes, int length) {
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, length);
+        return crc.getValue();
+    }
+
+    private static int readVarInt(ByteBuffer buffer) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = buffer.get();
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * Writes one section of the index file while counting its length and computing its checksum.
+     * The checksum of the current entry of the section, such as the postings of one term, is computed as well,
+     * and starts again whenever it is reset.
+     */
+    private static class SectionWriter {
+        private final FileChannel channel;
+        private final long start;
+        private final CRC32 crc = new CRC32();
+        private final CRC32 entry = new CRC32();
+        private final DataOutputStream out;
+        private long written = 0;
+
+        SectionWriter(FileChannel channel) throws IOException {
+            this.channel = channel;
+            this.start = channel.position();
+            OutputStream file = new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16);
+            this.out = new DataOutputStream(new OutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    crc.update(b);
+                    entry.update(b);
+                    written++;
+                    file.write(b);
+                }
+
+                @Override
+                public void write(byte[] bytes, int offset, int length) throws IOException {
+                    crc.update(bytes, offset, length);
+                    entry.update(bytes, offset, length);
+                    written += length;
+                    file.write(bytes, offset, length);
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    file.flush();
+                }
+            });
+        }
+
+        void writeString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        void writeVarInt(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        void finish(int section, long[] offsets, long[] lengths, long[] checksums) throws IOException {
+            out.flush();
+            offsets[section] = start;
+            lengths[section] = written;
+            checksums[section] = crc.getValue();
+        }
+    }
+
+    /**
+     * Reads one section of the index file from a buffered stream while counting its length and computing its checksum,
+     * so sections of any size can be read without mapping them.
+     */
+    private static class SectionReader {
+        private final long length;
+        private final CRC32 crc = new CRC32();
+        private final DataInputStream in;
+        private long consumed = 0;
+
+        SectionReader(FileChannel channel, long offset, long length) throws IOException {
+            this.length = length;
+            InputStream file = new BufferedInputStream(Channels.newInputStream(channel.position(offset)), 1 << 16);
+            this.in = new DataInputStream(new InputStream() {
+                @Override
+                public int read() throws IOException {
+                    if (consumed == SectionReader.this.length) {
+                        return -1;
+                    }
+                    int b = file.read();
+                    if (b >= 0) {
+                        crc.update(b);
+                        consumed++;
+                    }
+                    return b;
+                }
+
+                @Override
+                public int read(byte[] bytes, int offset, int count) throws IOException {
+                    if (consumed == SectionReader.this.length) {
+                        return -1;
+                    }
+                    int read = file.read(bytes, offset, (int) Math.min(count, SectionReader.this.length - consumed));
+                    if (read > 0) {
+                        crc.update(bytes, offset, read);
+                        consumed += read;
+                    }
+                    return read;
+                }
+            });
+        }
+
+        /**
+         * Reads a string stored as its length followed by its UTF-8 bytes.
+         * A length running past the end of the section is rejected before anything is allocated.
+         *
+         * @return              the string
+         * @throws IOException  if the section ends or the length is out of bounds
+         */
+        String readString() throws IOException {
+            int size = in.readInt();
+            if (size < 0 || size > length - consumed) {
+                throw new IOException("Index string length " + size + " is out of bounds");
+            }
+            byte[] bytes = new byte[size];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Checks that the whole section has been read and that its checksum matches the one in the header.
+         *
+         * @param  expected     the checksum of the section stored in the header
+         * @param  file         the index file, for the error message
+         * @throws IOException  if the section was not read to its end or its checksum does not match
+         */
+        void finish(long expected, Path file) throws IOException {
+            if (consumed != length || crc.getValue() != expected) {
+                throw new IOException("Index section checksum mismatch in " + file);
+            }
+        }
+    }
+
+    /**
+     * The MappedPostings class holds the term table of an index file and its memory mapped postings section,
+     * and decodes the posting list and the title posting list of a term the first time they are asked for.
+     * The section is mapped in chunks of a limited size that never split the postings of a term, so a term is
+     * always decoded from a single buffer, and the postings of a term are checked against their checksum before they are decoded.
+     * A decoded list is kept in an array by term id. Threads that decode the same term at the same time
+     * each decode it, but only the first list stored is ever handed out.
+     */
+    static final class MappedPostings {
+        private final Path file;
+        private final int documentCount;
+        private final long[] offsets;
+        private final int[] lengths;
+        private final int[] documentFrequencies;
+        private final int[] titleCounts;
+        private final byte[] flags;
+        private final int[] checksums;
+        private final AtomicReferenceArray<PostingList> postings;
+        private final AtomicReferenceArray<PostingList> titlePostings;
+        private final AtomicLong decodedBytes = new AtomicLong();
+        private ByteBuffer[] chunks;
+        private long[] chunkStarts;
+
+        /**
+         * Constructs the mapped postings of an index file by reading its term table.
+         *
+         * @param  file           the index file, for error messages
+         * @param  documentCount  the number of documents in the file
+         * @param  table          the reader of the term table
+         * @param  termCount      the number of terms in the file
+         * @throws IOException    if the term table cannot be read
+         */
+        MappedPostings(Path file, int documentCount, SectionReader table, int termCount) throws IOException {
+            this.file = file;
+            this.documentCount = documentCount;
+            this.offsets = new long[termCount];
+            this.lengths = new int[termCount];
+            this.documentFrequencies = new int[termCount];
+            this.titleCounts = new int[termCount];
+            this.flags = new byte[termCount];
+            this.checksums = new int[termCount];
+            for (int i = 0; i < termCount; i++) {
+                offsets[i] = table.in.readLong();
+                lengths[i] = table.in.readInt();
+                documentFrequencies[i] = table.in.readInt();
+                titleCounts[i] = table.in.readInt();
+                flags[i] = table.in.readByte();
+                checksums[i] = table.in.readInt();
+            }
+            this.postings = new AtomicReferenceArray<>(termCount);
+            this.titlePostings = new AtomicReferenceArray<>(termCount);
+        }
+
+        /**
+         * Maps the postings section in chunks of at most the given size. A new chunk is started at the postings of a term
+         * that would make the current chunk too large, so the postings of every term lie within one chunk.
+         *
+         * @param  channel      the channel of the index file
+         * @param  offset       the position of the postings section in the file
+         * @param  length       the length of the postings section
+         * @param  maxChunk     the largest number of bytes mapped at once, unless the postings of a single term are larger
+         * @throws IOException  if the term table does not fit the section, or the section cannot be mapped
+         */
+        void map(FileChannel channel, long offset, long length, long maxChunk) throws IOException {
+            List<ByteBuffer> mapped = new ArrayList<>();
+            List<Long> starts = new ArrayList<>();
+            long chunkStart = 0;
+            long chunkEnd = 0;
+            for (int i = 0; i < offsets.length; i++) {
+                long end = offsets[i] + lengths[i];
+                if (offsets[i] < chunkEnd || lengths[i] <= 0 || end > length) {
+                    throw new IOException("Index term table does not match the postings in " + file);
+                }
+                if (end - chunkStart > maxChunk && chunkEnd > chunkStart) {
+                    mapped.add(CorpusSplitter.mapChunk(channel, offset + chunkStart, offset + chunkEnd));
+                    starts.add(chunkStart);
+                    chunkStart = offsets[i];
+                }
+                chunkEnd = end;
+            }
+            if (chunkEnd > chunkStart) {
+                mapped.add(CorpusSplitter.mapChunk(channel, offset + chunkStart, offset + chunkEnd));
+                starts.add(chunkStart);
+            }
+            chunks = mapped.toArray(new ByteBuffer[0]);
+            chunkStarts = new long[starts.size()];
+            for (int i = 0; i < chunkStarts.length; i++) {
+                chunkStarts[i] = starts.get(i);
+            }
+        }
+
+        /**
+         * Gets the posting list of a term, decoding it if it has not been decoded before.
+         *
+         * @param  termId  the id of the term, which is its position in the sorted terms of the file
+         * @return         the posting list of the term
+         * @throws UncheckedIOException  if the postings of the term are corrupted
+         */
+        PostingList getPostings(int termId) {
+            PostingList list = postings.get(termId);
+            if (list == null) {
+                decode(termId);
+                list = postings.get(termId);
+            }
+            return list;
+        }
+
+        /**
+         * Gets the title posting list of a term, decoding it if it has not been decoded before.
+         *
+         * @param  termId  the id of the term, which is its position in the sorted terms of the file
+         * @return         the title posting list of the term
+         * @throws UncheckedIOException  if the postings of the term are corrupted
+         */
+        PostingList getTitlePostings(int termId) {
+            PostingList list = titlePostings.get(termId);
+            if (list == null) {
+                decode(termId);
+                list = titlePostings.get(termId);
+            }
+            return list;
+        }
+
+        /**
+         * Gets the number of documents containing a term from the term table, without decoding its postings.
+         *
+         * @param  termId  the id of the term
+         * @return         the document frequency of the term
+         */
+        int getDocumentFrequency(int termId) {
+            return documentFrequencies[termId];
+        }
+
+        /**
+         * Checks the postings of a term against their checksum and decodes its posting list, with the block upper bounds
+         * stored in the file, and its title posting list. Each list is stored unless another thread stored it first.
+         *
+         * @param  termId  the id of the term
+         * @throws UncheckedIOException  if the postings of the term are corrupted
+         */
+        private void decode(int termId) {
+            int chunk = Arrays.binarySearch(chunkStarts, offsets[termId]);
+            if (chunk < 0) {
+                chunk = -chunk - 2;
+            }
+            int start = (int) (offsets[termId] - chunkStarts[chunk]);
+            ByteBuffer buffer = chunks[chunk].duplicate();
+            buffer.limit(start + lengths[termId]).position(start);
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != checksums[termId]) {
+                throw new UncheckedIOException(new IOException("Index postings checksum mismatch in " + file));
+            }
+
+            int size = documentFrequencies[termId];
+            boolean hasPositions = (flags[termId] & POSITIONS) != 0;
+            PostingList list = new PostingList(size);
+            int[] positions = new int[16];
+            int docId = 0;
+            for (int j = 0; j < size; j++) {
+                docId += readVarInt(buffer);
+                int frequency = readVarInt(buffer);
+                if (hasPositions) {
+                    if (positions.length < frequency) {
+                        positions = new int[frequency];
+                    }
+                    int position = 0;
+                    for (int k = 0; k < frequency; k++) {
+                        position += readVarInt(buffer);
+                        positions[k] = position;
+                    }
+                    list.add(docId, positions, 0, frequency);
+                } else {
+                    list.add(docId, frequency);
+                }
+            }
+            int blocks = (size + PostingList.BLOCK_SIZE - 1) / PostingList.BLOCK_SIZE;
+            int[] maxFrequencies = new int[blocks];
+            double[] maxShares = new double[blocks];
+            int[] maxTitleFrequencies = (flags[termId] & TITLE_MAXIMA) != 0 ? new int[blocks] : null;
+            for (int block = 0; block < blocks; block++) {
+                maxFrequencies[block] = readVarInt(buffer);
+                maxShares[block] = buffer.getDouble();
+                if (maxTitleFrequencies != null) {
+                    maxTitleFrequencies[block] = readVarInt(buffer);
+                }
+            }
+            list.finish(documentCount, maxFrequencies, maxShares, maxTitleFrequencies);
+
+            PostingList titles = PostingList.EMPTY;
+            if (titleCounts[termId] > 0) {
+                titles = new PostingList(titleCounts[termId]);
+                docId = 0;
+                for (int j = 0; j < titleCounts[termId]; j++) {
+                    docId += readVarInt(buffer);
+                    titles.add(docId, readVarInt(buffer));
+                }
+                titles.finish(documentCount, null, null, null);
+            }
+            if (titlePostings.compareAndSet(termId, null, titles) && titles != PostingList.EMPTY) {
+                decodedBytes.addAndGet(titles.getEstimatedBytes());
+            }
+            if (postings.compareAndSet(termId, null, list)) {
+                decodedBytes.addAndGet(list.getEstimatedBytes());
+            }
+        }
+
+        /**
+         * Estimates the number of bytes of heap memory used by the term table and the lists decoded so far.
+         * The mapped postings are not counted, as they are paged in and out by the operating system.
+         *
+         * @return  the estimated size in bytes
+         */
+        long getEstimatedBytes() {
+            return 8 * 16 + 41L * offsets.length + decodedBytes.get();
+        }
+    }
+}
@@ -0,0 +1,346 @@
+package searchengine;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The IndexWriter class changes the index of a PageLoader one page at a time, without loading the dataset again.
+ * The index is kept as a list of immutable segments. New and updated pages are collected in a small in-memory
+ * buffer, and every refresh turns the buffer into a new segment and publishes a new SegmentedIndex snapshot.
+ * Pages are identified by their url, so adding a page with the url of an existing page replaces it.
+ * Deleting a page marks it in the tombstone bitset of its segment, and it disappears from the next snapshot.
+ *
+ * Segments are merged on a background thread by size tier. The tier of a segment is the logarithm
+ * of its number of live pages in base {@value #MERGE_FACTOR}, and as soon as {@value #MERGE_FACTOR} segments
+ * share a tier they are merged into one segment of the next tier, which also drops their deleted pages.
+ * The number of segments therefore grows only logarithmically with the number of pages.
+ *
+ * Every segment of a writer uses the TermDictionary of the index the writer started from,
+ * or a new dictionary if that index was empty, so the segments can be searched and merged by term id.
+ */
+public class IndexWriter {
+    static final int DEFAULT_FLUSH_SIZE = 1000;
+    static final int MERGE_FACTOR = 4;
+
+    private final PageLoader pageLoader;
+    private final int flushSize;
+    private final List<Index> segments = new ArrayList<>();
+    private final Map<Index, BitSet> deletions = new IdentityHashMap<>();
+    private final Map<String, DocumentRef> documents = new HashMap<>();
+    private final Map<String, Page> buffer = new LinkedHashMap<>();
+    private final TermDictionary dictionary;
+    private final ExecutorService merger;
+
+    /**
+     * The position of a live page: the segment holding it and its id within the segment.
+     */
+    private static final class DocumentRef {
+        private final Index segment;
+        private final int docId;
+
+        private DocumentRef(Index segment, int docId) {
+            this.segment = segment;
+            this.docId = docId;
+        }
+    }
+
+    /**
+     * Constructs an IndexWriter for a PageLoader, buffering up to {@value #DEFAULT_FLUSH_SIZE} pages between refreshes.
+     *
+     * @param pageLoader  the PageLoader whose index is changed
+     */
+    public IndexWriter(PageLoader pageLoader) {
+        this(pageLoader, DEFAULT_FLUSH_SIZE);
+    }
+
+    /**
+     * Constructs an IndexWriter for a PageLoader. The current index of the PageLoader becomes the first segment.
+     *
+     * @param pageLoader  the PageLoader whose index is changed
+     * @param flushSize   the number of buffered pages after which the buffer is refreshed automatically
+     */
+    public IndexWriter(PageLoader pageLoader, int flushSize) {
+        this.pageLoader = pageLoader;
+        this.flushSize = flushSize;
+        this.merger = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "index-merger");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Index current = pageLoader.getIndex();
+        if (current instanceof SegmentedIndex) {
+            SegmentedIndex segmented = (SegmentedIndex) current;
+            int base = 0;
+            for (Index segment : segmented.getSegments()) {
+                BitSet deleted = new BitSet();
+                for (int docId = 0; docId < segment.getMaxDoc(); docId++) {
+                    if (segmented.isDeleted(base + docId)) {
+                        deleted.set(docId);
+                    }
+                }
+                addSegment(segment, deleted.isEmpty() ? null : deleted);
+                base += segment.getMaxDoc();
+            }
+        } else if (current.getTotalDocuments() > 0) {
+            addSegment(current, null);
+        }
+        this.dictionary = segments.isEmpty() ? new TermDictionary() : segments.get(0).getDictionary();
+    }
+
+    /**
+     * Adds a segment to the end of the list of segments and registers its live pages by url.
+     *
+     * @param segment  the segment to add
+     * @param deleted  the deleted pages of the segment, or null if none are deleted
+     */
+    private void addSegment(Index segment, BitSet deleted) {
+        segments.add(segment);
+        if (deleted != null) {
+            deletions.put(segment, deleted);
+        }
+        for (int docId = 0; docId < segment.getMaxDoc(); docId++) {
+            if (deleted == null || !deleted.get(docId)) {
+                documents.put(segment.getPage(docId).getUrl(), new DocumentRef(segment, docId));
+            }
+        }
+    }
+
+    /**
+     * Adds a page, or replaces the page with the same url. The page becomes searchable with the next refresh,
+     * which happens automatically once the buffer holds the flush size number of pages.
+     * Invalid pages, without a title or words, are ignored.
+     *
+     * @param  page  the page to add
+     * @return       true if the page was added, false if it is invalid
+     */
+    public synchronized boolean addPage(Page page) {
+        if (page.getTitle() == null || page.getTermIds().length == 0) {
+            return false;
+        }
+        deleteCommitted(page.getUrl());
+        buffer.put(page.getUrl(), page);
+        if (buffer.size() >= flushSize) {
+            refresh();
+        }
+        return true;
+    }
+
+    /**
+     * Deletes the page with the given url. The page disappears from the index with the next refresh.
+     *
+     * @param  url  the url of the page to delete
+     * @return      true if a page with the url existed, false otherwise
+     */
+    public synchronized boolean deletePage(String url) {
+        boolean buffered = buffer.remove(url) != null;
+        return deleteCommitted(url) || buffered;
+    }
+
+    /**
+     * Marks the page with the given url in the tombstones of its segment.
+     *
+     * @param  url  the url of the page to delete
+     * @return      true if a page with the url was in a segment, false otherwise
+     */
+    private boolean deleteCommitted(String url) {
+        DocumentRef ref = documents.remove(url);
+        if (ref == null) {
+            return false;
+        }
+        deletions.computeIfAbsent(ref.segment, segment -> new BitSet()).set(ref.docId);
+        return true;
+    }
+
+    /**
+     * Turns the buffered pages into a new segment and publishes a snapshot with all changes made so far.
+     * Afterwards a merge is started in the background if the merge policy finds one.
+     *
+     * @return  the published index
+     */
+    public synchronized Index refresh() {
+        if (!buffer.isEmpty()) {
+            IndexBuilder builder = new IndexBuilder(dictionary);
+            for (Page page : buffer.values()) {
+                builder.addPage(page);
+            }
+            buffer.clear();
+            Index segment = builder.build();
+            if (segment.getMaxDoc() > 0) {
+                addSegment(segment, null);
+            }
+        }
+        Index snapshot = publish();
+        merger.execute(this::mergeSegments);
+        return snapshot;
+    }
+
+    /**
+     * Publishes a snapshot of the current segments and tombstones. The tombstones are copied,
+     * so later deletions do not change the published snapshot.
+     * A single segment without deletions is published as it is.
+     *
+     * @return  the published index
+     */
+    private Index publish() {
+        Index snapshot;
+        if (segments.isEmpty()) {
+            snapshot = Index.EMPTY;
+        } else if (segments.size() == 1 && !deletions.containsKey(segments.get(0))) {
+            snapshot = segments.get(0);
+        } else {
+            BitSet[] deleted = new BitSet[segments.size()];
+            for (int i = 0; i < segments.size(); i++) {
+                BitSet bits = deletions.get(segments.get(i));
+                deleted[i] = bits == null ? null : (BitSet) bits.clone();
+            }
+            snapshot = new SegmentedIndex(segments, deleted);
+        }
+        pageLoader.publish(snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Merges segments for as long as the merge policy finds segments to merge.
+     * The merged segment is built without holding the lock, so pages can be added and deleted meanwhile.
+     * Pages deleted while the merge was running are marked in the tombstones of the merged segment.
+     */
+    private void mergeSegments() {
+        while (true) {
+            List<Index> merging;
+            List<BitSet> deletedBefore = new ArrayList<>();
+            synchronized (this) {
+                merging = findMerge();
+                if (merging == null) {
+                    return;
+                }
+                for (Index segment : merging) {
+                    BitSet bits = deletions.get(segment);
+                    deletedBefore.add(bits == null ? null : (BitSet) bits.clone());
+                }
+            }
+
+            IndexBuilder builder = new IndexBuilder(dictionary);
+            List<int[]> newIds = new ArrayList<>();
+            for (int i = 0; i < merging.size(); i++) {
+                newIds.add(builder.addSegment(merging.get(i), deletedBefore.get(i)));
+            }
+            Index merged = builder.build();
+
+            synchronized (this) {
+                int position = segments.indexOf(merging.get(0));
+                segments.removeAll(merging);
+                BitSet deletedDuringMerge = new BitSet();
+                for (int i = 0; i < merging.size(); i++) {
+                    Index segment = merging.get(i);
+                    int[] ids = newIds.get(i);
+                    BitSet deletedNow = deletions.remove(segment);
+                    for (int docId = 0; docId < ids.length; docId++) {
+                        if (ids[docId] < 0) {
+                            continue;
+                        }
+                        if (deletedNow != null && deletedNow.get(docId)) {
+                            deletedDuringMerge.set(ids[docId]);
+                            continue;
+                        }
+                        String url = segment.getPage(docId).getUrl();
+                        DocumentRef ref = documents.get(url);
+                        if (ref != null && ref.segment == segment && ref.docId == docId) {
+                            documents.put(url, new DocumentRef(merged, ids[docId]));
+                        }
+                    }
+                }
+                if (merged.getMaxDoc() > 0) {
+                    segments.add(position, merged);
+                    if (!deletedDuringMerge.isEmpty()) {
+                        deletions.put(merged, deletedDuringMerge);
+                    }
+                }
+                publish();
+            }
+        }
+    }
+
+    /**
+     * Finds segments to merge with the size tiered merge policy.
+     * The segments are grouped by tier, and the first {@value #MERGE_FACTOR} segments of the lowest tier
+     * holding at least that many segments are chosen.
+     *
+     * @return  the segments to merge, or null if no tier is full
+     */
+    private List<Index> findMerge() {
+        Map<Integer, List<Index>> tiers = new TreeMap<>();
+        for (Index segment : segments) {
+            tiers.computeIfAbsent(tierOf(liveDocuments(segment)), tier -> new ArrayList<>()).add(segment);
+        }
+        for (List<Index> tier : tiers.values()) {
+            if (tier.size() >= MERGE_FACTOR) {
+                return new ArrayList<>(tier.subList(0, MERGE_FACTOR));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Counts the pages of a segment that have not been deleted.
+     *
+     * @param  segment  the segment to count
+     * @return          the number of live pages of the segment
+     */
+    private int liveDocuments(Index segment) {
+        BitSet deleted = deletions.get(segment);
+        return segment.getMaxDoc() - (deleted == null ? 0 : deleted.cardinality());
+    }
+
+    /**
+     * Computes the size tier of a segment.
+     *
+     * @param  size  the number of live pages of the segment
+     * @return       the logarithm of the size in base {@value #MERGE_FACTOR}, rounded down
+     */
+    static int tierOf(int size) {
+        int tier = 0;
+        for (long limit = MERGE_FACTOR; size >= limit; limit *= MERGE_FACTOR) {
+            tier++;
+        }
+        return tier;
+    }
+
+    /**
+     * Retrieves the number of segments, not counting the buffer.
+     *
+     * @return  the number of segments
+     */
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Waits until the background thread has finished every merge that has been started so far.
+     *
+     * @throws InterruptedException  if the thread is interrupted while waiting
+     */
+    public void waitForMerges() throws InterruptedException {
+        try {
+            merger.submit(() -> { }).get();
+        } catch (ExecutionException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Refreshes the buffered pages and stops the background thread once the running merges are done.
+     */
+    public void close() {
+        refresh();
+        merger.shutdown();
+    }
+}
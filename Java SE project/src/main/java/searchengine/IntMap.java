@@ -0,0 +1,202 @@
+package searchengine;
+
+import java.util.Arrays;
+import java.util.function.IntFunction;
+
+/**
+ * The IntMap class is a hash map from int keys to objects, used to look posting lists up by term id.
+ * Keys are stored in a primitive array with open addressing and linear probing,
+ * so no Integer objects or entry objects are created for the keys.
+ * Values may not be null, since a null value marks an empty slot.
+ *
+ * @param <V> the type of the values
+ */
+public class IntMap<V> {
+    private static final int MIN_CAPACITY = 8;
+
+    private int[] keys;
+    private Object[] values;
+    private int size;
+
+    /**
+     * Receives the entries of the map one at a time.
+     *
+     * @param <V> the type of the values
+     */
+    public interface EntryVisitor<V> {
+        /**
+         * Receives a single entry.
+         * @param key the key of the entry.
+         * @param value the value of the entry.
+         */
+        void visit(int key, V value);
+    }
+
+    /**
+     * Constructs an empty IntMap.
+     */
+    public IntMap() {
+        keys = new int[MIN_CAPACITY];
+        values = new Object[MIN_CAPACITY];
+    }
+
+    /**
+     * Finds the slot of a key, or the empty slot where the key would be placed.
+     *
+     * @param  key  the key to look for
+     * @return      the slot of the key
+     */
+    private int slotOf(int key) {
+        int mask = keys.length - 1;
+        int hash = key * 0x9E3779B9;
+        int slot = (hash ^ hash >>> 16) & mask;
+        while (values[slot] != null && keys[slot] != key) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Gets the value of a key.
+     *
+     * @param  key  the key to look up
+     * @return      the value of the key, or null if the map has no such key
+     */
+    @SuppressWarnings("unchecked")
+    public V get(int key) {
+        return (V) values[slotOf(key)];
+    }
+
+    /**
+     * Sets the value of a key.
+     *
+     * @param key    the key
+     * @param value  the value, which may not be null
+     */
+    public void put(int key, V value) {
+        int slot = slotOf(key);
+        if (values[slot] == null) {
+            size++;
+        }
+        keys[slot] = key;
+        values[slot] = value;
+        if (size * 3 > keys.length * 2) {
+            resize(keys.length * 2);
+        }
+    }
+
+    /**
+     * Gets the value of a key, computing and storing it first if the map has no such key.
+     *
+     * @param  key       the key to look up
+     * @param  function  computes the value from the key
+     * @return           the value of the key
+     */
+    @SuppressWarnings("unchecked")
+    public V computeIfAbsent(int key, IntFunction<V> function) {
+        int slot = slotOf(key);
+        if (values[slot] == null) {
+            V value = function.apply(key);
+            put(key, value);
+            return value;
+        }
+        return (V) values[slot];
+    }
+
+    /**
+     * Moves every entry to new arrays of the given capacity.
+     *
+     * @param capacity the new capacity, which must be a power of two
+     */
+    private void resize(int capacity) {
+        int[] oldKeys = keys;
+        Object[] oldValues = values;
+        keys = new int[capacity];
+        values = new Object[capacity];
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldValues[i] != null) {
+                int slot = slotOf(oldKeys[i]);
+                keys[slot] = oldKeys[i];
+                values[slot] = oldValues[i];
+            }
+        }
+    }
+
+    /**
+     * Shrinks the arrays to the smallest capacity that holds the entries, once no more entries will be added.
+     */
+    public void trim() {
+        int capacity = MIN_CAPACITY;
+        while (size * 3 > capacity * 2) {
+            capacity *= 2;
+        }
+        if (capacity < keys.length) {
+            resize(capacity);
+        }
+    }
+
+    /**
+     * Gets the keys of the map.
+     *
+     * @return the keys in no particular order
+     */
+    public int[] keys() {
+        int[] result = new int[size];
+        int count = 0;
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                result[count++] = keys[i];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Hands every entry of the map to a visitor.
+     *
+     * @param visitor the visitor receiving the entries
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryVisitor<V> visitor) {
+        for (int i = 0; i < keys.length; i++) {
+            if (values[i] != null) {
+                visitor.visit(keys[i], (V) values[i]);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of entries in the map.
+     *
+     * @return the number of keys
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether the map is empty.
+     *
+     * @return true if the map has no entries, false otherwise
+     */
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    /**
+     * Estimates the number of bytes of heap memory used by the arrays of the map, not counting the values.
+     *
+     * @return the estimated size of the map in bytes
+     */
+    public long getEstimatedBytes() {
+        return 32 + 16 + 4L * keys.length + 16 + 4L * values.length;
+    }
+
+    /**
+     * Removes every entry from the map.
+     */
+    public void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+}
@@ -0,0 +1,177 @@
+package searchengine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * The JsonWriter class streams JSON text to an OutputStream as UTF-8, so a response never has to be built as a String first.
+ * Punctuation is written as it is given, and string values are escaped as JSON requires.
+ * The bytes are collected in a buffer of {@value #BUFFER_SIZE} bytes that is written out whenever it is full.
+ *
+ * Every thread keeps one buffer that its writers borrow and give back when they are closed,
+ * so writing a response does not allocate a new buffer. A writer opened while another writer of the same thread
+ * is still open gets a buffer of its own. A JsonWriter is not thread safe.
+ */
+public class JsonWriter implements Closeable {
+    static final int BUFFER_SIZE = 8192;
+    private static final ThreadLocal<byte[]> BUFFERS = new ThreadLocal<>();
+    private static final byte[] HEX = "0123456789abcdef".getBytes(StandardCharsets.US_ASCII);
+
+    private final OutputStream out;
+    private byte[] buffer;
+    private int count;
+
+    /**
+     * Constructs a JsonWriter that writes to the given stream, borrowing the buffer of the current thread.
+     *
+     * @param out  the stream to write to, which is closed when the writer is closed
+     */
+    public JsonWriter(OutputStream out) {
+        this.out = out;
+        byte[] borrowed = BUFFERS.get();
+        if (borrowed != null) {
+            BUFFERS.set(null);
+            this.buffer = borrowed;
+        } else {
+            this.buffer = new byte[BUFFER_SIZE];
+        }
+    }
+
+    /**
+     * Writes text exactly as it is given. The text must only hold ASCII characters, such as JSON punctuation and keys.
+     *
+     * @param  text         the text to write
+     * @return              this writer
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    public JsonWriter raw(String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            write(text.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Writes a string value in double quotes. Quotes, backslashes and control characters are escaped,
+     * and all other characters are encoded as UTF-8. A null value is written as null.
+     *
+     * @param  value        the value to write
+     * @return              this writer
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    public JsonWriter string(String value) throws IOException {
+        if (value == null) {
+            return raw("null");
+        }
+        write('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"' || c == '\\') {
+                write('\\');
+                write(c);
+            } else if (c < 0x20) {
+                escapeControl(c);
+            } else if (c < 0x80) {
+                write(c);
+            } else if (c < 0x800) {
+                write(0xC0 | c >> 6);
+                write(0x80 | c & 0x3F);
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(++i));
+                write(0xF0 | codePoint >> 18);
+                write(0x80 | codePoint >> 12 & 0x3F);
+                write(0x80 | codePoint >> 6 & 0x3F);
+                write(0x80 | codePoint & 0x3F);
+            } else if (Character.isSurrogate(c)) {
+                write('?');
+            } else {
+                write(0xE0 | c >> 12);
+                write(0x80 | c >> 6 & 0x3F);
+                write(0x80 | c & 0x3F);
+            }
+        }
+        write('"');
+        return this;
+    }
+
+    /**
+     * Writes the escape sequence of a control character.
+     *
+     * @param  c            the control character, below U+0020
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    private void escapeControl(char c) throws IOException {
+        write('\\');
+        switch (c) {
+            case '\n': write('n'); break;
+            case '\r': write('r'); break;
+            case '\t': write('t'); break;
+            case '\b': write('b'); break;
+            case '\f': write('f'); break;
+            default:
+                write('u');
+                write('0');
+                write('0');
+                write(HEX[c >> 4]);
+                write(HEX[c & 0xF]);
+        }
+    }
+
+    /**
+     * Adds a single byte to the buffer, writing the buffer out first if it is full.
+     *
+     * @param  b            the byte to write
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    private void write(int b) throws IOException {
+        if (count == buffer.length) {
+            flushBuffer();
+        }
+        buffer[count++] = (byte) b;
+    }
+
+    /**
+     * Writes the bytes collected in the buffer to the stream.
+     *
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    private void flushBuffer() throws IOException {
+        if (count > 0) {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+    }
+
+    /**
+     * Writes the buffered bytes to the stream and flushes it, so the client receives everything written so far.
+     *
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    public void flush() throws IOException {
+        flushBuffer();
+        out.flush();
+    }
+
+    /**
+     * Writes the buffered bytes, closes the stream and gives the buffer back to the current thread.
+     *
+     * @throws IOException  if an I/O error occurs while writing or closing
+     */
+    @Override
+    public void close() throws IOException {
+        if (buffer == null) {
+            return;
+        }
+        try {
+            flushBuffer();
+            out.close();
+        } finally {
+            count = 0;
+            BUFFERS.set(buffer);
+            buffer = null;
+        }
+    }
+}
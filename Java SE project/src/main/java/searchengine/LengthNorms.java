@@ -0,0 +1,127 @@
+package searchengine;
+
+/**
+ * The LengthNorms class holds the length of a field of every document of an index, such as the number of words
+ * of the content or of the title, quantized into a single byte per document, together with the average length.
+ * Length normalizing scoring methods such as BM25 only need the rough length of a document, so one byte is enough,
+ * and a scoring method can precompute its length factor for each of the 256 possible bytes instead of per document.
+ *
+ * A length is encoded as a small float with 3 mantissa bits: lengths below 24 are exact,
+ * and larger lengths are rounded down to within 12.5 percent, up to the largest int.
+ */
+public class LengthNorms {
+    /**
+     * The norms of an index without documents.
+     */
+    static final LengthNorms EMPTY = new LengthNorms(new int[0]);
+
+    private static final int FREE_VALUES = 255 - encodeInt4(Integer.MAX_VALUE);
+
+    private final byte[] norms;
+    private final double averageLength;
+
+    /**
+     * Constructs the LengthNorms of the given lengths.
+     *
+     * @param lengths  the length of the field of every document, indexed by document id
+     */
+    LengthNorms(int[] lengths) {
+        this.norms = new byte[lengths.length];
+        long total = 0;
+        for (int docId = 0; docId < lengths.length; docId++) {
+            norms[docId] = encode(lengths[docId]);
+            total += lengths[docId];
+        }
+        this.averageLength = lengths.length == 0 ? 0 : (double) total / lengths.length;
+    }
+
+    /**
+     * Gets the quantized length of a document.
+     *
+     * @param  docId  the id of the document
+     * @return        the norm of the document, between 0 and 255
+     */
+    public int get(int docId) {
+        return Byte.toUnsignedInt(norms[docId]);
+    }
+
+    /**
+     * Gets the average length of the field over all documents, computed from the exact lengths.
+     *
+     * @return  the average length, or 0 if there are no documents
+     */
+    public double getAverageLength() {
+        return averageLength;
+    }
+
+    /**
+     * Gets the number of documents with a norm.
+     *
+     * @return  the number of documents
+     */
+    public int size() {
+        return norms.length;
+    }
+
+    /**
+     * Encodes a length into a byte, rounding down.
+     *
+     * @param  length  the length, at least 0
+     * @return         the encoded length
+     */
+    public static byte encode(int length) {
+        if (length < FREE_VALUES) {
+            return (byte) length;
+        }
+        return (byte) (FREE_VALUES + encodeInt4(length - FREE_VALUES));
+    }
+
+    /**
+     * Decodes the length encoded by the encode method.
+     *
+     * @param  norm  the norm, between 0 and 255
+     * @return       the smallest length with the norm
+     */
+    public static int decode(int norm) {
+        if (norm < FREE_VALUES) {
+            return norm;
+        }
+        return (int) (FREE_VALUES + decodeInt4(norm - FREE_VALUES));
+    }
+
+    /**
+     * Encodes a non negative number as a float with 3 mantissa bits and 5 exponent bits.
+     *
+     * @param  value  the number
+     * @return        the encoded number
+     */
+    private static int encodeInt4(long value) {
+        int bits = 64 - Long.numberOfLeadingZeros(value);
+        if (bits < 4) {
+            return (int) value;
+        }
+        int shift = bits - 4;
+        return ((int) (value >>> shift) & 0x07) | ((shift + 1) << 3);
+    }
+
+    /**
+     * Decodes a number encoded by the encodeInt4 method.
+     *
+     * @param  encoded  the encoded number
+     * @return          the number, rounded down by the encoding
+     */
+    private static long decodeInt4(int encoded) {
+        long mantissa = encoded & 0x07;
+        int shift = (encoded >>> 3) - 1;
+        return shift < 0 ? mantissa : (mantissa | 0x08) << shift;
+    }
+
+    /**
+     * Estimates the number of bytes of heap memory used by the norms.
+     *
+     * @return  the size of the norms in bytes
+     */
+    long getEstimatedBytes() {
+        return 32 + 16 + norms.length;
+    }
+}
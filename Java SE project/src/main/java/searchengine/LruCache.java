@@ -0,0 +1,112 @@
+package searchengine;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The LruCache class is a small cache of values by their String key, which evicts the least recently used entries
+ * once it holds more entries than its capacity. It keeps the parsed queries and the compiled query plans.
+ *
+ * Like the QueryCache, the entries are divided over up to {@value #STRIPES} stripes by the hash of their key,
+ * and every stripe is an access ordered map of its own with an equal share of the capacity and its own lock,
+ * so lookups of different keys rarely wait for each other. Caches too small to divide have a single stripe.
+ *
+ * @param <V> the type of the cached values
+ */
+public class LruCache<V> {
+    static final int STRIPES = 16;
+    static final int MIN_STRIPE_CAPACITY = 16;
+
+    private final Stripe<V>[] stripes;
+
+    /**
+     * One least recently used map of the cache, guarded by its own lock.
+     *
+     * @param <V> the type of the cached values
+     */
+    private static final class Stripe<V> extends LinkedHashMap<String, V> {
+        private final int capacity;
+
+        private Stripe(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        /**
+         * Evicts the least recently used entry once the stripe holds more entries than its capacity.
+         *
+         * @param  eldest  the least recently used entry
+         * @return         true if the entry is evicted
+         */
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, V> eldest) {
+            return size() > capacity;
+        }
+    }
+
+    /**
+     * Constructs an LruCache holding at most the given number of entries in total.
+     *
+     * @param capacity the largest number of entries kept by the cache, at least 1
+     */
+    @SuppressWarnings("unchecked")
+    public LruCache(int capacity) {
+        int count = Math.max(1, Math.min(STRIPES, capacity / MIN_STRIPE_CAPACITY));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe<>(Math.max(1, capacity / count));
+        }
+    }
+
+    /**
+     * Finds the stripe holding a key.
+     *
+     * @param  key  the key
+     * @return      the stripe of the key
+     */
+    private Stripe<V> stripeOf(String key) {
+        int hash = key.hashCode();
+        return stripes[Math.floorMod(hash ^ hash >>> 16, stripes.length)];
+    }
+
+    /**
+     * Looks up a value and marks it as the most recently used entry of its stripe.
+     *
+     * @param  key  the key of the value
+     * @return      the cached value, or null if it is not cached
+     */
+    public V get(String key) {
+        Stripe<V> stripe = stripeOf(key);
+        synchronized (stripe) {
+            return stripe.get(key);
+        }
+    }
+
+    /**
+     * Stores a value, evicting the least recently used entry of its stripe if the stripe is over capacity.
+     *
+     * @param key    the key of the value
+     * @param value  the value, which must not be modified afterwards
+     */
+    public void put(String key, V value) {
+        Stripe<V> stripe = stripeOf(key);
+        synchronized (stripe) {
+            stripe.put(key, value);
+        }
+    }
+
+    /**
+     * Gets the number of cached entries.
+     *
+     * @return the number of entries in the cache
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe<V> stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.size();
+            }
+        }
+        return size;
+    }
+}
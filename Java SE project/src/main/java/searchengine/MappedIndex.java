@@ -0,0 +1,135 @@
+package searchengine;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The MappedIndex class is an immutable snapshot of an index opened from an index file by IndexSegment.
+ * Only the pages and the sorted words of the file are read when it is opened. The posting lists stay in the
+ * memory mapped file, and the list of a word is decoded the first time it is needed, together with its title list
+ * and the block upper bounds stored next to it, and then kept for the lifetime of the snapshot.
+ * Opening a file therefore costs time in the number of pages and words, not in the number of postings,
+ * and the heap only holds the lists of the words that have been searched for.
+ *
+ * The words of the file are the first words of the dictionary of the index, with their position in sorted order
+ * as their id, so the sorted dictionary used to expand queries is the array of words read from the file.
+ */
+public class MappedIndex extends Index {
+    private final String[] terms;
+    private final IndexSegment.MappedPostings postings;
+
+    /**
+     * Constructs a MappedIndex from the contents of an index file.
+     *
+     * @param dictionary    the dictionary of the index, which starts with the words of the file
+     * @param terms         the words of the file in ascending order
+     * @param pages         the pages, where the position of each page is its id
+     * @param storedFields  the stored fields holding the content of the pages in the same order, or null if there are none
+     * @param postings      the mapped posting lists of the words, in the order of the words
+     */
+    MappedIndex(TermDictionary dictionary, String[] terms, List<Page> pages, StoredFields storedFields,
+                IndexSegment.MappedPostings postings) {
+        super(dictionary, new IntMap<>(), new IntMap<>(), pages, storedFields);
+        this.terms = terms;
+        this.postings = postings;
+    }
+
+    /**
+     * Retrieves the posting list of a word by its id, decoding it from the file the first time it is asked for.
+     *
+     * @param  termId  the id of the word
+     * @return         the posting list of the word, which is empty if no page contains the word
+     */
+    @Override
+    public PostingList getPostings(int termId) {
+        return termId < 0 || termId >= terms.length ? PostingList.EMPTY : postings.getPostings(termId);
+    }
+
+    /**
+     * Retrieves the title posting list of a word by its id, decoding it from the file the first time it is asked for.
+     *
+     * @param  termId  the id of the word
+     * @return         the title posting list of the word, which is empty if no such page has the word in its title
+     */
+    @Override
+    public PostingList getTitlePostings(int termId) {
+        return termId < 0 || termId >= terms.length ? PostingList.EMPTY : postings.getTitlePostings(termId);
+    }
+
+    /**
+     * Retrieves the ids of the words of the file, which are 0 up to the number of words.
+     *
+     * @return  the term ids of the words in sorted order of the words
+     */
+    @Override
+    public int[] getTermIds() {
+        int[] termIds = new int[terms.length];
+        for (int i = 0; i < termIds.length; i++) {
+            termIds[i] = i;
+        }
+        return termIds;
+    }
+
+    /**
+     * Retrieves the number of pages containing a word from the dictionary of the file, without decoding its posting list.
+     *
+     * @param  word  the word to look up
+     * @return       the document frequency of the word, or 0 if no page contains it
+     */
+    @Override
+    public int getDocumentFrequency(String word) {
+        int termId = getDictionary().lookup(word);
+        return termId < 0 || termId >= terms.length ? 0 : postings.getDocumentFrequency(termId);
+    }
+
+    /**
+     * Retrieves the document frequencies map, built from the dictionary of the file without decoding any posting list.
+     *
+     * @return  the map containing the document frequencies
+     */
+    @Override
+    public Map<String, Integer> getDocumentFrequencies() {
+        Map<String, Integer> all = new HashMap<>();
+        for (int termId = 0; termId < terms.length; termId++) {
+            all.put(terms[termId], postings.getDocumentFrequency(termId));
+        }
+        return Collections.unmodifiableMap(all);
+    }
+
+    /**
+     * Builds the sorted dictionary from the words of the file, which are already sorted.
+     *
+     * @return  the sorted dictionary of the words
+     */
+    @Override
+    SortedTerms buildSortedTerms() {
+        return SortedTerms.ofIndexFile(getDictionary(), terms);
+    }
+
+    /**
+     * Creates a copy of this index that reads the content of its pages from stored fields.
+     * The copy shares the dictionary and the mapped posting lists, including the lists decoded so far.
+     *
+     * @param  storedFields  the stored fields, which must hold the pages in the same order as the index
+     * @param  dropContent   true to leave the content of the pages out of the copied pages
+     * @return               the new index with the stored fields
+     * @throws IllegalArgumentException  if the stored fields do not hold as many pages as the index
+     */
+    @Override
+    Index withStoredFields(StoredFields storedFields, boolean dropContent) {
+        return new MappedIndex(getDictionary(), terms, copyPages(dropContent), storedFields, postings);
+    }
+
+    /**
+     * Estimates the number of bytes of heap memory used by the index without its dictionary,
+     * counting the table of the words of the file and the posting lists decoded so far, but not the mapped file.
+     *
+     * @return  the estimated size of the index without the dictionary in bytes
+     */
+    @Override
+    long getEstimatedSnapshotBytes() {
+        return super.getEstimatedSnapshotBytes() + postings.getEstimatedBytes();
+    }
+}
@@ -8,11 +8,21 @@ import java.util.List;
 /**
  * The Page class represents each page found in the dataset.
  * Each page can have a url, a title and a list of content.
+ * The content is stored as the ids of its words in a TermDictionary,
+ * so a word that appears on many pages is only held once as a String.
+ * A page created from a list of words has a dictionary of its own, and is moved to the dictionary of an index
+ * when it is added to an IndexBuilder.
  */ 
 public class Page {
+    private static final int[] NO_TERMS = new int[0];
+
     private String url;
     private String title;
-    private List<String> content;
+    private int[] termIds;
+    private TermDictionary dictionary;
+    private boolean hasContent;
+    private int totalTerms;
+    private int id = -1;
     /**
      * Constructs a Page object with the specified URL, title, and content.
      *
@@ -23,8 +33,62 @@ public class Page {
     public Page(String url, String title, List<String> content) {
         this.url = url;
         this.title = title;
-        this.content = new ArrayList<>(content);
+        this.dictionary = new TermDictionary();
+        this.termIds = new int[content.size()];
+        for (int i = 0; i < termIds.length; i++) {
+            termIds[i] = dictionary.getOrAdd(content.get(i));
+        }
+        this.hasContent = true;
+        this.totalTerms = termIds.length;
+    }
+
+    /**
+     * Constructs a Page object whose words have already been looked up in a TermDictionary,
+     * used by CorpusParser.
+     *
+     * @param url         the URL of the page
+     * @param title       the title of the page
+     * @param termIds     the term ids of the content, in the order the words appear
+     * @param dictionary  the dictionary the term ids belong to
+     */
+    Page(String url, String title, int[] termIds, TermDictionary dictionary) {
+        this.url = url;
+        this.title = title;
+        this.termIds = termIds;
+        this.dictionary = dictionary;
+        this.hasContent = true;
+        this.totalTerms = termIds.length;
     }
+
+    /**
+     * Constructs a Page object without its content, read from an index file or copied for an index whose content
+     * is in stored fields. The number of terms of the page is kept.
+     *
+     * @param url         the URL of the page
+     * @param title       the title of the page
+     * @param totalTerms  the number of terms in the content of the page
+     */
+    Page(String url, String title, int totalTerms) {
+        this.url = url;
+        this.title = title;
+        this.termIds = NO_TERMS;
+        this.totalTerms = totalTerms;
+    }
+
+    /**
+     * Constructs a copy of a page that has not been given an id yet, used when segments of the index are merged.
+     *
+     * @param other  the page to copy
+     */
+    Page(Page other) {
+        this.url = other.url;
+        this.title = other.title;
+        this.termIds = other.termIds;
+        this.dictionary = other.dictionary;
+        this.hasContent = other.hasContent;
+        this.totalTerms = other.totalTerms;
+    }
+
     /**
      * This method creates a map with key of type String and value of type Integer.
      * The key represents the word in the content of the page.
@@ -33,18 +97,157 @@ public class Page {
      */
     public Map<String, Integer> getTermFrequencies() {
         Map<String, Integer> termFrequencies = new HashMap<>();
-        for (String word : content) {
-                termFrequencies.put(word, termFrequencies.getOrDefault(word, 0) + 1);
+        for (int termId : termIds) {
+                termFrequencies.merge(dictionary.getTerm(termId), 1, Integer::sum);
         }
         return termFrequencies;
     }
+
+    /**
+     * Counts the number of times a word appears in the content of the page.
+     * @param term the word to count.
+     * @return the number of times the word appears, or 0 if it does not appear.
+     */
+    public int getTermFrequency(String term) {
+        int termId = termIds.length == 0 ? -1 : dictionary.lookup(term);
+        int frequency = 0;
+        if (termId >= 0) {
+            for (int id : termIds) {
+                if (id == termId) {
+                    frequency++;
+                }
+            }
+        }
+        return frequency;
+    }
+
+    /**
+     * Counts the number of words in the title, where words are separated by whitespace.
+     * @return the number of words in the title, or 0 if the page has no title.
+     */
+    public int getTitleLength() {
+        int length = 0;
+        if (title != null) {
+            boolean inWord = false;
+            for (int i = 0; i < title.length(); i++) {
+                boolean whitespace = Character.isWhitespace(title.charAt(i));
+                if (!whitespace && !inWord) {
+                    length++;
+                }
+                inWord = !whitespace;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Splits the title into its words, where words are separated by whitespace.
+     * @return the words of the title in the order they appear, or an empty array if the page has no title.
+     */
+    public String[] getTitleWords() {
+        String[] words = new String[getTitleLength()];
+        int count = 0;
+        int start = -1;
+        for (int i = 0; title != null && i <= title.length(); i++) {
+            boolean whitespace = i == title.length() || Character.isWhitespace(title.charAt(i));
+            if (whitespace && start >= 0) {
+                words[count++] = title.substring(start, i);
+                start = -1;
+            } else if (!whitespace && start < 0) {
+                start = i;
+            }
+        }
+        return words;
+    }
+
+    /**
+     * Counts the number of times a word appears in the title, where words are separated by whitespace.
+     * The title is scanned in place, so no strings are created.
+     * @param term the word to count.
+     * @return the number of times the word appears in the title, or 0 if it does not appear.
+     */
+    public int getTitleFrequency(String term) {
+        int frequency = 0;
+        if (title != null && !term.isEmpty()) {
+            int from = title.indexOf(term);
+            while (from >= 0) {
+                int end = from + term.length();
+                if ((from == 0 || Character.isWhitespace(title.charAt(from - 1)))
+                        && (end == title.length() || Character.isWhitespace(title.charAt(end)))) {
+                    frequency++;
+                }
+                from = title.indexOf(term, from + 1);
+            }
+        }
+        return frequency;
+    }
+
+    /**
+     * Gets the ids of the words of the content in the dictionary of the page, in the order they appear.
+     * The returned array must not be changed.
+     * @return the term ids of the content.
+     */
+    public int[] getTermIds() {
+        return termIds;
+    }
+
+    /**
+     * Checks whether the content of the page is held in memory.
+     * Pages read from an index file, or copied for an index whose content is in stored fields, only know
+     * their number of terms.
+     * @return true if the words of the page are held in memory, false if the page was created without them.
+     */
+    public boolean hasContent() {
+        return hasContent;
+    }
+
+    /**
+     * Gets the dictionary the term ids of the content belong to.
+     * @return the term dictionary of the page, or null if the page was read without its content.
+     */
+    TermDictionary getDictionary() {
+        return dictionary;
+    }
+
+    /**
+     * Moves the content of the page to another dictionary, looking every word up in it.
+     * Used by IndexBuilder, so the pages of an index always use the dictionary of the index.
+     * @param target the dictionary of the index the page is added to.
+     */
+    void moveTo(TermDictionary target) {
+        if (dictionary != target && termIds.length > 0) {
+            int[] moved = new int[termIds.length];
+            for (int i = 0; i < moved.length; i++) {
+                moved[i] = target.getOrAdd(dictionary.getTerm(termIds[i]));
+            }
+            termIds = moved;
+        }
+        dictionary = target;
+    }
+
     /**
     * Gets the size of the content of the page.
     * @return the total number of terms in a page
     */
     public int getTotalTerms() {
-        return content.size();
+        return totalTerms;
     }
+    /**
+     * Gets the id of the page in the index.
+     * @return the id of the page, or -1 if the page has not been indexed.
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Sets the id of the page in the index.
+     * @param id the dense integer id given to the page by the index.
+     */
+    void setId(int id) {
+        this.id = id;
+    }
+
     /**
      * Gets the url of the page.
      * @return the URL of the page.
@@ -63,9 +266,14 @@ public class Page {
     
     /**
      * Gets the content of the page.
+     * The words are looked up in the TermDictionary, so a new list is created on every call.
      * @return the content of the page.
      */
     public List<String> getContent() {
+        List<String> content = new ArrayList<>(termIds.length);
+        for (int termId : termIds) {
+            content.add(dictionary.getTerm(termId));
+        }
         return content;
     }
 }
@@ -1,10 +1,20 @@
 package searchengine;
 
 import java.io.IOException;
-import java.io.BufferedReader;
-import java.io.FileReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -14,179 +24,267 @@ import java.util.*;
  * - Checking whether a page is valid.
  * - Keeping track of the total number of pages.
  * - Handling the logic of the inverted index and the document frequencies.
- * 
+ * The pages are indexed into an IndexBuilder, and the finished index is published as an immutable Index
+ * through an atomic reference, so searches running on other threads always see either the old or the new index.
  */
 public class PageLoader {
+    static final long MIN_CHUNK_SIZE = 1 << 20;
+    static final long MAX_MAPPED_CHUNK = 1 << 30;
+    /**
+     * The system property that makes open keep the content of the pages in a stored fields file instead of in memory.
+     */
+    public static final String STORED_FIELDS_PROPERTY = "searchengine.storedFields";
 
-    private static Map<String, List<Page>> invertedIndex = new HashMap<>();
-    private static Map<String, Integer> documentFrequencies = new HashMap<>();
-    private static int totalDocuments = 0;
+    private final AtomicReference<Index> index = new AtomicReference<>(Index.EMPTY);
 
     /**
-     * Constructs a PageLoader object with a given filename. Then it tries to read the file
-     * and if succesfull it assigns all lines of the file to the the list of lines.
-     * then it calls the processLines method on the lines.
+     * Constructs a PageLoader object with a given filename. Then it tries to open the file
+     * and if succesfull it memory maps the file and indexes it with a CorpusParser,
+     * so the bytes of the file are only decoded for urls, titles and new words.
      * @param filename the name of the file to be read.
      */
     public PageLoader(String filename) {
-        try (BufferedReader reader = new BufferedReader(new FileReader(filename))) {
-            String line;
-            List<String> lines = new ArrayList<>();
-            while ((line = reader.readLine()) != null) {
-                lines.add(line);
+        this(filename, 1);
+    }
+
+    /**
+     * Constructs a PageLoader object with an empty index, which can be filled with processContent.
+     */
+    public PageLoader() {
+        this(Index.EMPTY);
+    }
+
+    /**
+     * Constructs a PageLoader object for an index that has already been loaded.
+     *
+     * @param index the loaded index
+     */
+    private PageLoader(Index index) {
+        this.index.set(index);
+    }
+
+    /**
+     * Opens the index of a dataset. If an index file written by IndexSegment exists next to the dataset,
+     * is intact and was built from the current version of the dataset, it is memory mapped instead of parsing the dataset.
+     * Otherwise the dataset is loaded using several threads and the index file is written for the next start.
+     * The content of the pages is always written to a stored fields file next to the index file, and a loaded dataset
+     * only drops it from memory if the system property {@value #STORED_FIELDS_PROPERTY} is true.
+     *
+     * @param  filename  the name of the dataset
+     * @param  threads   the number of threads used if the dataset has to be loaded
+     * @return           the PageLoader object of the opened index
+     */
+    public static PageLoader open(String filename, int threads) {
+        return open(filename, threads, Boolean.getBoolean(STORED_FIELDS_PROPERTY));
+    }
+
+    /**
+     * Opens the index of a dataset like {@link #open(String, int)}.
+     * The content of the pages is always written to a StoredFields file next to the index file, and an opened index file
+     * reads the content of its pages from it, so the content, and the snippets built from it, are the same after a restart.
+     * If the stored fields file is missing or stale, the dataset is loaded again.
+     * With stored fields, a loaded dataset drops the content of its pages from memory as well,
+     * so each page only keeps its url, title and number of terms, and the content is read with Index.getContent.
+     * Without stored fields, a loaded dataset keeps the content of its pages in memory.
+     *
+     * @param  filename      the name of the dataset
+     * @param  threads       the number of threads used if the dataset has to be loaded
+     * @param  storedFields  true to drop the content of a loaded dataset from memory and read it from disk instead
+     * @return               the PageLoader object of the opened index
+     */
+    public static PageLoader open(String filename, int threads, boolean storedFields) {
+        Path source = Paths.get(filename);
+        Path indexFile = Paths.get(filename + IndexSegment.EXTENSION);
+        Path storedFile = Paths.get(filename + StoredFields.EXTENSION);
+        if (Files.exists(indexFile)) {
+            try {
+                Index index = IndexSegment.read(indexFile, source);
+                return new PageLoader(index.withStoredFields(StoredFields.open(storedFile, source), true));
+            } catch (IOException | IllegalArgumentException e) {
+                System.err.println("Rebuilding the index: " + e.getMessage());
+            }
+        }
+        PageLoader pageLoader = new PageLoader(filename, threads);
+        try {
+            Index index = pageLoader.getIndex();
+            StoredFields.write(index, storedFile, source);
+            pageLoader.writeIndex(indexFile, source);
+            if (storedFields) {
+                pageLoader.publish(index.withStoredFields(StoredFields.open(storedFile, source), true));
             }
-            processLines(lines);
         } catch (IOException e) {
             e.printStackTrace();
         }
+        return pageLoader;
     }
 
     /**
-     * Processes the  list of lines read from the file that is given to the constructor.
+     * Writes the loaded index to an index file.
      *
-     * @param lines the list containing the lines to be processed from the file.
+     * @param  file         the path of the index file
+     * @param  source       the dataset the index was loaded from
+     * @throws IOException  if an I/O error occurs while writing
      */
-    private void processLines(List<String> lines) {
-        int lastIndex = lines.size();
-        for (int i = lastIndex - 1; i >= 0; i--) {
-            if (lines.get(i).startsWith("*PAGE")) {
-                lastIndex = processPage(lines, i, lastIndex);
-            }
-        }
+    public void writeIndex(Path file, Path source) throws IOException {
+        IndexSegment.write(index.get(), file, source);
     }
 
     /**
-     * Processes a page by first calling the isPageValid method.
-     * If a given Page is valid it assigns its url, title and List<String> content and from this creates a Page object.
-     * Additionally it increments the total number of documents and calls the indexPageContent method.
+     * Constructs a PageLoader object that indexes the given file using several threads.
+     * The file is split into chunks at page boundaries, each chunk is indexed on its own thread,
+     * and the partial indexes are merged in file order, so the result is the same as a sequential load.
      *
-     * @param  lines      the list of lines containing all properties of the page
-     * @param  startIndex the start index of the page in the listof lines in the dataset
-     * @param  endIndex   the end index of the page in the list of lines in the dataset
-     * @return            the start index of the next page in the list of lines from the dataset
-     */
-    private int processPage(List<String> lines, int startIndex, int endIndex) {
-        if (isPageValid(lines, startIndex, endIndex)) {
-            String url = lines.get(startIndex).substring(6);
-            String title = lines.get(startIndex + 1);
-            List<String> content = new ArrayList<>(lines.subList(startIndex + 2, endIndex));
-            Page page = new Page(url, title, content);
-            indexPageContent(page, content);
-            totalDocuments++;
-        }
-        return startIndex;
+     * @param filename the name of the file to be read.
+     * @param threads  the number of threads used for indexing. One or less loads the file sequentially.
+     */
+    public PageLoader(String filename, int threads) {
+        this(filename, threads, 0);
     }
 
     /**
-     * This method indexes the words in the content of a page if the page is valid.
+     * Constructs a PageLoader object that indexes the given file using several threads
+     * and chunks of roughly the given size.
      *
-     * @param  page   the page of which the content will be indexed.
-     * @param  content  the List of String of words in the content of a page.
-     */
-    private void indexPageContent(Page page, List<String> content) {
-        Set<String> uniqueWords = new HashSet<>();
-        if(isPageValid(page)){
-        for (String word : content) {
-            uniqueWords.add(word);
-            invertedIndex.computeIfAbsent(word, k -> new ArrayList<>()).add(page);
-        }
-        updateDocumentFrequencies(uniqueWords);
+     * @param filename   the name of the file to be read.
+     * @param threads    the number of threads used for indexing.
+     * @param chunkSize  the approximate size of each chunk in bytes, or 0 to derive it from the file size.
+     */
+    PageLoader(String filename, int threads, long chunkSize) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            if (threads <= 1) {
+                loadMapped(channel);
+                return;
+            }
+            if (chunkSize <= 0) {
+                chunkSize = Math.max(MIN_CHUNK_SIZE, channel.size() / (threads * 4L));
+            }
+            loadParallel(channel, threads, chunkSize);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
     /**
-     * Updates the number of times each unique word appears.
+     * Indexes the dataset on the current thread by memory mapping it.
+     * A memory mapping cannot be larger than 2 GB, so larger files are mapped one chunk at a time.
      *
-     * @param  uniqueWords  a set of the unique words in the page.
+     * @param  channel      the channel of the dataset file
+     * @throws IOException  if an I/O error occurs while mapping the file
      */
-    private void updateDocumentFrequencies(Set<String> uniqueWords) {
-        for (String word : uniqueWords) {
-            documentFrequencies.put(word, documentFrequencies.getOrDefault(word, 0) + 1);
+    private void loadMapped(FileChannel channel) throws IOException {
+        IndexBuilder builder = new IndexBuilder();
+        CorpusParser parser = new CorpusParser(builder);
+        List<Long> offsets = CorpusSplitter.findChunkOffsets(channel, MAX_MAPPED_CHUNK);
+        for (int i = 0; i + 1 < offsets.size(); i++) {
+            parser.parse(CorpusSplitter.mapChunk(channel, offsets.get(i), offsets.get(i + 1)));
         }
+        index.set(builder.build());
     }
 
     /**
-     * This boolean method checks whether a page is valid before constructing it as a Page.
-     * It is valid if and only if it has a title and at least one word in its content.
+     * Indexes the chunks of the dataset on a pool of worker threads.
+     * The partial index of each chunk is merged as soon as it and all chunks before it are done,
+     * which keeps the order of the pages in the inverted index the same as in the file.
+     * Every chunk looks its words up in the dictionary of the new index, so merging them needs no lookups.
      *
-     * @param  lines      the list of lines to examine
-     * @param  startIndex the index of the first line to examine (inclusive)
-     * @param  endIndex   the index of the last line to examine (exclusive)
-     * @return            true if the page is valid, false otherwise.
-     */
-    private boolean isPageValid(List<String> lines, int startIndex, int endIndex) {
-        boolean hasTitle = false;
-        boolean hasWords = false;
-
-        for (int i = startIndex + 1; i < endIndex; i++) {
-            String line = lines.get(i).trim();
-            if (!line.isEmpty()) {
-                if (!hasTitle) {
-                    hasTitle = true; 
-                } else {
-                    hasWords = true;
-                    break;
-                }
+     * @param  channel      the channel of the dataset file
+     * @param  threads      the number of worker threads
+     * @param  chunkSize    the approximate size of each chunk in bytes
+     * @throws IOException  if an I/O error occurs while reading a chunk
+     */
+    private void loadParallel(FileChannel channel, int threads, long chunkSize) throws IOException {
+        List<Long> offsets = CorpusSplitter.findChunkOffsets(channel, chunkSize);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            TermDictionary dictionary = new TermDictionary();
+            List<Future<IndexBuilder>> chunks = new ArrayList<>();
+            for (int i = 0; i + 1 < offsets.size(); i++) {
+                long start = offsets.get(i);
+                long end = offsets.get(i + 1);
+                chunks.add(pool.submit(() -> loadChunk(channel, start, end, dictionary)));
             }
+            IndexBuilder builder = new IndexBuilder(dictionary);
+            for (Future<IndexBuilder> chunk : chunks) {
+                builder.addAll(chunk.get());
+            }
+            index.set(builder.build());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading the dataset", e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to load a chunk of the dataset", e.getCause());
+        } finally {
+            pool.shutdownNow();
         }
-        return hasTitle && hasWords;
     }
+
     /**
-     * This boolean method checks whether an existing page is valid.
-     * It is valid if and only if it has a title and at least one word.
+     * Indexes a single chunk of the dataset into a new builder.
      *
-     * @param  page       the page to examine.
-     * @return            true if page has title and content is not empty, false otherwise.
+     * @param  channel      the channel of the dataset file
+     * @param  start        the offset of the first byte of the chunk (inclusive)
+     * @param  end          the offset of the last byte of the chunk (exclusive)
+     * @param  dictionary   the dictionary of the index being loaded
+     * @return              the partial index of the chunk
+     * @throws IOException  if an I/O error occurs while reading the chunk
      */
-    private boolean isPageValid(Page page) {
-        return page.getTitle() != null && !page.getContent().isEmpty();
+    private IndexBuilder loadChunk(FileChannel channel, long start, long end, TermDictionary dictionary) throws IOException {
+        IndexBuilder chunkIndex = new IndexBuilder(dictionary);
+        new CorpusParser(chunkIndex).parse(CorpusSplitter.mapChunk(channel, start, end));
+        return chunkIndex;
     }
 
     /**
-     * Returns the inverted index as a Map of String to List of Page.
+     * Retrieves the index currently published by this PageLoader.
+     * The returned Index never changes, so a search can keep using it even if a new index is published meanwhile.
      *
-     * @return  the inverted index as a map where the keys are strings of words
-     * and the values are lists of pages that contain the given word.
+     * @return  the current index
      */
-    public static Map<String, List<Page>> getInvertedIndex() {
-        return invertedIndex;
+    public Index getIndex() {
+        return index.get();
     }
 
     /**
-     * Retrieves the document frequencies map.
+     * Retrieves the current index and registers a query on it.
+     * If a new index is published while the query registers, the query moves on to the new index,
+     * so a drained index never gets new queries. The caller must call release on the returned index when done.
      *
-     * @return  the map containing the document frequencies
+     * @return  the current index, acquired for one query
      */
-    public static Map<String, Integer> getDocumentFrequencies() {
-        return documentFrequencies;
+    public Index acquireIndex() {
+        while (true) {
+            Index current = index.get();
+            current.acquire();
+            if (index.get() == current) {
+                return current;
+            }
+            current.release();
+        }
     }
 
     /**
-     * Retrieves the total number of documents loaded in the Inverted Index.
+     * Publishes a new index in place of the current one. Searches that already use the current index
+     * keep using it, and all later searches use the new index.
      *
-     * @return  the total number of documents loaded of type int.
+     * @param  newIndex  the index to publish
+     * @return           the index that was replaced
      */
-    public static int getTotalDocuments() {
-        return totalDocuments;
+    public Index publish(Index newIndex) {
+        return index.getAndSet(newIndex);
     }
 
     /**
      * Process the content of the given list of lines, created for testing purposes.
+     * The lines are joined with line breaks and indexed by a CorpusParser, the same way as a dataset file.
+     * The index built from the lines replaces the current index of this PageLoader.
      *
      * @param  lines  the list of lines to be processed
      */
-    public void processContent(List<String> lines){
-            processLines(lines);   
-    }
-    
-    /**
-     * Method is for testing purposes.
-     * It resets the PageLoader Object between each test case.
-     */
-    public static void resetState() {
-        invertedIndex.clear();
-        documentFrequencies.clear();
-        totalDocuments = 0;
+    public void processContent(List<String> lines) {
+        IndexBuilder builder = new IndexBuilder();
+        byte[] bytes = String.join("\n", lines).getBytes(StandardCharsets.UTF_8);
+        new CorpusParser(builder).parse(ByteBuffer.wrap(bytes));
+        index.set(builder.build());
     }
 
-}
+}
\ No newline at end of file
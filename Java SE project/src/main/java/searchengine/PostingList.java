@@ -0,0 +1,475 @@
+package searchengine;
+
+import java.util.Arrays;
+
+/**
+ * The PostingList class stores the documents that contain a single term.
+ * Each document is stored once as its integer id together with the number of times the term appears in it.
+ * The ids are kept in ascending order in a primitive array, so lookups can use binary search.
+ * Once loading is done, the list is also divided into blocks of {@value #BLOCK_SIZE} documents,
+ * and the largest term frequency of each block is stored, so ranking can skip documents that cannot score high enough.
+ * The largest frequency of the term in the titles of the documents of each block can be stored as well,
+ * so scoring methods that weigh the title bound a block just as tightly.
+ *
+ * A posting list can also hold the positions of the term in every document, which phrase and proximity queries need.
+ * The positions of a document are stored as varint encoded gaps in one byte array shared by the whole list,
+ * together with the offset where the positions of each document start, so a common term costs about a byte per occurrence.
+ * A list only keeps positions as long as every document is added with its positions.
+ */
+public class PostingList {
+    /**
+     * An empty posting list, used for terms that are not in the index.
+     */
+    public static final PostingList EMPTY = new PostingList(0);
+
+    /**
+     * The number of documents covered by each block upper bound.
+     */
+    public static final int BLOCK_SIZE = 64;
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private int[] docIds;
+    private int[] frequencies;
+    private int size;
+    private int[] blockMaxFrequencies;
+    private double[] blockMaxShares;
+    private int[] blockMaxTitleFrequencies;
+    private double idf;
+    private int[] positionStarts;
+    private byte[] positionData;
+    private int positionLength;
+
+    /**
+     * Constructs an empty PostingList.
+     */
+    public PostingList() {
+        this(INITIAL_CAPACITY);
+    }
+
+    /**
+     * Constructs an empty PostingList with room for the given number of documents.
+     *
+     * @param capacity the initial number of documents the list can hold
+     */
+    PostingList(int capacity) {
+        docIds = new int[capacity];
+        frequencies = new int[capacity];
+    }
+
+    /**
+     * Appends a document to the posting list.
+     * Documents must be added in ascending order of their ids.
+     * The document has no positions, so the list stops holding positions.
+     *
+     * @param  docId      the id of the document
+     * @param  frequency  the number of times the term appears in the document
+     */
+    void add(int docId, int frequency) {
+        append(docId, frequency);
+        positionStarts = null;
+        positionData = null;
+    }
+
+    /**
+     * Appends a document without changing the positions of the list.
+     *
+     * @param  docId      the id of the document
+     * @param  frequency  the number of times the term appears in the document
+     */
+    private void append(int docId, int frequency) {
+        if (size > 0 && docId <= docIds[size - 1]) {
+            throw new IllegalArgumentException("Document ids must be added in ascending order: " + docId);
+        }
+        ensureCapacity(size + 1);
+        docIds[size] = docId;
+        frequencies[size] = frequency;
+        size++;
+    }
+
+    /**
+     * Appends a document together with the positions of the term in it.
+     * The positions are only kept if every document before it was added with its positions as well.
+     *
+     * @param  docId      the id of the document
+     * @param  positions  the array holding the positions of the term in ascending order
+     * @param  from       the index of the first position in the array
+     * @param  count      the number of positions, which is the term frequency
+     */
+    void add(int docId, int[] positions, int from, int count) {
+        if (size == 0 || positionStarts != null) {
+            append(docId, count);
+            startPositions();
+            int previous = 0;
+            for (int i = from; i < from + count; i++) {
+                writeVarInt(positions[i] - previous);
+                previous = positions[i];
+            }
+        } else {
+            add(docId, count);
+        }
+    }
+
+    /**
+     * Appends a document of another posting list under a new id, copying its encoded positions without decoding them.
+     *
+     * @param  other  the posting list to copy the document from
+     * @param  index  the position of the document in the other list
+     * @param  docId  the id of the document in this list
+     */
+    void addPosting(PostingList other, int index, int docId) {
+        if (other.positionStarts != null && (size == 0 || positionStarts != null)) {
+            append(docId, other.frequencies[index]);
+            startPositions();
+            int start = other.positionStarts[index];
+            int end = index + 1 < other.size ? other.positionStarts[index + 1] : other.positionLength;
+            ensurePositionCapacity(positionLength + end - start);
+            System.arraycopy(other.positionData, start, positionData, positionLength, end - start);
+            positionLength += end - start;
+        } else {
+            add(docId, other.frequencies[index]);
+        }
+    }
+
+    /**
+     * Appends all documents of another posting list, shifting their ids by the given offset.
+     *
+     * @param  other   the posting list to append
+     * @param  offset  the number added to every document id of the other list
+     */
+    void addAll(PostingList other, int offset) {
+        ensureCapacity(size + other.size);
+        for (int i = 0; i < other.size; i++) {
+            addPosting(other, i, other.docIds[i] + offset);
+        }
+    }
+
+    /**
+     * Records where the positions of the document that was just appended start,
+     * creating the position arrays if it is the first document of the list.
+     */
+    private void startPositions() {
+        if (positionStarts == null) {
+            positionStarts = new int[docIds.length];
+            positionData = new byte[16];
+            positionLength = 0;
+        } else if (positionStarts.length < docIds.length) {
+            positionStarts = Arrays.copyOf(positionStarts, docIds.length);
+        }
+        positionStarts[size - 1] = positionLength;
+    }
+
+    /**
+     * Appends a non-negative number to the positions as a varint, seven bits per byte with the highest bit set on all but the last byte.
+     *
+     * @param  value  the number to append
+     */
+    private void writeVarInt(int value) {
+        ensurePositionCapacity(positionLength + 5);
+        while ((value & ~0x7F) != 0) {
+            positionData[positionLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        positionData[positionLength++] = (byte) value;
+    }
+
+    /**
+     * Grows the position bytes so that they can hold at least the given number of bytes.
+     *
+     * @param  capacity  the number of bytes the array must be able to hold
+     */
+    private void ensurePositionCapacity(int capacity) {
+        if (capacity > positionData.length) {
+            positionData = Arrays.copyOf(positionData, Math.max(capacity, positionData.length * 2));
+        }
+    }
+
+    /**
+     * Grows the arrays so that they can hold at least the given number of documents.
+     *
+     * @param  capacity  the number of documents the arrays must be able to hold
+     */
+    private void ensureCapacity(int capacity) {
+        if (capacity > docIds.length) {
+            int newCapacity = Math.max(capacity, docIds.length * 2);
+            docIds = Arrays.copyOf(docIds, newCapacity);
+            frequencies = Arrays.copyOf(frequencies, newCapacity);
+        }
+    }
+
+    /**
+     * Finishes the list once no more documents will be added, where every document id in use counts as a document.
+     *
+     * @param  documentLengths  the total number of terms of each document, indexed by document id
+     */
+    void finish(int[] documentLengths) {
+        finish(documentLengths, documentLengths.length);
+    }
+
+    /**
+     * Finishes the list once no more documents will be added.
+     * The arrays are shrunk to the number of documents, and for every block the largest term frequency
+     * and the largest share of the document made up by the term are computed.
+     * The BM25 inverse document frequency of the term is computed once here, so scoring does not compute a logarithm per page.
+     *
+     * @param  documentLengths  the total number of terms of each document, indexed by document id
+     * @param  totalDocuments   the number of documents in the index, not counting deleted documents
+     */
+    void finish(int[] documentLengths, int totalDocuments) {
+        idf = Math.log(1 + (totalDocuments - size + 0.5) / (size + 0.5));
+        trim();
+        int blocks = (size + BLOCK_SIZE - 1) / BLOCK_SIZE;
+        blockMaxFrequencies = new int[blocks];
+        blockMaxShares = new double[blocks];
+        for (int i = 0; i < size; i++) {
+            int block = i / BLOCK_SIZE;
+            blockMaxFrequencies[block] = Math.max(blockMaxFrequencies[block], frequencies[i]);
+            blockMaxShares[block] = Math.max(blockMaxShares[block], (double) frequencies[i] / documentLengths[docIds[i]]);
+        }
+    }
+
+    /**
+     * Finishes a list read back from an index file with the block upper bounds stored in the file,
+     * so they do not have to be computed from the lengths of the documents again.
+     *
+     * @param  totalDocuments            the number of documents in the index
+     * @param  blockMaxFrequencies       the largest term frequency of every block, or null for a list without block upper bounds
+     * @param  blockMaxShares            the largest share of a document made up by the term in every block, or null
+     * @param  blockMaxTitleFrequencies  the largest title frequency of every block, or null if it is not known
+     */
+    void finish(int totalDocuments, int[] blockMaxFrequencies, double[] blockMaxShares, int[] blockMaxTitleFrequencies) {
+        idf = Math.log(1 + (totalDocuments - size + 0.5) / (size + 0.5));
+        trim();
+        this.blockMaxFrequencies = blockMaxFrequencies;
+        this.blockMaxShares = blockMaxShares;
+        this.blockMaxTitleFrequencies = blockMaxTitleFrequencies;
+    }
+
+    /**
+     * Shrinks the arrays of the list to the number of documents and positions it holds.
+     */
+    private void trim() {
+        if (docIds.length > size) {
+            docIds = Arrays.copyOf(docIds, size);
+            frequencies = Arrays.copyOf(frequencies, size);
+        }
+        if (positionStarts != null) {
+            positionStarts = Arrays.copyOf(positionStarts, size);
+            positionData = Arrays.copyOf(positionData, positionLength);
+        }
+    }
+
+    /**
+     * Computes the largest frequency of the term in the titles of the documents of every block, once the list is finished.
+     * The title list of the term only holds documents of this list, so both lists are walked once side by side.
+     *
+     * @param  titles  the finished posting list of the term in the titles of the documents
+     */
+    void finishTitles(PostingList titles) {
+        blockMaxTitleFrequencies = new int[(size + BLOCK_SIZE - 1) / BLOCK_SIZE];
+        int position = 0;
+        for (int i = 0; i < titles.size; i++) {
+            position = advance(position, titles.docIds[i]);
+            if (position < size && docIds[position] == titles.docIds[i]) {
+                int block = position / BLOCK_SIZE;
+                blockMaxTitleFrequencies[block] = Math.max(blockMaxTitleFrequencies[block], titles.frequencies[i]);
+            }
+        }
+    }
+
+    /**
+     * Checks whether the largest title frequencies of the blocks have been computed by the finishTitles method.
+     *
+     * @return true if the title upper bounds are available, false otherwise
+     */
+    public boolean hasTitleMaxima() {
+        return blockMaxTitleFrequencies != null;
+    }
+
+    /**
+     * Gets the largest frequency of the term in the titles of the documents of a block of the list.
+     *
+     * @param  block  the block number, which is the position in the list divided by {@value #BLOCK_SIZE}
+     * @return        the largest title frequency in the block
+     */
+    public int getBlockMaxTitleFrequency(int block) {
+        return blockMaxTitleFrequencies[block];
+    }
+
+    /**
+     * Checks whether the block upper bounds have been computed by the finish method.
+     *
+     * @return true if the block upper bounds are available, false otherwise
+     */
+    public boolean hasBlockMaxima() {
+        return blockMaxFrequencies != null;
+    }
+
+    /**
+     * Gets the largest term frequency in a block of the list.
+     *
+     * @param  block  the block number, which is the position in the list divided by {@value #BLOCK_SIZE}
+     * @return        the largest term frequency in the block
+     */
+    public int getBlockMaxFrequency(int block) {
+        return blockMaxFrequencies[block];
+    }
+
+    /**
+     * Gets the largest term frequency divided by document length in a block of the list.
+     *
+     * @param  block  the block number, which is the position in the list divided by {@value #BLOCK_SIZE}
+     * @return        the largest share of a document made up by the term in the block
+     */
+    public double getBlockMaxShare(int block) {
+        return blockMaxShares[block];
+    }
+
+    /**
+     * Gets the BM25 inverse document frequency of the term, log(1 + (N - df + 0.5) / (df + 0.5)),
+     * where N is the number of documents and df is the size of the list. It is never negative.
+     *
+     * @return  the inverse document frequency computed by the finish method, or 0 if the list is not finished
+     */
+    public double getIdf() {
+        return idf;
+    }
+
+    /**
+     * Estimates the number of bytes of heap memory used by the posting list.
+     *
+     * @return  the size of the arrays of the list in bytes, including their object headers
+     */
+    public long getEstimatedBytes() {
+        long bytes = 48 + 2 * (16 + 4L * docIds.length);
+        if (blockMaxFrequencies != null) {
+            bytes += 2 * 16 + 12L * blockMaxFrequencies.length;
+        }
+        if (blockMaxTitleFrequencies != null) {
+            bytes += 16 + 4L * blockMaxTitleFrequencies.length;
+        }
+        if (positionStarts != null) {
+            bytes += 2 * 16 + 4L * positionStarts.length + positionData.length;
+        }
+        return bytes;
+    }
+
+    /**
+     * Gets the number of documents in the posting list.
+     *
+     * @return the number of documents containing the term
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Gets the document id at the given position in the list.
+     *
+     * @param  index  the position in the list
+     * @return        the document id
+     */
+    public int getDocId(int index) {
+        return docIds[index];
+    }
+
+    /**
+     * Gets the term frequency at the given position in the list.
+     *
+     * @param  index  the position in the list
+     * @return        the number of times the term appears in the document at that position
+     */
+    public int getFrequency(int index) {
+        return frequencies[index];
+    }
+
+    /**
+     * Checks whether the list holds the positions of the term in its documents.
+     *
+     * @return true if every document of the list was added with its positions, false otherwise
+     */
+    public boolean hasPositions() {
+        return positionStarts != null;
+    }
+
+    /**
+     * Decodes the positions of the term in the document at the given position in the list.
+     *
+     * @param  index   the position in the list
+     * @param  target  the array the positions are written to, which must hold at least getFrequency(index) numbers
+     * @return         the number of positions written, which is the term frequency
+     */
+    public int readPositions(int index, int[] target) {
+        int count = frequencies[index];
+        int offset = positionStarts[index];
+        int position = 0;
+        for (int i = 0; i < count; i++) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = positionData[offset++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            position += value;
+            target[i] = position;
+        }
+        return count;
+    }
+
+    /**
+     * Finds the position of a document in the list using binary search.
+     *
+     * @param  docId  the document id to look for
+     * @return        the position of the document, or a negative number if the document is not in the list
+     */
+    public int indexOf(int docId) {
+        return Arrays.binarySearch(docIds, 0, size, docId);
+    }
+
+    /**
+     * Finds the first position at or after the given position whose document id is at least the target id.
+     * The search gallops forward in steps that double in size and then finishes with a binary search,
+     * so skipping far ahead in a long list only costs a logarithmic number of comparisons.
+     *
+     * @param  from    the position to start searching from
+     * @param  target  the smallest document id of interest
+     * @return         the position of the first document id that is at least the target, or the size of the list
+     */
+    public int advance(int from, int target) {
+        if (from >= size || docIds[from] >= target) {
+            return from;
+        }
+        int low = from;
+        int step = 1;
+        while (low + step < size && docIds[low + step] < target) {
+            low += step;
+            step *= 2;
+        }
+        int high = Math.min(low + step, size);
+        int index = Arrays.binarySearch(docIds, low + 1, high, target);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * Checks whether a document is in the posting list.
+     *
+     * @param  docId  the document id to look for
+     * @return        true if the document contains the term, false otherwise
+     */
+    public boolean contains(int docId) {
+        return indexOf(docId) >= 0;
+    }
+
+    /**
+     * Gets the number of times the term appears in a document.
+     *
+     * @param  docId  the document id to look for
+     * @return        the term frequency, or 0 if the document does not contain the term
+     */
+    public int frequencyOf(int docId) {
+        int index = indexOf(docId);
+        return index >= 0 ? frequencies[index] : 0;
+    }
+}
@@ -0,0 +1,123 @@
+package searchengine;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The ProximityClause class is a chain of words of a query whose positions on a page are constrained.
+ * It is made from a quoted phrase, from words joined by NEAR/n operators, or from both, as in "new york" NEAR/5 pizza.
+ * Between every two neighbouring words of the chain there is a distance: {@value #PHRASE} means the second word
+ * must directly follow the first, as in a phrase, and a distance n above 0 means the two words must be
+ * at most n positions apart, in either order.
+ * A page matches the clause if the words can be found at positions that satisfy every distance of the chain.
+ */
+public class ProximityClause {
+    /**
+     * The distance between two words of a phrase, where the second word directly follows the first.
+     */
+    public static final int PHRASE = 0;
+
+    private final List<String> words;
+    private final int[] distances;
+
+    /**
+     * Constructs a ProximityClause.
+     *
+     * @param words      the words of the chain, at least two
+     * @param distances  the distance between each word and the next, one less than the number of words
+     */
+    ProximityClause(List<String> words, int[] distances) {
+        if (words.size() < 2 || distances.length != words.size() - 1) {
+            throw new IllegalArgumentException("A proximity clause needs at least two words and a distance between each pair");
+        }
+        this.words = List.copyOf(words);
+        this.distances = distances.clone();
+    }
+
+    /**
+     * Retrieves the words of the chain in the order they were given in the query.
+     * The list cannot be modified.
+     *
+     * @return  the words of the clause
+     */
+    public List<String> getWords() {
+        return words;
+    }
+
+    /**
+     * Retrieves the number of words of the chain.
+     *
+     * @return  the number of words
+     */
+    public int size() {
+        return words.size();
+    }
+
+    /**
+     * Retrieves the distance between a word of the chain and the next word.
+     *
+     * @param  word  the position of the word in the chain, less than size() - 1
+     * @return       {@value #PHRASE} if the next word must directly follow it, otherwise the largest distance between the two words
+     */
+    public int getDistance(int word) {
+        return distances[word];
+    }
+
+    /**
+     * Creates a clause with the same distances but other words, used when the words of a query are expanded.
+     *
+     * @param  newWords  the words of the new clause, as many as this clause has
+     * @return           the clause with the new words
+     */
+    ProximityClause withWords(List<String> newWords) {
+        return new ProximityClause(newWords, distances);
+    }
+
+    /**
+     * Checks whether another object is a clause with the same words and distances.
+     *
+     * @param  other  the object to compare with
+     * @return        true if the clauses are equal, false otherwise
+     */
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ProximityClause
+                && words.equals(((ProximityClause) other).words)
+                && Arrays.equals(distances, ((ProximityClause) other).distances);
+    }
+
+    /**
+     * Computes a hash code from the words and distances.
+     *
+     * @return  the hash code
+     */
+    @Override
+    public int hashCode() {
+        return 31 * words.hashCode() + Arrays.hashCode(distances);
+    }
+
+    /**
+     * Writes the clause the way it is written in a query, with phrases in double quotes and NEAR/n between the other words.
+     *
+     * @return  the clause in query syntax
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words.size(); i++) {
+            boolean afterPhrase = i > 0 && distances[i - 1] == PHRASE;
+            boolean beforePhrase = i < distances.length && distances[i] == PHRASE;
+            if (i > 0) {
+                text.append(afterPhrase ? " " : " NEAR/" + distances[i - 1] + " ");
+            }
+            if (beforePhrase && !afterPhrase) {
+                text.append('"');
+            }
+            text.append(words.get(i));
+            if (afterPhrase && !beforePhrase) {
+                text.append('"');
+            }
+        }
+        return text.toString();
+    }
+}
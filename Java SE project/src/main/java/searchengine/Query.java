@@ -1,44 +1,348 @@
 package searchengine;
 
-import java.util.Arrays;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
 /**
  * A class handling search queries from the given search term and storing them in a List of Set of String called queryParts.
+ * Next to the words of each part, a query can hold proximity clauses: quoted phrases such as "new york",
+ * and words joined by NEAR/n operators such as pizza NEAR/3 pasta, which only match pages where the words are close together.
+ * A Query never changes after it is constructed, so the same Query can be shared by searches on several threads.
  */
 public class Query {
-    private List<Set<String>> queryParts;
+    private static final String NEAR = "NEAR/";
+
+    private final List<Set<String>> queryParts;
+    private final List<Set<ProximityClause>> proximityClauses;
+    private final String canonicalForm;
 
     /**
      * Constructs a new Query object with the provided search term.
-     * The search term is split into query parts by the regular expression "\\s+OR\\s+"
-     * Each part is then split into linked words by the regular expression "\\s+".
+     * The search term is split into query parts at every "OR" with whitespace on both sides,
+     * and each part is then split into linked words at whitespace, the same way as splitting with the regular expressions
+     * "\\s+OR\\s+" and "\\s+" would, but without compiling or running a regular expression.
+     * Words between double quotes form a phrase, and a NEAR/n between two words or phrases links them into one clause.
+     * The words of phrases and clauses are words of the part as well.
+     * Words are kept as they are, so upper and lower case words are different words.
+     * Parts that are repeated are only kept once.
      *
      * @param searchTerm the search term is used to initialize the Query object.
-     * 
+     *
      */
     public Query(String searchTerm) {
-        if (!searchTerm.isEmpty()) {
-            queryParts = new ArrayList<>();
-            String[] parts = searchTerm.split("\\s+OR\\s+");
-            for (String part : parts) {
-                if(!part.equals("OR")){
-                Set<String> words = new HashSet<>(Arrays.asList(part.split("\\s+")));
-                queryParts.add(words);
+        if (searchTerm.isEmpty()) {
+            queryParts = null;
+            proximityClauses = null;
+            canonicalForm = "";
+            return;
+        }
+        Set<List<Set<?>>> seen = new HashSet<>();
+        List<Set<String>> parts = new ArrayList<>();
+        List<Set<ProximityClause>> clauses = new ArrayList<>();
+        for (String part : split(searchTerm, true)) {
+            if (part.equals("OR")) {
+                continue;
+            }
+            Set<String> words = new HashSet<>();
+            Set<ProximityClause> partClauses = new LinkedHashSet<>();
+            parsePart(part, words, partClauses);
+            addPart(seen, parts, clauses, words, partClauses);
+        }
+        queryParts = Collections.unmodifiableList(parts);
+        proximityClauses = Collections.unmodifiableList(clauses);
+        canonicalForm = canonicalForm(parts, clauses);
+    }
+
+    /**
+     * Constructs a Query from parts that have already been split into words and clauses,
+     * used when the words of a query are expanded against an index.
+     * Parts that are repeated are only kept once.
+     *
+     * @param parts    the words of every part
+     * @param clauses  the proximity clauses of every part, in the same order as the parts
+     */
+    Query(List<Set<String>> parts, List<Set<ProximityClause>> clauses) {
+        Set<List<Set<?>>> seen = new HashSet<>();
+        List<Set<String>> keptParts = new ArrayList<>();
+        List<Set<ProximityClause>> keptClauses = new ArrayList<>();
+        for (int i = 0; i < parts.size(); i++) {
+            addPart(seen, keptParts, keptClauses, new HashSet<>(parts.get(i)), new LinkedHashSet<>(clauses.get(i)));
+        }
+        queryParts = Collections.unmodifiableList(keptParts);
+        proximityClauses = Collections.unmodifiableList(keptClauses);
+        canonicalForm = canonicalForm(keptParts, keptClauses);
+    }
+
+    /**
+     * Adds a part to the parts of a query unless a part with the same words and clauses has been added before.
+     *
+     * @param seen         the words and clauses of the parts added so far
+     * @param parts        the words of the parts added so far
+     * @param clauses      the clauses of the parts added so far
+     * @param words        the words of the part, which are not changed afterwards
+     * @param partClauses  the clauses of the part, which are not changed afterwards
+     */
+    private static void addPart(Set<List<Set<?>>> seen, List<Set<String>> parts, List<Set<ProximityClause>> clauses,
+                                Set<String> words, Set<ProximityClause> partClauses) {
+        if (seen.add(List.of(words, partClauses))) {
+            parts.add(Collections.unmodifiableSet(words));
+            clauses.add(Collections.unmodifiableSet(partClauses));
+        }
+    }
+
+    /**
+     * Builds the canonical form of a query from its parts.
+     *
+     * @param  parts    the words of every part
+     * @param  clauses  the proximity clauses of every part
+     * @return          the canonical form described at getCanonicalForm
+     */
+    private static String canonicalForm(List<Set<String>> parts, List<Set<ProximityClause>> clauses) {
+        Set<String> canonicalParts = new TreeSet<>();
+        for (int i = 0; i < parts.size(); i++) {
+            Set<String> looseWords = new TreeSet<>(parts.get(i));
+            Set<String> clauseTexts = new TreeSet<>();
+            for (ProximityClause clause : clauses.get(i)) {
+                clause.getWords().forEach(looseWords::remove);
+                clauseTexts.add(clause.toString());
+            }
+            List<String> canonicalPart = new ArrayList<>(looseWords);
+            canonicalPart.addAll(clauseTexts);
+            canonicalParts.add(String.join(" ", canonicalPart));
+        }
+        return String.join(" OR ", canonicalParts);
+    }
+
+    /**
+     * Parses a query part into its words and proximity clauses.
+     * A part without double quotes or NEAR operators is split at whitespace only.
+     * Otherwise the part is read as a sequence of units, where a unit is a single word or the words between a pair of double quotes,
+     * and a NEAR/n between two units links them. Units that are linked, and phrases of more than one word, become clauses.
+     * A NEAR/n that does not stand between two units is an ordinary word, and a phrase that is not closed ends with the part.
+     *
+     * @param part     the text of the part
+     * @param words    the set the words of the part are added to
+     * @param clauses  the set the proximity clauses of the part are added to
+     */
+    private static void parsePart(String part, Set<String> words, Set<ProximityClause> clauses) {
+        if (part.indexOf('"') < 0 && !part.contains(NEAR)) {
+            words.addAll(split(part, false));
+            return;
+        }
+        List<List<String>> units = new ArrayList<>();
+        List<Integer> links = new ArrayList<>();
+        int pendingDistance = -1;
+        String pendingOperator = null;
+        List<String> phrase = null;
+        for (String token : split(part, false)) {
+            if (phrase == null && token.indexOf('"') < 0) {
+                int distance = nearDistance(token);
+                if (distance > 0 && !units.isEmpty() && pendingOperator == null) {
+                    pendingOperator = token;
+                    pendingDistance = distance;
+                } else {
+                    addUnit(units, links, List.of(token), pendingDistance);
+                    pendingOperator = null;
+                    pendingDistance = -1;
+                }
+                continue;
+            }
+            int start = 0;
+            for (int i = 0; i <= token.length(); i++) {
+                if (i < token.length() && token.charAt(i) != '"') {
+                    continue;
+                }
+                String segment = token.substring(start, i);
+                if (!segment.isEmpty() && phrase != null) {
+                    phrase.add(segment);
+                } else if (!segment.isEmpty()) {
+                    addUnit(units, links, List.of(segment), pendingDistance);
+                    pendingOperator = null;
+                    pendingDistance = -1;
                 }
+                if (i < token.length() && phrase == null) {
+                    phrase = new ArrayList<>();
+                } else if (i < token.length()) {
+                    if (!phrase.isEmpty()) {
+                        addUnit(units, links, phrase, pendingDistance);
+                        pendingOperator = null;
+                        pendingDistance = -1;
+                    }
+                    phrase = null;
+                }
+                start = i + 1;
+            }
+        }
+        if (phrase != null && !phrase.isEmpty()) {
+            addUnit(units, links, phrase, pendingDistance);
+        } else if (pendingOperator != null) {
+            addUnit(units, links, List.of(pendingOperator), -1);
+        }
+        for (int first = 0, end; first < units.size(); first = end) {
+            List<String> chain = new ArrayList<>(units.get(first));
+            List<Integer> distances = new ArrayList<>();
+            for (int i = 1; i < chain.size(); i++) {
+                distances.add(ProximityClause.PHRASE);
+            }
+            for (end = first + 1; end < units.size() && links.get(end - 1) > 0; end++) {
+                distances.add(links.get(end - 1));
+                for (int i = 1; i < units.get(end).size(); i++) {
+                    distances.add(ProximityClause.PHRASE);
+                }
+                chain.addAll(units.get(end));
+            }
+            words.addAll(chain);
+            if (chain.size() > 1) {
+                clauses.add(new ProximityClause(chain, distances.stream().mapToInt(Integer::intValue).toArray()));
             }
         }
     }
 
+    /**
+     * Appends a unit to the units of a part, linked to the unit before it if a NEAR operator stood between them.
+     *
+     * @param units     the units of the part so far
+     * @param links     the distance between each unit and the next, or -1 if they are not linked
+     * @param unit      the words of the unit
+     * @param distance  the distance of the NEAR operator before the unit, or -1 if there is none
+     */
+    private static void addUnit(List<List<String>> units, List<Integer> links, List<String> unit, int distance) {
+        if (!units.isEmpty()) {
+            links.add(distance);
+        }
+        units.add(List.copyOf(unit));
+    }
+
+    /**
+     * Reads the distance of a NEAR/n operator.
+     *
+     * @param  token  the token to read
+     * @return        the distance n if the token is NEAR/ followed by a number from 1 to 999999999, otherwise -1
+     */
+    private static int nearDistance(String token) {
+        if (!token.startsWith(NEAR) || token.length() == NEAR.length() || token.length() > NEAR.length() + 9) {
+            return -1;
+        }
+        int distance = 0;
+        for (int i = NEAR.length(); i < token.length(); i++) {
+            char c = token.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            distance = distance * 10 + c - '0';
+        }
+        return distance > 0 ? distance : -1;
+    }
+
+    /**
+     * Splits text at runs of whitespace, or at "OR" with a run of whitespace on both sides.
+     * As with String.split, text before a leading separator gives an empty string, empty strings at the end are dropped,
+     * and text without any separator is returned as it is.
+     * When splitting at "OR", an "OR" between double quotes belongs to a phrase and is not a separator.
+     *
+     * @param  text  the text to split
+     * @param  atOr  true to split at "OR" surrounded by whitespace, false to split at whitespace
+     * @return       the pieces of the text between the separators
+     */
+    static List<String> split(String text, boolean atOr) {
+        List<String> pieces = new ArrayList<>();
+        int length = text.length();
+        int start = 0;
+        int i = 0;
+        boolean quoted = false;
+        while (i < length) {
+            if (atOr && text.charAt(i) == '"') {
+                quoted = !quoted;
+            }
+            if (!isWhitespace(text.charAt(i)) || quoted) {
+                i++;
+                continue;
+            }
+            int end = skipWhitespace(text, i);
+            if (atOr) {
+                if (end + 2 < length && text.charAt(end) == 'O' && text.charAt(end + 1) == 'R'
+                        && isWhitespace(text.charAt(end + 2))) {
+                    end = skipWhitespace(text, end + 2);
+                } else {
+                    i = end;
+                    continue;
+                }
+            }
+            pieces.add(text.substring(start, i));
+            start = end;
+            i = end;
+        }
+        if (pieces.isEmpty()) {
+            return List.of(text);
+        }
+        pieces.add(text.substring(start));
+        int size = pieces.size();
+        while (size > 0 && pieces.get(size - 1).isEmpty()) {
+            size--;
+        }
+        return pieces.subList(0, size);
+    }
+
+    /**
+     * Finds the end of a run of whitespace.
+     *
+     * @param  text  the text
+     * @param  from  the position to start at
+     * @return       the position of the first character at or after from that is not whitespace, or the length of the text
+     */
+    private static int skipWhitespace(String text, int from) {
+        int i = from;
+        while (i < text.length() && isWhitespace(text.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Checks whether a character is whitespace as matched by "\\s" in a regular expression:
+     * a space, a tab, a line feed, a vertical tab, a form feed or a carriage return.
+     *
+     * @param  c  the character
+     * @return    true if the character is whitespace, false otherwise
+     */
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || (c >= '\t' && c <= '\r');
+    }
+
     /**
      * Retrieves a list of sets of linked words representing the query parts.
-     * The query parts are split in the constructor by the regular expression "\\s+OR\\s+".
+     * The list and the sets cannot be modified.
      *
-     * @return a list of sets of linked words representing the query parts.
+     * @return a list of sets of linked words representing the query parts, or null if the search term was empty.
      */
     public List<Set<String>> getQueryParts() {
         return queryParts;
     }
+
+    /**
+     * Retrieves the proximity clauses of every query part, in the same order as the parts of getQueryParts.
+     * A part without phrases or NEAR operators has an empty set. The list and the sets cannot be modified.
+     *
+     * @return the proximity clauses of each part, or null if the search term was empty.
+     */
+    public List<Set<ProximityClause>> getProximityClauses() {
+        return proximityClauses;
+    }
+
+    /**
+     * Returns the query in a canonical form, where the words of each part are sorted, followed by its sorted clauses,
+     * and the parts are sorted and deduplicated. Queries that always give the same results,
+     * such as "b a OR c" and "c OR a b", have the same canonical form.
+     * A word that is also part of a clause of the same part is left out, since the clause already requires it.
+     * The canonical form is computed once when the query is constructed.
+     *
+     * @return the canonical form of the query
+     */
+    public String getCanonicalForm() {
+        return canonicalForm;
+    }
 }
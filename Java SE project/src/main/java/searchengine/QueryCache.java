@@ -0,0 +1,154 @@
+package searchengine;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The QueryCache class keeps the results of recent searches, so repeated queries do not have to be evaluated again.
+ * Every entry is the ranked top of the results of a query together with the total number of matching pages,
+ * so a cached page of results also knows its total without evaluating the query.
+ * Entries are evicted in least recently used order once the total number of cached result pages exceeds the capacity,
+ * so a few very broad queries cannot fill the heap.
+ * Every Index has a cache of its own, so results never have to be checked against the index they were computed from,
+ * and the cache of a replaced index is let go together with it.
+ *
+ * The entries are divided over up to {@value #STRIPES} stripes by the hash of their key, and every stripe
+ * is a least recently used map of its own with an equal share of the capacity and its own lock,
+ * so searches for different queries rarely wait for each other. Caches too small to divide have a single stripe.
+ */
+public class QueryCache {
+    static final int STRIPES = 16;
+    static final long MIN_STRIPE_CAPACITY = 1024;
+
+    private final Stripe[] stripes;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    /**
+     * One least recently used map of the cache, guarded by its own lock.
+     */
+    private static final class Stripe {
+        private final long capacity;
+        private final LinkedHashMap<String, SearchHandler.ResultPage> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long weight = 0;
+
+        private Stripe(long capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    /**
+     * Constructs a QueryCache holding at most the given number of result pages in total.
+     *
+     * @param capacity the largest total number of result pages kept by the cache
+     */
+    public QueryCache(long capacity) {
+        int count = (int) Math.max(1, Math.min(STRIPES, capacity / MIN_STRIPE_CAPACITY));
+        this.stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new Stripe(capacity / count);
+        }
+    }
+
+    /**
+     * Finds the stripe holding a key.
+     *
+     * @param  key  the key
+     * @return      the stripe of the key
+     */
+    private Stripe stripeOf(String key) {
+        int hash = key.hashCode();
+        return stripes[Math.floorMod(hash ^ hash >>> 16, stripes.length)];
+    }
+
+    /**
+     * Looks up the results of a query.
+     *
+     * @param  key  the normalized query together with everything else that affects the results
+     * @return      the cached results, or null if they are not cached
+     */
+    public SearchHandler.ResultPage get(String key) {
+        Stripe stripe = stripeOf(key);
+        SearchHandler.ResultPage results;
+        synchronized (stripe) {
+            results = stripe.entries.get(key);
+        }
+        if (results == null) {
+            misses.increment();
+        } else {
+            hits.increment();
+        }
+        return results;
+    }
+
+    /**
+     * Stores the results of a query and evicts the least recently used entries of its stripe if the stripe is over capacity.
+     * Results that are larger than the capacity of a stripe are not cached.
+     *
+     * @param key      the normalized query together with everything else that affects the results
+     * @param results  the results of the query, which must not be modified afterwards
+     */
+    public void put(String key, SearchHandler.ResultPage results) {
+        Stripe stripe = stripeOf(key);
+        if (weightOf(results) > stripe.capacity) {
+            return;
+        }
+        synchronized (stripe) {
+            SearchHandler.ResultPage previous = stripe.entries.put(key, results);
+            if (previous != null) {
+                stripe.weight -= weightOf(previous);
+            }
+            stripe.weight += weightOf(results);
+            Iterator<Map.Entry<String, SearchHandler.ResultPage>> eldest = stripe.entries.entrySet().iterator();
+            while (stripe.weight > stripe.capacity && eldest.hasNext()) {
+                stripe.weight -= weightOf(eldest.next().getValue());
+                eldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Counts how much of the capacity an entry takes up.
+     *
+     * @param  results  the cached results
+     * @return          the number of cached result pages, plus one for the entry itself
+     */
+    private static long weightOf(SearchHandler.ResultPage results) {
+        return results.getPages().size() + 1L;
+    }
+
+    /**
+     * Gets the number of lookups that found cached results.
+     *
+     * @return the number of cache hits
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Gets the number of lookups that did not find cached results.
+     *
+     * @return the number of cache misses
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Gets the number of cached queries.
+     *
+     * @return the number of entries in the cache
+     */
+    public int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                size += stripe.entries.size();
+            }
+        }
+        return size;
+    }
+}
@@ -0,0 +1,223 @@
+package searchengine;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * The QueryEvaluator class finds the documents that match a query by working directly on sorted posting lists.
+ * The words of a query part are combined with an intersection that starts from the rarest word
+ * and gallops through the longer lists, and the query parts are combined with a k-way merge.
+ * Phrases and NEAR clauses are checked afterwards on the documents of the intersection, by merging the positions
+ * of their words from the posting lists, so the content of the pages is never read.
+ */
+public class QueryEvaluator {
+
+    /**
+     * Finds the ids of the documents that match at least one part of the query,
+     * where a document matches a part if it contains every word of the part.
+     *
+     * @param  query          the query to evaluate
+     * @param  invertedIndex  the inverted index to look the words up in
+     * @return                the ids of the matching documents in ascending order
+     */
+    public static int[] evaluate(Query query, Map<String, PostingList> invertedIndex) {
+        return evaluate(query, word -> invertedIndex.getOrDefault(word, PostingList.EMPTY));
+    }
+
+    /**
+     * Finds the ids of the documents of an index that match at least one part of the query.
+     * The query is compiled into a QueryPlan, so only the posting lists of the words of the query are looked up,
+     * once per word, and parts holding a word that no page contains are skipped.
+     *
+     * @param  query  the query to evaluate
+     * @param  index  the index to look the words up in
+     * @return        the ids of the matching documents in ascending order
+     */
+    public static int[] evaluate(Query query, Index index) {
+        return new QueryPlan(query, index).evaluate();
+    }
+
+    /**
+     * Finds the ids of the documents that match at least one part of the query.
+     *
+     * @param  query       the query to evaluate
+     * @param  postingsOf  gives the posting list of a word
+     * @return             the ids of the matching documents in ascending order
+     */
+    private static int[] evaluate(Query query, Function<String, PostingList> postingsOf) {
+        if (query.getQueryParts() == null) {
+            return new int[0];
+        }
+        List<int[]> partResults = new ArrayList<>();
+        for (int i = 0; i < query.getQueryParts().size(); i++) {
+            List<PostingList> postings = new ArrayList<>();
+            for (String word : query.getQueryParts().get(i)) {
+                postings.add(postingsOf.apply(word));
+            }
+            int[] docIds = intersect(postings);
+            for (ProximityClause clause : query.getProximityClauses().get(i)) {
+                PostingList[] chain = clause.getWords().stream().map(postingsOf).toArray(PostingList[]::new);
+                docIds = filterByProximity(docIds, clause, chain);
+            }
+            partResults.add(docIds);
+        }
+        return union(partResults);
+    }
+
+    /**
+     * Intersects posting lists, starting from the shortest list.
+     * Every candidate id is looked up in the remaining lists in order of increasing length,
+     * and the position in each list only moves forward, so long lists are skipped through rather than scanned.
+     *
+     * @param  postings  the posting lists to intersect
+     * @return           the ids that are in every list in ascending order
+     */
+    public static int[] intersect(List<PostingList> postings) {
+        if (postings.isEmpty()) {
+            return new int[0];
+        }
+        List<PostingList> sorted = new ArrayList<>(postings);
+        sorted.sort(Comparator.comparingInt(PostingList::size));
+        PostingList rarest = sorted.get(0);
+        int[] result = new int[rarest.size()];
+        int count = 0;
+        int[] positions = new int[sorted.size()];
+        candidates:
+        for (int i = 0; i < rarest.size(); i++) {
+            int docId = rarest.getDocId(i);
+            for (int j = 1; j < sorted.size(); j++) {
+                PostingList list = sorted.get(j);
+                positions[j] = list.advance(positions[j], docId);
+                if (positions[j] == list.size()) {
+                    break candidates;
+                }
+                if (list.getDocId(positions[j]) != docId) {
+                    continue candidates;
+                }
+            }
+            result[count++] = docId;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Keeps the documents in which the words of a proximity clause are found at positions that satisfy its distances.
+     * The positions of the words are merged as sorted streams along the chain: all positions of the first word are kept,
+     * and each following word keeps only its positions that are at the right distance from a kept position of the word before it.
+     * A document matches if any position of the last word is kept. Each stream is walked once,
+     * so checking a document takes time linear in the number of times the words of the clause appear in it.
+     * If a posting list has no positions, the documents cannot be checked and are all kept.
+     *
+     * @param  docIds    the ids of documents containing every word of the clause, in ascending order
+     * @param  clause    the clause to check
+     * @param  postings  the posting list of every word of the clause, in the order of the words
+     * @return           the ids of the documents matching the clause in ascending order
+     */
+    public static int[] filterByProximity(int[] docIds, ProximityClause clause, PostingList[] postings) {
+        for (PostingList list : postings) {
+            if (!list.hasPositions()) {
+                return docIds;
+            }
+        }
+        int[] cursors = new int[postings.length];
+        int[] kept = new int[16];
+        int[] next = new int[16];
+        int[] result = new int[docIds.length];
+        int count = 0;
+        documents:
+        for (int docId : docIds) {
+            int keptCount = 0;
+            for (int word = 0; word < postings.length; word++) {
+                PostingList list = postings[word];
+                cursors[word] = list.advance(cursors[word], docId);
+                if (cursors[word] == list.size() || list.getDocId(cursors[word]) != docId) {
+                    continue documents;
+                }
+                int frequency = list.getFrequency(cursors[word]);
+                if (next.length < frequency) {
+                    next = new int[Math.max(frequency, next.length * 2)];
+                }
+                int nextCount = list.readPositions(cursors[word], next);
+                if (word > 0) {
+                    nextCount = keepNear(next, nextCount, kept, keptCount, clause.getDistance(word - 1));
+                    if (nextCount == 0) {
+                        continue documents;
+                    }
+                }
+                int[] swap = kept;
+                kept = next;
+                next = swap;
+                keptCount = nextCount;
+            }
+            result[count++] = docId;
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Keeps the positions of a word that are at the right distance from a position of the word before it in a clause.
+     * Both arrays are sorted, so one pass over each is enough. The kept positions are moved to the start of the array.
+     *
+     * @param  positions      the positions of the word in ascending order
+     * @param  count          the number of positions
+     * @param  previous       the kept positions of the word before it in ascending order
+     * @param  previousCount  the number of kept positions of the word before it
+     * @param  distance       {@value ProximityClause#PHRASE} if the word must directly follow the word before it,
+     *                        otherwise the largest distance between the two words in either order
+     * @return                the number of positions kept
+     */
+    private static int keepNear(int[] positions, int count, int[] previous, int previousCount, int distance) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < count; i++) {
+            int position = positions[i];
+            int low = distance == ProximityClause.PHRASE ? position - 1 : position - distance;
+            int high = distance == ProximityClause.PHRASE ? position - 1 : position + distance;
+            while (j < previousCount && previous[j] < low) {
+                j++;
+            }
+            int k = j < previousCount && previous[j] == position ? j + 1 : j;
+            if (k < previousCount && previous[k] <= high) {
+                positions[kept++] = position;
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * Merges sorted arrays of ids into one sorted array without duplicates.
+     * A priority queue keeps the current id of every array, so each id is handled once per array it appears in.
+     *
+     * @param  lists  the sorted arrays of ids to merge
+     * @return        the ids that are in at least one array in ascending order
+     */
+    public static int[] union(List<int[]> lists) {
+        if (lists.size() == 1) {
+            return lists.get(0);
+        }
+        // Each cursor is {current id, array index, position in array}.
+        PriorityQueue<int[]> cursors = new PriorityQueue<>(Comparator.comparingInt((int[] cursor) -> cursor[0]));
+        int total = 0;
+        for (int i = 0; i < lists.size(); i++) {
+            int[] list = lists.get(i);
+            total += list.length;
+            if (list.length > 0) {
+                cursors.add(new int[] {list[0], i, 0});
+            }
+        }
+        int[] result = new int[total];
+        int count = 0;
+        while (!cursors.isEmpty()) {
+            int[] cursor = cursors.poll();
+            if (count == 0 || result[count - 1] != cursor[0]) {
+                result[count++] = cursor[0];
+            }
+            int[] list = lists.get(cursor[1]);
+            if (++cursor[2] < list.length) {
+                cursor[0] = list[cursor[2]];
+                cursors.add(cursor);
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+}
@@ -0,0 +1,226 @@
+package searchengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The QueryPlan class is a query compiled against a single index, so a search does not have to parse the query
+ * or look up its words again. The distinct words of the query are resolved to their term ids, posting lists,
+ * document frequencies and inverse document frequencies once, and the words of every query part are ordered
+ * from the rarest to the most common, which is the order the posting lists are intersected in.
+ * A part holding a word that no page contains can never match, and is left out of the evaluation,
+ * but it is kept in the query since scoring methods still score the words of such a part.
+ * The posting lists of the words of every phrase and NEAR clause are resolved as well, so the clauses can be checked
+ * on the documents matching the words of their part by merging positions.
+ *
+ * Prefix, wildcard and fuzzy words are expanded by the TermExpander before the words are resolved,
+ * since what they expand to depends on the words of the index.
+ *
+ * Plans are immutable and kept by their search term in a small cache of the index they were compiled against,
+ * so a repeated search term is neither parsed nor compiled again as long as the index stays the same.
+ * When the index has been replaced, the plan is compiled again from the query that was already parsed.
+ */
+public class QueryPlan {
+    static final int CACHE_CAPACITY = 256;
+
+    private static final LruCache<Query> queries = new LruCache<>(CACHE_CAPACITY);
+
+    private final Query query;
+    private final Index index;
+    private final String[] terms;
+    private final int[] termIds;
+    private final PostingList[] postings;
+    private final int[][] parts;
+    private final ProximityClause[][] clauses;
+    private final PostingList[][][] clausePostings;
+    private final int[] matchingParts;
+
+    /**
+     * Compiles a query against an index, first expanding its prefix, wildcard and fuzzy words into the words of the index.
+     *
+     * @param query  the parsed query
+     * @param index  the index to resolve the words of the query in
+     */
+    QueryPlan(Query query, Index index) {
+        query = TermExpander.expand(query, index);
+        this.query = query;
+        this.index = index;
+        Map<String, Integer> termNumbers = new LinkedHashMap<>();
+        List<Set<String>> queryParts = query.getQueryParts() == null ? List.of() : query.getQueryParts();
+        for (Set<String> part : queryParts) {
+            for (String term : part) {
+                termNumbers.putIfAbsent(term, termNumbers.size());
+            }
+        }
+        this.terms = termNumbers.keySet().toArray(new String[0]);
+        this.termIds = new int[terms.length];
+        this.postings = new PostingList[terms.length];
+        TermDictionary dictionary = index.getDictionary();
+        for (int term = 0; term < terms.length; term++) {
+            termIds[term] = dictionary.lookup(terms[term]);
+            postings[term] = termIds[term] < 0 ? PostingList.EMPTY : index.getPostings(termIds[term]);
+        }
+        Comparator<Integer> bySelectivity = Comparator.comparingInt(term -> postings[term].size());
+        this.parts = new int[queryParts.size()][];
+        this.clauses = new ProximityClause[parts.length][];
+        this.clausePostings = new PostingList[parts.length][][];
+        List<Integer> matching = new ArrayList<>();
+        for (int part = 0; part < parts.length; part++) {
+            Integer[] ordered = queryParts.get(part).stream().map(termNumbers::get).toArray(Integer[]::new);
+            Arrays.sort(ordered, bySelectivity);
+            parts[part] = Arrays.stream(ordered).mapToInt(Integer::intValue).toArray();
+            clauses[part] = query.getProximityClauses().get(part).toArray(new ProximityClause[0]);
+            clausePostings[part] = new PostingList[clauses[part].length][];
+            for (int clause = 0; clause < clauses[part].length; clause++) {
+                clausePostings[part][clause] = clauses[part][clause].getWords().stream()
+                        .map(word -> postings[termNumbers.get(word)]).toArray(PostingList[]::new);
+            }
+            if (parts[part].length > 0 && postings[parts[part][0]].size() > 0) {
+                matching.add(part);
+            }
+        }
+        this.matchingParts = matching.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Finds the compiled plan of a search term for an index, parsing the search term only if it is not cached
+     * and compiling it only if it is not cached for the same index.
+     * The plans are cached by the index they were compiled against, so a replaced index takes its plans along
+     * and two indexes in use at the same time keep their plans apart, while the parsed queries are shared.
+     * Both caches are least recently used caches of {@value #CACHE_CAPACITY} entries with striped locks,
+     * so a stream of one-off search terms evicts the plans that have not been used for the longest time.
+     *
+     * @param  searchTerm  the search term
+     * @param  index       the index to search
+     * @return             the plan of the search term for the index
+     */
+    public static QueryPlan compile(String searchTerm, Index index) {
+        LruCache<QueryPlan> plans = index.getPlanCache();
+        QueryPlan plan = plans.get(searchTerm);
+        if (plan != null) {
+            return plan;
+        }
+        Query query = queries.get(searchTerm);
+        if (query == null) {
+            query = new Query(searchTerm);
+            queries.put(searchTerm, query);
+        }
+        plan = new QueryPlan(query, index);
+        plans.put(searchTerm, plan);
+        return plan;
+    }
+
+    /**
+     * Finds the ids of the documents that match at least one part of the query,
+     * where a document matches a part if it contains every word of the part and matches every clause of the part.
+     *
+     * @return  the ids of the matching documents in ascending order
+     */
+    public int[] evaluate() {
+        List<int[]> partResults = new ArrayList<>();
+        for (int part : matchingParts) {
+            List<PostingList> lists = new ArrayList<>(parts[part].length);
+            for (int term : parts[part]) {
+                lists.add(postings[term]);
+            }
+            int[] docIds = QueryEvaluator.intersect(lists);
+            for (int clause = 0; clause < clauses[part].length && docIds.length > 0; clause++) {
+                docIds = QueryEvaluator.filterByProximity(docIds, clauses[part][clause], clausePostings[part][clause]);
+            }
+            partResults.add(docIds);
+        }
+        return partResults.isEmpty() ? new int[0] : QueryEvaluator.union(partResults);
+    }
+
+    /**
+     * Retrieves the query the plan was compiled from, with its prefix, wildcard and fuzzy words expanded.
+     *
+     * @return  the query
+     */
+    public Query getQuery() {
+        return query;
+    }
+
+    /**
+     * Retrieves the index the plan was compiled against.
+     *
+     * @return  the index
+     */
+    public Index getIndex() {
+        return index;
+    }
+
+    /**
+     * Retrieves the number of distinct words of the query.
+     *
+     * @return  the number of terms
+     */
+    public int getTermCount() {
+        return terms.length;
+    }
+
+    /**
+     * Retrieves a word of the query.
+     *
+     * @param  term  the number of the term
+     * @return       the word
+     */
+    public String getTerm(int term) {
+        return terms[term];
+    }
+
+    /**
+     * Retrieves the id of a word of the query in the TermDictionary of the index.
+     *
+     * @param  term  the number of the term
+     * @return       the term id, or -1 if the dictionary of the index does not contain the word
+     */
+    public int getTermId(int term) {
+        return termIds[term];
+    }
+
+    /**
+     * Retrieves the posting list of a word of the query.
+     *
+     * @param  term  the number of the term
+     * @return       the posting list, which is empty if no page contains the word
+     */
+    public PostingList getPostings(int term) {
+        return postings[term];
+    }
+
+    /**
+     * Retrieves the number of pages containing a word of the query.
+     *
+     * @param  term  the number of the term
+     * @return       the document frequency
+     */
+    public int getDocumentFrequency(int term) {
+        return postings[term].size();
+    }
+
+    /**
+     * Retrieves the BM25 inverse document frequency of a word of the query.
+     *
+     * @param  term  the number of the term
+     * @return       the inverse document frequency, or 0 if no page contains the word
+     */
+    public double getIdf(int term) {
+        return postings[term].getIdf();
+    }
+
+    /**
+     * Retrieves the words of every query part, as term numbers ordered from the rarest to the most common word.
+     * The returned arrays must not be changed.
+     *
+     * @return  the term numbers of each part
+     */
+    public int[][] getParts() {
+        return parts;
+    }
+}
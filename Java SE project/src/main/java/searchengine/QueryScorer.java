@@ -0,0 +1,25 @@
+package searchengine;
+
+/**
+ * The QueryScorer interface scores blocks of documents for a single query against a single index.
+ * It is made by {@link ScoringMethod#prepare(Index, Query)}, which does the work that only depends on the query,
+ * such as looking up the posting lists of its terms, once for the whole search instead of once per page.
+ * A QueryScorer keeps its position in the posting lists between calls, so it must be given documents
+ * in ascending id order, and it must only be used by the thread that prepared it.
+ */
+public interface QueryScorer {
+    /**
+     * The number of documents a search scores at a time.
+     */
+    int BATCH_SIZE = 64;
+
+    /**
+     * Scores a block of documents of the index. The scores must be the same as the scores
+     * given by {@link ScoringMethod#score(Index, Page, Query)} for the pages of the documents.
+     *
+     * @param docIds  the ids of the documents, in ascending order and above any id of an earlier block
+     * @param count   the number of documents at the start of docIds to score
+     * @param scores  the array the score of each document is written to, at the same position as its id
+     */
+    void score(int[] docIds, int count, double[] scores);
+}
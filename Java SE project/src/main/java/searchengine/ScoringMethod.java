@@ -6,9 +6,51 @@ public interface ScoringMethod {
     /**
      * A method that is meant to be overwritten by classes that implement ScoringMethod.
      * This is supposed to compare a Page against a Query and return the result in type double.
+     * @param index The Index the Page belongs to, which provides the term and document frequencies.
      * @param page The Page that is to be scored against the Query.
      * @param query The given Query to evaluate a given Page against.
      * @return Returns a double value representation of the score of a given Page compared to a given Query.
      */
-    double score(Page page, Query query);
+    double score(Index index, Page page, Query query);
+
+    /**
+     * Gives an upper bound for how much a single term can add to the score of any document in a block of its posting list.
+     * Ranking uses these bounds to skip documents that cannot reach the top results. The bounds are only valid for
+     * scoring methods that score a page as the highest sum of term contributions over the query parts,
+     * and where a term that is missing from a page contributes nothing.
+     * The default bound is infinite, which means that no documents are ever skipped.
+     * @param index The Index the posting list belongs to.
+     * @param postings The posting list of the term, with its block upper bounds computed.
+     * @param block The block number in the posting list.
+     * @return Returns the largest contribution the term can make to the score of a document in the block.
+     */
+    default double upperBound(Index index, PostingList postings, int block) {
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Prepares the scoring of many documents for a single query, so the work that only depends on the query is done once.
+     * The default query scorer scores the documents one by one with the score method.
+     * Scoring methods that can score a whole block of documents at a time override this method.
+     * @param index The Index the documents belong to.
+     * @param query The Query to score the documents for.
+     * @return Returns a query scorer for the documents of the index.
+     */
+    default QueryScorer prepare(Index index, Query query) {
+        return (docIds, count, scores) -> {
+            for (int i = 0; i < count; i++) {
+                scores[i] = score(index, index.getPage(docIds[i]), query);
+            }
+        };
+    }
+
+    /**
+     * Gives a name that identifies the scoring method together with its settings.
+     * Cached search results are kept by this name, so two scoring methods that can give different scores must have different names.
+     * The default name is the name of the class.
+     * @return Returns the name of the scoring method.
+     */
+    default String getName() {
+        return getClass().getName();
+    }
 }
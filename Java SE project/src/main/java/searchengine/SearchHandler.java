@@ -4,56 +4,284 @@ import com.sun.net.httpserver.HttpExchange;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.io.IOException;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
 
 /**
  * This class handles the the applications search functionality.
  * It provides methods for searching and displaying search results.
+ * Every SearchHandler searches a single immutable Index, so any number of searches can run at the same time without locking.
  */
 public class SearchHandler {
     static final Charset CHARSET = StandardCharsets.UTF_8;
+    static final long CACHE_CAPACITY = 1_000_000;
+    static final int DEFAULT_LIMIT = 20;
+    static final int MAX_LIMIT = 1000;
+    static final int MAX_OFFSET = 10_000;
+    static final int SNIPPET_WORDS = 20;
+    static final int SNIPPET_CONTEXT = 5;
+    private final QueryCache cache;
+    private final Index index;
     private ScoringMethod scoringMethod;
 
     /**
-     * Creates a new SearchHandler object.
+     * Creates a new SearchHandler object that uses the query cache of the index.
      *
+     * @param  index          the index to search
      * @param  scoringMethod  the scoring method to be used in the SearchHandler object
      */
 
-    public SearchHandler(ScoringMethod scoringMethod) {
+    public SearchHandler(Index index, ScoringMethod scoringMethod) {
+        this(index, scoringMethod, index.getQueryCache());
+    }
+
+    /**
+     * Creates a new SearchHandler object with its own query cache, for example an empty one
+     * to measure searches without cached results.
+     *
+     * @param  index          the index to search
+     * @param  scoringMethod  the scoring method to be used in the SearchHandler object
+     * @param  cache          the query cache to use
+     */
+    SearchHandler(Index index, ScoringMethod scoringMethod, QueryCache cache) {
+        this.index = index;
         this.scoringMethod = scoringMethod;
+        this.cache = cache;
+    }
+
+    /**
+     * A single page of search results, together with the total number of matching pages.
+     */
+    public static class ResultPage {
+        private final List<Page> pages;
+        private final int total;
+        private final int offset;
+        private final int limit;
+        private final String nextCursor;
+
+        /**
+         * Constructs a ResultPage.
+         *
+         * @param pages       the pages of results
+         * @param total       the number of pages matching the query
+         * @param offset      the rank of the first result on the page, counting from 0
+         * @param limit       the largest number of results on the page
+         * @param nextCursor  the cursor of the following page, or null if this is the last page
+         */
+        ResultPage(List<Page> pages, int total, int offset, int limit, String nextCursor) {
+            this.pages = pages;
+            this.total = total;
+            this.offset = offset;
+            this.limit = limit;
+            this.nextCursor = nextCursor;
+        }
+
+        /**
+         * Retrieves the results on the page.
+         *
+         * @return  the pages from highest to lowest score
+         */
+        public List<Page> getPages() {
+            return pages;
+        }
+
+        /**
+         * Retrieves the number of pages matching the query, on all result pages together.
+         *
+         * @return  the total number of hits
+         */
+        public int getTotal() {
+            return total;
+        }
+
+        /**
+         * Retrieves the rank of the first result on the page.
+         *
+         * @return  the number of results before this page
+         */
+        public int getOffset() {
+            return offset;
+        }
+
+        /**
+         * Retrieves the largest number of results on the page.
+         *
+         * @return  the limit of the page
+         */
+        public int getLimit() {
+            return limit;
+        }
+
+        /**
+         * Retrieves the cursor to pass to get the following page.
+         *
+         * @return  the cursor, or null if there are no more results
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
     }
 
     /**
      * Performs a search and return the results as JSON.
+     * The results are streamed to the client as they are written, with urls and titles escaped as JSON strings.
+     * Without the limit, offset and cursor parameters every matching page is returned in a JSON array.
+     * With any of them, a single page of at most limit results is returned in an object that also holds
+     * the total number of hits and the cursor of the following page, and every result on it also holds a snippet
+     * of its content. The limit defaults to {@value #DEFAULT_LIMIT} and is at most {@value #MAX_LIMIT},
+     * and the offset may be at most {@value #MAX_OFFSET}. Invalid parameters are answered with 400.
      *
      * @param  io              the HttpExchange object representing the request and response of the HTTP
-     * @param  pageLoader      the PageLoader object used to load web pages
+     * @param  index           the index to search
      * @param  scoringMethod   the ScoringMethod object used to calculate the score of search results
      * @throws UnsupportedEncodingException incase the URL decoding fails
      */
-    public static void searchResults(HttpExchange io, PageLoader pageLoader, ScoringMethod scoringMethod)
+    public static void searchResults(HttpExchange io, Index index, ScoringMethod scoringMethod)
             throws UnsupportedEncodingException {
-        SearchHandler searchHandler = new SearchHandler(scoringMethod);
+        SearchHandler searchHandler = new SearchHandler(index, scoringMethod);
 
-        String query = io.getRequestURI().getRawQuery();
-        String decodeQuery = URLDecoder.decode(query, StandardCharsets.UTF_8.name());
-        String searchTerm = decodeQuery.split("=")[1];
-        List<Page> searchResults = searchHandler.search(searchTerm);
+        Map<String, String> parameters = parseParameters(io.getRequestURI().getRawQuery());
+        String searchTerm = parameters.getOrDefault("q", "");
+        if (!parameters.containsKey("limit") && !parameters.containsKey("offset") && !parameters.containsKey("cursor")) {
+            List<Page> searchResults = searchHandler.search(searchTerm);
+            WebServer.respondJson(io, 200, json -> writeResults(json, searchResults));
+            return;
+        }
+        ResultPage resultPage;
+        try {
+            int limit = Math.min(Integer.parseInt(parameters.getOrDefault("limit", "" + DEFAULT_LIMIT)), MAX_LIMIT);
+            int offset = Integer.parseInt(parameters.getOrDefault("offset", "0"));
+            resultPage = searchHandler.search(searchTerm, offset, limit, parameters.get("cursor"));
+        } catch (IllegalArgumentException e) {
+            String message = e.getMessage();
+            WebServer.respondJson(io, 400, json -> json.raw("{\"message\": ").string(message).raw("}"));
+            return;
+        }
+        List<String> snippets = searchHandler.snippets(searchTerm, resultPage.getPages());
+        WebServer.respondJson(io, 200, json -> writeResultPage(json, resultPage, snippets));
+    }
 
-        var response = new ArrayList<String>();
-        if (searchResults.isEmpty()) {
-            response.add("{\"message\": \"No web page contains the query word.\"}");
-        } else {
-            for (var page : searchResults) {
-                response.add(String.format("{\"url\": \"%s\", \"title\": \"%s\"}",
-                        page.getUrl(), page.getTitle()));
+    /**
+     * Splits the query string of a request into its parameters and decodes them.
+     * A parameter that appears more than once keeps its first value.
+     *
+     * @param  rawQuery                      the raw query string, which may be null
+     * @return                               the decoded values by parameter name
+     * @throws UnsupportedEncodingException  incase the URL decoding fails
+     */
+    static Map<String, String> parseParameters(String rawQuery) throws UnsupportedEncodingException {
+        Map<String, String> parameters = new HashMap<>();
+        if (rawQuery == null) {
+            return parameters;
+        }
+        for (String parameter : rawQuery.split("&")) {
+            int separator = parameter.indexOf('=');
+            String name = separator < 0 ? parameter : parameter.substring(0, separator);
+            String value = separator < 0 ? "" : parameter.substring(separator + 1);
+            parameters.putIfAbsent(URLDecoder.decode(name, StandardCharsets.UTF_8.name()),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8.name()));
+        }
+        return parameters;
+    }
+
+    /**
+     * Writes search results as a JSON array of objects holding the url and title of each page,
+     * or an array holding a message if there are no results.
+     *
+     * @param  json         the writer to write the results to
+     * @param  results      the pages found by the search
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    static void writeResults(JsonWriter json, List<Page> results) throws IOException {
+        if (results.isEmpty()) {
+            json.raw("[{\"message\": \"No web page contains the query word.\"}]");
+            return;
+        }
+        writePages(json, results, null);
+    }
+
+    /**
+     * Writes a page of search results as a JSON object holding the total number of hits, the offset and limit,
+     * the cursor of the following page and the results, in the same format as writeResults with a snippet added
+     * to every result.
+     *
+     * @param  json         the writer to write the results to
+     * @param  resultPage   the page of results
+     * @param  snippets     the snippet of every result on the page, in the same order
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    static void writeResultPage(JsonWriter json, ResultPage resultPage, List<String> snippets) throws IOException {
+        json.raw("{\"total\": " + resultPage.getTotal());
+        json.raw(", \"offset\": " + resultPage.getOffset());
+        json.raw(", \"limit\": " + resultPage.getLimit());
+        json.raw(", \"next\": ").string(resultPage.getNextCursor());
+        json.raw(", \"results\": ");
+        writePages(json, resultPage.getPages(), snippets);
+        json.raw("}");
+    }
+
+    /**
+     * Writes pages as a JSON array of objects holding the url and title of each page, and its snippet if given.
+     *
+     * @param  json         the writer to write the pages to
+     * @param  pages        the pages to write
+     * @param  snippets     the snippet of every page in the same order, or null to leave the snippets out
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    private static void writePages(JsonWriter json, List<Page> pages, List<String> snippets) throws IOException {
+        json.raw("[");
+        for (int i = 0; i < pages.size(); i++) {
+            Page page = pages.get(i);
+            json.raw(i == 0 ? "{\"url\": " : ", {\"url\": ").string(page.getUrl());
+            json.raw(", \"title\": ").string(page.getTitle());
+            if (snippets != null) {
+                json.raw(", \"snippet\": ").string(snippets.get(i));
             }
+            json.raw("}");
+        }
+        json.raw("]");
+    }
+
+    /**
+     * Builds the snippets of the results of a search.
+     *
+     * @param  searchTerm  the term that was searched for
+     * @param  pages       the results of the search
+     * @return             the snippet of every page, in the same order
+     */
+    List<String> snippets(String searchTerm, List<Page> pages) {
+        QueryPlan plan = QueryPlan.compile(searchTerm, index);
+        Set<String> words = new HashSet<>();
+        for (int term = 0; term < plan.getTermCount(); term++) {
+            words.add(plan.getTerm(term));
+        }
+        List<String> snippets = new ArrayList<>(pages.size());
+        for (Page page : pages) {
+            snippets.add(snippet(page, words));
         }
+        return snippets;
+    }
 
-        var bytes = response.toString().getBytes(CHARSET);
-        WebServer.respond(io, 200, "application/json", bytes);
+    /**
+     * Builds the snippet of a result: at most {@value #SNIPPET_WORDS} words of its content, starting
+     * {@value #SNIPPET_CONTEXT} words before the first word of the query on the page, or at the start of the content
+     * if none of them appears. The content is read with Index.getContent, so pages whose content is not held
+     * in memory are read from the stored fields of the index.
+     *
+     * @param  page   the page to build the snippet of
+     * @param  words  the words of the query
+     * @return        the words of the snippet separated by spaces, or an empty string if the content is not available
+     */
+    String snippet(Page page, Set<String> words) {
+        int docId = index.getDocId(page);
+        List<String> content = docId < 0 ? page.getContent() : index.getContent(docId);
+        int first = 0;
+        while (first < content.size() && !words.contains(content.get(first))) {
+            first++;
+        }
+        int start = first == content.size() ? 0 : Math.max(0, first - SNIPPET_CONTEXT);
+        return String.join(" ", content.subList(start, Math.min(content.size(), start + SNIPPET_WORDS)));
     }
 
     /**
@@ -63,31 +291,264 @@ public class SearchHandler {
      * @return             a list of pages matching the search term
      */
     public List<Page> search(String searchTerm) {
-        Query query = new Query(searchTerm);
-        Set<Page> matchingPages = findMatchingPages(query);
-        return sortPagesByScore(matchingPages, query);
+        return search(searchTerm, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Generates a list of the k highest scoring pages matching the given search term.
+     * Results are served from the query cache of the index when the same query has been ranked before
+     * with the same scoring method.
+     *
+     * @param  searchTerm  the term searched for
+     * @param  k           the largest number of pages to return
+     * @return             the k highest scoring pages matching the search term, from highest to lowest score
+     */
+    public List<Page> search(String searchTerm, int k) {
+        return topResults(QueryPlan.compile(searchTerm, index), k).getPages();
+    }
+
+    /**
+     * Finds the k highest scoring pages of a compiled query together with the total number of matching pages.
+     * The query is evaluated once, and the same matches are counted and ranked.
+     * Both are served from the query cache when the same query has been ranked before with the same scoring method and k.
+     *
+     * @param  plan  the compiled query
+     * @param  k     the largest number of pages to return
+     * @return       the top k pages at offset 0, with the total number of matching pages
+     */
+    private ResultPage topResults(QueryPlan plan, int k) {
+        String key = scoringMethod.getName() + "|" + k + "|" + plan.getQuery().getCanonicalForm();
+        ResultPage cached = cache.get(key);
+        if (cached != null) {
+            return cached;
+        }
+        int[] docIds = plan.evaluate();
+        List<Page> pages = Collections.unmodifiableList(rank(plan, docIds, k, Double.NaN, -1));
+        ResultPage results = new ResultPage(pages, docIds.length, 0, k, null);
+        cache.put(key, results);
+        return results;
+    }
+
+    /**
+     * Finds a single page of the results of a search.
+     * Without a cursor, the results from offset to offset + limit are cut from the top results, which are ranked
+     * for offset + limit rounded up to a power of two, and at least {@value #DEFAULT_LIMIT}, so the first pages never
+     * rank many more documents than they show and neighbouring pages share one cached ranking that also holds
+     * the total number of hits.
+     * A cursor from an earlier page continues right after the last result of that page: only documents that rank
+     * below it are ranked, and only the best limit of them are kept, however deep the page is.
+     * If the index has changed since the cursor was made, the cursor continues from the same rank in the new index.
+     * Either way the query is evaluated at most once. Offsets above {@value #MAX_OFFSET}, and cursors whose number
+     * of results so far is larger than the number of matching pages, are rejected before anything is ranked.
+     *
+     * @param  searchTerm  the term searched for
+     * @param  offset      the number of results to skip, ignored if a cursor is given
+     * @param  limit       the largest number of results to return
+     * @param  cursor      the next cursor of the previous page, or null to start at the offset
+     * @return             the page of results
+     * @throws IllegalArgumentException  if the offset or limit is negative, the offset is above {@value #MAX_OFFSET},
+     *                                   or the cursor is invalid for the query
+     */
+    public ResultPage search(String searchTerm, int offset, int limit, String cursor) {
+        if (offset < 0 || limit < 0) {
+            throw new IllegalArgumentException("The offset and limit may not be negative");
+        }
+        if (cursor == null && offset > MAX_OFFSET) {
+            throw new IllegalArgumentException("The offset may be at most " + MAX_OFFSET
+                    + ", use the cursor of the previous page to read further");
+        }
+        QueryPlan plan = QueryPlan.compile(searchTerm, index);
+        Query query = plan.getQuery();
+        String queryKey = scoringMethod.getName() + "|" + query.getCanonicalForm();
+        long[] after = cursor == null ? null : decodeCursor(cursor, queryKey);
+        List<Page> pages;
+        int total;
+        if (after != null) {
+            offset = (int) after[3];
+            int[] docIds = plan.evaluate();
+            total = docIds.length;
+            if (offset > total) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            if (after[0] == index.getGeneration()) {
+                pages = rank(plan, docIds, limit, Double.longBitsToDouble(after[1]), (int) after[2]);
+            } else {
+                List<Page> ranked = rank(plan, docIds, (int) Math.min(total, (long) offset + limit), Double.NaN, -1);
+                pages = ranked.subList(Math.min(offset, ranked.size()), ranked.size());
+            }
+        } else {
+            ResultPage top = topResults(plan, roundUp(Math.max(DEFAULT_LIMIT, (long) offset + limit)));
+            total = top.getTotal();
+            List<Page> ranked = top.getPages();
+            pages = ranked.subList(Math.min(offset, ranked.size()), (int) Math.min((long) offset + limit, ranked.size()));
+        }
+        String nextCursor = null;
+        if (!pages.isEmpty() && (long) offset + pages.size() < total) {
+            Page last = pages.get(pages.size() - 1);
+            int[] lastId = {index.getDocId(last)};
+            double[] score = new double[1];
+            scoringMethod.prepare(index, query).score(lastId, 1, score);
+            nextCursor = encodeCursor(index.getGeneration(), score[0], lastId[0], offset + pages.size(), queryKey);
+        }
+        return new ResultPage(pages, total, offset, limit, nextCursor);
+    }
+
+    /**
+     * Rounds a number of results up to a power of two, so pages that end close to each other rank the same top results.
+     *
+     * @param  count  the number of results needed
+     * @return        the smallest power of two that is at least the count, or Integer.MAX_VALUE if there is none
+     */
+    private static int roundUp(long count) {
+        if (count <= 1) {
+            return 1;
+        }
+        long rounded = Long.highestOneBit(count - 1) << 1;
+        return (int) Math.min(Integer.MAX_VALUE, rounded);
+    }
+
+    /**
+     * Encodes the position after the last result of a page as a cursor.
+     * The cursor holds the generation of the index, the score and id of the last result, the number of results
+     * so far and a hash of the query, encoded as URL safe Base64.
+     *
+     * @param  generation  the generation of the index
+     * @param  score       the score of the last result
+     * @param  docId       the id of the last result
+     * @param  count       the number of results up to and including the last result
+     * @param  queryKey    the scoring method and canonical form of the query
+     * @return             the cursor
+     */
+    private static String encodeCursor(long generation, double score, int docId, int count, String queryKey) {
+        String text = generation + ":" + Double.doubleToLongBits(score) + ":" + docId + ":" + count + ":" + queryKey.hashCode();
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(text.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Decodes a cursor made by encodeCursor.
+     *
+     * @param  cursor    the cursor
+     * @param  queryKey  the scoring method and canonical form of the current query
+     * @return           the generation, score bits, document id and count of the cursor
+     * @throws IllegalArgumentException  if the cursor is malformed or was made for another query
+     */
+    private static long[] decodeCursor(String cursor, String queryKey) {
+        String[] fields;
+        try {
+            fields = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        if (fields.length != 5 || !fields[4].equals(Integer.toString(queryKey.hashCode()))) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+        try {
+            long[] values = new long[4];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = Long.parseLong(fields[i]);
+            }
+            if (values[2] < 0 || values[3] < 0 || values[3] > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            return values;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    /**
+     * Ranks the pages matching a query and keeps the k highest scoring ones.
+     * The matching documents are scored in ascending id order, {@value QueryScorer#BATCH_SIZE} at a time
+     * by a query scorer prepared once for the query, and kept in a bounded heap.
+     * Once the heap is full, the block upper bounds of the query terms are checked first,
+     * and documents that cannot beat the worst kept score are left out of the batch without being scored.
+     * Documents that rank at or above the given position are left out, which is how a cursor skips earlier pages.
+     *
+     * @param  plan        the compiled query to rank the pages for
+     * @param  docIds      the ids of the documents matching the query, in ascending order
+     * @param  k           the largest number of pages to return
+     * @param  afterScore  the score of the position to rank below
+     * @param  afterDocId  the document id of the position to rank below, or -1 to rank every document
+     * @return             the k highest scoring pages matching the query, from highest to lowest score
+     */
+    private List<Page> rank(QueryPlan plan, int[] docIds, int k, double afterScore, int afterDocId) {
+        TopKCollector topK = new TopKCollector(k, docIds.length);
+        int[] positions = new int[plan.getTermCount()];
+        double[] termBounds = new double[plan.getTermCount()];
+        QueryScorer scorer = scoringMethod.prepare(index, plan.getQuery());
+        int[] batch = new int[QueryScorer.BATCH_SIZE];
+        double[] scores = new double[QueryScorer.BATCH_SIZE];
+        for (int start = 0; start < docIds.length; start += batch.length) {
+            int end = Math.min(start + batch.length, docIds.length);
+            int count = 0;
+            for (int i = start; i < end; i++) {
+                int docId = docIds[i];
+                if (topK.isFull() && upperBound(docId, plan, positions, termBounds) <= topK.threshold()) {
+                    continue;
+                }
+                batch[count++] = docId;
+            }
+            scorer.score(batch, count, scores);
+            for (int i = 0; i < count; i++) {
+                if (afterDocId >= 0 && !TopKCollector.ranksHigher(afterScore, afterDocId, scores[i], batch[i])) {
+                    continue;
+                }
+                topK.offer(batch[i], scores[i]);
+            }
+        }
+        List<Page> results = new ArrayList<>();
+        for (int docId : topK.drainRanked()) {
+            results.add(index.getPage(docId));
+        }
+        return results;
+    }
+
+    /**
+     * Computes an upper bound for the score of a document from the block upper bounds of the query terms.
+     * The position in each posting list only moves forward, since documents are checked in ascending id order.
+     *
+     * @param  docId       the id of the document
+     * @param  plan        the compiled query, which holds the posting lists of the terms and the terms of each part
+     * @param  positions   the current position in each posting list
+     * @param  termBounds  space for the upper bound of each term
+     * @return             the largest score the document can have
+     */
+    private double upperBound(int docId, QueryPlan plan, int[] positions, double[] termBounds) {
+        for (int i = 0; i < positions.length; i++) {
+            PostingList postings = plan.getPostings(i);
+            positions[i] = postings.advance(positions[i], docId);
+            if (positions[i] == postings.size()) {
+                termBounds[i] = 0;
+            } else if (!postings.hasBlockMaxima()) {
+                return Double.POSITIVE_INFINITY;
+            } else {
+                termBounds[i] = scoringMethod.upperBound(index, postings, positions[i] / PostingList.BLOCK_SIZE);
+            }
+        }
+        double bound = 0;
+        for (int[] part : plan.getParts()) {
+            double partBound = 0;
+            for (int term : part) {
+                partBound += termBounds[term];
+            }
+            bound = Math.max(bound, partBound);
+        }
+        return bound;
     }
 
     /**
      * Finds the set of pages that match a given query.
+     * The matching document ids are computed by the QueryEvaluator on the posting lists of the inverted index.
      *
      * @param  query  the query object containing the query parts
      * @return        the set of pages matching the query
      */
 
     private Set<Page> findMatchingPages(Query query) {
-        Set<Page> matchingPages = new HashSet<>();
-        for (Set<String> part : query.getQueryParts()) {
-            Set<Page> pagesForPart = new HashSet<>();
-            for (String word : part) {
-            List<Page> pagesForWord = PageLoader.getInvertedIndex().getOrDefault(word, new ArrayList<>());
-            if (pagesForPart.isEmpty()) {
-                pagesForPart.addAll(pagesForWord);
-            } else {
-                pagesForPart.retainAll(pagesForWord);
-            }
-        }
-            matchingPages.addAll(pagesForPart);
+        int[] docIds = QueryEvaluator.evaluate(query, index);
+        Set<Page> matchingPages = new LinkedHashSet<>();
+        for (int docId : docIds) {
+            matchingPages.add(index.getPage(docId));
         }
         return matchingPages;
     }
@@ -116,12 +577,21 @@ public class SearchHandler {
     private Map<Page, Double> calculatePageScores(Set<Page> pages, Query query) {
         Map<Page, Double> pageScores = new HashMap<>();
         for (Page page : pages) {
-            double score = scoringMethod.score(page, query);
+            double score = scoringMethod.score(index, page, query);
             pageScores.put(page, pageScores.getOrDefault(page, 0.0) + score);
         }
         return pageScores;
     }
 
+    /**
+     * Retrieves the query cache used by this SearchHandler, for example to read its hit and miss counters.
+     *
+     * @return  the query cache
+     */
+    public QueryCache getCache() {
+        return cache;
+    }
+
     /**
      * Checks wether a given page contains all the specified parts.
      *
@@ -129,9 +599,12 @@ public class SearchHandler {
      * @param  parts  the set of parts to check in the page
      * @return        true if the page contains all the parts and returns false otherwise
      */
-    public static boolean pageContainsAllParts(Page page, Set<String> parts) {
-        return parts.stream()
-                .allMatch(part -> PageLoader.getInvertedIndex().getOrDefault(part, new ArrayList<>()).contains(page));
+    public boolean pageContainsAllParts(Page page, Set<String> parts) {
+        if (page == null) {
+            return false;
+        }
+        int docId = index.getDocId(page);
+        return docId >= 0 && parts.stream().allMatch(part -> index.getPostings(part).contains(docId));
     }
 
     /**
@@ -0,0 +1,334 @@
+package searchengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The SegmentedIndex class is an immutable snapshot of an index that is made up of several segments,
+ * as written by an IndexWriter. Each segment is an ordinary Index, and the documents of a segment
+ * get the ids following the documents of the segments before it. All segments share one TermDictionary,
+ * which is the dictionary of the SegmentedIndex, so a term id means the same word in every segment.
+ * Deleted documents are marked in a tombstone bitset per segment and are left out of every posting list,
+ * so document frequencies and the total number of documents only count the documents that are still live.
+ *
+ * The posting list of a word, and its posting list in the titles, are merged from the segments the first time
+ * they are needed and then kept by their term id for the lifetime of the snapshot. The merged lists are kept in a ConcurrentHashMap,
+ * so looking up a list that has already been merged takes no lock, and merging a word only holds up
+ * the threads that need the same word at the same moment.
+ */
+public class SegmentedIndex extends Index {
+    private final List<Index> segments;
+    private final BitSet[] deleted;
+    private final int[] bases;
+    private final int[] documentLengths;
+    private final int[] titleLengths;
+    private final int maxDoc;
+    private final int liveDocuments;
+    private final ConcurrentHashMap<Integer, PostingList> mergedPostings = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Integer, PostingList> mergedTitlePostings = new ConcurrentHashMap<>();
+    private final LengthNorms lengthNorms;
+    private final LengthNorms titleNorms;
+
+    /**
+     * Constructs a SegmentedIndex from segments and their tombstones.
+     * Neither the segments nor the bitsets may be changed after they are handed to the SegmentedIndex.
+     *
+     * @param segments  the segments in document id order, none of which is empty, all with the same dictionary
+     * @param deleted   the deleted documents of each segment, or null for a segment without deletions
+     */
+    SegmentedIndex(List<Index> segments, BitSet[] deleted) {
+        super(segments.get(0).getDictionary(), new IntMap<>(), new IntMap<>(), new ArrayList<>());
+        this.segments = List.copyOf(segments);
+        this.deleted = deleted;
+        this.bases = new int[segments.size()];
+        int documents = 0;
+        int live = 0;
+        for (int i = 0; i < segments.size(); i++) {
+            bases[i] = documents;
+            documents += segments.get(i).getMaxDoc();
+            live += segments.get(i).getMaxDoc() - (deleted[i] == null ? 0 : deleted[i].cardinality());
+        }
+        this.maxDoc = documents;
+        this.liveDocuments = live;
+        this.documentLengths = new int[documents];
+        this.titleLengths = new int[documents];
+        for (int i = 0; i < segments.size(); i++) {
+            Index segment = segments.get(i);
+            for (int docId = 0; docId < segment.getMaxDoc(); docId++) {
+                documentLengths[bases[i] + docId] = segment.getPage(docId).getTotalTerms();
+                titleLengths[bases[i] + docId] = segment.getPage(docId).getTitleLength();
+            }
+        }
+        this.lengthNorms = new LengthNorms(documentLengths);
+        this.titleNorms = new LengthNorms(titleLengths);
+    }
+
+    /**
+     * Retrieves the segments of the index.
+     *
+     * @return  the segments in document id order
+     */
+    public List<Index> getSegments() {
+        return segments;
+    }
+
+    /**
+     * Retrieves the posting list of a word by its term id, merged from all segments without the deleted documents.
+     *
+     * @param  termId  the id of the word
+     * @return         the posting list of the word, which is empty if no live page contains the word
+     */
+    @Override
+    public PostingList getPostings(int termId) {
+        PostingList postings = mergedPostings.get(termId);
+        return postings != null ? postings : mergedPostings.computeIfAbsent(termId, this::mergePostings);
+    }
+
+    /**
+     * Retrieves the posting list of a word in the titles by its term id, merged from all segments without the deleted documents.
+     *
+     * @param  termId  the id of the word
+     * @return         the title posting list of the word, which is empty if no live page has the word in its title and content
+     */
+    @Override
+    public PostingList getTitlePostings(int termId) {
+        PostingList postings = mergedTitlePostings.get(termId);
+        return postings != null ? postings : mergedTitlePostings.computeIfAbsent(termId, this::mergeTitlePostings);
+    }
+
+    /**
+     * Merges the posting lists of a word from all segments, and stores the largest title frequency of every block
+     * from the merged title posting list of the word.
+     *
+     * @param  termId  the id of the word to merge the posting lists of
+     * @return         the merged posting list with its block upper bounds computed
+     */
+    private PostingList mergePostings(int termId) {
+        PostingList merged = merge(termId, false);
+        if (merged.size() > 0) {
+            merged.finishTitles(getTitlePostings(termId));
+        }
+        return merged;
+    }
+
+    /**
+     * Merges the title posting lists of a word from all segments.
+     *
+     * @param  termId  the id of the word to merge the title posting lists of
+     * @return         the merged title posting list
+     */
+    private PostingList mergeTitlePostings(int termId) {
+        return merge(termId, true);
+    }
+
+    /**
+     * Merges the posting lists or the title posting lists of a word from all segments, shifting the ids by the base
+     * of each segment and skipping deleted documents. The positions are copied along if every segment has them.
+     *
+     * @param  termId  the id of the word to merge the posting lists of
+     * @param  titles  true to merge the title posting lists, false to merge the posting lists of the content
+     * @return         the merged posting list with its block upper bounds computed
+     */
+    private PostingList merge(int termId, boolean titles) {
+        PostingList merged = null;
+        for (int i = 0; i < segments.size(); i++) {
+            Index segment = segments.get(i);
+            PostingList postings = titles ? segment.getTitlePostings(termId) : segment.getPostings(termId);
+            for (int j = 0; j < postings.size(); j++) {
+                int docId = postings.getDocId(j);
+                if (deleted[i] == null || !deleted[i].get(docId)) {
+                    if (merged == null) {
+                        merged = new PostingList();
+                    }
+                    merged.addPosting(postings, j, bases[i] + docId);
+                }
+            }
+        }
+        if (merged == null) {
+            return PostingList.EMPTY;
+        }
+        merged.finish(titles ? titleLengths : documentLengths, liveDocuments);
+        return merged;
+    }
+
+    /**
+     * Retrieves the ids of the words that appear in any segment, including words only found on deleted pages.
+     *
+     * @return  the term ids of the words in no particular order
+     */
+    @Override
+    public int[] getTermIds() {
+        IntMap<Boolean> all = new IntMap<>();
+        for (Index segment : segments) {
+            for (int termId : segment.getTermIds()) {
+                all.put(termId, Boolean.TRUE);
+            }
+        }
+        return all.keys();
+    }
+
+    /**
+     * Merges the sorted dictionaries of the segments, which includes words that are only found on deleted pages.
+     *
+     * @return  the sorted dictionary of the words of every segment
+     */
+    @Override
+    SortedTerms buildSortedTerms() {
+        List<SortedTerms> dictionaries = new ArrayList<>();
+        for (Index segment : segments) {
+            dictionaries.add(segment.getSortedTerms());
+        }
+        return SortedTerms.merge(getDictionary(), dictionaries);
+    }
+
+    /**
+     * Retrieves the quantized number of terms of every document, including deleted documents.
+     *
+     * @return  the length norms of the content
+     */
+    @Override
+    public LengthNorms getLengthNorms() {
+        return lengthNorms;
+    }
+
+    /**
+     * Retrieves the quantized number of words in the title of every document, including deleted documents.
+     *
+     * @return  the length norms of the titles
+     */
+    @Override
+    public LengthNorms getTitleNorms() {
+        return titleNorms;
+    }
+
+    /**
+     * Retrieves the number of live documents in the index.
+     *
+     * @return  the number of documents that have not been deleted
+     */
+    @Override
+    public int getTotalDocuments() {
+        return liveDocuments;
+    }
+
+    /**
+     * Retrieves the number of document ids used by the index, including deleted documents.
+     *
+     * @return  the number of document ids in use
+     */
+    @Override
+    public int getMaxDoc() {
+        return maxDoc;
+    }
+
+    /**
+     * Checks whether a document has been deleted.
+     *
+     * @param  docId  the id of the document
+     * @return        true if the document has been deleted, false otherwise
+     */
+    @Override
+    public boolean isDeleted(int docId) {
+        int segment = segmentOf(docId);
+        return deleted[segment] != null && deleted[segment].get(docId - bases[segment]);
+    }
+
+    /**
+     * Retrieves a page by its id.
+     *
+     * @param  docId  the id of the page
+     * @return        the page with the given id
+     */
+    @Override
+    public Page getPage(int docId) {
+        int segment = segmentOf(docId);
+        return segments.get(segment).getPage(docId - bases[segment]);
+    }
+
+    /**
+     * Retrieves the content of a page by its id from the segment holding the page.
+     *
+     * @param  docId  the id of the page
+     * @return        the words of the page, or an empty list if the content is neither in memory nor stored
+     */
+    @Override
+    public List<String> getContent(int docId) {
+        int segment = segmentOf(docId);
+        return segments.get(segment).getContent(docId - bases[segment]);
+    }
+
+    /**
+     * Finds the id of a page in this index.
+     *
+     * @param  page  the page to look up
+     * @return       the id of the page, or -1 if the page is not part of this index or has been deleted
+     */
+    @Override
+    public int getDocId(Page page) {
+        for (int i = 0; i < segments.size(); i++) {
+            int docId = segments.get(i).getDocId(page);
+            if (docId >= 0) {
+                return deleted[i] != null && deleted[i].get(docId) ? -1 : bases[i] + docId;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Retrieves the number of times a term appears on a page.
+     * The frequency is read from the posting list of the segment of the page, so no posting lists are merged.
+     *
+     * @param  page  the page to look the term up on
+     * @param  term  the term to count
+     * @return       the number of times the term appears on the page
+     */
+    @Override
+    public int getTermFrequency(Page page, String term) {
+        for (int i = 0; i < segments.size(); i++) {
+            int docId = segments.get(i).getDocId(page);
+            if (docId >= 0 && (deleted[i] == null || !deleted[i].get(docId))) {
+                return segments.get(i).getPostings(term).frequencyOf(docId);
+            }
+        }
+        return page.getTermFrequency(term);
+    }
+
+    /**
+     * Estimates the number of bytes of heap memory used by the segments and the merged posting lists,
+     * without the dictionary shared by the segments, which is counted once by getEstimatedBytes.
+     *
+     * @return  the estimated size of the index without the dictionary in bytes
+     */
+    @Override
+    long getEstimatedSnapshotBytes() {
+        long bytes = 4L * documentLengths.length + lengthNorms.getEstimatedBytes() + titleNorms.getEstimatedBytes();
+        for (Index segment : segments) {
+            bytes += segment.getEstimatedSnapshotBytes();
+        }
+        bytes += 4L * titleLengths.length;
+        for (PostingList postings : mergedPostings.values()) {
+            bytes += postings.getEstimatedBytes();
+        }
+        for (PostingList postings : mergedTitlePostings.values()) {
+            bytes += postings.getEstimatedBytes();
+        }
+        return bytes;
+    }
+
+    /**
+     * Finds the segment holding a document.
+     *
+     * @param  docId  the id of the document
+     * @return        the position of the segment in the list of segments
+     */
+    private int segmentOf(int docId) {
+        if (docId < 0 || docId >= maxDoc) {
+            throw new IndexOutOfBoundsException("Document id " + docId + " is out of bounds for " + maxDoc);
+        }
+        int segment = Arrays.binarySearch(bases, docId);
+        return segment >= 0 ? segment : -segment - 2;
+    }
+}
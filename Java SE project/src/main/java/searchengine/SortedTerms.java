@@ -0,0 +1,658 @@
+package searchengine;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * The SortedTerms class is the sorted term dictionary of an index, used to expand prefix, wildcard and fuzzy words
+ * of a query into the words of the index they stand for. The words are kept in a sorted array next to their term ids,
+ * so all words starting with a prefix form one range of the array that is found with two binary searches.
+ * Because the words of a range share their prefix, the array is also a trie without any extra nodes:
+ * the children of a prefix are the groups of the range with the same next character, again found by binary search.
+ * Fuzzy matching walks this trie with a Levenshtein automaton, kept as one row of the edit distance table per character,
+ * and skips every prefix that is already too far from the word, so only a small part of the dictionary is visited.
+ * Wildcard matching walks it the same way with the positions of the pattern a prefix can reach.
+ * The words themselves are the Strings of the TermDictionary of the index, so the array only adds a reference per word.
+ *
+ * Every lookup returns at most a given number of words. When more words match, the best are kept: the fewest edits
+ * for fuzzy matches, and then the shortest words, which are the closest to what was typed.
+ * Picking them only needs the length of the words, which is kept as a byte per word,
+ * so no posting lists are looked at and a prefix matching a large part of the dictionary is still fast.
+ */
+public class SortedTerms {
+    /**
+     * The dictionary of an index without words.
+     */
+    static final SortedTerms EMPTY = new SortedTerms(new TermDictionary(), new String[0]);
+
+    /**
+     * The largest number of edits a fuzzy lookup allows.
+     */
+    public static final int MAX_EDITS = 2;
+
+    /**
+     * The largest number of words a single wildcard lookup checks or collects one by one.
+     */
+    public static final int MAX_SCANNED = 1 << 16;
+
+    private static final int MAX_LENGTH_KEY = 127;
+    private static final int KEYS = (MAX_EDITS + 1) * (MAX_LENGTH_KEY + 1);
+
+    private final TermDictionary dictionary;
+    private final String[] terms;
+    private final int[] termIds;
+    private final byte[] lengths;
+
+    /**
+     * Constructs the sorted dictionary of the words with the given term ids.
+     *
+     * @param dictionary  the dictionary of the index
+     * @param termIds     the ids of the words in the dictionary, in any order and without duplicates
+     */
+    SortedTerms(TermDictionary dictionary, int[] termIds) {
+        this(dictionary, sortedTerms(dictionary, termIds));
+    }
+
+    /**
+     * Constructs the sorted dictionary of words that are already sorted and unique.
+     *
+     * @param dictionary  the dictionary of the index
+     * @param terms       the words in ascending order, which must all be in the dictionary
+     */
+    private SortedTerms(TermDictionary dictionary, String[] terms) {
+        this(dictionary, terms, lookUp(dictionary, terms));
+    }
+
+    /**
+     * Constructs the sorted dictionary of words that are already sorted and unique, with their term ids.
+     *
+     * @param dictionary  the dictionary of the index
+     * @param terms       the words in ascending order
+     * @param termIds     the id of every word in the dictionary
+     */
+    private SortedTerms(TermDictionary dictionary, String[] terms, int[] termIds) {
+        this.dictionary = dictionary;
+        this.terms = terms;
+        this.termIds = termIds;
+        this.lengths = new byte[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            lengths[i] = (byte) Math.min(terms[i].length(), MAX_LENGTH_KEY);
+        }
+    }
+
+    /**
+     * Constructs the sorted dictionary of the words of an index file. The words are the first words of the dictionary
+     * and are already sorted, so the id of every word is its position and nothing has to be sorted or looked up.
+     *
+     * @param  dictionary  the dictionary of the index, which starts with the words
+     * @param  terms       the words of the file in ascending order
+     * @return             the sorted dictionary of the words
+     */
+    static SortedTerms ofIndexFile(TermDictionary dictionary, String[] terms) {
+        int[] termIds = new int[terms.length];
+        for (int i = 0; i < termIds.length; i++) {
+            termIds[i] = i;
+        }
+        return new SortedTerms(dictionary, terms, termIds);
+    }
+
+    /**
+     * Looks up the ids of words in a dictionary.
+     *
+     * @param  dictionary  the dictionary of the words
+     * @param  terms       the words, which must all be in the dictionary
+     * @return             the id of every word
+     */
+    private static int[] lookUp(TermDictionary dictionary, String[] terms) {
+        int[] termIds = new int[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            termIds[i] = dictionary.lookup(terms[i]);
+        }
+        return termIds;
+    }
+
+    /**
+     * Looks up the words with the given term ids and sorts them.
+     *
+     * @param  dictionary  the dictionary of the words
+     * @param  termIds     the ids of the words
+     * @return             the words in ascending order
+     */
+    private static String[] sortedTerms(TermDictionary dictionary, int[] termIds) {
+        String[] terms = new String[termIds.length];
+        for (int i = 0; i < terms.length; i++) {
+            terms[i] = dictionary.getTerm(termIds[i]);
+        }
+        Arrays.sort(terms);
+        return terms;
+    }
+
+    /**
+     * Merges the sorted dictionaries of several indexes into one dictionary, keeping each word once.
+     * Each dictionary is already sorted, so they are merged one after another without sorting again.
+     *
+     * @param  dictionary    the term dictionary holding every word of the dictionaries to merge
+     * @param  dictionaries  the dictionaries to merge
+     * @return               the dictionary holding every word of the given dictionaries
+     */
+    static SortedTerms merge(TermDictionary dictionary, List<SortedTerms> dictionaries) {
+        String[] merged = new String[0];
+        for (SortedTerms sorted : dictionaries) {
+            String[] other = sorted.terms;
+            String[] result = new String[merged.length + other.length];
+            int count = 0;
+            int i = 0;
+            int j = 0;
+            while (i < merged.length || j < other.length) {
+                int order = i == merged.length ? 1 : j == other.length ? -1 : merged[i].compareTo(other[j]);
+                result[count++] = order <= 0 ? merged[i++] : other[j++];
+                if (order == 0) {
+                    j++;
+                }
+            }
+            merged = Arrays.copyOf(result, count);
+        }
+        return new SortedTerms(dictionary, merged);
+    }
+
+    /**
+     * Gets the word with the given term id, as returned by the lookups.
+     *
+     * @param  termId  the id of the word
+     * @return         the word
+     */
+    public String getTerm(int termId) {
+        return dictionary.getTerm(termId);
+    }
+
+    /**
+     * Gets the number of words in the dictionary.
+     *
+     * @return  the number of words
+     */
+    public int size() {
+        return terms.length;
+    }
+
+    /**
+     * Finds the words starting with a prefix, including the prefix itself if it is a word.
+     *
+     * @param  prefix  the prefix
+     * @param  limit   the largest number of words to return
+     * @return         the term ids of the shortest matching words, shortest first and then in sorted order
+     */
+    public int[] prefix(String prefix, int limit) {
+        int low = lowerBound(prefix, 0, terms.length);
+        int high = endOfPrefix(prefix, low, terms.length);
+        return select(high - low, i -> low + i, i -> lengths[low + i], limit);
+    }
+
+    /**
+     * Finds the words matching a pattern, where '*' stands for any number of characters and '?' for exactly one.
+     * The trie of the sorted words is walked with the set of positions in the pattern that the prefix can have reached,
+     * kept as bits of a long. A literal character of the pattern jumps straight to the children with that character,
+     * a '?' visits every child, and once only a trailing '*' is left every word below the prefix matches.
+     * A '*' with more of the pattern after it can be followed by anything, so the words below the prefix are then
+     * checked one by one. Patterns too long for the bits of a long are checked one word at a time as well,
+     * but only the words starting with the characters before their first wildcard.
+     * A single lookup checks or collects at most {@value #MAX_SCANNED} words one by one, so a pattern that leaves
+     * most of a large dictionary open, such as one starting with '*', stays fast and returns the best of the words
+     * it got to instead of every match.
+     *
+     * @param  pattern  the pattern
+     * @param  limit    the largest number of words to return
+     * @return          the term ids of the shortest matching words, shortest first and then in sorted order
+     */
+    public int[] wildcard(String pattern, int limit) {
+        Matches matches = new Matches();
+        if (pattern.length() < Long.SIZE) {
+            long trailingStars = 0;
+            for (int p = pattern.length() - 1; p >= 0 && pattern.charAt(p) == '*'; p--) {
+                trailingStars |= 1L << p;
+            }
+            walk(pattern, trailingStars, closure(pattern, 1L), 0, terms.length, 0, matches);
+        } else {
+            String prefix = pattern.substring(0, literalLength(pattern));
+            int low = lowerBound(prefix, 0, terms.length);
+            scan(pattern, low, endOfPrefix(prefix, low, terms.length), matches);
+        }
+        return select(matches.size, i -> matches.indices[i], i -> matches.keys[i], limit);
+    }
+
+    /**
+     * Visits the words of a range that share a prefix of the given length with the positions of the pattern the prefix reaches.
+     *
+     * @param pattern        the pattern
+     * @param trailingStars  the positions of the stars at the end of the pattern
+     * @param states         the positions of the pattern the prefix reaches, where the length of the pattern means the whole pattern
+     * @param low            the first word of the range
+     * @param high           the end of the range
+     * @param depth          the length of the prefix shared by the words of the range
+     * @param matches        the words found so far
+     */
+    private void walk(String pattern, long trailingStars, long states, int low, int high, int depth, Matches matches) {
+        int m = pattern.length();
+        if (states == 0) {
+            return;
+        }
+        if ((states & trailingStars) != 0) {
+            for (int i = low; i < high && matches.scanned < MAX_SCANNED; i++) {
+                matches.scanned++;
+                matches.add(i, lengths[i]);
+            }
+            return;
+        }
+        int i = low;
+        if (i < high && terms[i].length() == depth) {
+            if ((states >>> m & 1) != 0) {
+                matches.add(i, lengths[i]);
+            }
+            i++;
+        }
+        boolean anyCharacter = false;
+        StringBuilder literals = new StringBuilder();
+        for (int p = 0; p < m; p++) {
+            if ((states >>> p & 1) != 0) {
+                char c = pattern.charAt(p);
+                if (c == '*') {
+                    scan(pattern, i, high, matches);
+                    return;
+                }
+                anyCharacter |= c == '?';
+                literals.append(c);
+            }
+        }
+        if (anyCharacter) {
+            while (i < high) {
+                char c = terms[i].charAt(depth);
+                int end = endOfGroup(c, depth, i, high);
+                walk(pattern, trailingStars, step(pattern, states, c), i, end, depth + 1, matches);
+                i = end;
+            }
+            return;
+        }
+        char[] characters = literals.toString().toCharArray();
+        Arrays.sort(characters);
+        for (int k = 0; k < characters.length && i < high; k++) {
+            if (k > 0 && characters[k] == characters[k - 1]) {
+                continue;
+            }
+            i = startOfGroup(characters[k], depth, i, high);
+            if (i < high && terms[i].charAt(depth) == characters[k]) {
+                int end = endOfGroup(characters[k], depth, i, high);
+                walk(pattern, trailingStars, step(pattern, states, characters[k]), i, end, depth + 1, matches);
+                i = end;
+            }
+        }
+    }
+
+    /**
+     * Checks the words of a range against a pattern, until {@value #MAX_SCANNED} words have been checked by the lookup.
+     *
+     * @param pattern  the pattern
+     * @param low      the first word of the range
+     * @param high     the end of the range
+     * @param matches  the words found so far
+     */
+    private void scan(String pattern, int low, int high, Matches matches) {
+        boolean anyLength = pattern.indexOf('*') >= 0;
+        int fixedLength = pattern.length() - (int) pattern.chars().filter(c -> c == '*').count();
+        for (int i = low; i < high && matches.scanned < MAX_SCANNED; i++) {
+            matches.scanned++;
+            int length = terms[i].length();
+            if ((anyLength ? length >= fixedLength : length == fixedLength) && matchesWildcard(pattern, terms[i])) {
+                matches.add(i, lengths[i]);
+            }
+        }
+    }
+
+    /**
+     * Counts the characters of a pattern before its first wildcard.
+     *
+     * @param  pattern  the pattern
+     * @return          the length of the literal prefix of the pattern
+     */
+    private static int literalLength(String pattern) {
+        int length = 0;
+        while (length < pattern.length() && pattern.charAt(length) != '*' && pattern.charAt(length) != '?') {
+            length++;
+        }
+        return length;
+    }
+
+    /**
+     * Adds the positions that a '*' can skip to without reading a character, since a '*' may match nothing.
+     *
+     * @param  pattern  the pattern
+     * @param  states   the positions of the pattern
+     * @return          the positions together with every position right after a '*' among them
+     */
+    private static long closure(String pattern, long states) {
+        for (int p = 0; p < pattern.length(); p++) {
+            if ((states >>> p & 1) != 0 && pattern.charAt(p) == '*') {
+                states |= 1L << (p + 1);
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Moves the positions of the pattern over one more character of a word.
+     *
+     * @param  pattern  the pattern
+     * @param  states   the positions of the pattern before the character
+     * @param  c        the character
+     * @return          the positions of the pattern after the character
+     */
+    private static long step(String pattern, long states, char c) {
+        long next = 0;
+        for (int p = 0; p < pattern.length(); p++) {
+            if ((states >>> p & 1) != 0) {
+                char expected = pattern.charAt(p);
+                if (expected == '*') {
+                    next |= 1L << p;
+                } else if (expected == '?' || expected == c) {
+                    next |= 1L << (p + 1);
+                }
+            }
+        }
+        return closure(pattern, next);
+    }
+
+    /**
+     * Finds the words that are at most a number of edits away from a word, where an edit inserts, removes
+     * or replaces a single character. The trie of the sorted words is walked depth first, computing the row of
+     * the edit distance table for every prefix from the row of its parent, and a prefix is only followed while
+     * some cell of its row is within the allowed number of edits.
+     * When a character that is not in the word would already be too far, only the children for the characters of the word
+     * can still match, and the walk jumps straight to them instead of visiting every child.
+     *
+     * @param  term      the word to match
+     * @param  maxEdits  the largest number of edits, from 0 to {@value #MAX_EDITS}
+     * @param  limit     the largest number of words to return
+     * @return           the term ids of the closest matching words, fewest edits first, then closest in length and then in sorted order
+     */
+    public int[] fuzzy(String term, int maxEdits, int limit) {
+        if (maxEdits < 0 || maxEdits > MAX_EDITS) {
+            throw new IllegalArgumentException("The number of edits must be between 0 and " + MAX_EDITS + ": " + maxEdits);
+        }
+        List<int[]> rows = new ArrayList<>();
+        int[] first = new int[term.length() + 1];
+        for (int j = 0; j < first.length; j++) {
+            first[j] = j;
+        }
+        rows.add(first);
+        char[] characters = term.chars().distinct().sorted().collect(StringBuilder::new, StringBuilder::appendCodePoint,
+                StringBuilder::append).toString().toCharArray();
+        Matches matches = new Matches();
+        walk(term, characters, maxEdits, 0, terms.length, 0, rows, matches);
+        return select(matches.size, i -> matches.indices[i], i -> matches.keys[i], limit);
+    }
+
+    /**
+     * Visits the words of a range that share a prefix of the given length, and the prefixes below it that are still close enough.
+     *
+     * @param target      the word to match
+     * @param characters  the distinct characters of the word in ascending order
+     * @param maxEdits    the largest number of edits
+     * @param low         the first word of the range
+     * @param high        the end of the range
+     * @param depth       the length of the prefix shared by the words of the range
+     * @param rows        the row of the edit distance table for each depth, where the row of this depth is already computed
+     * @param matches     the words found so far
+     */
+    private void walk(String target, char[] characters, int maxEdits, int low, int high, int depth, List<int[]> rows, Matches matches) {
+        int[] row = rows.get(depth);
+        int n = target.length();
+        int i = low;
+        if (i < high && terms[i].length() == depth) {
+            if (row[n] <= maxEdits) {
+                matches.add(i, row[n] * (MAX_LENGTH_KEY + 1) + Math.min(Math.abs(depth - n), MAX_LENGTH_KEY));
+            }
+            i++;
+        }
+        if (i == high) {
+            return;
+        }
+        if (rows.size() == depth + 1) {
+            rows.add(new int[n + 1]);
+        }
+        int[] next = rows.get(depth + 1);
+        if (nextRow(target, row, next, depth, -1) > maxEdits) {
+            for (char c : characters) {
+                i = startOfGroup(c, depth, i, high);
+                if (i == high) {
+                    return;
+                }
+                if (terms[i].charAt(depth) == c) {
+                    int end = endOfGroup(c, depth, i, high);
+                    if (nextRow(target, row, next, depth, c) <= maxEdits) {
+                        walk(target, characters, maxEdits, i, end, depth + 1, rows, matches);
+                    }
+                    i = end;
+                }
+            }
+            return;
+        }
+        while (i < high) {
+            char c = terms[i].charAt(depth);
+            int end = endOfGroup(c, depth, i, high);
+            if (nextRow(target, row, next, depth, c) <= maxEdits) {
+                walk(target, characters, maxEdits, i, end, depth + 1, rows, matches);
+            }
+            i = end;
+        }
+    }
+
+    /**
+     * Computes the row of the edit distance table for a prefix followed by one more character.
+     *
+     * @param  target  the word to match
+     * @param  row     the row of the prefix
+     * @param  next    the array the row of the longer prefix is written to
+     * @param  depth   the length of the prefix
+     * @param  c       the next character, or -1 for the row of every character that is not in the word
+     * @return         the smallest number of edits in the new row
+     */
+    private static int nextRow(String target, int[] row, int[] next, int depth, int c) {
+        next[0] = depth + 1;
+        int closest = next[0];
+        for (int j = 1; j < next.length; j++) {
+            int replace = row[j - 1] + (target.charAt(j - 1) == c ? 0 : 1);
+            next[j] = Math.min(replace, Math.min(row[j], next[j - 1]) + 1);
+            closest = Math.min(closest, next[j]);
+        }
+        return closest;
+    }
+
+    /**
+     * Finds the first word of a range that is not smaller than a key.
+     *
+     * @param  key   the key
+     * @param  low   the first word of the range
+     * @param  high  the end of the range
+     * @return       the position of the first word that is at least the key, or high if there is none
+     */
+    private int lowerBound(String key, int low, int high) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (terms[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the end of the words starting with a prefix, given the first word that is at least the prefix.
+     *
+     * @param  prefix  the prefix
+     * @param  low     the first word that is at least the prefix
+     * @param  high    the end of the range to search
+     * @return         the position after the last word starting with the prefix
+     */
+    private int endOfPrefix(String prefix, int low, int high) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (terms[middle].startsWith(prefix)) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the first word of a range that has at least the given character after their shared prefix.
+     *
+     * @param  c      the character
+     * @param  depth  the length of the shared prefix, which is shorter than every word of the range
+     * @param  low    the first word of the range
+     * @param  high   the end of the range
+     * @return        the position of the first word with at least the character at the depth, or high if there is none
+     */
+    private int startOfGroup(char c, int depth, int low, int high) {
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (terms[middle].charAt(depth) < c) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Finds the end of the words of a range that have the given character after their shared prefix.
+     * Most groups are small, so the search first doubles its step from the start of the group
+     * and only then searches the last step by halving it.
+     *
+     * @param  c      the character
+     * @param  depth  the length of the shared prefix, which is shorter than every word of the range
+     * @param  low    the first word of the range, which has the character at the depth
+     * @param  high   the end of the range
+     * @return        the position after the last word with the character at the depth
+     */
+    private int endOfGroup(char c, int depth, int low, int high) {
+        int step = 1;
+        while (low + step < high && terms[low + step].charAt(depth) <= c) {
+            low += step;
+            step <<= 1;
+        }
+        high = Math.min(high, low + step);
+        low++;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (terms[middle].charAt(depth) <= c) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Checks whether a word matches a wildcard pattern.
+     * A '*' first matches nothing and is extended one character at a time whenever the rest of the pattern fails.
+     *
+     * @param  pattern  the pattern
+     * @param  word     the word
+     * @return          true if the whole word matches the pattern, false otherwise
+     */
+    static boolean matchesWildcard(String pattern, String word) {
+        int p = 0;
+        int w = 0;
+        int star = -1;
+        int starMatch = 0;
+        while (w < word.length()) {
+            if (p < pattern.length() && (pattern.charAt(p) == '?' || pattern.charAt(p) == word.charAt(w))) {
+                p++;
+                w++;
+            } else if (p < pattern.length() && pattern.charAt(p) == '*') {
+                star = p++;
+                starMatch = w;
+            } else if (star >= 0) {
+                p = star + 1;
+                w = ++starMatch;
+            } else {
+                return false;
+            }
+        }
+        while (p < pattern.length() && pattern.charAt(p) == '*') {
+            p++;
+        }
+        return p == pattern.length();
+    }
+
+    /**
+     * Picks the matches with the smallest keys, keeping matches with the same key in sorted order.
+     * The keys are small, so the matches are counted per key and placed with a counting sort in two passes.
+     *
+     * @param  count    the number of matches
+     * @param  indexAt  gives the position in the dictionary of each match
+     * @param  keyAt    gives the key of each match, from 0 to the number of keys
+     * @param  limit    the largest number of matches to return
+     * @return          the term ids of the picked matches, ordered by key
+     */
+    private int[] select(int count, IntUnaryOperator indexAt, IntUnaryOperator keyAt, int limit) {
+        int[] starts = new int[KEYS + 1];
+        for (int i = 0; i < count; i++) {
+            starts[keyAt.applyAsInt(i) + 1]++;
+        }
+        for (int key = 0; key < KEYS; key++) {
+            starts[key + 1] += starts[key];
+        }
+        int[] result = new int[Math.min(count, limit)];
+        for (int i = 0; i < count; i++) {
+            int slot = starts[keyAt.applyAsInt(i)]++;
+            if (slot < result.length) {
+                result[slot] = termIds[indexAt.applyAsInt(i)];
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Estimates the number of bytes of heap memory used by the dictionary, not counting the words themselves,
+     * which are held by the TermDictionary of the index.
+     *
+     * @return  the size of the arrays in bytes, including their object headers
+     */
+    public long getEstimatedBytes() {
+        return 3 * 16 + 9L * terms.length;
+    }
+
+    /**
+     * The positions in the dictionary and the keys of the words found by a lookup,
+     * and the number of words the lookup has checked or collected one by one.
+     */
+    private static final class Matches {
+        int[] indices = new int[16];
+        int[] keys = new int[16];
+        int size;
+        int scanned;
+
+        /**
+         * Adds a word to the matches.
+         *
+         * @param index  the position of the word in the dictionary
+         * @param key    the key the best matches are picked by
+         */
+        void add(int index, int key) {
+            if (size == indices.length) {
+                indices = Arrays.copyOf(indices, size * 2);
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            indices[size] = index;
+            keys[size] = key;
+            size++;
+        }
+    }
+}
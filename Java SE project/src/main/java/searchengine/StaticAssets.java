@@ -0,0 +1,284 @@
+package searchengine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.net.httpserver.HttpExchange;
+
+/**
+ * The StaticAssets class keeps the files of the web directory in memory, so serving them does not touch the disk.
+ * Each file is loaded once together with a gzip compressed copy and an ETag. Responses carry caching headers,
+ * and a request whose If-None-Match header matches the current ETag is answered with 304 Not Modified.
+ * Optionally the directory can be watched, so changed files are reloaded while the server is running.
+ */
+public class StaticAssets {
+    static final String CACHE_CONTROL = "no-cache";
+
+    private static final Map<String, String> MIME_TYPES = Map.of(
+            "html", "text/html",
+            "js", "application/javascript",
+            "css", "text/css",
+            "ico", "image/x-icon",
+            "png", "image/png",
+            "svg", "image/svg+xml",
+            "json", "application/json");
+
+    private final Path directory;
+    private final Map<String, Asset> assets = new ConcurrentHashMap<>();
+    private WatchService watchService;
+
+    /**
+     * A single file of the web directory, with its gzip compressed copy and ETags.
+     */
+    public static final class Asset {
+        private final byte[] content;
+        private final byte[] gzipContent;
+        private final String mime;
+        private final String etag;
+
+        private Asset(byte[] content, String mime) {
+            this.content = content;
+            this.mime = mime;
+            CRC32 crc = new CRC32();
+            crc.update(content);
+            this.etag = Long.toHexString(crc.getValue()) + "-" + Integer.toHexString(content.length);
+            byte[] compressed = gzip(content);
+            this.gzipContent = compressed.length < content.length ? compressed : null;
+        }
+
+        /**
+         * Gets the uncompressed content of the file.
+         * @return the content of the file.
+         */
+        public byte[] getContent() {
+            return content;
+        }
+
+        /**
+         * Gets the gzip compressed content of the file.
+         * @return the compressed content, or null if compressing does not make the file smaller.
+         */
+        public byte[] getGzipContent() {
+            return gzipContent;
+        }
+
+        /**
+         * Gets the mime type of the file.
+         * @return the mime type derived from the file extension.
+         */
+        public String getMime() {
+            return mime;
+        }
+
+        /**
+         * Gets the quoted ETag of the uncompressed or the compressed content.
+         * @param gzip whether the ETag of the compressed content is wanted.
+         * @return the ETag, which changes whenever the content of the file changes.
+         */
+        public String getEtag(boolean gzip) {
+            return "\"" + etag + (gzip ? "-gzip" : "") + "\"";
+        }
+
+        /**
+         * Checks whether the value of an If-None-Match header matches one of the ETags of the file.
+         * @param ifNoneMatch the value of the header, which may list several ETags separated by commas.
+         * @return true if the client already has the current content, false otherwise.
+         */
+        public boolean matches(String ifNoneMatch) {
+            if (ifNoneMatch == null) {
+                return false;
+            }
+            for (String tag : ifNoneMatch.split(",")) {
+                String trimmed = tag.trim();
+                if (trimmed.startsWith("W/")) {
+                    trimmed = trimmed.substring(2);
+                }
+                if (trimmed.equals("*") || trimmed.equals(getEtag(false)) || trimmed.equals(getEtag(true))) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Constructs a StaticAssets object and loads every file in the given directory.
+     *
+     * @param directory the directory containing the files of the web interface.
+     */
+    public StaticAssets(String directory) {
+        this.directory = Paths.get(directory);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(this.directory)) {
+            for (Path file : files) {
+                load(file);
+            }
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Gets a loaded file by its name.
+     *
+     * @param  name  the name of the file within the directory
+     * @return       the file, or null if there is no such file
+     */
+    public Asset get(String name) {
+        return assets.get(name);
+    }
+
+    /**
+     * Responds to an HTTP request with a file from memory.
+     * The compressed copy is sent to clients that accept gzip, and clients that already have the current
+     * content are answered with 304 Not Modified and no body.
+     *
+     * @param io    the HTTP exchange object representing the request and response
+     * @param name  the name of the file within the directory
+     */
+    public void serve(HttpExchange io, String name) {
+        Asset asset = assets.get(name);
+        if (asset == null) {
+            WebServer.respond(io, 404, "text/plain", "Not found".getBytes(WebServer.CHARSET));
+            return;
+        }
+        try {
+            String acceptEncoding = io.getRequestHeaders().getFirst("Accept-Encoding");
+            boolean gzip = asset.getGzipContent() != null && acceptEncoding != null && acceptEncoding.contains("gzip");
+            var headers = io.getResponseHeaders();
+            headers.set("ETag", asset.getEtag(gzip));
+            headers.set("Cache-Control", CACHE_CONTROL);
+            headers.set("Vary", "Accept-Encoding");
+            if (asset.matches(io.getRequestHeaders().getFirst("If-None-Match"))) {
+                io.sendResponseHeaders(304, -1);
+                return;
+            }
+            byte[] body = gzip ? asset.getGzipContent() : asset.getContent();
+            headers.set("Content-Type", String.format("%s; charset=%s", asset.getMime(), WebServer.CHARSET.name()));
+            if (gzip) {
+                headers.set("Content-Encoding", "gzip");
+            }
+            io.sendResponseHeaders(200, body.length);
+            io.getResponseBody().write(body);
+        } catch (IOException e) {
+        } finally {
+            io.close();
+        }
+    }
+
+    /**
+     * Starts watching the directory on a background thread and reloads files when they are created or changed.
+     * Deleted files are no longer served.
+     *
+     * @throws IOException if the directory cannot be watched
+     */
+    public synchronized void watch() throws IOException {
+        if (watchService != null) {
+            return;
+        }
+        watchService = directory.getFileSystem().newWatchService();
+        directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        Thread watcher = new Thread(this::processEvents, "static-assets-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+    }
+
+    /**
+     * Stops watching the directory.
+     */
+    public synchronized void stopWatching() {
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+            watchService = null;
+        }
+    }
+
+    /**
+     * Waits for changes in the directory and applies them, until the watch service is closed.
+     */
+    private void processEvents() {
+        WatchService service = watchService;
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                for (WatchEvent<?> event : key.pollEvents()) {
+                    if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                        continue;
+                    }
+                    Path file = directory.resolve((Path) event.context());
+                    if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                        assets.remove(file.getFileName().toString());
+                    } else {
+                        load(file);
+                    }
+                }
+                if (!key.reset()) {
+                    return;
+                }
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher was stopped.
+        }
+    }
+
+    /**
+     * Loads a single file into memory, replacing any earlier version of it.
+     *
+     * @param file the path of the file to load
+     */
+    private void load(Path file) {
+        if (!Files.isRegularFile(file)) {
+            return;
+        }
+        try {
+            String name = file.getFileName().toString();
+            assets.put(name, new Asset(Files.readAllBytes(file), mimeType(name)));
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Finds the mime type of a file from its extension.
+     *
+     * @param  name  the name of the file
+     * @return       the mime type, or application/octet-stream for unknown extensions
+     */
+    static String mimeType(String name) {
+        String extension = name.substring(name.lastIndexOf('.') + 1).toLowerCase();
+        return MIME_TYPES.getOrDefault(extension, "application/octet-stream");
+    }
+
+    /**
+     * Compresses bytes with gzip.
+     *
+     * @param  content  the bytes to compress
+     * @return          the compressed bytes
+     */
+    private static byte[] gzip(byte[] content) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,291 @@
+package searchengine;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The StoredFields class keeps the content of the pages on disk, so an index can drop the content of its pages
+ * from memory once they are indexed and still show the words of a page when they are needed, for example for snippets.
+ *
+ * The pages are stored in id order in blocks of {@value #BLOCK_SIZE} pages, and every block is compressed
+ * with Deflater on its own. A table at the end of the file holds the position of every block, so the content of
+ * a page is found by reading a single block. The file starts with a header holding a magic number, the format version,
+ * the size and modification time of the dataset, the number of pages and blocks, the position of the block table
+ * and the CRC32 checksum of the table. The header ends with a checksum of itself.
+ * Only the block table is held in memory, which is a few bytes per block.
+ */
+public class StoredFields {
+    /**
+     * The extension added to the name of a dataset to get the name of its stored fields file.
+     */
+    public static final String EXTENSION = ".stored";
+
+    static final int MAGIC = 0x53454653;
+    static final int VERSION = 1;
+    static final int BLOCK_SIZE = 16;
+    static final int HEADER_SIZE = 4 + 4 + 8 + 8 + 4 + 4 + 8 + 8 + 8;
+
+    private final ByteBuffer data;
+    private final long[] blockOffsets;
+    private final int documentCount;
+
+    /**
+     * Constructs a StoredFields object for a mapped file.
+     *
+     * @param data           the mapped contents of the file
+     * @param blockOffsets   the position of every block, followed by the position of the block table
+     * @param documentCount  the number of pages in the file
+     */
+    private StoredFields(ByteBuffer data, long[] blockOffsets, int documentCount) {
+        this.data = data;
+        this.blockOffsets = blockOffsets;
+        this.documentCount = documentCount;
+    }
+
+    /**
+     * Writes the content of every page of an index that has not been deleted to a file.
+     * The remaining pages are numbered without gaps, in the same way as IndexSegment numbers them.
+     * The file is first written next to the target and then moved into place.
+     *
+     * @param  index        the index whose pages still have their content
+     * @param  file         the path of the stored fields file
+     * @param  source       the dataset the index was built from, or null if it has none
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    public static void write(Index index, Path file, Path source) throws IOException {
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        List<Long> offsets = new ArrayList<>();
+        int documentCount = 0;
+        try (FileChannel channel = FileChannel.open(temporary, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_SIZE);
+            ByteArrayOutputStream block = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(block);
+            Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+            byte[] compressed = new byte[1 << 16];
+            try {
+                for (int docId = 0; docId < index.getMaxDoc(); docId++) {
+                    if (index.isDeleted(docId)) {
+                        continue;
+                    }
+                    List<String> content = index.getPage(docId).getContent();
+                    out.writeInt(content.size());
+                    for (String word : content) {
+                        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+                        out.writeInt(bytes.length);
+                        out.write(bytes);
+                    }
+                    documentCount++;
+                    if (documentCount % BLOCK_SIZE == 0) {
+                        offsets.add(channel.position());
+                        writeBlock(channel, block, deflater, compressed);
+                    }
+                }
+                if (block.size() > 0) {
+                    offsets.add(channel.position());
+                    writeBlock(channel, block, deflater, compressed);
+                }
+            } finally {
+                deflater.end();
+            }
+
+            long tablePosition = channel.position();
+            ByteBuffer table = ByteBuffer.allocate(8 * offsets.size());
+            for (long offset : offsets) {
+                table.putLong(offset);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(table.array());
+            table.flip();
+            while (table.hasRemaining()) {
+                channel.write(table);
+            }
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION);
+            header.putLong(source == null ? -1 : Files.size(source));
+            header.putLong(source == null ? -1 : Files.getLastModifiedTime(source).toMillis());
+            header.putInt(documentCount).putInt(offsets.size());
+            header.putLong(tablePosition).putLong(crc.getValue());
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(header.array(), 0, HEADER_SIZE - 8);
+            header.putLong(headerCrc.getValue());
+            header.flip();
+            channel.write(header, 0);
+            channel.force(true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Compresses a block of pages and writes it to the file, preceded by its uncompressed length.
+     * The block buffer is emptied afterwards.
+     *
+     * @param  channel      the channel of the file being written
+     * @param  block        the uncompressed pages of the block
+     * @param  deflater     the compressor, which is reset for the next block
+     * @param  compressed   a buffer for the compressed bytes
+     * @throws IOException  if an I/O error occurs while writing
+     */
+    private static void writeBlock(FileChannel channel, ByteArrayOutputStream block, Deflater deflater,
+                                   byte[] compressed) throws IOException {
+        byte[] raw = block.toByteArray();
+        block.reset();
+        ByteBuffer length = ByteBuffer.allocate(4).putInt(raw.length);
+        length.flip();
+        channel.write(length);
+        deflater.reset();
+        deflater.setInput(raw);
+        deflater.finish();
+        while (!deflater.finished()) {
+            int count = deflater.deflate(compressed);
+            channel.write(ByteBuffer.wrap(compressed, 0, count));
+        }
+    }
+
+    /**
+     * Opens a stored fields file by memory mapping it. Only the block table is read into memory.
+     *
+     * @param  file         the path of the stored fields file
+     * @param  source       the dataset the file should have been built from, or null to skip this check
+     * @return              the stored fields of the file
+     * @throws IOException  if the file cannot be read, is corrupted, has another version, or is older than the dataset
+     */
+    public static StoredFields open(Path file, Path source) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() < HEADER_SIZE) {
+                throw new IOException("Stored fields file is too short: " + file);
+            }
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] headerBytes = new byte[HEADER_SIZE];
+            data.get(headerBytes);
+            ByteBuffer header = ByteBuffer.wrap(headerBytes);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("Not a stored fields file: " + file);
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported stored fields version " + version + " in " + file);
+            }
+            CRC32 headerCrc = new CRC32();
+            headerCrc.update(headerBytes, 0, HEADER_SIZE - 8);
+            if (header.getLong(HEADER_SIZE - 8) != headerCrc.getValue()) {
+                throw new IOException("Stored fields header checksum mismatch in " + file);
+            }
+            long sourceSize = header.getLong();
+            long sourceModified = header.getLong();
+            if (source != null && (sourceSize != Files.size(source)
+                    || sourceModified != Files.getLastModifiedTime(source).toMillis())) {
+                throw new IOException("Stored fields file " + file + " is stale, the dataset has changed");
+            }
+            int documentCount = header.getInt();
+            int blockCount = header.getInt();
+            long tablePosition = header.getLong();
+            long expected = header.getLong();
+            if (tablePosition + 8L * blockCount > channel.size()) {
+                throw new IOException("Stored fields file is truncated: " + file);
+            }
+            ByteBuffer table = data.duplicate();
+            table.position(Math.toIntExact(tablePosition));
+            table.limit(Math.toIntExact(tablePosition + 8L * blockCount));
+            CRC32 crc = new CRC32();
+            crc.update(table.duplicate());
+            if (crc.getValue() != expected) {
+                throw new IOException("Stored fields table checksum mismatch in " + file);
+            }
+            long[] blockOffsets = new long[blockCount + 1];
+            for (int i = 0; i < blockCount; i++) {
+                blockOffsets[i] = table.getLong();
+            }
+            blockOffsets[blockCount] = tablePosition;
+            return new StoredFields(data, blockOffsets, documentCount);
+        }
+    }
+
+    /**
+     * Reads the content of a page by decompressing its block.
+     *
+     * @param  docId  the id of the page
+     * @return        the words of the page in the order they appear
+     * @throws UncheckedIOException  if the block of the page is corrupted
+     */
+    public List<String> getContent(int docId) {
+        if (docId < 0 || docId >= documentCount) {
+            throw new IndexOutOfBoundsException("Document id " + docId + " is out of bounds for " + documentCount);
+        }
+        int blockIndex = docId / BLOCK_SIZE;
+        ByteBuffer block = data.duplicate();
+        block.position(Math.toIntExact(blockOffsets[blockIndex]));
+        block.limit(Math.toIntExact(blockOffsets[blockIndex + 1]));
+        byte[] raw = new byte[block.getInt()];
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(block);
+            int read = 0;
+            while (read < raw.length && !inflater.finished()) {
+                int count = inflater.inflate(raw, read, raw.length - read);
+                if (count == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                read += count;
+            }
+            if (read != raw.length) {
+                throw new DataFormatException("Block " + blockIndex + " is truncated");
+            }
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("Stored fields block is corrupted", e));
+        } finally {
+            inflater.end();
+        }
+
+        ByteBuffer pages = ByteBuffer.wrap(raw);
+        for (int skip = docId % BLOCK_SIZE; skip > 0; skip--) {
+            int words = pages.getInt();
+            for (int i = 0; i < words; i++) {
+                int length = pages.getInt();
+                pages.position(pages.position() + length);
+            }
+        }
+        int words = pages.getInt();
+        List<String> content = new ArrayList<>(words);
+        for (int i = 0; i < words; i++) {
+            int length = pages.getInt();
+            content.add(new String(raw, pages.position(), length, StandardCharsets.UTF_8));
+            pages.position(pages.position() + length);
+        }
+        return content;
+    }
+
+    /**
+     * Retrieves the number of pages in the file.
+     *
+     * @return  the number of pages
+     */
+    public int getDocumentCount() {
+        return documentCount;
+    }
+
+    /**
+     * Estimates the number of bytes of heap memory used by the block table. The blocks themselves are mapped.
+     *
+     * @return  the estimated size in bytes
+     */
+    public long getEstimatedBytes() {
+        return 64 + 8L * blockOffsets.length;
+    }
+}
@@ -0,0 +1,130 @@
+package searchengine;
+
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The TermDictionary class gives every distinct term of an index a dense integer id.
+ * Pages store the ids of their terms instead of Strings, and the posting lists are looked up by id,
+ * so each distinct term is held in memory as a String only once, in the dictionary of its index.
+ * Every Index has a dictionary of its own, filled by the IndexBuilder that built it, so the terms of an index
+ * are let go together with the index once it has been replaced, and two indexes in one program do not share ids.
+ * Ids are never reused or removed, so an id stays valid for as long as the dictionary is used.
+ * Looking terms up is lock free, and adding a new term takes a short lock.
+ *
+ * A dictionary opened from an index file starts with the sorted terms of the file, which get the ids 0 and up
+ * in their sorted order. They are looked up by binary search in the array read from the file, so they cost a reference
+ * per term instead of an entry in the map, and terms added later get the ids following them.
+ */
+public class TermDictionary {
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final String[] sorted;
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private volatile String[] terms = new String[INITIAL_CAPACITY];
+    private int size;
+    private volatile long characters;
+
+    /**
+     * Constructs an empty TermDictionary.
+     */
+    public TermDictionary() {
+        this(new String[0]);
+    }
+
+    /**
+     * Constructs a TermDictionary holding the sorted terms of an index file.
+     * The array is kept as it is and must not be changed afterwards.
+     *
+     * @param sortedTerms  the terms in ascending order and without duplicates, which get the ids 0 and up
+     */
+    TermDictionary(String[] sortedTerms) {
+        this.sorted = sortedTerms;
+        long length = 0;
+        for (String term : sortedTerms) {
+            length += term.length();
+        }
+        this.characters = length;
+    }
+
+    /**
+     * Finds the id of a term.
+     *
+     * @param  term  the term to look up
+     * @return       the id of the term, or -1 if the term has never been added
+     */
+    public int lookup(String term) {
+        int base = sorted.length == 0 ? -1 : Arrays.binarySearch(sorted, term);
+        if (base >= 0) {
+            return base;
+        }
+        Integer id = ids.get(term);
+        return id == null ? -1 : id;
+    }
+
+    /**
+     * Finds the id of a term, and gives the term the next free id if it has none yet.
+     *
+     * @param  term  the term to look up or add
+     * @return       the id of the term
+     */
+    public int getOrAdd(String term) {
+        int id = lookup(term);
+        return id >= 0 ? id : add(term);
+    }
+
+    /**
+     * Adds a term under the lock, unless another thread added it first.
+     * The term is stored in the array before its id is published in the map,
+     * so a thread that finds the id can always read the term.
+     *
+     * @param  term  the term to add
+     * @return       the id of the term
+     */
+    private synchronized int add(String term) {
+        Integer existing = ids.get(term);
+        if (existing != null) {
+            return existing;
+        }
+        String[] current = terms;
+        if (size == current.length) {
+            current = Arrays.copyOf(current, size * 2);
+        }
+        current[size] = term;
+        terms = current;
+        characters += term.length();
+        int id = sorted.length + size++;
+        ids.put(term, id);
+        return id;
+    }
+
+    /**
+     * Gets the term with the given id.
+     *
+     * @param  id  the id of the term
+     * @return     the term
+     */
+    public String getTerm(int id) {
+        return id < sorted.length ? sorted[id] : terms[id - sorted.length];
+    }
+
+    /**
+     * Gets the number of terms in the dictionary.
+     *
+     * @return the number of distinct terms added so far
+     */
+    public int size() {
+        return sorted.length + ids.size();
+    }
+
+    /**
+     * Estimates the number of bytes of heap memory used by the dictionary, counting the terms themselves,
+     * the entries of the map from term to id, the array from id to term and the sorted terms of an index file.
+     *
+     * @return the estimated size of the dictionary in bytes
+     */
+    public long getEstimatedBytes() {
+        String[] current = terms;
+        return 64 + 2 * 16 + 4L * current.length + 44L * sorted.length + 2 * characters + 104L * ids.size();
+    }
+}
@@ -0,0 +1,199 @@
+package searchengine;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * The TermExpander class rewrites the prefix, wildcard and fuzzy words of a query into the words of an index they stand for.
+ * - A word ending in '*', such as dog*, matches every word starting with the rest of it.
+ * - A word holding '*' or '?' anywhere else, such as d?g or d*g, is a wildcard pattern, where '*' stands for
+ *   any number of characters and '?' for exactly one.
+ * - A word ending in '~', '~0', '~1' or '~2', such as colour~1, matches the words that are at most that many edits away.
+ *   Without a number, words of up to 2 characters must match exactly, words of up to 5 characters allow one edit
+ *   and longer words allow two.
+ * A word that starts with a wildcard, or is made of nothing but wildcards, is an ordinary word, since such a pattern
+ * would have to be checked against nearly every word of the dictionary.
+ *
+ * Every such word is expanded into at most {@value #MAX_EXPANSIONS} words with the sorted dictionary of the index.
+ * A part holding expanded words is then replaced by one part for every combination of their expansions,
+ * so the expanded words are combined by the evaluator of OR queries and scored like the words of any other part.
+ * A part is never replaced by more than {@value #MAX_PARTS} parts: the words with the most expansions keep fewer of them.
+ * A word that matches nothing in the index is kept as it is, so its part only matches pages holding it literally.
+ */
+public class TermExpander {
+    /**
+     * The largest number of words a single prefix, wildcard or fuzzy word is expanded into.
+     */
+    public static final int MAX_EXPANSIONS = 50;
+
+    /**
+     * The largest number of parts a single query part is replaced by.
+     */
+    public static final int MAX_PARTS = 256;
+
+    /**
+     * Checks whether a word of a query is a prefix, wildcard or fuzzy word.
+     *
+     * @param  word  the word
+     * @return       true if the word is expanded against the index, false if it is an ordinary word
+     */
+    public static boolean isPattern(String word) {
+        return fuzzyEdits(word) >= 0 || isWildcard(word);
+    }
+
+    /**
+     * Finds the number of edits a fuzzy word allows.
+     *
+     * @param  word  the word
+     * @return       the number of edits, or -1 if the word is not a fuzzy word
+     */
+    private static int fuzzyEdits(String word) {
+        int tilde = word.lastIndexOf('~');
+        if (tilde <= 0 || tilde < word.length() - 2) {
+            return -1;
+        }
+        if (tilde == word.length() - 1) {
+            return tilde <= 2 ? 0 : tilde <= 5 ? 1 : 2;
+        }
+        int edits = word.charAt(tilde + 1) - '0';
+        return edits >= 0 && edits <= SortedTerms.MAX_EDITS ? edits : -1;
+    }
+
+    /**
+     * Checks whether a word holds a wildcard after a first character that is not a wildcard.
+     *
+     * @param  word  the word
+     * @return       true if the word is a prefix or wildcard pattern, false otherwise
+     */
+    private static boolean isWildcard(String word) {
+        if (word.isEmpty() || word.charAt(0) == '*' || word.charAt(0) == '?') {
+            return false;
+        }
+        return word.indexOf('*') > 0 || word.indexOf('?') > 0;
+    }
+
+    /**
+     * Expands a single word into the words of an index it stands for.
+     *
+     * @param  word   the prefix, wildcard or fuzzy word
+     * @param  terms  the sorted dictionary of the index
+     * @param  limit  the largest number of words to return
+     * @return        the matching words, best first, or an empty list if the word is not a pattern or matches nothing
+     */
+    public static List<String> expand(String word, SortedTerms terms, int limit) {
+        int[] termIds;
+        int edits = fuzzyEdits(word);
+        if (edits >= 0) {
+            termIds = terms.fuzzy(word.substring(0, word.lastIndexOf('~')), edits, limit);
+        } else if (!isWildcard(word)) {
+            termIds = new int[0];
+        } else if (word.indexOf('*') == word.length() - 1 && word.indexOf('?') < 0) {
+            termIds = terms.prefix(word.substring(0, word.length() - 1), limit);
+        } else {
+            termIds = terms.wildcard(word, limit);
+        }
+        List<String> words = new ArrayList<>(termIds.length);
+        for (int termId : termIds) {
+            words.add(terms.getTerm(termId));
+        }
+        return words;
+    }
+
+    /**
+     * Expands every prefix, wildcard and fuzzy word of a query against an index.
+     * The sorted dictionary of the index is only used when the query holds such a word.
+     *
+     * @param  query  the query
+     * @param  index  the index to expand the words against
+     * @return        the query itself if it has no words to expand, otherwise a query with the expanded parts
+     */
+    public static Query expand(Query query, Index index) {
+        if (query.getQueryParts() == null || query.getQueryParts().stream().flatMap(Set::stream).noneMatch(TermExpander::isPattern)) {
+            return query;
+        }
+        SortedTerms terms = index.getSortedTerms();
+        List<Set<String>> parts = new ArrayList<>();
+        List<Set<ProximityClause>> clauses = new ArrayList<>();
+        for (int i = 0; i < query.getQueryParts().size(); i++) {
+            Set<String> words = query.getQueryParts().get(i);
+            Set<ProximityClause> partClauses = query.getProximityClauses().get(i);
+            List<String> patterns = new ArrayList<>(new TreeSet<>(words));
+            patterns.removeIf(word -> !isPattern(word));
+            List<List<String>> expansions = new ArrayList<>();
+            for (String pattern : patterns) {
+                List<String> expanded = expand(pattern, terms, MAX_EXPANSIONS);
+                expansions.add(expanded.isEmpty() ? List.of(pattern) : expanded);
+            }
+            limitCombinations(expansions);
+            int[] choices = new int[patterns.size()];
+            do {
+                Map<String, String> replacements = new HashMap<>();
+                for (int j = 0; j < choices.length; j++) {
+                    replacements.put(patterns.get(j), expansions.get(j).get(choices[j]));
+                }
+                Set<String> expandedWords = new HashSet<>();
+                for (String word : words) {
+                    expandedWords.add(replacements.getOrDefault(word, word));
+                }
+                Set<ProximityClause> expandedClauses = new LinkedHashSet<>();
+                for (ProximityClause clause : partClauses) {
+                    List<String> clauseWords = new ArrayList<>();
+                    for (String word : clause.getWords()) {
+                        clauseWords.add(replacements.getOrDefault(word, word));
+                    }
+                    expandedClauses.add(clause.withWords(clauseWords));
+                }
+                parts.add(expandedWords);
+                clauses.add(expandedClauses);
+            } while (nextCombination(choices, expansions));
+        }
+        return new Query(parts, clauses);
+    }
+
+    /**
+     * Shortens the longest lists of expansions until the number of combinations is at most {@value #MAX_PARTS}.
+     * The expansions are ordered best first, so only the worst expansions are dropped.
+     *
+     * @param expansions  the expansions of every word of a part
+     */
+    private static void limitCombinations(List<List<String>> expansions) {
+        while (true) {
+            long combinations = 1;
+            int longest = -1;
+            for (int i = 0; i < expansions.size(); i++) {
+                combinations *= expansions.get(i).size();
+                if (longest < 0 || expansions.get(i).size() > expansions.get(longest).size()) {
+                    longest = i;
+                }
+            }
+            if (combinations <= MAX_PARTS) {
+                return;
+            }
+            List<String> list = expansions.get(longest);
+            expansions.set(longest, list.subList(0, (list.size() + 1) / 2));
+        }
+    }
+
+    /**
+     * Moves to the next combination of expansions, counting like an odometer.
+     *
+     * @param  choices     the chosen expansion of every word, which is changed to the next combination
+     * @param  expansions  the expansions of every word
+     * @return             true if there is a next combination, false if every combination has been visited
+     */
+    private static boolean nextCombination(int[] choices, List<List<String>> expansions) {
+        for (int i = choices.length - 1; i >= 0; i--) {
+            if (++choices[i] < expansions.get(i).size()) {
+                return true;
+            }
+            choices[i] = 0;
+        }
+        return false;
+    }
+}
@@ -1,6 +1,5 @@
 package searchengine;
 
-import java.util.Map;
 import java.util.Set;
 
 /**
@@ -15,9 +14,10 @@ public class TermFrequencyInverseDocumentScore implements ScoringMethod {
      * Calculates the TF-IDF score of a given page for a specified query.
      * The score is determined by iterating over each term in the query and computing its term frequency (TF)
      * and inverse document frequency (IDF). The TF is the number of times a term appears in the page,
-     * normalized by the total number of terms in the page. The IDF is calculated as the logarithm of
-     * the ratio of the total number of documents to the number of documents containing the term.
+     * as stored in the posting list of the term, normalized by the total number of terms in the page.
+     * The IDF is calculated as the logarithm of the ratio of the total number of documents to the number of documents containing the term.
      * 
+     * @param index The {@code Index} the page belongs to, which provides the document frequencies.
      * @param page  The {@code Page} object representing the web page to be scored.
      * @param query The {@code Query} object representing the search query.
      * @return      The calculated TF-IDF score as a double. Higher scores indicate greater relevance
@@ -25,10 +25,8 @@ public class TermFrequencyInverseDocumentScore implements ScoringMethod {
      *              or is not present in the document frequencies, its contribution to the score is zero.
      */
     @Override
-    public double score(Page page, Query query) {
-        Map<String, Integer> termFrequencies = page.getTermFrequencies();
-        Map<String, Integer> documentFrequencies = PageLoader.getDocumentFrequencies();
-        int totalDocuments = PageLoader.getTotalDocuments();
+    public double score(Index index, Page page, Query query) {
+        int totalDocuments = index.getTotalDocuments();
         int totalTermsInDocument = page.getTotalTerms();
 
         double score = 0;
@@ -36,8 +34,8 @@ public class TermFrequencyInverseDocumentScore implements ScoringMethod {
         for (Set<String> queryPart : query.getQueryParts()) {
             double partScore = 0;
             for (String term : queryPart) {
-                int tf = termFrequencies.getOrDefault(term, 0);
-                int df = documentFrequencies.getOrDefault(term, 0);
+                int tf = index.getTermFrequency(page, term);
+                int df = index.getDocumentFrequency(term);
                 if (df > 0 && tf > 0) {
                     double normalizedTf = (double) tf / totalTermsInDocument;
                     partScore += (normalizedTf * Math.log((double) totalDocuments / df));
@@ -48,4 +46,60 @@ public class TermFrequencyInverseDocumentScore implements ScoringMethod {
         }
         return score;
     }
+
+    /**
+     * Prepares a query scorer that computes the IDF of every query term once,
+     * and reads the number of terms of every document once per block.
+     *
+     * @param index  The index the documents belong to.
+     * @param query  The query to score the documents for.
+     * @return       A query scorer that scores a block of documents at a time.
+     */
+    @Override
+    public QueryScorer prepare(Index index, Query query) {
+        return new TermQueryScorer(index, query) {
+            private final double[] idfs = new double[getTermCount()];
+            private int[] lengths = new int[0];
+
+            {
+                for (int term = 0; term < idfs.length; term++) {
+                    int df = getPostings(term).size();
+                    idfs[term] = df > 0 ? Math.log((double) index.getTotalDocuments() / df) : 0;
+                }
+            }
+
+            @Override
+            protected void prepareBlock(int[] docIds, int count) {
+                if (lengths.length < count) {
+                    lengths = new int[count];
+                }
+                for (int i = 0; i < count; i++) {
+                    lengths[i] = index.getPage(docIds[i]).getTotalTerms();
+                }
+            }
+
+            @Override
+            protected void contribute(int term, int[] docIds, int[] frequencies, int count, double[] contributions) {
+                double idf = idfs[term];
+                for (int i = 0; i < count; i++) {
+                    contributions[i] = frequencies[i] > 0 ? ((double) frequencies[i] / lengths[i]) * idf : 0;
+                }
+            }
+        };
+    }
+
+    /**
+     * The contribution of a term is its normalized frequency times its IDF,
+     * so it is bounded by the largest normalized frequency in the block times the IDF of the term.
+     *
+     * @param index    The index the posting list belongs to.
+     * @param postings The posting list of the term.
+     * @param block    The block number in the posting list.
+     * @return         The largest TF-IDF contribution of the term in the block.
+     */
+    @Override
+    public double upperBound(Index index, PostingList postings, int block) {
+        double idf = Math.log((double) index.getTotalDocuments() / postings.size());
+        return postings.getBlockMaxShare(block) * idf;
+    }
 }
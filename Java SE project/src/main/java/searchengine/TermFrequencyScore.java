@@ -1,6 +1,5 @@
 package searchengine;
 
-import java.util.Map;
 import java.util.Set;
 
 /**
@@ -14,10 +13,12 @@ public class TermFrequencyScore implements ScoringMethod {
     /**
      * This calculates the Term Frequency (TF) score of a given page for a specified query.
      * The score is computed by summing up the occurrences of each term in the query
-     * that appears in the page. The frequency of each term in the page contributes to the score.
+     * that appears in the page. The frequency of each term in the page contributes to the score,
+     * and is read from the posting list of the term rather than recounted from the page content.
      * The method supports handling of multiple terms in a query and computes a part score for each query part,
      * ultimately taking the maximum score from these parts as the final score.
      * 
+     * @param index The {@code Index} the page belongs to.
      * @param page  The {@code Page} object representing the web page to be scored.
      * @param query The {@code Query} object representing the search query.
      * @return      The calculated term frequency score as a double. Higher scores
@@ -25,18 +26,49 @@ public class TermFrequencyScore implements ScoringMethod {
      *              A score of zero indicates no occurrence of query terms in the page.
      */
     @Override
-    public double score(Page page, Query query) {
+    public double score(Index index, Page page, Query query) {
         double score = 0;
-        Map<String, Integer> termFrequencies = page.getTermFrequencies();
 
         for (Set<String> queryPart : query.getQueryParts()) {
             double partScore = 0;
             for (String term : queryPart) {
-                partScore += termFrequencies.getOrDefault(term, 0);
+                partScore += index.getTermFrequency(page, term);
             }
             score = Math.max(score, partScore);
         }
 
         return score;
     }
-}
\ No newline at end of file
+
+    /**
+     * Prepares a query scorer where the contribution of a term is its frequency read from the posting list.
+     *
+     * @param index  The index the documents belong to.
+     * @param query  The query to score the documents for.
+     * @return       A query scorer that scores a block of documents at a time.
+     */
+    @Override
+    public QueryScorer prepare(Index index, Query query) {
+        return new TermQueryScorer(index, query) {
+            @Override
+            protected void contribute(int term, int[] docIds, int[] frequencies, int count, double[] contributions) {
+                for (int i = 0; i < count; i++) {
+                    contributions[i] = frequencies[i];
+                }
+            }
+        };
+    }
+
+    /**
+     * The contribution of a term is its frequency, so it is bounded by the largest frequency in the block.
+     *
+     * @param index    The index the posting list belongs to.
+     * @param postings The posting list of the term.
+     * @param block    The block number in the posting list.
+     * @return         The largest term frequency in the block.
+     */
+    @Override
+    public double upperBound(Index index, PostingList postings, int block) {
+        return postings.getBlockMaxFrequency(block);
+    }
+}
@@ -0,0 +1,164 @@
+package searchengine;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The TermQueryScorer class is the base of the query scorers of scoring methods that score a page as the highest sum
+ * of term contributions over the query parts. The posting list of every distinct query term is looked up once.
+ * A block of documents is then scored column by column: the frequencies of a term in all documents of the block
+ * are gathered from its posting list, the subclass turns the column of frequencies into a column of contributions,
+ * and the columns are summed per query part. The loops over the columns are plain loops over primitive arrays,
+ * which the JIT compiler can unroll and vectorize.
+ *
+ * The contributions of each part are added in the same order as the scoring methods add them page by page,
+ * so both ways of scoring give exactly the same score.
+ */
+public abstract class TermQueryScorer implements QueryScorer {
+    protected final Index index;
+    private final String[] terms;
+    private final PostingList[] postings;
+    private final int[] positions;
+    private final int[][] parts;
+    private int[][] frequencies;
+    private double[][] contributions;
+    private double[] partScores = new double[0];
+
+    /**
+     * Looks up the posting lists of the terms of a query.
+     *
+     * @param index  the index to score documents of
+     * @param query  the query to score documents for
+     */
+    protected TermQueryScorer(Index index, Query query) {
+        this.index = index;
+        Map<String, Integer> termNumbers = new LinkedHashMap<>();
+        List<Set<String>> queryParts = query.getQueryParts() == null ? List.of() : query.getQueryParts();
+        this.parts = new int[queryParts.size()][];
+        for (int part = 0; part < parts.length; part++) {
+            parts[part] = new int[queryParts.get(part).size()];
+            int i = 0;
+            for (String term : queryParts.get(part)) {
+                parts[part][i++] = termNumbers.computeIfAbsent(term, t -> termNumbers.size());
+            }
+        }
+        this.terms = termNumbers.keySet().toArray(new String[0]);
+        this.postings = new PostingList[terms.length];
+        for (int term = 0; term < terms.length; term++) {
+            postings[term] = index.getPostings(terms[term]);
+        }
+        this.positions = new int[terms.length];
+        this.frequencies = new int[terms.length][0];
+        this.contributions = new double[terms.length][0];
+    }
+
+    /**
+     * Gets the number of distinct terms of the query.
+     *
+     * @return  the number of terms
+     */
+    protected int getTermCount() {
+        return terms.length;
+    }
+
+    /**
+     * Gets a term of the query.
+     *
+     * @param  term  the number of the term
+     * @return       the term
+     */
+    protected String getTerm(int term) {
+        return terms[term];
+    }
+
+    /**
+     * Gets the posting list of a term of the query.
+     *
+     * @param  term  the number of the term
+     * @return       the posting list of the term
+     */
+    protected PostingList getPostings(int term) {
+        return postings[term];
+    }
+
+    /**
+     * Scores a block of documents by gathering the frequencies and contributions of every term as columns
+     * and taking the highest sum of the columns over the query parts.
+     *
+     * @param docIds  the ids of the documents, in ascending order and above any id of an earlier block
+     * @param count   the number of documents at the start of docIds to score
+     * @param scores  the array the score of each document is written to
+     */
+    @Override
+    public final void score(int[] docIds, int count, double[] scores) {
+        if (partScores.length < count) {
+            partScores = new double[count];
+            for (int term = 0; term < terms.length; term++) {
+                frequencies[term] = new int[count];
+                contributions[term] = new double[count];
+            }
+        }
+        prepareBlock(docIds, count);
+        for (int term = 0; term < terms.length; term++) {
+            gatherFrequencies(term, docIds, count);
+            contribute(term, docIds, frequencies[term], count, contributions[term]);
+        }
+        Arrays.fill(scores, 0, count, 0);
+        for (int[] part : parts) {
+            Arrays.fill(partScores, 0, count, 0);
+            for (int term : part) {
+                double[] column = contributions[term];
+                for (int i = 0; i < count; i++) {
+                    partScores[i] += column[i];
+                }
+            }
+            for (int i = 0; i < count; i++) {
+                scores[i] = Math.max(scores[i], partScores[i]);
+            }
+        }
+    }
+
+    /**
+     * Reads the frequency of a term in every document of the block from its posting list, 0 where it does not appear.
+     * The position in the posting list only moves forward, since the blocks come in ascending id order.
+     *
+     * @param term    the number of the term
+     * @param docIds  the ids of the documents
+     * @param count   the number of documents
+     */
+    private void gatherFrequencies(int term, int[] docIds, int count) {
+        PostingList list = postings[term];
+        int[] column = frequencies[term];
+        int position = positions[term];
+        for (int i = 0; i < count; i++) {
+            position = list.advance(position, docIds[i]);
+            column[i] = position < list.size() && list.getDocId(position) == docIds[i] ? list.getFrequency(position) : 0;
+        }
+        positions[term] = position;
+    }
+
+    /**
+     * Gathers anything the contributions of every term depend on, such as the length of each document, before a block is scored.
+     * Does nothing by default.
+     *
+     * @param docIds  the ids of the documents of the block
+     * @param count   the number of documents
+     */
+    protected void prepareBlock(int[] docIds, int count) {
+    }
+
+    /**
+     * Computes the contribution of a term to the score of every document of the block.
+     * A document where the frequency is 0 must get a contribution of 0.
+     *
+     * @param term           the number of the term
+     * @param docIds         the ids of the documents
+     * @param frequencies    the frequency of the term in each document
+     * @param count          the number of documents
+     * @param contributions  the array the contribution to each document is written to
+     */
+    protected abstract void contribute(int term, int[] docIds, int[] frequencies, int count, double[] contributions);
+}
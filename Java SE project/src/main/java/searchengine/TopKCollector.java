@@ -0,0 +1,157 @@
+package searchengine;
+
+import java.util.Arrays;
+
+/**
+ * The TopKCollector class keeps the k best scoring documents seen so far in a bounded min-heap.
+ * The worst of the kept documents is at the root of the heap, so deciding whether a new document
+ * makes it into the top k takes constant time, and replacing the worst one takes logarithmic time.
+ * Documents with equal scores are ranked by ascending document id.
+ */
+public class TopKCollector {
+    private final int k;
+    private int[] docIds;
+    private double[] scores;
+    private int size;
+
+    /**
+     * Constructs a TopKCollector that keeps at most k documents.
+     *
+     * @param k         the number of documents to keep
+     * @param expected  the number of documents that are expected to be offered, used to avoid allocating more than needed
+     */
+    public TopKCollector(int k, int expected) {
+        this.k = Math.max(k, 0);
+        int capacity = Math.min(this.k, Math.max(expected, 0));
+        docIds = new int[capacity];
+        scores = new double[capacity];
+    }
+
+    /**
+     * Offers a document to the collector. It is kept if fewer than k documents are kept,
+     * or if it ranks higher than the worst kept document, which is then removed.
+     *
+     * @param  docId  the id of the document
+     * @param  score  the score of the document
+     * @return        true if the document was kept, false otherwise
+     */
+    public boolean offer(int docId, double score) {
+        if (size < k) {
+            if (size == docIds.length) {
+                int capacity = (int) Math.min(k, Math.max(1L, docIds.length * 2L));
+                docIds = Arrays.copyOf(docIds, capacity);
+                scores = Arrays.copyOf(scores, capacity);
+            }
+            docIds[size] = docId;
+            scores[size] = score;
+            siftUp(size++);
+            return true;
+        }
+        if (size == 0 || !ranksHigher(score, docId, scores[0], docIds[0])) {
+            return false;
+        }
+        docIds[0] = docId;
+        scores[0] = score;
+        siftDown(0);
+        return true;
+    }
+
+    /**
+     * Checks whether the collector already holds k documents,
+     * so that a new document has to beat the threshold to be kept.
+     *
+     * @return true if the collector is full, false otherwise
+     */
+    public boolean isFull() {
+        return size == k;
+    }
+
+    /**
+     * Gets the score of the worst kept document. A document scoring at most this much cannot be kept
+     * once the collector is full, since documents are offered in ascending id order.
+     *
+     * @return the lowest kept score, or negative infinity if no documents are kept
+     */
+    public double threshold() {
+        return size == 0 ? Double.NEGATIVE_INFINITY : scores[0];
+    }
+
+    /**
+     * Returns the ids of the kept documents from the highest to the lowest ranked.
+     * The collector is emptied by this method.
+     *
+     * @return the ids of the kept documents in ranked order
+     */
+    public int[] drainRanked() {
+        int[] ranked = new int[size];
+        for (int i = size - 1; i >= 0; i--) {
+            ranked[i] = docIds[0];
+            size--;
+            docIds[0] = docIds[size];
+            scores[0] = scores[size];
+            siftDown(0);
+        }
+        return ranked;
+    }
+
+    /**
+     * Gets the number of kept documents.
+     *
+     * @return the number of kept documents
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Checks whether a document ranks higher than another document.
+     *
+     * @param  score       the score of the document
+     * @param  docId       the id of the document
+     * @param  otherScore  the score of the other document
+     * @param  otherDocId  the id of the other document
+     * @return             true if the score is higher, or the scores are equal and the id is lower, false otherwise
+     */
+    static boolean ranksHigher(double score, int docId, double otherScore, int otherDocId) {
+        return score > otherScore || score == otherScore && docId < otherDocId;
+    }
+
+    private void siftUp(int index) {
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (!ranksHigher(scores[parent], docIds[parent], scores[index], docIds[index])) {
+                break;
+            }
+            swap(index, parent);
+            index = parent;
+        }
+    }
+
+    private void siftDown(int index) {
+        while (true) {
+            int worst = index;
+            int left = 2 * index + 1;
+            int right = left + 1;
+            if (left < size && ranksHigher(scores[worst], docIds[worst], scores[left], docIds[left])) {
+                worst = left;
+            }
+            if (right < size && ranksHigher(scores[worst], docIds[worst], scores[right], docIds[right])) {
+                worst = right;
+            }
+            if (worst == index) {
+                return;
+            }
+            swap(index, worst);
+            index = worst;
+        }
+    }
+
+    private void swap(int i, int j) {
+        int docId = docIds[i];
+        docIds[i] = docIds[j];
+        docIds[j] = docId;
+        double score = scores[i];
+        scores[i] = scores[j];
+        scores[j] = score;
+    }
+}
@@ -1,29 +1,53 @@
 package searchengine;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.InetSocketAddress;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 
 import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
 import com.sun.net.httpserver.HttpServer;
  
  /**
   * This class provides a simple HTTP server that can be used to serve web pages.
+  * Requests are accepted by the dispatcher thread of the HTTP server and handled on a pool of worker threads.
+  * The index can be reloaded while the server is running through the /admin/reload endpoint.
   *
   */
  public class WebServer {
     static final int PORT = 8080;
     static final int BACKLOG = 0;
+    static final int QUEUE_CAPACITY = 256;
     static final Charset CHARSET = StandardCharsets.UTF_8;
 
+    /**
+     * The ways in which the worker threads handling the requests can be organized.
+     * FIXED uses one thread per processor, VIRTUAL starts a virtual thread per request where the Java runtime supports it,
+     * and BOUNDED uses a fixed pool with a bounded queue that answers 503 when it is full.
+     */
+    public enum ExecutorMode { FIXED, VIRTUAL, BOUNDED }
+
     HttpServer server;
     private PageLoader pageLoader;
     private ScoringMethod scoringMethod;
+    private ExecutorService workers;
+    private StaticAssets assets;
+    private IndexReloader reloader;
+
     /**
      * Constructs a new WebServer object with the specified port, pageLoader, and scoringMethod.
+     * Requests are handled on a fixed pool with one worker thread per available processor.
      *
      * @param  port           the port number to listen on
      * @param  pageLoader     the PageLoader object to use for loading pages
@@ -31,12 +55,88 @@ import com.sun.net.httpserver.HttpServer;
      * @throws IOException    if an I/O error occurs while creating the server
      */
     public WebServer(int port, PageLoader pageLoader, ScoringMethod scoringMethod) throws IOException {
-        server = HttpServer.create(new InetSocketAddress(port), BACKLOG);
+        this(port, pageLoader, scoringMethod, BACKLOG,
+                createWorkers(ExecutorMode.FIXED, Runtime.getRuntime().availableProcessors(), QUEUE_CAPACITY));
+    }
+
+    /**
+     * Constructs a new WebServer object with the specified port, pageLoader, scoringMethod, backlog and worker threads.
+     *
+     * @param  port           the port number to listen on
+     * @param  pageLoader     the PageLoader object to use for loading pages
+     * @param  scoringMethod  the ScoringMethod object to use for scoring search results
+     * @param  backlog        the largest number of connections waiting to be accepted, or 0 for the system default
+     * @param  workers        the executor that handles the requests, see the createWorkers method
+     * @throws IOException    if an I/O error occurs while creating the server
+     */
+    public WebServer(int port, PageLoader pageLoader, ScoringMethod scoringMethod, int backlog, ExecutorService workers)
+            throws IOException {
+        server = HttpServer.create(new InetSocketAddress(port), backlog);
         this.pageLoader = pageLoader;
         this.scoringMethod = scoringMethod;
+        this.workers = workers;
+        this.assets = new StaticAssets("web");
+        this.reloader = new IndexReloader(pageLoader, WebServer::readDataFile, Runtime.getRuntime().availableProcessors());
         setupRoutes();
     }
 
+    /**
+     * Creates a scoring method by its name. The settings of BM25 and BM25F are read from system properties,
+     * see the main method, and default to the usual values.
+     *
+     * @param  name  tf, tfidf, bm25 or bm25f
+     * @return       the scoring method
+     * @throws IllegalArgumentException  if the name is unknown
+     */
+    public static ScoringMethod createScoringMethod(String name) {
+        double k1 = Double.parseDouble(System.getProperty("searchengine.bm25.k1", String.valueOf(BM25Score.DEFAULT_K1)));
+        double b = Double.parseDouble(System.getProperty("searchengine.bm25.b", String.valueOf(BM25Score.DEFAULT_B)));
+        switch (name.toLowerCase()) {
+            case "tf":
+                return new TermFrequencyScore();
+            case "tfidf":
+                return new TermFrequencyInverseDocumentScore();
+            case "bm25":
+                return new BM25Score(k1, b);
+            case "bm25f":
+                double titleWeight = Double.parseDouble(System.getProperty("searchengine.bm25f.titleWeight",
+                        String.valueOf(BM25FScore.DEFAULT_TITLE_WEIGHT)));
+                return new BM25FScore(k1, titleWeight, b, b);
+            default:
+                throw new IllegalArgumentException("Unknown scoring method: " + name);
+        }
+    }
+
+    /**
+     * Creates the executor that handles the requests of the server.
+     *
+     * @param  mode           the way the worker threads are organized
+     * @param  threads        the number of worker threads for the FIXED and BOUNDED modes
+     * @param  queueCapacity  the number of requests that can wait for a worker in the BOUNDED mode
+     * @return                the executor for the worker threads
+     */
+    public static ExecutorService createWorkers(ExecutorMode mode, int threads, int queueCapacity) {
+        ThreadFactory daemonThreads = runnable -> {
+            Thread thread = new Thread(runnable, "search-worker");
+            thread.setDaemon(true);
+            return thread;
+        };
+        switch (mode) {
+            case VIRTUAL:
+                try {
+                    return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+                } catch (ReflectiveOperationException e) {
+                    // Virtual threads need Java 21 or later, so fall back to a thread per request.
+                    return Executors.newCachedThreadPool(daemonThreads);
+                }
+            case BOUNDED:
+                return new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<>(queueCapacity), daemonThreads, new ThreadPoolExecutor.AbortPolicy());
+            default:
+                return Executors.newFixedThreadPool(threads, daemonThreads);
+        }
+    }
+
     /**
      * Responds to an HTTP request with a specified code, mime type, and response body.
      *
@@ -49,7 +149,7 @@ import com.sun.net.httpserver.HttpServer;
         try {
             io.getResponseHeaders()
                     .set("Content-Type", String.format("%s; charset=%s", mime, CHARSET.name()));
-            io.sendResponseHeaders(200, response.length);
+            io.sendResponseHeaders(code, response.length);
             io.getResponseBody().write(response);
         } catch (Exception e) {
         } finally {
@@ -57,19 +157,86 @@ import com.sun.net.httpserver.HttpServer;
         }
     }
 
+    /**
+     * Writes the body of a streamed JSON response.
+     */
+    public interface JsonBody {
+        /**
+         * Writes the body.
+         * @param json the writer of the response body.
+         * @throws IOException if an I/O error occurs while writing.
+         */
+        void write(JsonWriter json) throws IOException;
+    }
+
+    /**
+     * Responds to an HTTP request with a JSON body that is streamed while it is written.
+     * The length of the body is not known in advance, so it is sent with chunked transfer encoding
+     * and the client starts receiving the body before all of it has been written.
+     *
+     * @param io    the HTTP exchange object representing the request and response
+     * @param code  the HTTP response code
+     * @param body  writes the body of the response
+     */
+    public static void respondJson(HttpExchange io, int code, JsonBody body) {
+        try {
+            io.getResponseHeaders()
+                    .set("Content-Type", String.format("%s; charset=%s", "application/json", CHARSET.name()));
+            io.sendResponseHeaders(code, 0);
+            try (JsonWriter json = new JsonWriter(io.getResponseBody())) {
+                body.write(json);
+            }
+        } catch (Exception e) {
+        } finally {
+            io.close();
+        }
+    }
+
     /**
      * Sets up the routes for the server.
+     * The files of the web interface are served from memory by the StaticAssets object.
+     * Each search registers itself on the index it uses, so a reload can wait for it before letting the old index go.
      *
      */
     private void setupRoutes() {
-        server.createContext("/", io -> respond(io, 200, "text/html", FileHandler.getFile("web/index.html")));
-        server.createContext("/search", io -> SearchHandler.searchResults(io, pageLoader, scoringMethod));
-        server.createContext(
-                "/favicon.ico", io -> respond(io, 200, "image/x-icon", FileHandler.getFile("web/favicon.ico")));
-        server.createContext(
-                "/code.js", io -> respond(io, 200, "application/javascript", FileHandler.getFile("web/code.js")));
-        server.createContext(
-                "/style.css", io -> respond(io, 200, "text/css", FileHandler.getFile("web/style.css")));
+        route("/", io -> assets.serve(io, "index.html"));
+        route("/search", io -> {
+            Index index = pageLoader.acquireIndex();
+            try {
+                SearchHandler.searchResults(io, index, scoringMethod);
+            } finally {
+                index.release();
+            }
+        });
+        route("/admin/reload", reloader::handle);
+        route("/favicon.ico", io -> assets.serve(io, "favicon.ico"));
+        route("/code.js", io -> assets.serve(io, "code.js"));
+        route("/style.css", io -> assets.serve(io, "style.css"));
+    }
+
+    /**
+     * Registers a route whose requests are handed from the dispatcher thread to the worker threads.
+     * If the workers cannot take any more requests, the request is answered with 503 right away.
+     *
+     * @param path     the path of the route
+     * @param handler  the handler of the requests to the route
+     */
+    private void route(String path, HttpHandler handler) {
+        server.createContext(path, io -> {
+            try {
+                workers.execute(() -> {
+                    try {
+                        handler.handle(io);
+                    } catch (Exception e) {
+                        e.printStackTrace();
+                        io.close();
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                io.getResponseHeaders().set("Retry-After", "1");
+                respond(io, 503, "text/plain", "The server is busy, please try again.".getBytes(CHARSET));
+            }
+        });
     }
 
     /**
@@ -84,22 +251,66 @@ import com.sun.net.httpserver.HttpServer;
         System.out.println("╰" + "─".repeat(msg.length()) + "╯");
     }
 
+    /**
+     * Stops the server and its worker threads.
+     *
+     */
+    public void stopServer() {
+        server.stop(0);
+        workers.shutdownNow();
+        assets.stopWatching();
+        reloader.stop();
+    }
+
+    /**
+     * Reads the name of the dataset to serve from config.txt.
+     * It is read again on every reload, so editing config.txt and reloading switches to another dataset.
+     *
+     * @return  the name of the dataset
+     */
+    static String readDataFile() {
+        try {
+            return Files.readString(Paths.get("config.txt")).strip();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
     /**
      * The main entry point for the Java program.
+     * The worker threads can be configured with the system properties searchengine.executor
+     * (fixed, virtual or bounded), searchengine.threads, searchengine.queue and searchengine.backlog.
+     * Setting searchengine.watchAssets to true reloads the files of the web interface when they change,
+     * and setting searchengine.watchData to true reloads the index when the dataset named in config.txt changes.
+     * Setting searchengine.storedFields to true keeps the content of the pages on disk instead of in memory.
+     * The scoring method is chosen with searchengine.scoring (tf, tfidf, bm25 or bm25f), where BM25 takes
+     * its settings from searchengine.bm25.k1 and searchengine.bm25.b, and BM25F also from searchengine.bm25f.titleWeight.
      *
      * @param  args  arguments passed to the program through the command line 
      * @throws IOException  incase an I/O error occurs while reading the file
      */
     public static void main(final String... args) throws IOException {
-        String filename = Files.readString(Paths.get("config.txt")).strip();
-        PageLoader pageLoader = new PageLoader(filename);
-        ScoringMethod scoringMethod = new TermFrequencyScore();
+        String filename = readDataFile();
+        int processors = Runtime.getRuntime().availableProcessors();
+        PageLoader pageLoader = PageLoader.open(filename, processors);
+        ScoringMethod scoringMethod = createScoringMethod(System.getProperty("searchengine.scoring", "tf"));
 
         // SearchHandler searchHandler = new SearchHandler(scoringMethod);
         // String searchTerm = "apple banana OR pie";
         // searchHandler.printSearchResultsWithScores(searchTerm);
-    
-        WebServer webServer = new WebServer(PORT, pageLoader, scoringMethod);
+
+        ExecutorMode mode = ExecutorMode.valueOf(System.getProperty("searchengine.executor", "fixed").toUpperCase());
+        int threads = Integer.getInteger("searchengine.threads", processors);
+        int queueCapacity = Integer.getInteger("searchengine.queue", QUEUE_CAPACITY);
+        int backlog = Integer.getInteger("searchengine.backlog", BACKLOG);
+        WebServer webServer = new WebServer(PORT, pageLoader, scoringMethod, backlog,
+                createWorkers(mode, threads, queueCapacity));
+        if (Boolean.getBoolean("searchengine.watchAssets")) {
+            webServer.assets.watch();
+        }
+        if (Boolean.getBoolean("searchengine.watchData")) {
+            webServer.reloader.watch();
+        }
         webServer.startServer();
 
     }
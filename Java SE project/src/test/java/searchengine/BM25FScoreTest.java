@@ -0,0 +1,85 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+class BM25FScoreTest {
+
+    /**
+     * Test case to verify that a term in the title raises the score of a page, that a term only in the title adds nothing,
+     * and that a title weight of 0 gives the same score as BM25.
+     */
+    @Test
+    void score_termInTitle_scoresHigher() {
+        IndexBuilder builder = new IndexBuilder();
+        builder.addPage(new Page("http://a.com", "Apple pie", List.of("apple", "pie", "recipe")));
+        builder.addPage(new Page("http://b.com", "Cherry pie", List.of("apple", "pie", "recipe")));
+        builder.addPage(new Page("http://c.com", "Other", List.of("banana", "bread")));
+        Index index = builder.build();
+
+        BM25FScore scorer = new BM25FScore(1.2, 2.0, 0.75, 0.75);
+        Query titleQuery = new Query("pie");
+        double withTitle = scorer.score(index, index.getPage(0), titleQuery);
+        double cherry = scorer.score(index, index.getPage(1), new Query("Cherry"));
+        assertTrue(withTitle > 0);
+        assertEquals(0, cherry, "A term that is only in the title adds nothing");
+
+        Query appleTitle = new Query("Apple pie");
+        assertEquals(scorer.score(index, index.getPage(0), appleTitle), scorer.score(index, index.getPage(1), appleTitle), 1e-12);
+
+        BM25FScore untitled = new BM25FScore(1.2, 0, 0.75, 0.75);
+        BM25Score bm25 = new BM25Score(1.2, 0.75);
+        assertEquals(bm25.score(index, index.getPage(0), titleQuery), untitled.score(index, index.getPage(0), titleQuery), 1e-12);
+        assertTrue(withTitle > untitled.score(index, index.getPage(0), titleQuery));
+        assertTrue(withTitle < scorer.upperBound(index, index.getPostings("pie"), 0));
+    }
+
+    /**
+     * Test case to verify that the title frequencies are indexed at build time, only for pages whose content holds the word,
+     * that the block scorer gives the same scores as scoring page by page, and that the upper bound of a block
+     * holds every page of the block while staying below the bound without title frequencies.
+     */
+    @Test
+    void upperBound_indexedTitles_boundsEveryPageOfBlock() {
+        IndexBuilder builder = new IndexBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.addPage(new Page("http://page" + i + ".com", i % 3 == 0 ? "pie  pie" : "cherry tart",
+                    List.of("pie", "crust", "word" + i)));
+        }
+        Index index = builder.build();
+        assertEquals(34, index.getTitlePostings("pie").size());
+        assertEquals(2, index.getTitlePostings("pie").frequencyOf(0));
+        assertEquals(0, index.getTitlePostings("cherry").size(), "A word that is only in the title is not indexed");
+
+        BM25FScore scorer = new BM25FScore(1.2, 2.0, 0.75, 0.75);
+        Query query = new Query("pie");
+        PostingList pie = index.getPostings("pie");
+        int[] docIds = new int[index.getMaxDoc()];
+        for (int docId = 0; docId < docIds.length; docId++) {
+            docIds[docId] = docId;
+        }
+        double[] scores = new double[docIds.length];
+        scorer.prepare(index, query).score(docIds, docIds.length, scores);
+        for (int docId = 0; docId < docIds.length; docId++) {
+            double bound = scorer.upperBound(index, pie, pie.indexOf(docId) / PostingList.BLOCK_SIZE);
+            assertEquals(scorer.score(index, index.getPage(docId), query), scores[docId], 1e-12);
+            assertTrue(scores[docId] <= bound);
+            assertTrue(bound < pie.getIdf() * (1.2 + 1));
+        }
+    }
+
+    /**
+     * Test case to verify that the words of a title are counted as whole words separated by whitespace.
+     */
+    @Test
+    void getTitleFrequency_wholeWords_countsMatches() {
+        Page page = new Page("http://a.com", "pie  apple pie pies", List.of("pie"));
+        assertEquals(2, page.getTitleFrequency("pie"));
+        assertEquals(1, page.getTitleFrequency("pies"));
+        assertEquals(0, page.getTitleFrequency("pi"));
+        assertEquals(4, page.getTitleLength());
+        assertArrayEquals(new String[] {"pie", "apple", "pie", "pies"}, page.getTitleWords());
+    }
+}
@@ -0,0 +1,56 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+class BM25ScoreTest {
+
+    /**
+     * Test case to verify that the score of an indexed page follows the BM25 formula,
+     * with the idf taken from the posting list and the length read from the norms of the index.
+     */
+    @Test
+    void score_indexedPage_matchesFormula() {
+        Index index = new PageLoader("data/Testfiles/test-searchHandler.txt").getIndex();
+        BM25Score scorer = new BM25Score(1.2, 0.75);
+        Page page2 = index.getPage(1);
+
+        double idf = Math.log(1 + (2 - 2 + 0.5) / (2 + 0.5));
+        double expected = idf * 3 * 2.2 / (3 + 1.2 * (1 - 0.75 + 0.75 * 7 / 6.5));
+        assertEquals(idf, index.getPostings("example").getIdf(), 1e-12);
+        assertEquals(6.5, index.getLengthNorms().getAverageLength(), 1e-12);
+        assertEquals(expected, scorer.score(index, page2, new Query("example")), 1e-12);
+        assertEquals(0, scorer.score(index, page2, new Query("nonexistent")));
+        assertTrue(scorer.score(index, page2, new Query("example")) > scorer.score(index, index.getPage(0), new Query("example")));
+    }
+
+    /**
+     * Test case to verify that a page that is not part of the index gets the same score as the same page in the index,
+     * and that the block upper bound is never below the contribution of a term.
+     */
+    @Test
+    void score_pageOutsideIndex_sameScoreAndBounded() {
+        Index index = new PageLoader("data/Testfiles/test-searchHandler.txt").getIndex();
+        BM25Score scorer = new BM25Score();
+        Page copy = new Page("http://page2.com", "title2", List.of("this", "is ", "another", "another", "example", "example", "example"));
+        Query query = new Query("another example");
+
+        assertEquals(scorer.score(index, index.getPage(1), query), scorer.score(index, copy, query), 1e-12);
+        double bound = scorer.upperBound(index, index.getPostings("another"), 0)
+                + scorer.upperBound(index, index.getPostings("example"), 0);
+        assertTrue(scorer.score(index, index.getPage(1), query) <= bound);
+    }
+
+    /**
+     * Test case to verify that scoring methods with different settings have different names, so their results are cached apart.
+     */
+    @Test
+    void getName_differentSettings_differentNames() {
+        assertEquals(new BM25Score().getName(), new BM25Score(1.2, 0.75).getName());
+        assertNotEquals(new BM25Score().getName(), new BM25Score(2.0, 0.75).getName());
+        assertEquals(TermFrequencyScore.class.getName(), new TermFrequencyScore().getName());
+        assertThrows(IllegalArgumentException.class, () -> new BM25Score(1.2, 1.5));
+    }
+}
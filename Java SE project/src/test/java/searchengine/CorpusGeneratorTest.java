@@ -0,0 +1,86 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+class CorpusGeneratorTest {
+
+    /**
+     * Test case to verify that the same seed gives the same dataset, that another seed gives another dataset,
+     * and that the written dataset starts with the lines of the same number of pages.
+     */
+    @Test
+    void write_sameSeed_sameDataset() throws IOException {
+        ByteArrayOutputStream first = new ByteArrayOutputStream();
+        ByteArrayOutputStream second = new ByteArrayOutputStream();
+        ByteArrayOutputStream other = new ByteArrayOutputStream();
+        new CorpusGenerator(7).write(first, 100_000);
+        new CorpusGenerator(7).write(second, 100_000);
+        new CorpusGenerator(8).write(other, 100_000);
+
+        assertArrayEquals(first.toByteArray(), second.toByteArray());
+        assertFalse(first.toString(StandardCharsets.UTF_8).equals(other.toString(StandardCharsets.UTF_8)));
+        String start = String.join("\n", new CorpusGenerator(7).lines(3)) + "\n";
+        assertTrue(first.toString(StandardCharsets.UTF_8).startsWith(start));
+    }
+
+    /**
+     * Test case to verify that a written dataset is at least the requested size but only one page longer,
+     * and that every generated page is indexed with a unique Wikipedia style url.
+     */
+    @Test
+    void write_requestedSize_parsesIntoPages() throws IOException {
+        CorpusGenerator generator = new CorpusGenerator(42, 1000, 1.0, 20, 0.5);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        long written = generator.write(out, 50_000);
+        byte[] bytes = out.toByteArray();
+
+        assertEquals(written, bytes.length);
+        assertTrue(written >= 50_000);
+        assertTrue(written < 50_000 + 5_000);
+
+        IndexBuilder builder = new IndexBuilder();
+        new CorpusParser(builder).parse(ByteBuffer.wrap(bytes));
+        Index index = builder.build();
+        String text = out.toString(StandardCharsets.UTF_8);
+        int pages = text.split("\\*PAGE:", -1).length - 1;
+        assertEquals(pages, index.getTotalDocuments());
+        Set<String> urls = new HashSet<>();
+        for (int docId = 0; docId < index.getTotalDocuments(); docId++) {
+            Page page = index.getPage(docId);
+            assertTrue(page.getUrl().startsWith(CorpusGenerator.URL_PREFIX));
+            assertEquals(page.getTitle().replace(' ', '_'), page.getUrl().substring(CorpusGenerator.URL_PREFIX.length()));
+            assertTrue(urls.add(page.getUrl()));
+        }
+    }
+
+    /**
+     * Test case to verify that common words are on more pages than rare words and that the words of different ranks differ.
+     */
+    @Test
+    void lines_zipfianWords_commonWordsMoreFrequent() {
+        CorpusGenerator generator = new CorpusGenerator(42, 10_000, 1.0, 100, 1.0);
+        PageLoader pageLoader = new PageLoader();
+        List<String> lines = generator.lines(500);
+        pageLoader.processContent(lines);
+        Index index = pageLoader.getIndex();
+
+        assertEquals(500, index.getTotalDocuments());
+        assertTrue(index.getDocumentFrequency(generator.word(0)) > index.getDocumentFrequency(generator.word(100)));
+        assertTrue(index.getDocumentFrequency(generator.word(100)) > index.getDocumentFrequency(generator.word(5000)));
+        Set<String> words = new HashSet<>();
+        for (int rank = 0; rank < 10_000; rank++) {
+            assertTrue(words.add(generator.word(rank)));
+        }
+        assertEquals(64L << 20, CorpusGenerator.parseSize("64MB"));
+        assertEquals(1536, CorpusGenerator.parseSize("1.5kb"));
+    }
+}
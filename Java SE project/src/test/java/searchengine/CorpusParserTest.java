@@ -0,0 +1,66 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+class CorpusParserTest {
+
+    /**
+     * Test case to verify that parsing the bytes of a dataset finds the same pages, titles and words
+     * as reading its lines, including mixed line breaks, blank lines, text before the first page and UTF-8 words.
+     */
+    @Test
+    void parse_mixedLineBreaks_matchesLineReader() throws IOException {
+        String text = "preamble\n*PAGE:http://a.com\r\ntitle a\r\nø\r\nword\r\n\r\n"
+                + "*PAGE:http://b.com\rtitle b\rword\rø\r"
+                + "*PAGE:http://blank.com\n\n  \nlonely\n"
+                + "*PAGE:http://notitle.com\n"
+                + "*PAGE:\nflower1\nflower";
+        IndexBuilder builder = new IndexBuilder();
+        new CorpusParser(builder).parse(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+        Index parsed = builder.build();
+
+        List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new StringReader(text))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                lines.add(line);
+            }
+        }
+        PageLoader pageLoader = new PageLoader("");
+        pageLoader.processContent(lines);
+        Index read = pageLoader.getIndex();
+
+        assertEquals(3, parsed.getTotalDocuments());
+        assertEquals(read.getTotalDocuments(), parsed.getTotalDocuments());
+        for (int docId = 0; docId < read.getTotalDocuments(); docId++) {
+            assertEquals(read.getPage(docId).getUrl(), parsed.getPage(docId).getUrl());
+            assertEquals(read.getPage(docId).getTitle(), parsed.getPage(docId).getTitle());
+            assertEquals(read.getPage(docId).getContent(), parsed.getPage(docId).getContent());
+        }
+        assertEquals(read.getDocumentFrequencies(), parsed.getDocumentFrequencies());
+        assertEquals(2, parsed.getDocumentFrequency("ø"));
+    }
+
+    /**
+     * Test case to verify that a memory mapped test file gives the same index as its lines.
+     */
+    @Test
+    void parse_testFile_matchesLineReader() throws IOException {
+        PageLoader mapped = new PageLoader("data/Testfiles/test-file2.txt");
+        PageLoader read = new PageLoader("");
+        read.processContent(Files.readAllLines(Paths.get("data/Testfiles/test-file2.txt")));
+        assertEquals(6, mapped.getIndex().getTotalDocuments());
+        assertEquals(read.getIndex().getDocumentFrequencies(), mapped.getIndex().getDocumentFrequencies());
+    }
+}
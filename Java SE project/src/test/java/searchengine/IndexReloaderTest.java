@@ -0,0 +1,107 @@
+package searchengine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+class IndexReloaderTest {
+    private Path directory;
+    private Path source;
+    private PageLoader pageLoader;
+    private IndexReloader reloader;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("index-reloader-test");
+        source = directory.resolve("corpus.txt");
+        Files.copy(Paths.get("data/Testfiles/test-file2.txt"), source);
+        pageLoader = new PageLoader(source.toString());
+        reloader = new IndexReloader(pageLoader, source::toString, 1);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        reloader.stop();
+        Files.deleteIfExists(directory.resolve("corpus.txt" + IndexSegment.EXTENSION));
+        Files.deleteIfExists(directory.resolve("corpus.txt" + StoredFields.EXTENSION));
+        Files.deleteIfExists(source);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Test case to verify that reloading a changed dataset publishes a new index with the new pages,
+     * and that the report describes the new and the old index.
+     */
+    @Test
+    void reload_changedDataset_publishesNewIndex() throws IOException {
+        Index old = pageLoader.getIndex();
+        Files.writeString(source, "*PAGE:http://new.com\nnew\nfreshword\n", StandardOpenOption.APPEND);
+        IndexReloader.Report report = reloader.reload();
+        assertEquals("done", report.getState());
+        assertNotSame(old, pageLoader.getIndex());
+        assertEquals(old.getTotalDocuments() + 1, pageLoader.getIndex().getTotalDocuments());
+        assertEquals(1, pageLoader.getIndex().getPostings("freshword").size());
+        assertEquals(pageLoader.getIndex().getTotalDocuments(), report.getDocuments());
+        assertTrue(report.getEstimatedBytes() > 0);
+        assertTrue(report.toJson().contains("\"state\": \"done\""));
+    }
+
+    /**
+     * Test case to verify that a reload waits for the queries still using the old index,
+     * that new queries use the new index meanwhile, and that a second reload is refused while the first is running.
+     */
+    @Test
+    void requestReload_oldIndexInUse_drainsAfterRelease() throws InterruptedException {
+        Index old = pageLoader.acquireIndex();
+        assertTrue(reloader.requestReload());
+        while (pageLoader.getIndex() == old) {
+            Thread.sleep(5);
+        }
+        assertEquals("reloading", reloader.getLastReport().getState());
+        assertFalse(reloader.requestReload());
+        assertThrows(IllegalStateException.class, () -> reloader.reload());
+
+        Index current = pageLoader.acquireIndex();
+        assertNotSame(old, current);
+        current.release();
+
+        old.release();
+        while (reloader.getLastReport().getState().equals("reloading")) {
+            Thread.sleep(5);
+        }
+        assertEquals("done", reloader.getLastReport().getState());
+        assertEquals("The old index was drained.", reloader.getLastReport().getMessage());
+    }
+
+    /**
+     * Test case to verify that a dataset which cannot be read fails the reload and keeps the old index.
+     */
+    @Test
+    void reload_missingDataset_keepsOldIndex() {
+        Index old = pageLoader.getIndex();
+        IndexReloader missing = new IndexReloader(pageLoader, () -> directory.resolve("missing.txt").toString(), 1);
+        assertEquals("failed", missing.reload().getState());
+        assertSame(old, pageLoader.getIndex());
+        missing.stop();
+    }
+
+    /**
+     * Test case to verify that the report of a failed reload is valid JSON
+     * even when the name of the dataset holds a line break and a quote.
+     */
+    @Test
+    void toJson_fileNameWithControlCharacters_isEscaped() {
+        IndexReloader missing = new IndexReloader(pageLoader, () -> directory.resolve("missing\n\"x.txt").toString(), 1);
+        String json = missing.reload().toJson();
+        assertTrue(json.contains("missing\\n\\\"x.txt"), json);
+        assertFalse(json.contains("\n"));
+        missing.stop();
+    }
+}
@@ -0,0 +1,180 @@
+package searchengine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Map;
+
+class IndexSegmentTest {
+    private Path directory;
+    private Path source;
+    private Path file;
+    private PageLoader pageLoader;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("index-segment-test");
+        source = directory.resolve("corpus.txt");
+        Files.copy(Paths.get("data/Testfiles/test-file2.txt"), source);
+        file = directory.resolve("corpus.txt" + IndexSegment.EXTENSION);
+        pageLoader = new PageLoader(source.toString());
+        pageLoader.writeIndex(file, source);
+        StoredFields.write(pageLoader.getIndex(), Paths.get(source + StoredFields.EXTENSION), source);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(Paths.get(source + StoredFields.EXTENSION));
+        Files.deleteIfExists(source);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Test case to verify that an index read back from its file has the same pages, posting lists,
+     * positions and document frequencies as the index that was written.
+     */
+    @Test
+    void read_writtenIndex_matchesLoadedIndex() throws IOException {
+        Index loaded = pageLoader.getIndex();
+        Index stored = IndexSegment.read(file, source);
+        assertEquals(loaded.getTotalDocuments(), stored.getTotalDocuments());
+        assertEquals(loaded.getDocumentFrequencies(), stored.getDocumentFrequencies());
+        for (int docId = 0; docId < stored.getTotalDocuments(); docId++) {
+            assertEquals(loaded.getPage(docId).getUrl(), stored.getPage(docId).getUrl());
+            assertEquals(loaded.getPage(docId).getTitle(), stored.getPage(docId).getTitle());
+            assertEquals(loaded.getPage(docId).getTotalTerms(), stored.getPage(docId).getTotalTerms());
+        }
+        Map<String, PostingList> storedIndex = stored.getInvertedIndex();
+        loaded.getInvertedIndex().forEach((word, postings) -> {
+            PostingList storedPostings = storedIndex.get(word);
+            assertEquals(postings.size(), storedPostings.size());
+            assertEquals(loaded.getTitlePostings(word).size(), stored.getTitlePostings(word).size());
+            assertTrue(storedPostings.hasPositions());
+            int[] positions = new int[postings.size() == 0 ? 0 : 64];
+            int[] storedPositions = new int[positions.length];
+            for (int i = 0; i < postings.size(); i++) {
+                assertEquals(postings.getDocId(i), storedPostings.getDocId(i));
+                assertEquals(postings.getFrequency(i), storedPostings.getFrequency(i));
+                int count = postings.readPositions(i, positions);
+                assertEquals(count, storedPostings.readPositions(i, storedPositions));
+                assertArrayEquals(Arrays.copyOf(positions, count), Arrays.copyOf(storedPositions, count));
+            }
+        });
+    }
+
+    /**
+     * Test case to verify that postings mapped in chunks smaller than a single term still decode to the same lists,
+     * and that the block upper bounds read from the file are the ones computed when the index was loaded.
+     */
+    @Test
+    void read_tinyMappedChunks_matchesLoadedPostingsAndBlockMaxima() throws IOException {
+        Index loaded = pageLoader.getIndex();
+        Index stored = IndexSegment.read(file, source, 8);
+        loaded.getInvertedIndex().forEach((word, postings) -> {
+            PostingList storedPostings = stored.getPostings(word);
+            assertEquals(postings.size(), storedPostings.size());
+            assertEquals(postings.getIdf(), storedPostings.getIdf(), 1e-12);
+            for (int i = 0; i < postings.size(); i++) {
+                assertEquals(postings.getDocId(i), storedPostings.getDocId(i));
+                assertEquals(postings.getFrequency(i), storedPostings.getFrequency(i));
+            }
+            for (int block = 0; block * PostingList.BLOCK_SIZE < postings.size(); block++) {
+                assertEquals(postings.getBlockMaxFrequency(block), storedPostings.getBlockMaxFrequency(block));
+                assertEquals(postings.getBlockMaxShare(block), storedPostings.getBlockMaxShare(block));
+                assertEquals(postings.getBlockMaxTitleFrequency(block), storedPostings.getBlockMaxTitleFrequency(block));
+            }
+            PostingList titles = loaded.getTitlePostings(word);
+            for (int i = 0; i < titles.size(); i++) {
+                assertEquals(titles.getFrequency(i), stored.getTitlePostings(word).frequencyOf(titles.getDocId(i)));
+            }
+        });
+        SortedTerms loadedTerms = loaded.getSortedTerms();
+        SortedTerms storedTerms = stored.getSortedTerms();
+        assertArrayEquals(Arrays.stream(loadedTerms.prefix("d", 10)).mapToObj(loadedTerms::getTerm).toArray(),
+                Arrays.stream(storedTerms.prefix("d", 10)).mapToObj(storedTerms::getTerm).toArray());
+    }
+
+    /**
+     * Test case to verify that opening a file decodes no posting list, and that a list is decoded once when it is first searched.
+     */
+    @Test
+    void getPostings_openedFile_decodesListOnFirstUse() throws IOException {
+        Index stored = IndexSegment.read(file, source);
+        long opened = stored.getEstimatedBytes();
+        assertEquals(pageLoader.getIndex().getDocumentFrequency("dog"), stored.getDocumentFrequency("dog"));
+        assertEquals(opened, stored.getEstimatedBytes());
+        PostingList dog = stored.getPostings("dog");
+        assertTrue(stored.getEstimatedBytes() > opened);
+        assertSame(dog, stored.getPostings("dog"));
+    }
+
+    /**
+     * Test case to verify that a changed byte in the postings of a term is found when the term is decoded,
+     * since the postings are not read when the file is opened.
+     */
+    @Test
+    void getPostings_corruptedPostings_throwsUncheckedIOException() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        long postings = ByteBuffer.wrap(bytes).getLong(4 + 4 + 8 + 8 + 4 + 4 + 3 * 8);
+        bytes[(int) postings] ^= 0x55;
+        Files.write(file, bytes);
+        Index stored = IndexSegment.read(file, source);
+        assertThrows(UncheckedIOException.class, () -> stored.getPostings(0));
+    }
+
+    /**
+     * Test case to verify that writing an index leaves no map of all its words behind in the index,
+     * since the map of getInvertedIndex is built on every call and not kept.
+     */
+    @Test
+    void write_loadedIndex_invertedIndexNotKept() {
+        Index loaded = pageLoader.getIndex();
+        assertNotSame(loaded.getInvertedIndex(), loaded.getInvertedIndex());
+        assertNotSame(loaded.getDocumentFrequencies(), loaded.getDocumentFrequencies());
+        assertEquals(loaded.getInvertedIndex(), loaded.getInvertedIndex());
+    }
+
+    /**
+     * Test case to verify that a file with a changed byte is rejected because its checksum no longer matches.
+     */
+    @Test
+    void read_corruptedFile_throwsIOException() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[bytes.length - 3] ^= 0x55;
+        Files.write(file, bytes);
+        assertThrows(IOException.class, () -> IndexSegment.read(file, source));
+    }
+
+    /**
+     * Test case to verify that an index built from an older version of the dataset is rejected as stale.
+     */
+    @Test
+    void read_changedDataset_throwsIOException() throws IOException {
+        Files.writeString(source, "*PAGE:http://new.com\nnew\nword\n", StandardOpenOption.APPEND);
+        assertThrows(IOException.class, () -> IndexSegment.read(file, source));
+    }
+
+    /**
+     * Test case to verify that opening a dataset with an intact index file uses the file,
+     * that the content of its pages is read from the stored fields file, and that searching the opened index gives results.
+     */
+    @Test
+    void open_existingIndexFile_loadsPagesFromFile() {
+        Index opened = PageLoader.open(source.toString(), 1).getIndex();
+        assertEquals(6, opened.getTotalDocuments());
+        assertTrue(opened.getPage(0).getContent().isEmpty());
+        assertEquals(pageLoader.getIndex().getPage(0).getContent(), opened.getContent(0));
+        assertEquals("http://pets.com", new SearchHandler(opened, new TermFrequencyScore()).search("dog cat").get(0).getUrl());
+    }
+}
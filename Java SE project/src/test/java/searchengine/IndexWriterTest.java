@@ -0,0 +1,185 @@
+package searchengine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+class IndexWriterTest {
+    private PageLoader pageLoader;
+    private IndexWriter writer;
+
+    @BeforeEach
+    void setUp() {
+        pageLoader = new PageLoader("data/Testfiles/test-file2.txt");
+        writer = new IndexWriter(pageLoader, 100);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.close();
+    }
+
+    /**
+     * Test case to verify that an added page becomes searchable with the next refresh,
+     * and that the document frequencies and the total number of documents count it.
+     */
+    @Test
+    void addPage_refresh_pageIsSearchable() {
+        writer.addPage(new Page("http://new.com", "new", List.of("freshword", "dog")));
+        assertEquals(6, pageLoader.getIndex().getTotalDocuments());
+        writer.refresh();
+        Index index = pageLoader.getIndex();
+        assertEquals(7, index.getTotalDocuments());
+        assertEquals(1, index.getDocumentFrequency("freshword"));
+        assertEquals(3, index.getDocumentFrequency("dog"));
+        assertEquals(3, index.getDocumentFrequencies().get("dog"));
+        assertEquals("http://new.com", new SearchHandler(index, new TermFrequencyScore()).search("freshword").get(0).getUrl());
+    }
+
+    /**
+     * Test case to verify that threads looking up the same words of a segmented snapshot at the same time
+     * all get the same merged posting list, with the documents of every segment.
+     */
+    @Test
+    void getPostings_concurrentLookups_mergeEachWordOnce() throws InterruptedException {
+        writer.addPage(new Page("http://new.com", "new", List.of("dog", "cat")));
+        Index index = writer.refresh();
+        assertTrue(index instanceof SegmentedIndex);
+        int termId = index.getDictionary().lookup("dog");
+        PostingList[] seen = new PostingList[8];
+        Thread[] threads = new Thread[seen.length];
+        for (int i = 0; i < threads.length; i++) {
+            int thread = i;
+            threads[i] = new Thread(() -> seen[thread] = index.getPostings(termId));
+            threads[i].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (PostingList postings : seen) {
+            assertSame(seen[0], postings);
+        }
+        assertEquals(3, seen[0].size());
+    }
+
+    /**
+     * Test case to verify that adding a page with the url of an existing page replaces the old version.
+     */
+    @Test
+    void addPage_existingUrl_replacesOldVersion() {
+        writer.addPage(new Page("http://pets.com", "pets", List.of("parrot")));
+        writer.refresh();
+        Index index = pageLoader.getIndex();
+        assertEquals(6, index.getTotalDocuments());
+        assertEquals(1, index.getDocumentFrequency("dog"));
+        assertEquals(1, index.getDocumentFrequency("cat"));
+        assertEquals(1, index.getDocumentFrequency("parrot"));
+        assertEquals("pets", index.getPage(index.getPostings("parrot").getDocId(0)).getTitle());
+    }
+
+    /**
+     * Test case to verify that a deleted page disappears from the search results and from the counts,
+     * while an earlier snapshot still contains it.
+     */
+    @Test
+    void deletePage_refresh_pageIsRemoved() {
+        Index before = pageLoader.getIndex();
+        assertTrue(writer.deletePage("http://dog1.com"));
+        assertFalse(writer.deletePage("http://unknown.com"));
+        writer.refresh();
+        Index index = pageLoader.getIndex();
+        assertEquals(5, index.getTotalDocuments());
+        assertEquals(1, index.getDocumentFrequency("dog"));
+        List<Page> results = new SearchHandler(index, new TermFrequencyScore()).search("dog");
+        assertEquals(1, results.size());
+        assertEquals("http://pets.com", results.get(0).getUrl());
+        assertEquals(2, new SearchHandler(before, new TermFrequencyScore()).search("dog").size());
+    }
+
+    /**
+     * Test case to verify that many small segments are merged by size tier,
+     * and that the merged index holds the same pages and document frequencies as an index built in one batch.
+     */
+    @Test
+    void refresh_manySmallSegments_mergedAndMatchesBatchIndex() throws InterruptedException {
+        IndexWriter smallWriter = new IndexWriter(pageLoader, 1);
+        Random random = new Random(7);
+        String[] words = {"alpha", "beta", "gamma", "delta"};
+        List<String> lines = new ArrayList<>(List.of(
+                "*PAGE:http://page1.com", "title1", "word1", "word2",
+                "*PAGE:http://page2.com", "title2", "word1", "word3",
+                "*PAGE:http://pets.com", "pets", "dog", "cat",
+                "*PAGE:http://cat1.com", "cat1", "cat",
+                "*PAGE:", "flower1", "flower"));
+        for (int i = 0; i < 40; i++) {
+            List<String> content = new ArrayList<>();
+            int length = 1 + random.nextInt(5);
+            for (int j = 0; j < length; j++) {
+                content.add(words[random.nextInt(words.length)]);
+            }
+            smallWriter.addPage(new Page("http://page" + (i % 30) + ".org", "title" + i, content));
+            if (i >= 10 && i < 20) {
+                smallWriter.deletePage("http://page" + (i - 10) + ".org");
+            }
+        }
+        smallWriter.deletePage("http://dog1.com");
+        smallWriter.refresh();
+        smallWriter.waitForMerges();
+        assertTrue(smallWriter.getSegmentCount() < 10);
+
+        Random replay = new Random(7);
+        List<List<String>> contents = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            List<String> content = new ArrayList<>();
+            int length = 1 + replay.nextInt(5);
+            for (int j = 0; j < length; j++) {
+                content.add(words[replay.nextInt(words.length)]);
+            }
+            contents.add(content);
+        }
+        for (int i = 0; i < 30; i++) {
+            int last = i < 10 ? i + 30 : i;
+            lines.add("*PAGE:http://page" + i + ".org");
+            lines.add("title" + last);
+            lines.addAll(contents.get(last));
+        }
+        PageLoader batch = new PageLoader("");
+        batch.processContent(lines);
+
+        Index index = pageLoader.getIndex();
+        assertEquals(batch.getIndex().getTotalDocuments(), index.getTotalDocuments());
+        assertEquals(batch.getIndex().getDocumentFrequencies(), index.getDocumentFrequencies());
+        for (String query : List.of("alpha", "beta gamma", "delta OR cat")) {
+            assertEquals(urls(new SearchHandler(batch.getIndex(), new TermFrequencyScore()).search(query)),
+                    urls(new SearchHandler(index, new TermFrequencyScore()).search(query)));
+        }
+        smallWriter.close();
+    }
+
+    /**
+     * Test case to verify the size tiers used by the merge policy.
+     */
+    @Test
+    void tierOf_sizes_logarithmInBaseMergeFactor() {
+        assertEquals(0, IndexWriter.tierOf(1));
+        assertEquals(0, IndexWriter.tierOf(3));
+        assertEquals(1, IndexWriter.tierOf(4));
+        assertEquals(1, IndexWriter.tierOf(15));
+        assertEquals(2, IndexWriter.tierOf(16));
+    }
+
+    private Set<String> urls(List<Page> pages) {
+        Set<String> urls = new HashSet<>();
+        for (Page page : pages) {
+            urls.add(page.getUrl());
+        }
+        return urls;
+    }
+}
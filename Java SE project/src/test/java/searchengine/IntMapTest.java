@@ -0,0 +1,67 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.List;
+
+class IntMapTest {
+
+    /**
+     * Test case to verify that many keys survive the resizes of the map and can all be looked up again,
+     * including negative keys and keys that are missing.
+     */
+    @Test
+    void put_manyKeys_allKeysFound() {
+        IntMap<String> map = new IntMap<>();
+        for (int key = -500; key < 5000; key += 3) {
+            map.put(key, "v" + key);
+        }
+        assertEquals(1834, map.size());
+        for (int key = -500; key < 5000; key += 3) {
+            assertEquals("v" + key, map.get(key));
+        }
+        assertNull(map.get(-499));
+        assertNull(map.get(5001));
+    }
+
+    /**
+     * Test case to verify that computeIfAbsent only computes the value of a missing key,
+     * and that trimming the map keeps every entry.
+     */
+    @Test
+    void computeIfAbsent_existingKey_keepsValue() {
+        IntMap<StringBuilder> map = new IntMap<>();
+        for (int key = 0; key < 100; key++) {
+            map.computeIfAbsent(key % 10, k -> new StringBuilder()).append('x');
+        }
+        map.trim();
+        assertEquals(10, map.size());
+        assertEquals("xxxxxxxxxx", map.get(7).toString());
+        int[] keys = map.keys();
+        Arrays.sort(keys);
+        assertArrayEquals(new int[] {0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, keys);
+    }
+
+    /**
+     * Test case to verify that a term dictionary gives a term the same id every time,
+     * and that a page stores the ids of its terms in order and keeps them when it is moved to another dictionary.
+     */
+    @Test
+    void termDictionary_sameTerm_sameId() {
+        TermDictionary dictionary = new TermDictionary();
+        dictionary.getOrAdd("first");
+        int id = dictionary.getOrAdd("intmaptestword");
+        assertEquals(id, dictionary.lookup("intmaptestword"));
+        assertEquals("intmaptestword", dictionary.getTerm(id));
+        assertEquals(-1, dictionary.lookup("intmaptestmissing"));
+        Page page = new Page("http://ids.com", "ids", Arrays.asList("intmaptestword", "other", "intmaptestword"));
+        assertEquals(3, page.getTermIds().length);
+        assertEquals(page.getTermIds()[0], page.getTermIds()[2]);
+        page.moveTo(dictionary);
+        assertEquals(id, page.getTermIds()[2]);
+        assertEquals(2, page.getTermFrequency("intmaptestword"));
+        assertEquals(List.of("intmaptestword", "other", "intmaptestword"), page.getContent());
+    }
+}
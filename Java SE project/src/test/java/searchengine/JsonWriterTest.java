@@ -0,0 +1,74 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+class JsonWriterTest {
+
+    /**
+     * Test case to verify that search results are written in the same format as before,
+     * with the objects separated by a comma and a space.
+     */
+    @Test
+    void writeResults_plainPages_sameFormatAsListToString() throws IOException {
+        List<Page> pages = List.of(new Page("http://page1.com", "title1", List.of("word1")),
+                new Page("http://page2.com", "title2", List.of("word1")));
+        List<String> expected = new ArrayList<>();
+        for (Page page : pages) {
+            expected.add(String.format("{\"url\": \"%s\", \"title\": \"%s\"}", page.getUrl(), page.getTitle()));
+        }
+        assertEquals(expected.toString(), write(pages));
+        assertEquals("[{\"message\": \"No web page contains the query word.\"}]", write(List.of()));
+    }
+
+    /**
+     * Test case to verify that quotes, backslashes and control characters are escaped,
+     * and that characters outside ASCII are written as UTF-8.
+     */
+    @Test
+    void string_specialCharacters_escapedAndEncoded() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonWriter json = new JsonWriter(out)) {
+            json.string("a\"b\\c\nd\u0001 æ€😀");
+        }
+        assertEquals("\"a\\\"b\\\\c\\nd\\u0001 æ€😀\"", out.toString(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Test case to verify that a response larger than the buffer is written completely,
+     * and that a writer opened while another one is open on the same thread does not share its buffer.
+     */
+    @Test
+    void writeResults_largerThanBuffer_writtenCompletely() throws IOException {
+        List<Page> pages = new ArrayList<>();
+        StringBuilder expected = new StringBuilder("[");
+        for (int i = 0; i < 2000; i++) {
+            pages.add(new Page("http://page" + i + ".com", "tïtle" + i, List.of("word")));
+            expected.append(i == 0 ? "" : ", ").append("{\"url\": \"http://page").append(i)
+                    .append(".com\", \"title\": \"tïtle").append(i).append("\"}");
+        }
+        expected.append("]");
+        ByteArrayOutputStream outer = new ByteArrayOutputStream();
+        try (JsonWriter json = new JsonWriter(outer)) {
+            json.raw("[");
+            assertEquals("[{\"message\": \"No web page contains the query word.\"}]", write(List.of()));
+            json.raw("]");
+        }
+        assertEquals("[]", outer.toString(StandardCharsets.UTF_8));
+        assertEquals(expected.toString(), write(pages));
+    }
+
+    private String write(List<Page> pages) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonWriter json = new JsonWriter(out)) {
+            SearchHandler.writeResults(json, pages);
+        }
+        return out.toString(StandardCharsets.UTF_8);
+    }
+}
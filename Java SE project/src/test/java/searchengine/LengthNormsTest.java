@@ -0,0 +1,32 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LengthNormsTest {
+
+    /**
+     * Test case to verify that small lengths are encoded exactly, that larger lengths are rounded down
+     * to within an eighth, and that the encoding keeps the order of the lengths.
+     */
+    @Test
+    void encode_lengths_decodeRoundsDown() {
+        for (int length = 0; length < 24; length++) {
+            assertEquals(length, LengthNorms.decode(Byte.toUnsignedInt(LengthNorms.encode(length))));
+        }
+        int previous = 0;
+        for (int length = 24; length < 1_000_000; length += 37) {
+            int norm = Byte.toUnsignedInt(LengthNorms.encode(length));
+            int decoded = LengthNorms.decode(norm);
+            assertTrue(decoded <= length && decoded > length * 0.875, "length " + length + " decoded as " + decoded);
+            assertTrue(norm >= previous);
+            previous = norm;
+        }
+        assertEquals(255, Byte.toUnsignedInt(LengthNorms.encode(Integer.MAX_VALUE)));
+
+        LengthNorms norms = new LengthNorms(new int[] {1, 2, 3, 1000});
+        assertEquals(4, norms.size());
+        assertEquals(3, norms.get(2));
+        assertEquals(251.5, norms.getAverageLength());
+    }
+}
@@ -0,0 +1,39 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class LruCacheTest {
+
+    /**
+     * Test case to verify that a full cache evicts the least recently used entry,
+     * so an entry that is looked up again stays while a stream of new keys is added.
+     */
+    @Test
+    void put_fullCache_evictsLeastRecentlyUsed() {
+        LruCache<Integer> cache = new LruCache<>(LruCache.MIN_STRIPE_CAPACITY);
+        for (int i = 0; i < LruCache.MIN_STRIPE_CAPACITY; i++) {
+            cache.put("key" + i, i);
+        }
+        for (int i = 0; i < 100; i++) {
+            assertEquals(0, cache.get("key0"));
+            cache.put("oneoff" + i, i);
+        }
+        assertEquals(LruCache.MIN_STRIPE_CAPACITY, cache.size());
+        assertNull(cache.get("key1"));
+        assertEquals(99, cache.get("oneoff99"));
+    }
+
+    /**
+     * Test case to verify that a large cache is divided into stripes that together stay within the capacity.
+     */
+    @Test
+    void put_stripedCache_staysWithinCapacity() {
+        LruCache<Integer> cache = new LruCache<>(LruCache.STRIPES * LruCache.MIN_STRIPE_CAPACITY);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("key" + i, i);
+        }
+        assertTrue(cache.size() <= LruCache.STRIPES * LruCache.MIN_STRIPE_CAPACITY);
+        assertEquals(9999, cache.get("key9999"));
+    }
+}
@@ -1,12 +1,19 @@
 package searchengine;
 
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 
 class PageLoaderTest {
@@ -17,11 +24,6 @@ class PageLoaderTest {
         pageLoader = new PageLoader("");
     }
 
-    @AfterEach
-    void tearDown() {
-        PageLoader.resetState();
-    }
-
     /**
      * Test case for the processLines method when given an empty list of lines.
      * This test ensures that when an empty list of lines is passed to the processContent method, 
@@ -31,9 +33,9 @@ class PageLoaderTest {
     void processLines_emptyListOfLines_emptyInvIndexAndDocFreqs() {
         List<String> emptyLines = Arrays.asList();
         pageLoader.processContent(emptyLines);
-        assertTrue(PageLoader.getInvertedIndex().isEmpty());
-        assertTrue(PageLoader.getDocumentFrequencies().isEmpty());
-        assertEquals(0, PageLoader.getTotalDocuments());
+        assertTrue(pageLoader.getIndex().getInvertedIndex().isEmpty());
+        assertTrue(pageLoader.getIndex().getDocumentFrequencies().isEmpty());
+        assertEquals(0, pageLoader.getIndex().getTotalDocuments());
         }
     
     /**
@@ -43,15 +45,14 @@ class PageLoaderTest {
      */
     @Test
     void processLines_oneValidPage_InvIndexAndDocFreqsAndTotalDocsAreUpdated() {
-        PageLoader.resetState();
         List<String> validLines = Arrays.asList("*PAGE:http://page1.com", "Title 1", "word1", "word2");
         pageLoader.processContent(validLines);
-        assertFalse(PageLoader.getInvertedIndex().isEmpty());
-        assertEquals(1, PageLoader.getInvertedIndex().get("word1").size());
-        assertEquals(1, PageLoader.getDocumentFrequencies().get("word1"));
-        assertEquals(1, PageLoader.getInvertedIndex().get("word2").size());
-        assertEquals(1, PageLoader.getDocumentFrequencies().get("word2"));
-        assertEquals(1, PageLoader.getTotalDocuments());
+        assertFalse(pageLoader.getIndex().getInvertedIndex().isEmpty());
+        assertEquals(1, pageLoader.getIndex().getInvertedIndex().get("word1").size());
+        assertEquals(1, pageLoader.getIndex().getDocumentFrequencies().get("word1"));
+        assertEquals(1, pageLoader.getIndex().getInvertedIndex().get("word2").size());
+        assertEquals(1, pageLoader.getIndex().getDocumentFrequencies().get("word2"));
+        assertEquals(1, pageLoader.getIndex().getTotalDocuments());
     }
     /**
      * A test case to verify that the processContent method processes a list of valid lines,
@@ -64,12 +65,12 @@ class PageLoaderTest {
         "*PAGE:http://page2.com", "Title2", "word3", "word1",
         "*PAGE:http://page3.com", "Title3", "word4", "word2");
         pageLoader.processContent(validLines2);
-        assertFalse(PageLoader.getInvertedIndex().isEmpty());
-        assertEquals(2, PageLoader.getInvertedIndex().get("word1").size());
-        assertEquals(2, PageLoader.getDocumentFrequencies().get("word1"));
-        assertEquals(2, PageLoader.getInvertedIndex().get("word2").size());
-        assertEquals(1, PageLoader.getDocumentFrequencies().get("word3"));
-        assertEquals(3, PageLoader.getTotalDocuments());
+        assertFalse(pageLoader.getIndex().getInvertedIndex().isEmpty());
+        assertEquals(2, pageLoader.getIndex().getInvertedIndex().get("word1").size());
+        assertEquals(2, pageLoader.getIndex().getDocumentFrequencies().get("word1"));
+        assertEquals(2, pageLoader.getIndex().getInvertedIndex().get("word2").size());
+        assertEquals(1, pageLoader.getIndex().getDocumentFrequencies().get("word3"));
+        assertEquals(3, pageLoader.getIndex().getTotalDocuments());
     }
 
     /**
@@ -82,12 +83,12 @@ class PageLoaderTest {
         "*PAGE:http://page2.com", "Title2",
         "*PAGE:http://page3.com", "word2");
         pageLoader.processContent(validLines3);
-        assertFalse(PageLoader.getInvertedIndex().isEmpty());
-        assertEquals(1, PageLoader.getInvertedIndex().get("word1").size());
-        assertEquals(1, PageLoader.getDocumentFrequencies().get("word1"));
-        assertEquals(1, PageLoader.getInvertedIndex().get("word2").size());
-        assertEquals(1, PageLoader.getDocumentFrequencies().get("word2"));
-        assertEquals(1, PageLoader.getTotalDocuments());
+        assertFalse(pageLoader.getIndex().getInvertedIndex().isEmpty());
+        assertEquals(1, pageLoader.getIndex().getInvertedIndex().get("word1").size());
+        assertEquals(1, pageLoader.getIndex().getDocumentFrequencies().get("word1"));
+        assertEquals(1, pageLoader.getIndex().getInvertedIndex().get("word2").size());
+        assertEquals(1, pageLoader.getIndex().getDocumentFrequencies().get("word2"));
+        assertEquals(1, pageLoader.getIndex().getTotalDocuments());
     }
     
     /**
@@ -101,9 +102,103 @@ class PageLoaderTest {
     void processLines_oneInvalidPage_isNotProcessed() {
         List<String> invalidLines = Arrays.asList("*PAGE:http://page1.com", "Title1", " ", "   ");
         pageLoader.processContent(invalidLines);
-        assertTrue(PageLoader.getInvertedIndex().isEmpty());
-        assertTrue( PageLoader.getDocumentFrequencies().isEmpty());
-        assertEquals(0, PageLoader.getTotalDocuments());
+        assertTrue(pageLoader.getIndex().getInvertedIndex().isEmpty());
+        assertTrue( pageLoader.getIndex().getDocumentFrequencies().isEmpty());
+        assertEquals(0, pageLoader.getIndex().getTotalDocuments());
+    }
+
+    /**
+     * Test case to verify that a word repeated on a page is stored once in its posting list,
+     * together with the number of times it appears on the page.
+     */
+    @Test
+    void processLines_repeatedWord_storedOnceWithTermFrequency() {
+        List<String> lines = Arrays.asList("*PAGE:http://page1.com", "Title 1", "word1", "word1", "word1", "word2");
+        pageLoader.processContent(lines);
+        PostingList postings = pageLoader.getIndex().getInvertedIndex().get("word1");
+        assertEquals(1, postings.size());
+        assertEquals(3, postings.getFrequency(0));
+        assertEquals("http://page1.com", pageLoader.getIndex().getPage(postings.getDocId(0)).getUrl());
+    }
+
+    /**
+     * Test case to verify that loading a file in parallel gives the same index as loading it sequentially.
+     * A tiny chunk size is used so that the small test file is split into several chunks.
+     */
+    @Test
+    void parallelLoad_smallChunks_matchesSequentialLoad() {
+        Index sequential = new PageLoader("data/Testfiles/test-file2.txt").getIndex();
+        Index parallel = new PageLoader("data/Testfiles/test-file2.txt", 4, 16).getIndex();
+        assertEquals(urlsByWord(sequential), urlsByWord(parallel));
+        assertEquals(sequential.getDocumentFrequencies(), parallel.getDocumentFrequencies());
+        assertEquals(sequential.getTotalDocuments(), parallel.getTotalDocuments());
+        assertEquals(6, parallel.getTotalDocuments());
+    }
+
+    /**
+     * Test case to verify that a file whose lines end with a bare carriage return is split into chunks at its pages,
+     * so loading it in parallel finds the same pages as loading it sequentially.
+     */
+    @Test
+    void parallelLoad_carriageReturns_matchesSequentialLoad() throws IOException {
+        Path file = Files.createTempFile("carriage-returns", ".txt");
+        try {
+            Files.writeString(file, "*PAGE:http://a.com\rtitle a\rword\rcat\r*PAGE:http://b.com\rtitle b\rword\r"
+                    + "*PAGE:http://c.com\r\ntitle c\r\ndog\r\n");
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                assertEquals(List.of(0L, 36L, 68L, channel.size()), CorpusSplitter.findChunkOffsets(channel, 4));
+            }
+            Index sequential = new PageLoader(file.toString()).getIndex();
+            Index parallel = new PageLoader(file.toString(), 4, 4).getIndex();
+            assertEquals(3, sequential.getTotalDocuments());
+            assertEquals(urlsByWord(sequential), urlsByWord(parallel));
+            assertEquals(sequential.getTotalDocuments(), parallel.getTotalDocuments());
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    /**
+     * Test case to verify that processing new content publishes a new index,
+     * while an index retrieved earlier keeps its pages.
+     */
+    @Test
+    void processContent_newContent_earlierIndexIsUnchanged() {
+        pageLoader.processContent(Arrays.asList("*PAGE:http://page1.com", "Title 1", "word1"));
+        Index first = pageLoader.getIndex();
+        pageLoader.processContent(Arrays.asList("*PAGE:http://page2.com", "Title 2", "word2", "*PAGE:http://page3.com", "Title 3", "word2"));
+        assertNotSame(first, pageLoader.getIndex());
+        assertEquals(1, first.getTotalDocuments());
+        assertEquals(1, first.getInvertedIndex().get("word1").size());
+        assertNull(first.getInvertedIndex().get("word2"));
+        assertEquals(2, pageLoader.getIndex().getTotalDocuments());
+        assertTrue(first.getGeneration() < pageLoader.getIndex().getGeneration());
+    }
+
+    /**
+     * Test case to verify that every loaded index has a dictionary of its own holding only its own words,
+     * so the words of a replaced index are not kept alive by the next one, and that the estimate counts the dictionary.
+     */
+    @Test
+    void processContent_newContent_newIndexHasOwnDictionary() {
+        pageLoader.processContent(Arrays.asList("*PAGE:http://page1.com", "Title 1", "word1"));
+        Index first = pageLoader.getIndex();
+        pageLoader.processContent(Arrays.asList("*PAGE:http://page2.com", "Title 2", "word2"));
+        Index second = pageLoader.getIndex();
+        assertNotSame(first.getDictionary(), second.getDictionary());
+        assertEquals(-1, second.getDictionary().lookup("word1"));
+        assertEquals(1, second.getDictionary().size());
+        assertTrue(second.getEstimatedBytes() >= second.getDictionary().getEstimatedBytes());
+    }
+
+    private Map<String, List<String>> urlsByWord(Index index) {
+        Map<String, List<String>> urls = new HashMap<>();
+        index.getInvertedIndex().forEach((word, postings) -> {
+            for (int i = 0; i < postings.size(); i++) {
+                urls.computeIfAbsent(word, k -> new ArrayList<>()).add(index.getPage(postings.getDocId(i)).getUrl());
+            }
+        });
+        return urls;
     }
 
 }
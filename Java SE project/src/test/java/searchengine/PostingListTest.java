@@ -0,0 +1,76 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+class PostingListTest {
+
+    /**
+     * Test case to verify that documents added in ascending order can be looked up by id,
+     * and that the term frequency of each document is stored next to its id.
+     */
+    @Test
+    void add_ascendingDocIds_lookupsReturnFrequencies() {
+        PostingList postings = new PostingList();
+        postings.add(1, 3);
+        postings.add(4, 1);
+        postings.add(9, 2);
+        assertEquals(3, postings.size());
+        assertTrue(postings.contains(4));
+        assertFalse(postings.contains(5));
+        assertEquals(3, postings.frequencyOf(1));
+        assertEquals(0, postings.frequencyOf(2));
+        assertEquals(9, postings.getDocId(2));
+    }
+
+    /**
+     * Test case to verify that a document id that is not larger than the last one is rejected,
+     * since the ids of a posting list must stay sorted and unique.
+     */
+    @Test
+    void add_duplicateDocId_throwsException() {
+        PostingList postings = new PostingList();
+        postings.add(2, 1);
+        assertThrows(IllegalArgumentException.class, () -> postings.add(2, 1));
+    }
+
+    /**
+     * Test case to verify that appending another posting list shifts its ids by the given offset.
+     */
+    @Test
+    void addAll_withOffset_idsAreShifted() {
+        PostingList first = new PostingList();
+        first.add(0, 1);
+        PostingList second = new PostingList();
+        second.add(0, 2);
+        second.add(3, 5);
+        first.addAll(second, 10);
+        assertEquals(3, first.size());
+        assertEquals(10, first.getDocId(1));
+        assertEquals(5, first.frequencyOf(13));
+    }
+
+    /**
+     * Test case to verify that positions are read back as they were added, are copied when lists are appended,
+     * and are dropped once a document without positions is added.
+     */
+    @Test
+    void add_withPositions_positionsAreKeptUntilDocumentWithout() {
+        PostingList first = new PostingList();
+        first.add(0, new int[] {3, 7, 200, 70000}, 1, 3);
+        PostingList second = new PostingList();
+        second.add(2, new int[] {0, 1}, 0, 2);
+        first.addAll(second, 5);
+        assertTrue(first.hasPositions());
+        int[] positions = new int[4];
+        assertEquals(3, first.readPositions(0, positions));
+        assertArrayEquals(new int[] {7, 200, 70000}, Arrays.copyOf(positions, 3));
+        assertEquals(2, first.readPositions(1, positions));
+        assertArrayEquals(new int[] {0, 1}, Arrays.copyOf(positions, 2));
+        assertEquals(7, first.getDocId(1));
+        first.add(9, 1);
+        assertFalse(first.hasPositions());
+    }
+}
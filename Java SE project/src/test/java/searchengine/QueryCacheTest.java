@@ -0,0 +1,68 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Collections;
+import java.util.List;
+
+class QueryCacheTest {
+
+    private final Page page = new Page("http://page1.com", "title1", List.of("word1"));
+
+    /**
+     * Test case to verify that cached results are returned, and that hits and misses are counted.
+     */
+    @Test
+    void get_afterPut_returnsResultsAndCountsHitsAndMisses() {
+        QueryCache cache = new QueryCache(100);
+        assertNull(cache.get("word1"));
+        cache.put("word1", results(List.of(page)));
+        assertEquals(List.of(page), cache.get("word1").getPages());
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+    }
+
+    /**
+     * Test case to verify that a large cache is divided into stripes, that every stripe keeps its share of the capacity,
+     * and that results larger than a stripe are not cached.
+     */
+    @Test
+    void put_stripedCache_staysWithinCapacity() {
+        QueryCache cache = new QueryCache(QueryCache.STRIPES * QueryCache.MIN_STRIPE_CAPACITY);
+        for (int i = 0; i < 10_000; i++) {
+            cache.put("query" + i, results(List.of(page)));
+        }
+        assertTrue(cache.size() <= QueryCache.STRIPES * QueryCache.MIN_STRIPE_CAPACITY / 2);
+        assertTrue(cache.size() > QueryCache.MIN_STRIPE_CAPACITY / 2);
+        assertNotNull(cache.get("query9999"));
+        cache.put("broad", results(Collections.nCopies((int) QueryCache.MIN_STRIPE_CAPACITY, page)));
+        assertNull(cache.get("broad"));
+    }
+
+    /**
+     * Test case to verify that the least recently used entries are evicted once the total number
+     * of cached pages is over the capacity.
+     */
+    @Test
+    void put_overCapacity_evictsLeastRecentlyUsed() {
+        QueryCache cache = new QueryCache(4);
+        cache.put("a", results(List.of(page)));
+        cache.put("b", results(List.of(page)));
+        cache.get("a");
+        cache.put("c", results(List.of(page)));
+        assertNotNull(cache.get("a"));
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("c"));
+    }
+
+    /**
+     * Creates the top results of a query at offset 0.
+     *
+     * @param  pages  the pages of the results
+     * @return        the results, with every page counted as a hit
+     */
+    private static SearchHandler.ResultPage results(List<Page> pages) {
+        return new SearchHandler.ResultPage(pages, pages.size(), 0, pages.size(), null);
+    }
+}
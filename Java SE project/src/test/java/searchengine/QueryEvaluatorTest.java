@@ -0,0 +1,95 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+class QueryEvaluatorTest {
+
+    private static PostingList postings(int... docIds) {
+        PostingList list = new PostingList();
+        for (int docId : docIds) {
+            list.add(docId, 1);
+        }
+        return list;
+    }
+
+    /**
+     * Test case to verify that intersecting posting lists of very different lengths
+     * returns exactly the ids that are in every list.
+     */
+    @Test
+    void intersect_listsOfDifferentLengths_returnsCommonIds() {
+        int[] many = new int[1000];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = i * 2;
+        }
+        int[] result = QueryEvaluator.intersect(Arrays.asList(postings(many), postings(3, 4, 500, 1998, 2001), postings(4, 1998)));
+        assertArrayEquals(new int[] {4, 1998}, result);
+    }
+
+    /**
+     * Test case to verify that the intersection is empty if one of the words has no documents.
+     */
+    @Test
+    void intersect_withEmptyList_returnsNoIds() {
+        int[] result = QueryEvaluator.intersect(Arrays.asList(postings(1, 2, 3), PostingList.EMPTY));
+        assertEquals(0, result.length);
+    }
+
+    /**
+     * Test case to verify that the union of sorted id arrays is sorted and has no duplicates.
+     */
+    @Test
+    void union_overlappingLists_returnsSortedDistinctIds() {
+        int[] result = QueryEvaluator.union(List.of(new int[] {1, 5, 9}, new int[] {2, 5}, new int[] {}, new int[] {9, 10}));
+        assertArrayEquals(new int[] {1, 2, 5, 9, 10}, result);
+    }
+
+    /**
+     * Test case to verify that a query with two parts matches the pages that contain
+     * all words of either part, and that a part with a missing word matches nothing.
+     */
+    @Test
+    void evaluate_orQuery_returnsPagesMatchingAnyPart() {
+        Map<String, PostingList> invertedIndex = new HashMap<>();
+        invertedIndex.put("a", postings(0, 1, 2));
+        invertedIndex.put("b", postings(1, 2));
+        invertedIndex.put("c", postings(3));
+        assertArrayEquals(new int[] {1, 2, 3}, QueryEvaluator.evaluate(new Query("a b OR c"), invertedIndex));
+        assertArrayEquals(new int[] {3}, QueryEvaluator.evaluate(new Query("a missing OR c"), invertedIndex));
+    }
+
+    /**
+     * Test case to verify that a phrase only matches pages where its words are next to each other in order,
+     * and that NEAR matches words at most the given distance apart in either order.
+     */
+    @Test
+    void evaluate_phraseAndNear_checksPositions() {
+        IndexBuilder builder = new IndexBuilder(true);
+        builder.addPage(new Page("http://a.com", "A", List.of("new", "york", "has", "pizza")));
+        builder.addPage(new Page("http://b.com", "B", List.of("york", "new", "pizza", "is")));
+        builder.addPage(new Page("http://c.com", "C", List.of("pizza", "in", "old", "new", "york")));
+        Index index = builder.build();
+        assertArrayEquals(new int[] {0, 2}, QueryEvaluator.evaluate(new Query("\"new york\""), index));
+        assertArrayEquals(new int[] {0, 1}, QueryEvaluator.evaluate(new Query("york NEAR/2 pizza"), index));
+        assertArrayEquals(new int[] {0}, QueryEvaluator.evaluate(new Query("\"new york\" NEAR/2 pizza"), index));
+        assertArrayEquals(new int[] {1, 2}, QueryEvaluator.evaluate(new Query("\"new pizza\" OR \"old new york\""), index));
+    }
+
+    /**
+     * Test case to verify that a phrase on an index without positions only requires its words to be on the page.
+     */
+    @Test
+    void evaluate_phraseWithoutPositions_matchesAllWords() {
+        IndexBuilder builder = new IndexBuilder(false);
+        builder.addPage(new Page("http://a.com", "A", List.of("new", "york")));
+        builder.addPage(new Page("http://b.com", "B", List.of("york", "new")));
+        Index index = builder.build();
+        assertArrayEquals(new int[] {0, 1}, QueryEvaluator.evaluate(new Query("\"new york\""), index));
+    }
+}
@@ -0,0 +1,71 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class QueryPlanTest {
+
+    /**
+     * Test case to verify that the words of every part are resolved once and ordered from the rarest to the most common word,
+     * and that a part with a word no page contains is kept but does not match anything.
+     */
+    @Test
+    void compile_partsOrderedBySelectivity_evaluatesMatches() {
+        Index index = new PageLoader("data/Testfiles/test-file2.txt").getIndex();
+        QueryPlan plan = new QueryPlan(new Query("word1 word2 OR cat dog OR dog zzqueryplanmissing"), index);
+
+        assertEquals(5, plan.getTermCount());
+        int[][] parts = plan.getParts();
+        assertEquals(3, parts.length);
+        for (int[] part : parts) {
+            for (int i = 1; i < part.length; i++) {
+                assertTrue(plan.getDocumentFrequency(part[i - 1]) <= plan.getDocumentFrequency(part[i]));
+            }
+        }
+        assertEquals("zzqueryplanmissing", plan.getTerm(parts[2][0]));
+        assertEquals(-1, plan.getTermId(parts[2][0]));
+        assertEquals(0, plan.getIdf(parts[2][0]));
+        assertEquals(index.getPostings("dog").getIdf(), plan.getIdf(parts[2][1]));
+
+        int[] expected = {index.getDocId(findPage(index, "http://page1.com")), index.getDocId(findPage(index, "http://pets.com"))};
+        assertArrayEquals(expected, plan.evaluate());
+        assertArrayEquals(expected, QueryEvaluator.evaluate(new Query("word1 word2 OR cat dog OR dog zzqueryplanmissing"),
+                index.getInvertedIndex()));
+    }
+
+    /**
+     * Test case to verify that a repeated search term gets the cached plan for the same index,
+     * and a new plan from the already parsed query for another index, without dropping the plan of the first index.
+     */
+    @Test
+    void compile_repeatedSearchTerm_returnsCachedPlan() {
+        Index first = new PageLoader("data/Testfiles/test-file2.txt").getIndex();
+        QueryPlan plan = QueryPlan.compile("dog OR cat", first);
+        assertSame(plan, QueryPlan.compile("dog OR cat", first));
+
+        Index second = new PageLoader("data/Testfiles/test-file2.txt").getIndex();
+        QueryPlan recompiled = QueryPlan.compile("dog OR cat", second);
+        assertNotSame(plan, recompiled);
+        assertSame(plan.getQuery(), recompiled.getQuery());
+        assertSame(second, recompiled.getIndex());
+        assertSame(recompiled, QueryPlan.compile("dog OR cat", second));
+        assertSame(plan, QueryPlan.compile("dog OR cat", first));
+        assertEquals(3, recompiled.evaluate().length);
+    }
+
+    /**
+     * Finds the page with the given url.
+     *
+     * @param  index  the index to search
+     * @param  url    the url of the page
+     * @return        the page
+     */
+    private static Page findPage(Index index, String url) {
+        for (int docId = 0; docId < index.getTotalDocuments(); docId++) {
+            if (index.getPage(docId).getUrl().equals(url)) {
+                return index.getPage(docId);
+            }
+        }
+        throw new AssertionError("No page " + url);
+    }
+}
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 
 class QueryTest {
@@ -94,4 +95,75 @@ class QueryTest {
         List<Set<String>> expected = Arrays.asList(new HashSet<>(Arrays.asList("Word", "word")));
         assertEquals(expected, query.getQueryParts());
     }
+
+    /**
+     * A test case to verify that queries with the same parts in a different order,
+     * or with repeated parts, have the same canonical form.
+     */
+    @Test
+    void getCanonicalForm_reorderedAndRepeatedParts_areEqual() {
+        assertEquals("a b OR c", new Query("b a OR c").getCanonicalForm());
+        assertEquals("a b OR c", new Query("c OR a b OR b a").getCanonicalForm());
+        assertEquals("", new Query("").getCanonicalForm());
+    }
+
+    /**
+     * Test case to verify that splitting without regular expressions gives the same pieces as String.split
+     * with the regular expressions the query used before, for random search terms made of words, ORs and whitespace.
+     */
+    @Test
+    void split_randomSearchTerms_matchesRegularExpressions() {
+        String[] pieces = {"a", "b", "OR", "ORa", "aOR", " ", "  ", "\t", "\n", "\r\n", "\u000B", "\u00A0", "ø"};
+        Random random = new Random(1);
+        for (int i = 0; i < 20_000; i++) {
+            StringBuilder text = new StringBuilder();
+            int length = random.nextInt(8);
+            for (int j = 0; j < length; j++) {
+                text.append(pieces[random.nextInt(pieces.length)]);
+            }
+            String searchTerm = text.toString();
+            assertEquals(Arrays.asList(searchTerm.split("\\s+OR\\s+")), Query.split(searchTerm, true), "'" + searchTerm + "'");
+            assertEquals(Arrays.asList(searchTerm.split("\\s+")), Query.split(searchTerm, false), "'" + searchTerm + "'");
+        }
+    }
+
+    /**
+     * Test case to verify that repeated parts are kept once and that the parts cannot be modified.
+     */
+    @Test
+    void Query_repeatedParts_keptOnceAndUnmodifiable() {
+        Query query = new Query("a b OR c OR b a");
+        assertEquals(2, query.getQueryParts().size());
+        assertThrows(UnsupportedOperationException.class, () -> query.getQueryParts().get(0).add("d"));
+        assertThrows(UnsupportedOperationException.class, () -> query.getQueryParts().clear());
+    }
+
+    /**
+     * Test case to verify that quoted phrases and NEAR operators become proximity clauses of their part,
+     * while their words are still words of the part.
+     */
+    @Test
+    void Query_phraseAndNear_buildsProximityClauses() {
+        Query query = new Query("\"new york\" NEAR/5 pizza cheap OR \"war OR peace\"");
+        assertEquals(2, query.getQueryParts().size());
+        assertEquals(Set.of("new", "york", "pizza", "cheap"), query.getQueryParts().get(0));
+        ProximityClause clause = query.getProximityClauses().get(0).iterator().next();
+        assertEquals(List.of("new", "york", "pizza"), clause.getWords());
+        assertEquals(ProximityClause.PHRASE, clause.getDistance(0));
+        assertEquals(5, clause.getDistance(1));
+        assertEquals(List.of("war", "OR", "peace"), query.getProximityClauses().get(1).iterator().next().getWords());
+        assertEquals("\"war OR peace\" OR cheap \"new york\" NEAR/5 pizza", query.getCanonicalForm());
+    }
+
+    /**
+     * Test case to verify that a NEAR operator without a word on both sides, and a phrase of one word, are ordinary words.
+     */
+    @Test
+    void Query_nearWithoutOperand_isOrdinaryWord() {
+        Query query = new Query("NEAR/2 a \"b\" NEAR/3");
+        assertEquals(Set.of("NEAR/2", "a", "b", "NEAR/3"), query.getQueryParts().get(0));
+        assertTrue(query.getProximityClauses().get(0).isEmpty());
+        assertEquals(new Query("a b").getCanonicalForm(), new Query("a \"b\"").getCanonicalForm());
+        assertNotEquals(new Query("a b").getCanonicalForm(), new Query("\"a b\"").getCanonicalForm());
+    }
 }
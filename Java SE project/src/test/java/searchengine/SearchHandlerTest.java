@@ -1,12 +1,15 @@
 package searchengine;
 
 
-import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
 import java.util.List;
+import java.util.Random;
 import java.util.Set;
 import java.util.HashSet;
 
@@ -20,13 +23,8 @@ class SearchHandlerTest {
     @BeforeEach
     void setUp() {
        scoringMethod =new TermFrequencyScore();
-       searchHandler = new SearchHandler(scoringMethod);
        pageLoader = new PageLoader("data/Testfiles/test-searchHandler.txt");
-    }
-
-    @AfterEach
-    void tearDown() {
-        PageLoader.resetState();
+       searchHandler = new SearchHandler(pageLoader.getIndex(), scoringMethod);
     }
         
     /**
@@ -57,9 +55,9 @@ class SearchHandlerTest {
         Set<String>set1 = new HashSet<String>();
         set1.add("this");
         set1.add("sample");
-        assertTrue(SearchHandler.pageContainsAllParts(result.get(1), set1));
-        assertTrue(!SearchHandler.pageContainsAllParts(result.get(0), set1));
-        assertFalse(SearchHandler.pageContainsAllParts(null, set1));
+        assertTrue(searchHandler.pageContainsAllParts(result.get(1), set1));
+        assertTrue(!searchHandler.pageContainsAllParts(result.get(0), set1));
+        assertFalse(searchHandler.pageContainsAllParts(null, set1));
 
 
     }
@@ -85,4 +83,166 @@ class SearchHandlerTest {
 
     }
 
-}
\ No newline at end of file
+    /**
+     * Test case to verify that asking for the top result only returns the highest scoring page.
+     */
+    @Test
+    void search_topOne_ReturnsHighestScoringPage(){
+        List<Page> result = searchHandler.search("example", 1);
+        assertEquals(1, result.size());
+        assertEquals("http://page2.com", result.get(0).getUrl());
+    }
+
+    /**
+     * Test case to verify that the top k results, where documents are skipped using the block upper bounds,
+     * are the same as the first k results of a full ranking for both scoring methods.
+     */
+    @Test
+    void search_topKOnManyPages_MatchesFullRanking(){
+        Random random = new Random(42);
+        String[] words = {"alpha", "beta", "gamma", "delta"};
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            lines.add("*PAGE:http://page" + i + ".com");
+            lines.add("title" + i);
+            int length = 1 + random.nextInt(20);
+            for (int j = 0; j < length; j++) {
+                lines.add(words[random.nextInt(words.length)]);
+            }
+        }
+        pageLoader.processContent(lines);
+        for (ScoringMethod method : List.of(new TermFrequencyScore(), new TermFrequencyInverseDocumentScore())) {
+            SearchHandler handler = new SearchHandler(pageLoader.getIndex(), method);
+            for (String query : List.of("alpha", "alpha beta", "gamma OR beta delta")) {
+                List<Page> all = handler.search(query);
+                assertEquals(all.subList(0, 10), handler.search(query, 10));
+            }
+        }
+    }
+
+    /**
+     * Test case to verify that repeating an equivalent query is served from the query cache,
+     * and that a new index does not see the cached results of the old one.
+     * A handler of the old index keeps searching the old index, and its cached results survive searches of the new index.
+     */
+    @Test
+    void search_repeatedQuery_ServedFromCacheUntilIndexChanges(){
+        List<Page> first = searchHandler.search("this example");
+        long hits = searchHandler.getCache().getHits();
+        assertSame(first, searchHandler.search("example this"));
+        assertEquals(hits + 1, searchHandler.getCache().getHits());
+
+        pageLoader.processContent(List.of());
+        SearchHandler newHandler = new SearchHandler(pageLoader.getIndex(), scoringMethod);
+        assertNotSame(searchHandler.getCache(), newHandler.getCache());
+        assertTrue(newHandler.search("this example").isEmpty());
+        assertSame(first, searchHandler.search("this example"));
+    }
+
+    /**
+     * Test case to verify that paging through the results with offsets or with cursors
+     * gives the same pages as cutting up the full ranking, and that the total counts every hit.
+     */
+    @Test
+    void search_pagesWithOffsetAndCursor_MatchFullRanking(){
+        Random random = new Random(3);
+        String[] words = {"alpha", "beta", "gamma"};
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 95; i++) {
+            lines.add("*PAGE:http://page" + i + ".com");
+            lines.add("title" + i);
+            int length = 1 + random.nextInt(6);
+            for (int j = 0; j < length; j++) {
+                lines.add(words[random.nextInt(words.length)]);
+            }
+        }
+        pageLoader.processContent(lines);
+        SearchHandler handler = new SearchHandler(pageLoader.getIndex(), new TermFrequencyInverseDocumentScore());
+        List<Page> all = handler.search("alpha OR beta");
+
+        List<Page> byOffset = new ArrayList<>();
+        List<Page> byCursor = new ArrayList<>();
+        String cursor = null;
+        for (int offset = 0; offset < all.size(); offset += 10) {
+            SearchHandler.ResultPage page = handler.search("alpha OR beta", offset, 10, null);
+            assertEquals(all.size(), page.getTotal());
+            byOffset.addAll(page.getPages());
+            SearchHandler.ResultPage next = handler.search("alpha OR beta", 0, 10, cursor);
+            assertEquals(offset, next.getOffset());
+            byCursor.addAll(next.getPages());
+            cursor = next.getNextCursor();
+        }
+        assertNull(cursor);
+        assertEquals(all, byOffset);
+        assertEquals(all, byCursor);
+        assertTrue(handler.search("alpha OR beta", all.size(), 10, null).getPages().isEmpty());
+    }
+
+    /**
+     * Test case to verify that neighbouring pages of results are cut from one cached ranking,
+     * which also gives their total, so the query is not evaluated again.
+     */
+    @Test
+    void search_neighbouringPages_shareCachedRanking(){
+        SearchHandler handler = new SearchHandler(pageLoader.getIndex(), scoringMethod, new QueryCache(100));
+        SearchHandler.ResultPage first = handler.search("example", 0, 1, null);
+        assertEquals(1, handler.getCache().getMisses());
+        SearchHandler.ResultPage second = handler.search("example", 1, 1, null);
+        assertEquals(1, handler.getCache().getMisses());
+        assertEquals(1, handler.getCache().getHits());
+        assertEquals(first.getTotal(), second.getTotal());
+        assertEquals(handler.search("example").subList(1, 2), second.getPages());
+    }
+
+    /**
+     * Test case to verify that a snippet starts a few words before the first word of the query on the page,
+     * holds at most the snippet length, and starts at the beginning of the content if the word is not found.
+     */
+    @Test
+    void snippets_longPage_windowAroundFirstQueryWord(){
+        List<String> lines = new ArrayList<>(List.of("*PAGE:http://long.com", "Long"));
+        for (int i = 0; i < 40; i++) {
+            lines.add(i == 12 ? "needle" : "word" + i);
+        }
+        pageLoader.processContent(lines);
+        SearchHandler handler = new SearchHandler(pageLoader.getIndex(), scoringMethod);
+        List<Page> results = handler.search("needle");
+        String snippet = handler.snippets("needle", results).get(0);
+        assertTrue(snippet.startsWith("word" + (12 - SearchHandler.SNIPPET_CONTEXT) + " "));
+        assertEquals(SearchHandler.SNIPPET_WORDS, snippet.split(" ").length);
+        assertTrue(handler.snippets("missing", results).get(0).startsWith("word0 word1 "));
+    }
+
+    /**
+     * Test case to verify that a cursor is rejected for another query, and that malformed input is rejected.
+     */
+    @Test
+    void search_cursorOfOtherQuery_ThrowsIllegalArgumentException(){
+        String cursor = searchHandler.search("example", 0, 1, null).getNextCursor();
+        assertNotNull(cursor);
+        assertEquals("http://page1.com", searchHandler.search("example", 0, 1, cursor).getPages().get(0).getUrl());
+        assertThrows(IllegalArgumentException.class, () -> searchHandler.search("this", 0, 1, cursor));
+        assertThrows(IllegalArgumentException.class, () -> searchHandler.search("example", 0, 1, "!!"));
+        assertThrows(IllegalArgumentException.class, () -> searchHandler.search("example", -1, 1, null));
+    }
+
+    /**
+     * Test case to verify that an offset above the maximum, and a cursor claiming more results than the query has,
+     * are rejected with a clear message instead of overflowing while the page is cut from the ranking.
+     */
+    @Test
+    void search_offsetOrCursorPastResults_ThrowsIllegalArgumentException(){
+        IllegalArgumentException tooDeep = assertThrows(IllegalArgumentException.class,
+                () -> searchHandler.search("example", Integer.MAX_VALUE, 1, null));
+        assertTrue(tooDeep.getMessage().contains("offset"));
+        assertTrue(searchHandler.search("example", SearchHandler.MAX_OFFSET, Integer.MAX_VALUE, null).getPages().isEmpty());
+
+        String cursor = searchHandler.search("example", 0, 1, null).getNextCursor();
+        String[] fields = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split(":");
+        fields[3] = Integer.toString(Integer.MAX_VALUE);
+        String crafted = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(String.join(":", fields).getBytes(StandardCharsets.UTF_8));
+        assertThrows(IllegalArgumentException.class, () -> searchHandler.search("example", 0, 1, crafted));
+    }
+
+}
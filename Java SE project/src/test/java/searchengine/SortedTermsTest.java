@@ -0,0 +1,125 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+class SortedTermsTest {
+
+    private final TermDictionary termDictionary = new TermDictionary();
+
+    private SortedTerms dictionary(List<String> words) {
+        int[] termIds = new int[words.size()];
+        for (int i = 0; i < termIds.length; i++) {
+            termIds[i] = termDictionary.getOrAdd(words.get(i));
+        }
+        return new SortedTerms(termDictionary, termIds);
+    }
+
+    private List<String> words(int[] termIds) {
+        List<String> words = new ArrayList<>();
+        for (int termId : termIds) {
+            words.add(termDictionary.getTerm(termId));
+        }
+        return words;
+    }
+
+    private static int editDistance(String a, String b) {
+        int[][] table = new int[a.length() + 1][b.length() + 1];
+        for (int i = 0; i <= a.length(); i++) {
+            for (int j = 0; j <= b.length(); j++) {
+                table[i][j] = i == 0 ? j : j == 0 ? i : Math.min(table[i - 1][j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1),
+                        Math.min(table[i - 1][j], table[i][j - 1]) + 1);
+            }
+        }
+        return table[a.length()][b.length()];
+    }
+
+    /**
+     * Test case to verify that a prefix lookup returns the shortest words starting with the prefix,
+     * shortest first and then in sorted order, and no more than the limit.
+     */
+    @Test
+    void prefix_manyMatches_returnsShortestFirst() {
+        SortedTerms terms = dictionary(List.of("sortedtermsdog", "sortedtermsdoge", "sortedtermsdogma", "sortedtermsdogs",
+                "sortedtermscat", "sortedtermsdo"));
+        assertEquals(List.of("sortedtermsdog", "sortedtermsdoge", "sortedtermsdogs"), words(terms.prefix("sortedtermsdog", 3)));
+        assertEquals(0, terms.prefix("sortedtermsdogz", 3).length);
+    }
+
+    /**
+     * Test case to verify that fuzzy and wildcard lookups find exactly the words a brute force search finds,
+     * for random words over a small alphabet.
+     */
+    @Test
+    void fuzzyAndWildcard_randomWords_matchBruteForce() {
+        Random random = new Random(7);
+        Set<String> unique = new HashSet<>();
+        while (unique.size() < 1000) {
+            StringBuilder word = new StringBuilder("st");
+            int length = random.nextInt(8);
+            for (int i = 0; i < length; i++) {
+                word.append("abc".charAt(random.nextInt(3)));
+            }
+            unique.add(word.toString());
+        }
+        List<String> all = new ArrayList<>(unique);
+        SortedTerms terms = dictionary(all);
+        for (int round = 0; round < 200; round++) {
+            String target = all.get(random.nextInt(all.size()));
+            int edits = random.nextInt(SortedTerms.MAX_EDITS + 1);
+            Set<String> expected = new HashSet<>();
+            for (String word : all) {
+                if (editDistance(word, target) <= edits) {
+                    expected.add(word);
+                }
+            }
+            List<String> found = words(terms.fuzzy(target, edits, Integer.MAX_VALUE));
+            assertEquals(expected, new HashSet<>(found), target + "~" + edits);
+            assertEquals(target, found.get(0));
+
+            String pattern = "st" + target.substring(2).replace('a', '?').replace("bc", "*");
+            String regex = pattern.replace("?", ".").replace("*", ".*");
+            Set<String> expectedWildcard = new HashSet<>();
+            for (String word : all) {
+                if (word.matches(regex)) {
+                    expectedWildcard.add(word);
+                }
+            }
+            assertEquals(expectedWildcard, new HashSet<>(words(terms.wildcard(pattern, Integer.MAX_VALUE))), pattern);
+        }
+    }
+
+    /**
+     * Test case to verify that a pattern starting with '*' checks at most {@value SortedTerms#MAX_SCANNED} words,
+     * so a match beyond that many words of a large dictionary is not found, while a pattern with a literal prefix is.
+     */
+    @Test
+    void wildcard_leadingStarOnLargeDictionary_stopsAfterScanBudget() {
+        List<String> all = new ArrayList<>();
+        for (int i = 0; i < 2 * SortedTerms.MAX_SCANNED; i++) {
+            all.add("w" + i);
+        }
+        all.add("zzend");
+        SortedTerms terms = dictionary(all);
+        assertEquals(0, terms.wildcard("*zzend", 10).length);
+        assertEquals(List.of("zzend"), words(terms.wildcard("z*end", 10)));
+    }
+
+    /**
+     * Test case to verify that a pattern too long for the bits of a long only checks the words with its literal prefix,
+     * and still finds the words it matches there.
+     */
+    @Test
+    void wildcard_longPattern_matchesWordsWithItsPrefix() {
+        String tail = "x".repeat(70);
+        SortedTerms terms = dictionary(List.of("ab" + tail, "abc" + tail, "b" + tail, "ab"));
+        assertEquals(List.of("ab" + tail, "abc" + tail), words(terms.wildcard("ab*" + tail, 10)));
+        assertEquals(List.of("abc" + tail), words(terms.wildcard("ab?" + tail, 10)));
+    }
+}
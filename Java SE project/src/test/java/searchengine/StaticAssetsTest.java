@@ -0,0 +1,50 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.zip.GZIPInputStream;
+
+class StaticAssetsTest {
+
+    /**
+     * Test case to verify that the files of the web directory are loaded with their mime type,
+     * and that the gzip copy of a text file is smaller and decompresses to the original content.
+     */
+    @Test
+    void get_existingTextFile_hasMimeTypeAndValidGzipCopy() throws IOException {
+        StaticAssets assets = new StaticAssets("web");
+        StaticAssets.Asset asset = assets.get("index.html");
+        assertEquals("text/html", asset.getMime());
+        assertArrayEquals(FileHandler.getFile("web/index.html"), asset.getContent());
+        assertTrue(asset.getGzipContent().length < asset.getContent().length);
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(asset.getGzipContent()))) {
+            assertArrayEquals(asset.getContent(), in.readAllBytes());
+        }
+    }
+
+    /**
+     * Test case to verify that an If-None-Match header matches the ETag of either copy of the file,
+     * including weak and wildcard forms, but not an unrelated ETag.
+     */
+    @Test
+    void matches_ifNoneMatchHeaders_matchesOnlyCurrentEtags() {
+        StaticAssets.Asset asset = new StaticAssets("web").get("style.css");
+        assertTrue(asset.matches(asset.getEtag(false)));
+        assertTrue(asset.matches("\"other\", " + asset.getEtag(true)));
+        assertTrue(asset.matches("W/" + asset.getEtag(false)));
+        assertTrue(asset.matches("*"));
+        assertFalse(asset.matches("\"other\""));
+        assertFalse(asset.matches(null));
+    }
+
+    /**
+     * Test case to verify that a file that does not exist is not served.
+     */
+    @Test
+    void get_missingFile_returnsNull() {
+        assertNull(new StaticAssets("web").get("missing.js"));
+    }
+}
@@ -0,0 +1,144 @@
+package searchengine;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+class StoredFieldsTest {
+    private Path directory;
+    private Path source;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory("stored-fields-test");
+        source = directory.resolve("corpus.txt");
+        Files.copy(Paths.get("data/Testfiles/test-file2.txt"), source);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(Paths.get(source + IndexSegment.EXTENSION));
+        Files.deleteIfExists(Paths.get(source + StoredFields.EXTENSION));
+        Files.deleteIfExists(source);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * Test case to verify that the content of every page can be read back from a stored fields file,
+     * including pages in later blocks of the file.
+     */
+    @Test
+    void getContent_writtenFile_matchesPageContent() throws IOException {
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            lines.add("*PAGE:http://page" + i + ".com");
+            lines.add("title" + i);
+            for (int j = 0; j <= i % 5; j++) {
+                lines.add("word" + i + "x" + j);
+            }
+        }
+        PageLoader pageLoader = new PageLoader("");
+        pageLoader.processContent(lines);
+        Index index = pageLoader.getIndex();
+        Path file = directory.resolve("pages" + StoredFields.EXTENSION);
+        StoredFields.write(index, file, null);
+        StoredFields stored = StoredFields.open(file, null);
+        Files.delete(file);
+
+        assertEquals(40, stored.getDocumentCount());
+        for (int docId = 0; docId < 40; docId++) {
+            assertEquals(index.getPage(docId).getContent(), stored.getContent(docId));
+        }
+        assertThrows(IndexOutOfBoundsException.class, () -> stored.getContent(40));
+    }
+
+    /**
+     * Test case to verify that with stored fields the pages no longer hold their content in memory,
+     * while searching still works and the content and snippets are read from disk, also when the index file is opened again.
+     */
+    @Test
+    void open_storedFields_contentDroppedAndReadFromDisk() {
+        PageLoader loaded = PageLoader.open(source.toString(), 1, true);
+        PageLoader reopened = PageLoader.open(source.toString(), 1, true);
+        for (PageLoader pageLoader : List.of(loaded, reopened)) {
+            Index index = pageLoader.getIndex();
+            int docId = index.getPostings("dog").getDocId(0);
+            assertEquals(0, index.getPage(docId).getTermIds().length);
+            assertFalse(index.getPage(docId).hasContent());
+            assertEquals(2, index.getPage(docId).getTotalTerms());
+            assertEquals(List.of("dog", "cat"), index.getContent(docId));
+            assertEquals(2, new SearchHandler(index, new TermFrequencyScore()).search("dog").size());
+            SearchHandler handler = new SearchHandler(index, new TermFrequencyScore());
+            assertEquals(List.of("dog cat"), handler.snippets("dog", List.of(index.getPage(docId))));
+        }
+    }
+
+    /**
+     * Test case to verify that copying an index with stored fields leaves the original index and its pages unchanged,
+     * and that stored fields for another number of pages are rejected.
+     */
+    @Test
+    void withStoredFields_dropContent_originalIndexUnchanged() throws IOException {
+        PageLoader pageLoader = new PageLoader(source.toString());
+        Index index = pageLoader.getIndex();
+        Path file = directory.resolve("copy" + StoredFields.EXTENSION);
+        StoredFields.write(index, file, null);
+        StoredFields stored = StoredFields.open(file, null);
+        Files.delete(file);
+
+        Index copy = index.withStoredFields(stored, true);
+        int docId = index.getPostings("dog").getDocId(0);
+        assertEquals(List.of("dog", "cat"), index.getPage(docId).getContent());
+        assertEquals(0, copy.getPage(docId).getTermIds().length);
+        assertEquals(List.of("dog", "cat"), copy.getContent(docId));
+        assertEquals(docId, copy.getDocId(copy.getPage(docId)));
+        assertThrows(IllegalArgumentException.class, () -> Index.EMPTY.withStoredFields(stored, true));
+    }
+
+    /**
+     * Test case to verify that a missing stored fields file makes open load the dataset again
+     * instead of serving pages without content.
+     */
+    @Test
+    void open_missingStoredFields_rebuildsIndex() throws IOException {
+        PageLoader.open(source.toString(), 1, false);
+        Files.delete(Paths.get(source + StoredFields.EXTENSION));
+        Index index = PageLoader.open(source.toString(), 1, true).getIndex();
+        assertTrue(Files.exists(Paths.get(source + StoredFields.EXTENSION)));
+        assertEquals(List.of("word1", "word2"), index.getContent(index.getPostings("word2").getDocId(0)));
+    }
+
+    /**
+     * Test case to verify that without the stored fields setting the stored fields file is still written,
+     * so the snippets of an index opened from its file after a restart are the same as those of the loaded dataset.
+     */
+    @Test
+    void open_withoutStoredFields_snippetsSameAfterRestart() {
+        Index loaded = PageLoader.open(source.toString(), 1, false).getIndex();
+        Index reopened = PageLoader.open(source.toString(), 1, false).getIndex();
+        assertTrue(loaded.getPage(0).hasContent());
+        assertFalse(reopened.getPage(0).hasContent());
+        assertEquals(snippets(loaded, "word1"), snippets(reopened, "word1"));
+        assertEquals(List.of("word1 word2", "word1 word3"), snippets(reopened, "word1"));
+    }
+
+    /**
+     * Builds the snippets of the pages found by a search.
+     *
+     * @param  index       the index to search
+     * @param  searchTerm  the query
+     * @return             the snippet of every page found, in the order of the results
+     */
+    private static List<String> snippets(Index index, String searchTerm) {
+        SearchHandler handler = new SearchHandler(index, new TermFrequencyScore());
+        return handler.snippets(searchTerm, handler.search(searchTerm));
+    }
+}
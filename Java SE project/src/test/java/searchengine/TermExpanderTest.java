@@ -0,0 +1,53 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+import java.util.Set;
+
+class TermExpanderTest {
+
+    private static Index index() {
+        IndexBuilder builder = new IndexBuilder();
+        builder.addPage(new Page("http://dog.com", "Dog", List.of("expanderdog", "barks")));
+        builder.addPage(new Page("http://dogs.com", "Dogs", List.of("expanderdogs", "barks", "loudly")));
+        builder.addPage(new Page("http://cat.com", "Cat", List.of("expandercat", "meows")));
+        return builder.build();
+    }
+
+    /**
+     * Test case to verify that prefix, wildcard and fuzzy words are recognized, and that a word of only wildcards,
+     * or starting with a wildcard, is not.
+     */
+    @Test
+    void isPattern_querySyntax_recognizesPatterns() {
+        assertTrue(TermExpander.isPattern("dog*"));
+        assertTrue(TermExpander.isPattern("d?g"));
+        assertTrue(TermExpander.isPattern("colour~"));
+        assertTrue(TermExpander.isPattern("colour~2"));
+        assertFalse(TermExpander.isPattern("colour~3"));
+        assertFalse(TermExpander.isPattern("*"));
+        assertFalse(TermExpander.isPattern("*dog"));
+        assertFalse(TermExpander.isPattern("?og*"));
+        assertFalse(TermExpander.isPattern("~"));
+        assertFalse(TermExpander.isPattern("dog"));
+    }
+
+    /**
+     * Test case to verify that a part with a prefix word is replaced by one part per expansion,
+     * that the expanded query matches the pages of every expansion, and that a pattern matching nothing stays as it is.
+     */
+    @Test
+    void expand_prefixAndFuzzy_feedsOrParts() {
+        Index index = index();
+        Query expanded = TermExpander.expand(new Query("expanderdog* barks"), index);
+        assertEquals(Set.of(Set.of("expanderdog", "barks"), Set.of("expanderdogs", "barks")), Set.copyOf(expanded.getQueryParts()));
+        assertArrayEquals(new int[] {0, 1}, QueryEvaluator.evaluate(new Query("expanderdog* barks"), index));
+        assertArrayEquals(new int[] {2}, QueryEvaluator.evaluate(new Query("expandercats~1"), index));
+        assertArrayEquals(new int[] {1}, QueryEvaluator.evaluate(new Query("expander?ogs lou*"), index));
+        assertEquals(List.of(Set.of("expanderzz*")), TermExpander.expand(new Query("expanderzz*"), index).getQueryParts());
+        Query plain = new Query("barks");
+        assertSame(plain, TermExpander.expand(plain, index));
+    }
+}
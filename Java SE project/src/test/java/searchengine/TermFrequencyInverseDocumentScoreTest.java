@@ -36,7 +36,7 @@ class TermFrequencyInverseDocumentScoreTest {
     @Test
     void testScoreWithNoMatchingTerms() {
         mockQuery = new Query("nonexistent");
-        double actualScore = scorer.score(mockPage, mockQuery);
+        double actualScore = scorer.score(Index.EMPTY, mockPage, mockQuery);
         assertEquals(0, actualScore, "Score should be zero when no terms match.");
     }
 
@@ -36,7 +36,7 @@ class TermFrequencyScoreTest {
     @Test
     void testScoreWithValidTerms() {
         double expectedScore = 3; 
-        double actualScore = scorer.score(mockPage, mockQuery);
+        double actualScore = scorer.score(Index.EMPTY, mockPage, mockQuery);
         assertEquals(expectedScore, actualScore, "Score should be correctly calculated for valid terms.");
     }
 
@@ -48,7 +48,19 @@ class TermFrequencyScoreTest {
     @Test
     void testScoreWithNoMatchingTerms() {
         mockQuery = new Query("nonexistent");
-        double actualScore = scorer.score(mockPage, mockQuery);
+        double actualScore = scorer.score(Index.EMPTY, mockPage, mockQuery);
         assertEquals(0, actualScore, "Score should be zero when no terms match.");
     }
-}
\ No newline at end of file
+
+    /**
+     * Tests the score calculation for a page that has been loaded into the index.
+     * The term frequencies are then read from the posting lists instead of the page content.
+     */
+    @Test
+    void testScoreWithIndexedPage() {
+        Index index = new PageLoader("data/Testfiles/test-searchHandler.txt").getIndex();
+        Page indexedPage = index.getPage(index.getInvertedIndex().get("another").getDocId(0));
+        mockQuery = new Query("example another");
+        assertEquals(5, scorer.score(index, indexedPage, mockQuery), "Score should use the indexed term frequencies.");
+    }
+}
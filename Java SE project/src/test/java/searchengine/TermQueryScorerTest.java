@@ -0,0 +1,52 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+class TermQueryScorerTest {
+
+    /**
+     * Test case to verify that scoring blocks of documents gives exactly the same scores as scoring the pages one by one,
+     * for every scoring method, over several blocks and for a query that repeats a term in two parts.
+     */
+    @Test
+    void score_blocks_matchPageByPageScores() {
+        CorpusGenerator generator = new CorpusGenerator(3, 500, 1.0, 40, 0.8);
+        PageLoader pageLoader = new PageLoader();
+        pageLoader.processContent(generator.lines(300));
+        Index index = pageLoader.getIndex();
+        Query query = new Query(generator.word(0) + " " + generator.word(5) + " OR " + generator.word(5)
+                + " OR " + generator.word(40) + " " + generator.word(2) + " nonexistent");
+        int[] docIds = QueryEvaluator.evaluate(query, index);
+        assertTrue(docIds.length > 2 * QueryScorer.BATCH_SIZE);
+
+        ScoringMethod[] methods = {new TermFrequencyScore(), new TermFrequencyInverseDocumentScore(),
+                new BM25Score(), new BM25FScore()};
+        for (ScoringMethod method : methods) {
+            QueryScorer scorer = method.prepare(index, query);
+            for (int start = 0; start < docIds.length; start += QueryScorer.BATCH_SIZE) {
+                int[] block = Arrays.copyOfRange(docIds, start, Math.min(start + QueryScorer.BATCH_SIZE, docIds.length));
+                double[] scores = new double[block.length];
+                scorer.score(block, block.length, scores);
+                for (int i = 0; i < block.length; i++) {
+                    double expected = method.score(index, index.getPage(block[i]), query);
+                    assertEquals(expected, scores[i], method.getName() + " doc " + block[i]);
+                }
+            }
+        }
+    }
+
+    /**
+     * Test case to verify that a scoring method without its own query scorer is scored page by page by the default query scorer.
+     */
+    @Test
+    void prepare_defaultScorer_usesScoreMethod() {
+        Index index = new PageLoader("data/Testfiles/test-searchHandler.txt").getIndex();
+        ScoringMethod constant = (scoredIndex, page, query) -> page.getId() + 0.5;
+        double[] scores = new double[2];
+        constant.prepare(index, new Query("example")).score(new int[] {0, 1}, 2, scores);
+        assertArrayEquals(new double[] {0.5, 1.5}, scores);
+    }
+}
@@ -0,0 +1,47 @@
+package searchengine;
+
+import org.junit.jupiter.api.Test;
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKCollectorTest {
+
+    /**
+     * Test case to verify that only the k highest scores are kept, and that they are returned from best to worst.
+     */
+    @Test
+    void offer_moreDocumentsThanK_keepsHighestScoresInOrder() {
+        TopKCollector topK = new TopKCollector(3, 6);
+        double[] scores = {1.0, 5.0, 3.0, 0.5, 4.0, 2.0};
+        for (int docId = 0; docId < scores.length; docId++) {
+            topK.offer(docId, scores[docId]);
+        }
+        assertTrue(topK.isFull());
+        assertEquals(3.0, topK.threshold());
+        assertArrayEquals(new int[] {1, 4, 2}, topK.drainRanked());
+    }
+
+    /**
+     * Test case to verify that documents with equal scores are ranked by ascending id,
+     * so a later document with the same score as the threshold is not kept.
+     */
+    @Test
+    void offer_equalScores_lowerIdRanksFirst() {
+        TopKCollector topK = new TopKCollector(2, 3);
+        topK.offer(0, 1.0);
+        topK.offer(1, 2.0);
+        assertFalse(topK.offer(2, 1.0));
+        assertArrayEquals(new int[] {1, 0}, topK.drainRanked());
+    }
+
+    /**
+     * Test case to verify that a collector with a very large k only grows as documents are offered.
+     */
+    @Test
+    void offer_largeK_keepsAllDocuments() {
+        TopKCollector topK = new TopKCollector(Integer.MAX_VALUE, 0);
+        topK.offer(0, 1.0);
+        topK.offer(1, 3.0);
+        assertFalse(topK.isFull());
+        assertArrayEquals(new int[] {1, 0}, topK.drainRanked());
+    }
+}
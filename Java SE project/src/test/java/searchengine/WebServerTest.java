@@ -9,6 +9,7 @@ import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse.BodyHandlers;
 import java.util.Random;
+import java.util.concurrent.ExecutorService;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
@@ -42,7 +43,7 @@ class WebServerTest {
 
     @AfterAll
     void tearDown() {
-        server.server.stop(0);
+        server.stopServer();
         server = null;
     }
 
@@ -61,6 +62,18 @@ class WebServerTest {
          
     }
 
+    /**
+     * Test case to verify that a search with a limit returns an object with the total number of hits,
+     * and that an invalid limit is rejected.
+     */
+    @Test
+    void lookupWebServer_withLimit_ReturnsResultPage() {
+        String baseURL = String.format("http://localhost:%d/search?q=", server.server.getAddress().getPort());
+        assertEquals("{\"total\": 0, \"offset\": 0, \"limit\": 5, \"next\": null, \"results\": []}",
+                httpGet(baseURL + "flower1&limit=5"));
+        assertTrue(httpGet(baseURL + "flower1&limit=x").startsWith("{\"message\": "));
+    }
+
     /**
      * Test case to verify that the startServer method starts the server successfully.
      * It checks if the port is between 1024 and 61023 to ensure that the server is running on a valid port.
@@ -76,6 +89,55 @@ class WebServerTest {
 
     }
 
+    /**
+     * Test case to verify that a request is answered with 503 when the worker threads cannot take it.
+     * The workers are shut down before the request is sent, so every request is rejected.
+     */
+    @Test
+    void route_workersSaturated_Returns503() throws IOException, InterruptedException {
+        ExecutorService workers = WebServer.createWorkers(WebServer.ExecutorMode.BOUNDED, 1, 1);
+        workers.shutdown();
+        WebServer busyServer = new WebServer(0, null, new TermFrequencyScore(), 0, workers);
+        busyServer.server.start();
+        try {
+            var uri = URI.create(String.format("http://localhost:%d/", busyServer.server.getAddress().getPort()));
+            var response = HttpClient.newHttpClient()
+                    .send(HttpRequest.newBuilder().uri(uri).GET().build(), BodyHandlers.ofString());
+            assertEquals(503, response.statusCode());
+        } finally {
+            busyServer.stopServer();
+        }
+    }
+
+    /**
+     * Test case to verify that static files are sent with an ETag and caching headers,
+     * and that a request repeating the ETag in If-None-Match is answered with 304 and no body.
+     */
+    @Test
+    void staticAsset_repeatedRequestWithEtag_Returns304() throws IOException, InterruptedException {
+        var uri = URI.create(String.format("http://localhost:%d/code.js", server.server.getAddress().getPort()));
+        var client = HttpClient.newHttpClient();
+        var first = client.send(HttpRequest.newBuilder().uri(uri).GET().build(), BodyHandlers.ofString());
+        assertEquals(200, first.statusCode());
+        assertEquals(FileHandler.readString("web/code.js"), first.body());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+        assertEquals("no-cache", first.headers().firstValue("Cache-Control").orElseThrow());
+
+        var second = client.send(HttpRequest.newBuilder().uri(uri).header("If-None-Match", etag).GET().build(),
+                BodyHandlers.ofString());
+        assertEquals(304, second.statusCode());
+        assertEquals("", second.body());
+    }
+
+    /**
+     * Test case to verify that the admin endpoint reports the state of the index reloader.
+     */
+    @Test
+    void adminReload_get_ReturnsReport() {
+        String url = String.format("http://localhost:%d/admin/reload", server.server.getAddress().getPort());
+        assertTrue(httpGet(url).startsWith("{\"state\": \"idle\""));
+    }
+
     private String httpGet(String url) {
         var uri = URI.create(url);
         var client = HttpClient.newHttpClient();
@@ -1,23 +1,70 @@
 /* jshint esversion: 6 */
 
+const PAGE_SIZE = 20;
+
+let currentSearch = null;
+
 document.getElementById('searchbutton').onclick = () => {
     let searchTerm = encodeURIComponent(document.getElementById('searchbox').value);
-    fetch("/search?q=" + searchTerm)
+    currentSearch = searchTerm;
+    document.getElementById("urllist").innerHTML = `<ul></ul>`;
+    loadPage(searchTerm, null);
+};
+
+function loadPage(searchTerm, cursor) {
+    let url = "/search?q=" + searchTerm + "&limit=" + PAGE_SIZE;
+    if (cursor) {
+        url += "&cursor=" + encodeURIComponent(cursor);
+    }
+    fetch(url)
     .then((response) => response.json())
     .then((data) => {
-        if (data[0] && data[0].message) {
-            document.getElementById("responsesize").innerHTML = 
-                `<p>${data[0].message}</p>`;
-            document.getElementById("urllist").innerHTML = `<ul></ul>`;
-        } else {
-            document.getElementById("responsesize").innerHTML = 
-                `<p>${data.length} websites retrieved</p>`;
-
-                let results = data.map((page) =>
-                `<li><a href="${page.url}">${page.title}</a></li>`)
-                .join("\n");
-            document.getElementById("urllist").innerHTML = `<ul>${results}</ul>`;
+        if (searchTerm !== currentSearch) {
+            return;
+        }
+        if (data.message) {
+            showMessage(data.message);
+            return;
+        }
+        if (data.total === 0) {
+            showMessage("No web page contains the query word.");
+            return;
+        }
+        showMessage(`${data.total} websites retrieved`);
+
+        let list = document.getElementById("urllist");
+        let items = list.querySelector("ul");
+        data.results.forEach((page) => items.appendChild(resultItem(page)));
+
+        let more = document.getElementById("morebutton");
+        if (more) {
+            more.remove();
+        }
+        if (data.next) {
+            list.insertAdjacentHTML("beforeend", `<button id="morebutton">More results</button>`);
+            document.getElementById("morebutton").onclick = () => loadPage(searchTerm, data.next);
         }
-        
     });
-};
\ No newline at end of file
+}
+
+// Shows a message above the results as text, so nothing in it is read as HTML.
+function showMessage(message) {
+    let paragraph = document.createElement("p");
+    paragraph.textContent = message;
+    document.getElementById("responsesize").replaceChildren(paragraph);
+}
+
+// Builds the list item of a result from text nodes, since the url, title and snippet are taken
+// from the crawled pages and must never be read as HTML. Only http and https links are made clickable.
+function resultItem(page) {
+    let item = document.createElement("li");
+    let link = document.createElement("a");
+    if (/^https?:\/\//i.test(page.url)) {
+        link.href = page.url;
+    }
+    link.textContent = page.title;
+    let snippet = document.createElement("p");
+    snippet.textContent = page.snippet || "";
+    item.append(link, snippet);
+    return item;
+}